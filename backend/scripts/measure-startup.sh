@@ -0,0 +1,42 @@
+#!/bin/bash
+
+# Measure time-to-first-request of the backend image, with and without
+# AOT processing + CDS archive.
+#
+# Usage: ./scripts/measure-startup.sh [runs]
+#   DOCKER_RUN_ARGS  extra `docker run` arguments, e.g. "--env-file ../.env --network bell-ringer_bell-ringer-network"
+#
+# The clock starts at `docker run` and stops at the first HTTP response of any
+# status (authentication is not needed to prove the server is serving).
+
+set -e
+
+RUNS=${1:-5}
+PORT=${PORT:-18080}
+cd "$(dirname "$0")/.."
+
+measure() {
+  local image=$1
+  local times=()
+  for _ in $(seq "$RUNS"); do
+    local start end
+    start=$(date +%s%N)
+    local cid
+    cid=$(docker run -d --rm -p "$PORT:8080" $DOCKER_RUN_ARGS "$image")
+    until [ "$(curl -s -o /dev/null -w '%{http_code}' "http://localhost:$PORT/")" != "000" ]; do
+      sleep 0.05
+    done
+    end=$(date +%s%N)
+    docker stop "$cid" > /dev/null
+    times+=($(( (end - start) / 1000000 )))
+  done
+  local median
+  median=$(printf '%s\n' "${times[@]}" | sort -n | sed -n "$(( (RUNS + 1) / 2 ))p")
+  echo "$image: median ${median} ms (runs: ${times[*]})"
+}
+
+docker build -q --build-arg AOT_CDS=false -t bell-ringer-backend:plain . > /dev/null
+docker build -q --build-arg AOT_CDS=true -t bell-ringer-backend:aot-cds . > /dev/null
+
+measure bell-ringer-backend:plain
+measure bell-ringer-backend:aot-cds
@@ -0,0 +1,5 @@
+#!/bin/sh
+# Runs once when the primary's data directory is created (docker-entrypoint-initdb.d):
+# allow streaming replication connections from the replica container.
+set -e
+echo "host replication ${POSTGRES_USER} all scram-sha-256" >> "$PGDATA/pg_hba.conf"
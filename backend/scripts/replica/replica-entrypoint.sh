@@ -0,0 +1,12 @@
+#!/bin/sh
+# Streaming replica of the "postgres" service: clone it on first start, then run as a hot standby.
+set -e
+if [ ! -s "$PGDATA/PG_VERSION" ]; then
+  until PGPASSWORD="$POSTGRES_PASSWORD" pg_basebackup -h postgres -U "$POSTGRES_USER" -D "$PGDATA" -R -X stream; do
+    echo "Waiting for the primary..."
+    rm -rf "${PGDATA:?}"/*
+    sleep 2
+  done
+  chmod 700 "$PGDATA"
+fi
+exec postgres -c hot_standby=on
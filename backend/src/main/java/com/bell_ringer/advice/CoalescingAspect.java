@@ -0,0 +1,62 @@
+package com.bell_ringer.advice;
+
+import com.bell_ringer.services.Coalesced;
+import com.bell_ringer.services.SingleFlight;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Applies {@link Coalesced}. Runs outside the transaction advice, so callers
+ * that join an in-flight invocation do not open a transaction of their own.
+ *
+ * Metrics: bellringer.coalesce.calls{method, outcome=executed|shared}; the
+ * coalescing rate of a method is shared / (executed + shared).
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class CoalescingAspect {
+
+  private final SingleFlight<Invocation, Object> singleFlight = new SingleFlight<>();
+  private final MeterRegistry meterRegistry;
+
+  public CoalescingAspect(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  @Around("@annotation(coalesced)")
+  public Object coalesce(ProceedingJoinPoint call, Coalesced coalesced) throws Throwable {
+    String method = call.getSignature().getDeclaringType().getSimpleName() + "." + call.getSignature().getName();
+    Invocation invocation = new Invocation(method, Arrays.asList(call.getArgs()));
+
+    SingleFlight.Result<Object> result = singleFlight.execute(invocation, () -> {
+      try {
+        return call.proceed();
+      } catch (RuntimeException | Error e) {
+        throw e;
+      } catch (Throwable t) {
+        throw new IllegalStateException(t);
+      }
+    });
+
+    Counter.builder("bellringer.coalesce.calls")
+        .tag("method", method)
+        .tag("outcome", result.shared() ? "shared" : "executed")
+        .register(meterRegistry)
+        .increment();
+    return result.value();
+  }
+
+  /** Key of a call: method plus arguments (compared with equals) */
+  private record Invocation(String method, List<Object> args) {
+  }
+}
@@ -8,6 +8,7 @@ import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -68,6 +69,13 @@ public class GlobalExceptionHandler {
     return ResponseEntity.status(status).body(body(status, msg, req));
   }
 
+  // 403 — authenticated but not allowed
+  @ExceptionHandler(AccessDeniedException.class)
+  public ResponseEntity<Map<String, Object>> handleAccessDenied(AccessDeniedException ex, HttpServletRequest req) {
+    HttpStatus status = HttpStatus.FORBIDDEN;
+    return ResponseEntity.status(status).body(body(status, ex.getMessage(), req));
+  }
+
   // 404 — not found
   @ExceptionHandler(NoSuchElementException.class)
   public ResponseEntity<Map<String, Object>> handleNotFound(NoSuchElementException ex, HttpServletRequest req) {
@@ -75,6 +83,13 @@ public class GlobalExceptionHandler {
     return ResponseEntity.status(status).body(body(status, ex.getMessage(), req));
   }
 
+  // 409 — operation conflicts with the current state (e.g. attempt already completed)
+  @ExceptionHandler(IllegalStateException.class)
+  public ResponseEntity<Map<String, Object>> handleIllegalState(IllegalStateException ex, HttpServletRequest req) {
+    HttpStatus status = HttpStatus.CONFLICT;
+    return ResponseEntity.status(status).body(body(status, ex.getMessage(), req));
+  }
+
   // 409 — constraint / FK / unique violations
   @ExceptionHandler(DataIntegrityViolationException.class)
   public ResponseEntity<Map<String, Object>> handleDataIntegrity(DataIntegrityViolationException ex, HttpServletRequest req) {
@@ -0,0 +1,91 @@
+package com.bell_ringer.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The application DataSource. Without bellringer.datasource.replica.url it is
+ * the usual Hikari pool on spring.datasource.*. With it, read-only
+ * transactions are routed to a second pool on the replica (see
+ * {@link ReplicaRoutingDataSource}).
+ *
+ * The replica is a runtime switch rather than a bean condition, for the same
+ * reason as {@link FlywayConfig}: conditions are frozen into the AOT image.
+ * So is the statement profiling wrapper ({@link SqlProfilingDataSource},
+ * bellringer.sql-profiling.enabled) around either.
+ */
+@Configuration
+public class DataSourceConfig {
+
+  private static final Logger logger = LoggerFactory.getLogger(DataSourceConfig.class);
+
+  private final List<HikariDataSource> pools = new ArrayList<>();
+  private ReplicaRoutingDataSource routing;
+
+  @Bean
+  @Primary
+  public DataSource dataSource(DataSourceProperties properties, Environment environment, SqlProfiler profiler) {
+    DataSource dataSource = pooledDataSource(properties, environment);
+    if (!environment.getProperty("bellringer.sql-profiling.enabled", Boolean.class, true)) {
+      return dataSource;
+    }
+    return new SqlProfilingDataSource(dataSource, profiler);
+  }
+
+  private DataSource pooledDataSource(DataSourceProperties properties, Environment environment) {
+    Binder binder = Binder.get(environment);
+    HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    binder.bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+    pools.add(primary);
+
+    String replicaUrl = environment.getProperty("bellringer.datasource.replica.url", "");
+    if (replicaUrl.isBlank()) {
+      return primary;
+    }
+
+    HikariDataSource replica = new HikariDataSource();
+    replica.setJdbcUrl(replicaUrl);
+    replica.setUsername(environment.getProperty("bellringer.datasource.replica.username", primary.getUsername()));
+    replica.setPassword(environment.getProperty("bellringer.datasource.replica.password", primary.getPassword()));
+    replica.setPoolName("replica");
+    replica.setReadOnly(true);
+    replica.setMaximumPoolSize(
+        environment.getProperty("bellringer.datasource.replica.maximum-pool-size", Integer.class, 10));
+    pools.add(replica);
+
+    Duration stickyWindow = binder.bind("bellringer.datasource.replica.sticky-window", Duration.class)
+        .orElse(Duration.ofSeconds(5));
+    Duration maxLag = binder.bind("bellringer.datasource.replica.max-lag", Duration.class)
+        .orElse(Duration.ofSeconds(2));
+    routing = new ReplicaRoutingDataSource(primary, replica, stickyWindow, maxLag);
+    logger.info("Routing read-only transactions to replica {} (sticky window {}, max lag {})",
+        replicaUrl, stickyWindow, maxLag);
+    return new LazyConnectionDataSourceProxy(routing);
+  }
+
+  @Scheduled(fixedDelayString = "${bellringer.datasource.replica.lag-check-interval:5s}")
+  public void checkReplicaLag() {
+    if (routing != null) routing.checkLag();
+  }
+
+  @PreDestroy
+  public void closePools() {
+    pools.forEach(HikariDataSource::close);
+  }
+}
@@ -1,5 +1,6 @@
 package com.bell_ringer.config;
 
+import com.bell_ringer.services.jfr.TokenVerificationEvent;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseToken;
 import jakarta.servlet.FilterChain;
@@ -46,14 +47,19 @@ public class FirebaseAuthenticationFilter extends OncePerRequestFilter {
       return;
     }
 
+    TokenVerificationEvent verification = new TokenVerificationEvent();
+    verification.begin();
     try {
       FirebaseToken decoded = firebaseAuth.verifyIdToken(token, true); // checks revocation
+      verification.valid = true;
+      verification.commit();
       Collection<SimpleGrantedAuthority> authorities = extractAuthorities(decoded.getClaims());
       FirebaseUserAuthentication authentication =
           new FirebaseUserAuthentication(decoded, authorities);
 
       SecurityContextHolder.getContext().setAuthentication(authentication);
     } catch (Exception ex) {
+      if (!verification.valid) verification.commit();
       logger.error("Firebase authentication failed for request {} {}", request.getMethod(), request.getRequestURI(), ex);
       // Optionally log at debug level; do not leak details to client
       SecurityContextHolder.clearContext();
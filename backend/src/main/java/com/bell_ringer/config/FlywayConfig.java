@@ -0,0 +1,32 @@
+package com.bell_ringer.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class FlywayConfig {
+
+  private static final Logger logger = LoggerFactory.getLogger(FlywayConfig.class);
+
+  /**
+   * Migrations run on startup unless bellringer.flyway.migrate-on-startup=false.
+   * This is a runtime switch on purpose: spring.flyway.enabled is frozen into the
+   * AOT-processed image, while the CDS training run of the Docker build has no
+   * database to migrate.
+   */
+  @Bean
+  public FlywayMigrationStrategy flywayMigrationStrategy(
+      @Value("${bellringer.flyway.migrate-on-startup:true}") boolean migrateOnStartup) {
+    return flyway -> {
+      if (migrateOnStartup) {
+        flyway.migrate();
+      } else {
+        logger.info("Skipping Flyway migrations (bellringer.flyway.migrate-on-startup=false)");
+      }
+    };
+  }
+}
@@ -2,6 +2,8 @@ package com.bell_ringer.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
+
 @ConfigurationProperties(prefix = "bellringer.generation")
 public class GenerationProperties {
 
@@ -21,17 +23,43 @@ public class GenerationProperties {
     public void setHard(double v) { this.hard = v; }
   }
 
+  /** Recently-seen filter: questions of the user's last N quizzes are skipped while stock allows */
+  public static class Recent {
+    private int quizzes = 5;
+    private long maxUsers = 10_000;
+    private Duration expireAfterAccess = Duration.ofHours(1);
+
+    // getters/setters
+    public int getQuizzes() { return quizzes; }
+    public void setQuizzes(int v) { this.quizzes = v; }
+    public long getMaxUsers() { return maxUsers; }
+    public void setMaxUsers(long v) { this.maxUsers = v; }
+    public Duration getExpireAfterAccess() { return expireAfterAccess; }
+    public void setExpireAfterAccess(Duration v) { this.expireAfterAccess = v; }
+  }
+
   private Base base = new Base();
+  private Recent recent = new Recent();
   private double noise = 0.10;
   private double adaptiveAlpha = 0.6;
+  /** Draw by the difficulty measured in question_stats where there is one, instead of the label */
+  private boolean empiricalDifficulty = false;
+  /** Adaptive mode: draw the questions rated closest to the user (RatingEngine) instead of a difficulty quota */
+  private boolean ratingSelection = false;
 
   // getters/setters
   public int getMinQuizzesForAdaptive() { return minQuizzesForAdaptive; }
   public void setMinQuizzesForAdaptive(int v) { this.minQuizzesForAdaptive = v; }
   public Base getBase() { return base; }
   public void setBase(Base base) { this.base = base; }
+  public Recent getRecent() { return recent; }
+  public void setRecent(Recent recent) { this.recent = recent; }
   public double getNoise() { return noise; }
   public void setNoise(double v) { this.noise = v; }
   public double getAdaptiveAlpha() { return adaptiveAlpha; }
   public void setAdaptiveAlpha(double v) { this.adaptiveAlpha = v; }
+  public boolean isEmpiricalDifficulty() { return empiricalDifficulty; }
+  public void setEmpiricalDifficulty(boolean v) { this.empiricalDifficulty = v; }
+  public boolean isRatingSelection() { return ratingSelection; }
+  public void setRatingSelection(boolean v) { this.ratingSelection = v; }
 }
\ No newline at end of file
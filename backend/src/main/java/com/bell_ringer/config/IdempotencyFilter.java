@@ -0,0 +1,223 @@
+package com.bell_ringer.config;
+
+import com.bell_ringer.services.IdempotencyStore;
+import com.bell_ringer.services.IdempotencyStore.StoredResponse;
+import com.google.firebase.auth.FirebaseToken;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Idempotency-Key support for the endpoints retried by flaky clients
+ * (bellringer.idempotency.paths). The first request with a key is executed
+ * and its response recorded; a retry with the same key and body gets the
+ * recorded response (Idempotent-Replayed: true) without being executed, and
+ * one arriving while the first is still running waits for it. Reusing a key
+ * with a different body is refused with 422.
+ *
+ * Keys are scoped to the authenticated user, method and path. 5xx responses
+ * are not recorded, so such requests can be retried for real.
+ */
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+  public static final String HEADER = "Idempotency-Key";
+  public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+  private static final Set<String> METHODS = Set.of("POST", "PUT", "PATCH");
+  private static final int MAX_KEY_LENGTH = 255;
+  private static final int MAX_RECORDED_BODY = 1024 * 1024;
+
+  private final IdempotencyStore store;
+  private final List<String> paths;
+  private final Duration waitTimeout;
+  private final AntPathMatcher matcher = new AntPathMatcher();
+
+  public IdempotencyFilter(IdempotencyStore store, List<String> paths, Duration waitTimeout) {
+    this.store = store;
+    this.paths = List.copyOf(paths);
+    this.waitTimeout = waitTimeout;
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    if (request.getHeader(HEADER) == null || !METHODS.contains(request.getMethod())) return true;
+    String path = request.getRequestURI().substring(request.getContextPath().length());
+    return paths.stream().noneMatch(pattern -> matcher.match(pattern, path));
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    String idempotencyKey = request.getHeader(HEADER).trim();
+    if (idempotencyKey.isEmpty() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+      response.sendError(HttpStatus.BAD_REQUEST.value(), HEADER + " must be 1-" + MAX_KEY_LENGTH + " characters");
+      return;
+    }
+
+    CachedBodyRequest cachedRequest = new CachedBodyRequest(request);
+    String fingerprint = sha256(cachedRequest.body);
+    String key = sha256((caller() + "\n" + request.getMethod() + " " + request.getRequestURI() + "\n" + idempotencyKey)
+        .getBytes(StandardCharsets.UTF_8));
+
+    // A retry of a request that already completed, or one still in flight
+    Optional<StoredResponse> recorded = store.find(key);
+    CompletableFuture<Optional<StoredResponse>> running = recorded.isPresent() ? null : store.claim(key);
+    if (running != null) {
+      recorded = await(running);
+      if (recorded.isEmpty()) {
+        // The first execution failed (not recorded) or took too long: run this one normally
+        chain.doFilter(cachedRequest, response);
+        return;
+      }
+    }
+    if (recorded.isEmpty()) {
+      // The first execution may have completed between the lookup and the claim
+      recorded = store.find(key);
+      if (recorded.isPresent()) store.complete(key, recorded.get());
+    }
+    if (recorded.isPresent()) {
+      replay(recorded.get(), fingerprint, response);
+      return;
+    }
+
+    // We own the key: execute and record the response
+    ContentCachingResponseWrapper wrapped = new ContentCachingResponseWrapper(response);
+    StoredResponse toRecord = null;
+    try {
+      chain.doFilter(cachedRequest, wrapped);
+      byte[] body = wrapped.getContentAsByteArray();
+      if (wrapped.getStatus() < 500 && body.length <= MAX_RECORDED_BODY && !request.isAsyncStarted()) {
+        toRecord = new StoredResponse(fingerprint, wrapped.getStatus(), wrapped.getContentType(), body);
+      }
+    } finally {
+      store.complete(key, toRecord);
+      wrapped.copyBodyToResponse();
+    }
+  }
+
+  private Optional<StoredResponse> await(CompletableFuture<Optional<StoredResponse>> running) throws ServletException {
+    try {
+      return running.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      return Optional.empty();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ServletException("Interrupted while waiting for an in-flight idempotent request", e);
+    } catch (ExecutionException e) {
+      return Optional.empty();
+    }
+  }
+
+  private static void replay(StoredResponse stored, String fingerprint, HttpServletResponse response)
+      throws IOException {
+    if (!stored.fingerprint().equals(fingerprint)) {
+      response.sendError(HttpStatus.UNPROCESSABLE_ENTITY.value(),
+          HEADER + " was already used for a different request");
+      return;
+    }
+    response.setStatus(stored.status());
+    response.setHeader(REPLAYED_HEADER, "true");
+    if (stored.contentType() != null) response.setContentType(stored.contentType());
+    response.setContentLength(stored.body().length);
+    response.getOutputStream().write(stored.body());
+  }
+
+  private static String caller() {
+    Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+    if (auth == null) return "";
+    return (auth.getPrincipal() instanceof FirebaseToken token) ? token.getUid() : auth.getName();
+  }
+
+  private static String sha256(byte[] bytes) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+  }
+
+  /** Request whose body was read up front so it can be fingerprinted and read again */
+  private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+    private final byte[] body;
+
+    CachedBodyRequest(HttpServletRequest request) throws IOException {
+      super(request);
+      this.body = request.getInputStream().readAllBytes();
+    }
+
+    @Override
+    public ServletInputStream getInputStream() {
+      ByteArrayInputStream in = new ByteArrayInputStream(body);
+      return new ServletInputStream() {
+        @Override
+        public int read() {
+          return in.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+          return in.read(b, off, len);
+        }
+
+        @Override
+        public boolean isFinished() {
+          return in.available() == 0;
+        }
+
+        @Override
+        public boolean isReady() {
+          return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener listener) {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
+
+    @Override
+    public BufferedReader getReader() {
+      String encoding = getCharacterEncoding() != null ? getCharacterEncoding() : StandardCharsets.UTF_8.name();
+      return new BufferedReader(new InputStreamReader(getInputStream(), Charset.forName(encoding)));
+    }
+
+    @Override
+    public int getContentLength() {
+      return body.length;
+    }
+
+    @Override
+    public long getContentLengthLong() {
+      return body.length;
+    }
+  }
+}
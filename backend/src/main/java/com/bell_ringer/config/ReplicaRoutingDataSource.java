@@ -0,0 +1,118 @@
+package com.bell_ringer.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.firebase.auth.FirebaseToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Sends read-only transactions to the replica and everything else to the
+ * primary. A read goes to the primary instead when:
+ * <ul>
+ * <li>the same user committed a read-write transaction within the sticky
+ * window (read-your-writes), or</li>
+ * <li>the replica's replay lag exceeds the threshold, or the replica could
+ * not be reached on the last check.</li>
+ * </ul>
+ *
+ * Must be wrapped in a LazyConnectionDataSourceProxy so the connection is
+ * fetched after the transaction's read-only flag is known.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+  private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+  enum Target {
+    PRIMARY,
+    REPLICA
+  }
+
+  // Time since the last replayed transaction, or 0 when the replica has replayed everything it received
+  private static final String LAG_QUERY = """
+      SELECT CASE
+               WHEN NOT pg_is_in_recovery() THEN 0
+               WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+               ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0)
+             END
+      """;
+
+  private final DataSource replica;
+  private final Duration maxLag;
+  private final Cache<String, Boolean> recentWriters;
+
+  private volatile boolean replicaUsable = true;
+
+  public ReplicaRoutingDataSource(DataSource primary, DataSource replica, Duration stickyWindow, Duration maxLag) {
+    this.replica = replica;
+    this.maxLag = maxLag;
+    this.recentWriters = Caffeine.newBuilder()
+        .maximumSize(100_000)
+        .expireAfterWrite(stickyWindow)
+        .build();
+    setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+    setDefaultTargetDataSource(primary);
+    afterPropertiesSet();
+  }
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+    String uid = currentUid();
+    if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+      if (uid != null && TransactionSynchronizationManager.isSynchronizationActive()) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+          @Override
+          public void afterCommit() {
+            recentWriters.put(uid, Boolean.TRUE);
+          }
+        });
+      }
+      return Target.PRIMARY;
+    }
+    if (!replicaUsable) return Target.PRIMARY;
+    if (uid != null && recentWriters.getIfPresent(uid) != null) return Target.PRIMARY;
+    return Target.REPLICA;
+  }
+
+  /** Measure replica lag and decide whether reads may use it */
+  public void checkLag() {
+    boolean usable;
+    try (Connection conn = replica.getConnection();
+        Statement st = conn.createStatement();
+        ResultSet rs = st.executeQuery(LAG_QUERY)) {
+      rs.next();
+      Duration lag = Duration.ofMillis(Math.round(rs.getDouble(1) * 1000));
+      usable = lag.compareTo(maxLag) <= 0;
+      if (!usable && replicaUsable) log.warn("Replica lag {} exceeds {}; reading from the primary", lag, maxLag);
+    } catch (SQLException e) {
+      usable = false;
+      if (replicaUsable) log.warn("Replica unreachable, reading from the primary: {}", e.getMessage());
+    }
+    if (usable && !replicaUsable) log.info("Replica caught up; read-only transactions use it again");
+    replicaUsable = usable;
+  }
+
+  public boolean isReplicaUsable() {
+    return replicaUsable;
+  }
+
+  private static String currentUid() {
+    Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+    if (auth == null || auth instanceof AnonymousAuthenticationToken) return null;
+    return (auth.getPrincipal() instanceof FirebaseToken token) ? token.getUid() : auth.getName();
+  }
+}
@@ -0,0 +1,12 @@
+package com.bell_ringer.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables @Scheduled jobs (e.g. the live session tick).
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -1,23 +1,31 @@
 package com.bell_ringer.config;
 
+import com.bell_ringer.services.IdempotencyStore;
 import com.google.firebase.auth.FirebaseAuth;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.AuthorizationFilter;
 import org.springframework.security.web.authentication.AnonymousAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 
+import java.time.Duration;
 import java.util.List;
 
 @Configuration
 public class SecurityConfig {
 
   @Bean
-  public SecurityFilterChain securityFilterChain(HttpSecurity http, FirebaseAuth firebaseAuth)
+  public SecurityFilterChain securityFilterChain(HttpSecurity http, FirebaseAuth firebaseAuth,
+      IdempotencyStore idempotencyStore,
+      @Value("${bellringer.idempotency.paths:}") List<String> idempotentPaths,
+      @Value("${bellringer.idempotency.wait-timeout:30s}") Duration idempotencyWaitTimeout)
       throws Exception {
     var firebaseFilter = new FirebaseAuthenticationFilter(firebaseAuth);
+    var idempotencyFilter = new IdempotencyFilter(idempotencyStore, idempotentPaths, idempotencyWaitTimeout);
 
     http
         .csrf(csrf -> csrf.disable())
@@ -38,10 +46,16 @@ public class SecurityConfig {
             .requestMatchers("/api/v1/users/ping").permitAll()
             // Add root endpoint for basic connectivity test
             .requestMatchers("/").permitAll()
+            // Maintenance endpoints
+            .requestMatchers("/api/v1/admin/**").hasRole("ADMIN")
+            .requestMatchers("/actuator/flightrecording/**", "/actuator/flightrecording").hasRole("ADMIN")
+            .requestMatchers("/actuator/sqlprofile/**", "/actuator/sqlprofile").hasRole("ADMIN")
             // Everything else requires authentication
             .anyRequest().authenticated())
         // Insert our Firebase filter before the anonymous auth filter
-        .addFilterBefore(firebaseFilter, AnonymousAuthenticationFilter.class);
+        .addFilterBefore(firebaseFilter, AnonymousAuthenticationFilter.class)
+        // Idempotency-Key replay runs once the caller is known and authorized
+        .addFilterAfter(idempotencyFilter, AuthorizationFilter.class);
     // Remove HTTP Basic auth to prevent browser prompts
     // .httpBasic(Customizer.withDefaults());
 
@@ -0,0 +1,34 @@
+package com.bell_ringer.config;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * {@code GET /actuator/sqlprofile}: statements, JDBC time and slowest
+ * statements per endpoint since startup or the last
+ * {@code DELETE /actuator/sqlprofile}. Restricted to admins in SecurityConfig.
+ */
+@Component
+@Endpoint(id = "sqlprofile")
+public class SqlProfileEndpoint {
+
+  private final SqlProfiler profiler;
+
+  public SqlProfileEndpoint(SqlProfiler profiler) {
+    this.profiler = profiler;
+  }
+
+  @ReadOperation
+  public Map<String, SqlProfiler.EndpointReport> report() {
+    return profiler.report();
+  }
+
+  @DeleteOperation
+  public void reset() {
+    profiler.reset();
+  }
+}
@@ -0,0 +1,202 @@
+package com.bell_ringer.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Statement-level SQL profile. {@link SqlProfilingDataSource} reports every
+ * executed statement with its JDBC time; they are attributed to the scopes
+ * open on the executing thread: one per HTTP request
+ * ({@link SqlProfilingFilter}), or one opened by a test to check a query
+ * budget. Statements run on other threads (schedulers, parallel jobs, the
+ * followers of a coalesced call) belong to no request.
+ *
+ * Per endpoint it keeps the number of requests, statements and JDBC time,
+ * the most statements of one request and the slowest statements seen, and
+ * publishes bellringer.sql.statements and bellringer.sql.time per endpoint.
+ */
+@Component
+public class SqlProfiler {
+
+  private static final int MAX_SQL_LENGTH = 500;
+  // Statements listed per scope for budget failure messages
+  private static final int MAX_LISTED = 100;
+  // Route patterns are few; this only guards against a flood of unexpected keys
+  private static final int MAX_ENDPOINTS = 500;
+
+  // Resolved lazily: the registry's binders need the DataSource, which needs this
+  private final ObjectProvider<MeterRegistry> meters;
+  private final int slowest;
+  private final ThreadLocal<Scope> current = new ThreadLocal<>();
+  private final Map<String, EndpointStats> endpoints = new ConcurrentHashMap<>();
+
+  public SqlProfiler(ObjectProvider<MeterRegistry> meters,
+      @Value("${bellringer.sql-profiling.slowest:5}") int slowest) {
+    if (slowest < 0)
+      throw new IllegalArgumentException("bellringer.sql-profiling.slowest must be >= 0");
+    this.meters = meters;
+    this.slowest = slowest;
+  }
+
+  // ----------------- Scopes -----------------
+
+  /**
+   * Start counting the statements this thread executes, until the scope is
+   * closed. Scopes nest: a statement counts in every open scope.
+   */
+  public Scope open() {
+    Scope scope = new Scope(current.get());
+    current.set(scope);
+    return scope;
+  }
+
+  void record(String sql, long nanos) {
+    for (Scope scope = current.get(); scope != null; scope = scope.parent) {
+      scope.add(sql, nanos);
+    }
+  }
+
+  /** Statements of one thread between {@link #open} and {@link #close} */
+  public final class Scope implements AutoCloseable {
+    private final Scope parent;
+    private final List<ExecutedStatement> executed = new ArrayList<>();
+    private int statements;
+    private long nanos;
+
+    private Scope(Scope parent) {
+      this.parent = parent;
+    }
+
+    private void add(String sql, long elapsed) {
+      statements++;
+      nanos += elapsed;
+      if (executed.size() < MAX_LISTED) executed.add(new ExecutedStatement(truncate(sql), elapsed));
+    }
+
+    public int statements() {
+      return statements;
+    }
+
+    public long nanos() {
+      return nanos;
+    }
+
+    /** The first statements executed, in order */
+    public List<ExecutedStatement> executed() {
+      return List.copyOf(executed);
+    }
+
+    @Override
+    public void close() {
+      if (current.get() == this) {
+        if (parent == null) current.remove();
+        else current.set(parent);
+      }
+    }
+  }
+
+  public record ExecutedStatement(String sql, long nanos) {
+  }
+
+  private static String truncate(String sql) {
+    if (sql == null) return "";
+    return sql.length() <= MAX_SQL_LENGTH ? sql : sql.substring(0, MAX_SQL_LENGTH) + "...";
+  }
+
+  // ----------------- Per endpoint -----------------
+
+  /** Add the statements of a finished request to its endpoint ("GET /api/v1/...") */
+  void recordRequest(String endpoint, Scope scope) {
+    EndpointStats stats = endpoints.get(endpoint);
+    if (stats == null) {
+      if (endpoints.size() >= MAX_ENDPOINTS) return;
+      stats = endpoints.computeIfAbsent(endpoint, EndpointStats::new);
+    }
+    stats.add(scope);
+
+    MeterRegistry registry = meters.getIfAvailable();
+    if (registry == null) return;
+    DistributionSummary.builder("bellringer.sql.statements")
+        .description("JDBC statements per request")
+        .tag("endpoint", endpoint)
+        .register(registry)
+        .record(scope.statements());
+    Timer.builder("bellringer.sql.time")
+        .description("JDBC time per request")
+        .tag("endpoint", endpoint)
+        .register(registry)
+        .record(scope.nanos(), TimeUnit.NANOSECONDS);
+  }
+
+  /** Endpoints by total JDBC time, highest first */
+  public Map<String, EndpointReport> report() {
+    Map<String, EndpointReport> out = new LinkedHashMap<>();
+    endpoints.values().stream()
+        .map(EndpointStats::report)
+        .sorted(Comparator.comparingDouble(EndpointReport::totalMillis).reversed())
+        .forEach(report -> out.put(report.endpoint(), report));
+    return out;
+  }
+
+  public void reset() {
+    endpoints.clear();
+  }
+
+  public record EndpointReport(String endpoint, long requests, long statements, double statementsPerRequest,
+      int maxStatements, double totalMillis, List<SlowStatement> slowest) {
+  }
+
+  public record SlowStatement(String sql, double millis) {
+  }
+
+  private final class EndpointStats {
+    private final String endpoint;
+    private final List<ExecutedStatement> slowestSeen = new ArrayList<>();
+    private long requests;
+    private long statements;
+    private long nanos;
+    private int maxStatements;
+
+    EndpointStats(String endpoint) {
+      this.endpoint = endpoint;
+    }
+
+    synchronized void add(Scope scope) {
+      requests++;
+      statements += scope.statements();
+      nanos += scope.nanos();
+      maxStatements = Math.max(maxStatements, scope.statements());
+      if (slowest == 0) return;
+      for (ExecutedStatement statement : scope.executed) {
+        if (slowestSeen.size() < slowest) {
+          slowestSeen.add(statement);
+        } else if (statement.nanos() > slowestSeen.get(slowestSeen.size() - 1).nanos()) {
+          slowestSeen.set(slowestSeen.size() - 1, statement);
+        } else {
+          continue;
+        }
+        slowestSeen.sort(Comparator.comparingLong(ExecutedStatement::nanos).reversed());
+      }
+    }
+
+    synchronized EndpointReport report() {
+      List<SlowStatement> slow = slowestSeen.stream()
+          .map(s -> new SlowStatement(s.sql(), s.nanos() / 1e6))
+          .toList();
+      return new EndpointReport(endpoint, requests, statements,
+          requests == 0 ? 0 : (double) statements / requests, maxStatements, nanos / 1e6, slow);
+    }
+  }
+}
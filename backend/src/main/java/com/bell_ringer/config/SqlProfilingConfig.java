@@ -0,0 +1,27 @@
+package com.bell_ringer.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Per-request SQL profiling (see {@link SqlProfiler}). The filter runs ahead
+ * of the security chain so every statement of a request is counted. Like the
+ * DataSource wrapper in {@link DataSourceConfig}, it is switched at runtime
+ * by bellringer.sql-profiling.enabled.
+ */
+@Configuration
+public class SqlProfilingConfig {
+
+  @Bean
+  public FilterRegistrationBean<SqlProfilingFilter> sqlProfilingFilter(SqlProfiler profiler,
+      @Value("${bellringer.sql-profiling.enabled:true}") boolean enabled) {
+    FilterRegistrationBean<SqlProfilingFilter> registration =
+        new FilterRegistrationBean<>(new SqlProfilingFilter(profiler));
+    registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+    registration.setEnabled(enabled);
+    return registration;
+  }
+}
@@ -0,0 +1,120 @@
+package com.bell_ringer.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+
+/**
+ * DataSource wrapper reporting each executed statement and its JDBC time to
+ * the {@link SqlProfiler}. Connections and statements are JDK proxies over
+ * the pool's own, so unwrap() (e.g. to PGConnection) still reaches the driver.
+ */
+public class SqlProfilingDataSource extends DelegatingDataSource {
+
+  private static final Set<String> EXECUTE = Set.of("execute", "executeQuery", "executeUpdate",
+      "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+  private static final Set<String> CREATE = Set.of("createStatement", "prepareStatement", "prepareCall");
+
+  private final SqlProfiler profiler;
+
+  public SqlProfilingDataSource(DataSource target, SqlProfiler profiler) {
+    super(target);
+    this.profiler = profiler;
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return wrap(obtainTargetDataSource().getConnection());
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return wrap(obtainTargetDataSource().getConnection(username, password));
+  }
+
+  private Connection wrap(Connection connection) {
+    return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+        new Class<?>[] { Connection.class }, new ConnectionHandler(connection));
+  }
+
+  private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+
+  private final class ConnectionHandler implements InvocationHandler {
+    private final Connection target;
+
+    ConnectionHandler(Connection target) {
+      this.target = target;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        default:
+          break;
+      }
+      Object result = SqlProfilingDataSource.invoke(target, method, args);
+      if (!CREATE.contains(method.getName())) return result;
+
+      // Prepared and callable statements know their SQL up front
+      String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : null;
+      Class<?> type = result instanceof CallableStatement ? CallableStatement.class
+          : result instanceof PreparedStatement ? PreparedStatement.class
+          : Statement.class;
+      return Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[] { type },
+          new StatementHandler((Statement) result, sql));
+    }
+  }
+
+  private final class StatementHandler implements InvocationHandler {
+    private final Statement target;
+    private final String preparedSql;
+
+    StatementHandler(Statement target, String preparedSql) {
+      this.target = target;
+      this.preparedSql = preparedSql;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        default:
+          break;
+      }
+      if (!EXECUTE.contains(method.getName())) return SqlProfilingDataSource.invoke(target, method, args);
+
+      String sql = args != null && args.length > 0 && args[0] instanceof String s ? s
+          : preparedSql != null ? preparedSql
+          : "<batch>";
+      long start = System.nanoTime();
+      try {
+        return SqlProfilingDataSource.invoke(target, method, args);
+      } finally {
+        profiler.record(sql, System.nanoTime() - start);
+      }
+    }
+  }
+}
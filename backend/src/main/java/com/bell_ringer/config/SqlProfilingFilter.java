@@ -0,0 +1,44 @@
+package com.bell_ringer.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.lang.NonNull;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Opens a {@link SqlProfiler} scope per request and files its statements
+ * under the matched route ("GET /api/v1/attempts/user/{userId}/results"), or
+ * UNMAPPED when no handler matched.
+ */
+public class SqlProfilingFilter extends OncePerRequestFilter {
+
+  private final SqlProfiler profiler;
+
+  public SqlProfilingFilter(SqlProfiler profiler) {
+    this.profiler = profiler;
+  }
+
+  @Override
+  protected void doFilterInternal(
+      @NonNull HttpServletRequest request,
+      @NonNull HttpServletResponse response,
+      @NonNull FilterChain filterChain) throws ServletException, IOException {
+    SqlProfiler.Scope scope = profiler.open();
+    try {
+      filterChain.doFilter(request, response);
+    } finally {
+      scope.close();
+      profiler.recordRequest(endpoint(request), scope);
+    }
+  }
+
+  private static String endpoint(HttpServletRequest request) {
+    Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+    return request.getMethod() + " " + (pattern != null ? pattern : "UNMAPPED");
+  }
+}
@@ -0,0 +1,114 @@
+package com.bell_ringer.controllers;
+
+import com.bell_ringer.services.AttemptPartitionService;
+import com.bell_ringer.services.AttemptScoreBackfillService;
+import com.bell_ringer.services.QuestionStatsService;
+import com.bell_ringer.services.ScoreDistributions;
+import com.bell_ringer.services.SelectedChoiceStore;
+import com.bell_ringer.services.seed.SeedImportRunner;
+import com.bell_ringer.services.seed.SeedImportService;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+/**
+ * Maintenance endpoints restricted to the ADMIN role (see SecurityConfig).
+ */
+@RestController
+@RequestMapping("/api/v1/admin")
+@Validated
+public class AdminController {
+
+  private final AttemptScoreBackfillService scoreBackfillService;
+  private final SeedImportService seedImportService;
+  private final SeedImportRunner seedImportRunner;
+  private final AttemptPartitionService partitionService;
+  private final SelectedChoiceStore choiceStore;
+  private final QuestionStatsService questionStatsService;
+  private final ScoreDistributions scoreDistributions;
+
+  public AdminController(AttemptScoreBackfillService scoreBackfillService,
+                         SeedImportService seedImportService,
+                         SeedImportRunner seedImportRunner,
+                         AttemptPartitionService partitionService,
+                         SelectedChoiceStore choiceStore,
+                         QuestionStatsService questionStatsService,
+                         ScoreDistributions scoreDistributions) {
+    this.scoreBackfillService = scoreBackfillService;
+    this.seedImportService = seedImportService;
+    this.seedImportRunner = seedImportRunner;
+    this.partitionService = partitionService;
+    this.choiceStore = choiceStore;
+    this.questionStatsService = questionStatsService;
+    this.scoreDistributions = scoreDistributions;
+  }
+
+  /**
+   * Store scores for completed attempts that predate score persistence
+   */
+  @PostMapping("/attempts/backfill-scores")
+  public ResponseEntity<AttemptScoreBackfillService.BackfillReport> backfillAttemptScores(
+      @RequestParam(defaultValue = "500") int batchSize,
+      @RequestParam(defaultValue = "4") int parallelism) {
+    return ResponseEntity.ok(scoreBackfillService.backfill(batchSize, parallelism));
+  }
+
+  /**
+   * Create upcoming attempt partitions and archive months past the retention
+   * horizon now instead of waiting for the nightly run
+   */
+  @PostMapping("/attempts/partitions/maintain")
+  public ResponseEntity<AttemptPartitionService.MaintenanceReport> maintainAttemptPartitions() {
+    return ResponseEntity.ok(partitionService.maintain());
+  }
+
+  /**
+   * Convert the selected choices of up to batchSize completed attempts to
+   * packed sets; repeat until packedAttempts is 0
+   */
+  @PostMapping("/attempts/pack-choices")
+  public ResponseEntity<SelectedChoiceStore.PackReport> packSelectedChoices(
+      @RequestParam(defaultValue = "1000") int batchSize) {
+    return ResponseEntity.ok(choiceStore.packCompleted(batchSize));
+  }
+
+  /**
+   * Rebuild the per-category score distributions (percentile ranks) from the
+   * attempt history, scanning partitions in parallel
+   */
+  @PostMapping("/attempts/score-distributions/rebuild")
+  public ResponseEntity<ScoreDistributions.RebuildReport> rebuildScoreDistributions(
+      @RequestParam(defaultValue = "4") int parallelism) {
+    return ResponseEntity.ok(scoreDistributions.rebuild(parallelism));
+  }
+
+  /**
+   * Recompute the per-question statistics (p-value, discrimination, empirical
+   * difficulty) now instead of waiting for the nightly run
+   */
+  @PostMapping("/questions/stats/recompute")
+  public ResponseEntity<QuestionStatsService.StatsReport> recomputeQuestionStats() {
+    return ResponseEntity.ok(questionStatsService.recompute());
+  }
+
+  /**
+   * Import a seed document. The request body (seed JSON) is streamed straight
+   * into the importer; with an empty body the bundled seed
+   * (bellringer.seed.location) is imported instead. mode=DELTA updates changed
+   * questions and retires the ones missing from the document.
+   */
+  @PostMapping("/seed/import")
+  public ResponseEntity<SeedImportService.SeedImportReport> importSeed(
+      @RequestParam(defaultValue = "MERGE") SeedImportService.Mode mode,
+      HttpServletRequest request) throws IOException {
+    if (request.getContentLengthLong() == 0) {
+      return ResponseEntity.ok(seedImportRunner.importConfiguredSeed(mode));
+    }
+    return ResponseEntity.ok(seedImportService.importSeed(request.getInputStream(), mode));
+  }
+}
@@ -164,6 +164,19 @@ public class AttemptController {
         .body(results);
   }
 
+  /**
+   * Percentile rank of the user's latest score in each category ("better than
+   * X% of peers")
+   */
+  @GetMapping("/user/{userId}/percentiles")
+  public ResponseEntity<List<AttemptService.CategoryPercentileDto>> getUserPercentiles(@PathVariable UUID userId) {
+    List<AttemptService.CategoryPercentileDto> percentiles = attemptService.getPercentilesByUserId(userId);
+
+    return ResponseEntity.ok()
+        .cacheControl(CacheControl.maxAge(120, TimeUnit.SECONDS))
+        .body(percentiles);
+  }
+
   // -------------------- Attempt management --------------------
 
   /**
@@ -172,7 +185,7 @@ public class AttemptController {
    */
   @PostMapping("/retry")
   public ResponseEntity<AttemptDto> retryQuiz(@Valid @RequestBody AttemptRequest.Create request) {
-    AttemptDto attempt = attemptService.startAttempt(request.quizId());
+    AttemptDto attempt = attemptService.startAttempt(request.quizId(), request.userId());
     return ResponseEntity.status(HttpStatus.CREATED).body(attempt);
   }
 
@@ -198,6 +211,18 @@ public class AttemptController {
     return ResponseEntity.ok(attempt);
   }
 
+  /**
+   * Autosave the current answer to one question (written in the background;
+   * 409 once the attempt is completed)
+   */
+  @PutMapping("/{id}/autosave")
+  @ResponseStatus(HttpStatus.ACCEPTED)
+  public void autosave(
+      @PathVariable @Positive Long id,
+      @Valid @RequestBody AttemptRequest.Autosave request) {
+    attemptService.autosave(id, request);
+  }
+
   /**
    * Complete an attempt (mark as finished)
    */
@@ -129,6 +129,19 @@ public class AttemptSelectedChoiceController {
     return ResponseEntity.ok(updatedChoice);
   }
 
+  /**
+   * Replace the selection for a single-select (UNIQUE_CHOICE / TRUE_FALSE)
+   * question with the given choice
+   */
+  @PutMapping("/{attemptId}/{questionId}")
+  public ResponseEntity<AttemptSelectedChoiceDto> replaceSelection(
+      @PathVariable @Positive Long attemptId,
+      @PathVariable @Positive Long questionId,
+      @Valid @RequestBody AttemptSelectedChoiceRequest.Update request) {
+    return ResponseEntity.ok(attemptSelectedChoiceService.replaceSelection(
+        attemptId, questionId, request.newChoiceId()));
+  }
+
   // -------------------- Delete operations --------------------
 
   /**
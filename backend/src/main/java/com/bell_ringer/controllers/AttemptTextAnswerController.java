@@ -100,12 +100,14 @@ public class AttemptTextAnswerController {
   // -------------------- Submit text answers --------------------
 
   /**
-   * Submit a single text answer
+   * Submit a single text answer; onDuplicate=OVERWRITE replaces an existing
+   * answer instead of rejecting it
    */
   @PostMapping
   public ResponseEntity<AttemptTextAnswerDto> submitTextAnswer(
-      @Valid @RequestBody AttemptTextAnswerRequest.Submit request) {
-    AttemptTextAnswerDto textAnswer = attemptTextAnswerService.submitTextAnswer(request);
+      @Valid @RequestBody AttemptTextAnswerRequest.Submit request,
+      @RequestParam(defaultValue = "REJECT") AttemptTextAnswerRequest.DuplicatePolicy onDuplicate) {
+    AttemptTextAnswerDto textAnswer = attemptTextAnswerService.submitTextAnswer(request, onDuplicate);
     return ResponseEntity.status(HttpStatus.CREATED).body(textAnswer);
   }
 
@@ -0,0 +1,50 @@
+package com.bell_ringer.controllers;
+
+import com.bell_ringer.services.Leaderboards;
+import com.bell_ringer.services.Leaderboards.Standing;
+import com.bell_ringer.services.Leaderboards.Standings;
+import com.bell_ringer.services.Leaderboards.Window;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-category leaderboards of the current week, the current month or all
+ * time, ranked by questions answered correctly.
+ */
+@RestController
+@RequestMapping("/api/v1/leaderboards")
+public class LeaderboardController {
+
+  private final Leaderboards leaderboards;
+
+  public LeaderboardController(Leaderboards leaderboards) {
+    this.leaderboards = leaderboards;
+  }
+
+  // -------------------- Endpoints --------------------
+
+  /** Best users of the category in the window */
+  @GetMapping("/{categoryId}")
+  public ResponseEntity<Standings> top(@PathVariable Long categoryId,
+      @RequestParam(defaultValue = "WEEK") Window window,
+      @RequestParam(defaultValue = "10") int limit) {
+    return ResponseEntity.ok()
+        .cacheControl(CacheControl.maxAge(10, TimeUnit.SECONDS))
+        .body(leaderboards.top(categoryId, window, limit));
+  }
+
+  /** Rank and score of a user in the category and window */
+  @GetMapping("/{categoryId}/users/{userId}")
+  public ResponseEntity<Standing> standing(@PathVariable Long categoryId,
+      @PathVariable UUID userId,
+      @RequestParam(defaultValue = "WEEK") Window window) {
+    return leaderboards.standing(categoryId, window, userId)
+        .map(ResponseEntity::ok)
+        .orElse(ResponseEntity.notFound().build());
+  }
+}
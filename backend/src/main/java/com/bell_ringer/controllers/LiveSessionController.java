@@ -0,0 +1,70 @@
+package com.bell_ringer.controllers;
+
+import com.bell_ringer.services.LiveSessionService;
+import com.bell_ringer.services.LiveSessionService.LiveSnapshot;
+import com.google.firebase.auth.FirebaseToken;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Live classroom sessions. Sessions are opened by the quiz owner or by a
+ * teacher, and are only visible to the user who opened them (and to admins).
+ */
+@RestController
+@RequestMapping("/api/v1/live-sessions")
+public class LiveSessionController {
+
+  private final LiveSessionService liveSessions;
+
+  public LiveSessionController(LiveSessionService liveSessions) {
+    this.liveSessions = liveSessions;
+  }
+
+  // -------------------- Endpoints --------------------
+
+  /** Start running a quiz live */
+  @PostMapping
+  @ResponseStatus(HttpStatus.CREATED)
+  public LiveSnapshot open(@RequestParam Long quizId, Authentication auth) {
+    return liveSessions.open(quizId, uid(auth), isStaff(auth));
+  }
+
+  /** Current aggregate counts */
+  @GetMapping("/{id}")
+  public LiveSnapshot snapshot(@PathVariable String id, Authentication auth) {
+    return liveSessions.snapshot(id, uid(auth), isAdmin(auth));
+  }
+
+  /** Server-Sent Events stream of snapshots, pushed when the counts change */
+  @GetMapping(path = "/{id}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter stream(@PathVariable String id, Authentication auth) {
+    return liveSessions.subscribe(id, uid(auth), isAdmin(auth));
+  }
+
+  /** End the session and return the final counts */
+  @DeleteMapping("/{id}")
+  public LiveSnapshot end(@PathVariable String id, Authentication auth) {
+    return liveSessions.end(id, uid(auth), isAdmin(auth));
+  }
+
+  // -------------------- Helpers --------------------
+
+  private static String uid(Authentication auth) {
+    if (auth == null)
+      throw new IllegalArgumentException("Authentication required");
+    return (auth.getPrincipal() instanceof FirebaseToken token) ? token.getUid() : auth.getName();
+  }
+
+  private static boolean isAdmin(Authentication auth) {
+    return auth != null && auth.getAuthorities().stream()
+        .anyMatch(a -> "ROLE_ADMIN".equals(a.getAuthority()));
+  }
+
+  private static boolean isStaff(Authentication auth) {
+    return auth != null && auth.getAuthorities().stream()
+        .anyMatch(a -> "ROLE_ADMIN".equals(a.getAuthority()) || "ROLE_TEACHER".equals(a.getAuthority()));
+  }
+}
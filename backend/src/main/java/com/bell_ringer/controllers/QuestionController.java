@@ -1,5 +1,6 @@
 package com.bell_ringer.controllers;
 
+import com.bell_ringer.services.DailyQuizService;
 import com.bell_ringer.services.QuestionService;
 import com.bell_ringer.services.QuestionService.QuotaDTO;
 import com.bell_ringer.services.dto.GenerationRequest;
@@ -13,9 +14,11 @@ import org.springframework.web.bind.annotation.*;
 public class QuestionController {
 
   private final QuestionService questionService;
+  private final DailyQuizService dailyQuizService;
 
-  public QuestionController(QuestionService questionService) {
+  public QuestionController(QuestionService questionService, DailyQuizService dailyQuizService) {
     this.questionService = questionService;
+    this.dailyQuizService = dailyQuizService;
   }
 
   @GetMapping("/{id}")
@@ -33,6 +36,18 @@ public class QuestionController {
     return ResponseEntity.ok(response);
   }
 
+  /**
+   * Start an attempt on today's shared quiz for the category (userId,
+   * categoryId and total are used; the rest of the request is ignored)
+   */
+  @PostMapping("/generate/daily")
+  public ResponseEntity<QuizGenerationResponse> generateDaily(@RequestBody GenerationRequest request) {
+    if (request == null)
+      return ResponseEntity.badRequest().build();
+    var response = dailyQuizService.start(request.userId(), request.categoryId(), request.total());
+    return ResponseEntity.ok(response);
+  }
+
   // Optional sanity endpoint
   @PostMapping("/quota")
   public ResponseEntity<QuotaDTO> computeQuota(@RequestBody GenerationRequest request) {
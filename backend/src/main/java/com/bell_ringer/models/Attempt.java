@@ -3,6 +3,7 @@ package com.bell_ringer.models;
 import java.time.OffsetDateTime;
 import java.util.LinkedHashSet;
 import java.util.Set;
+import java.util.UUID;
 
 import org.hibernate.annotations.CreationTimestamp;
 
@@ -25,7 +26,8 @@ import jakarta.persistence.Table;
 @Table(name = "attempts", indexes = {
     @Index(name = "idx_attempts_quiz", columnList = "quiz_id"),
     @Index(name = "idx_attempts_started", columnList = "started_at"),
-    @Index(name = "idx_attempts_completed", columnList = "completed_at")
+    @Index(name = "idx_attempts_completed", columnList = "completed_at"),
+    @Index(name = "idx_attempts_user_completed", columnList = "user_id, completed_at")
 })
 public class Attempt {
 
@@ -38,6 +40,10 @@ public class Attempt {
   @JoinColumn(name = "quiz_id", nullable = false)
   private Quiz quiz;
 
+  // The answering user: the quiz owner, or any user for shared quizzes
+  @Column(name = "user_id", nullable = false, columnDefinition = "uuid")
+  private UUID userId;
+
   @CreationTimestamp
   @Column(name = "started_at", nullable = false, updatable = false)
   private OffsetDateTime startedAt;
@@ -45,6 +51,17 @@ public class Attempt {
   @Column(name = "completed_at")
   private OffsetDateTime completedAt;
 
+  // Score snapshot taken when the attempt is completed (answers are frozen
+  // afterwards); null for in-progress attempts and not-yet-backfilled history.
+  @Column(name = "correct_count")
+  private Integer correctCount;
+
+  @Column(name = "total_count")
+  private Integer totalCount;
+
+  @Column(name = "success_rate")
+  private Double successRate;
+
   @OneToMany(mappedBy = "attempt", fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
   private Set<AttemptSelectedChoice> selectedChoices = new LinkedHashSet<>();
 
@@ -70,6 +87,14 @@ public class Attempt {
     this.quiz = quiz;
   }
 
+  public UUID getUserId() {
+    return userId;
+  }
+
+  public void setUserId(UUID userId) {
+    this.userId = userId;
+  }
+
   public OffsetDateTime getStartedAt() {
     return startedAt;
   }
@@ -86,6 +111,30 @@ public class Attempt {
     this.completedAt = completedAt;
   }
 
+  public Integer getCorrectCount() {
+    return correctCount;
+  }
+
+  public void setCorrectCount(Integer correctCount) {
+    this.correctCount = correctCount;
+  }
+
+  public Integer getTotalCount() {
+    return totalCount;
+  }
+
+  public void setTotalCount(Integer totalCount) {
+    this.totalCount = totalCount;
+  }
+
+  public Double getSuccessRate() {
+    return successRate;
+  }
+
+  public void setSuccessRate(Double successRate) {
+    this.successRate = successRate;
+  }
+
   public Set<AttemptSelectedChoice> getSelectedChoices() {
     return selectedChoices;
   }
@@ -111,6 +160,16 @@ public class Attempt {
     this.completedAt = OffsetDateTime.now();
   }
 
+  public boolean hasStoredScore() {
+    return totalCount != null;
+  }
+
+  public void applyScore(int correct, int total) {
+    this.correctCount = correct;
+    this.totalCount = total;
+    this.successRate = total > 0 ? (double) correct / total : 0.0;
+  }
+
   public void addSelectedChoice(AttemptSelectedChoice selectedChoice) {
     selectedChoices.add(selectedChoice);
     selectedChoice.setAttempt(this);
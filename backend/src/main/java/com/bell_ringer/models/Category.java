@@ -3,6 +3,8 @@ package com.bell_ringer.models;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -21,6 +23,8 @@ import java.util.Set;
         @Index(name = "idx_categories_slug", columnList = "slug"),
         @Index(name = "idx_categories_parent", columnList = "parent_id")
 })
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "categories")
 public class Category {
 
     @Id
@@ -45,6 +49,7 @@ public class Category {
 
     @JsonIgnore
     @OneToMany(mappedBy = "parent", fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = false)
+    @Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "category-children")
     private Set<Category> children = new LinkedHashSet<>();
 
     // Reverse side to questions (each Question has @ManyToOne Category)
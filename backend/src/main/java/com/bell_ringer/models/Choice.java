@@ -1,5 +1,6 @@
 package com.bell_ringer.models;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
@@ -11,6 +12,10 @@ import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.NotBlank;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import java.time.OffsetDateTime;
 
 @Entity
 @Table(
@@ -22,6 +27,8 @@ import jakarta.validation.constraints.NotBlank;
     @jakarta.persistence.UniqueConstraint(name = "uq_choice", columnNames = {"question_id", "choice_text"})
   }
 )
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "choices")
 public class Choice {
 
   @Id
@@ -39,6 +46,10 @@ public class Choice {
   @Column(name = "is_correct", nullable = false)
     private boolean isCorrect = false;
 
+  /** Set when a delta import removes the choice while answers still reference it */
+  @Column(name = "deleted_at")
+  private OffsetDateTime deletedAt;
+
     public Choice() {}
 
     public Long getId() {
@@ -72,4 +83,16 @@ public class Choice {
     public void setCorrect(boolean correct) {
       isCorrect = correct;
     }
+
+    public OffsetDateTime getDeletedAt() {
+      return deletedAt;
+    }
+
+    public void setDeletedAt(OffsetDateTime deletedAt) {
+      this.deletedAt = deletedAt;
+    }
+
+    public boolean isDeleted() {
+      return deletedAt != null;
+    }
 }
@@ -5,6 +5,8 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.Max;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.type.SqlTypes;
@@ -15,6 +17,8 @@ import java.util.Map;
 @Table(name = "open_answers", indexes = @Index(name = "idx_open_answers_question_id", columnList = "question_id"), uniqueConstraints = @UniqueConstraint(name = "uq_open_answer", columnNames = {
     "question_id", "answer" }))
 @Check(constraints = "min_score BETWEEN 0 AND 100 AND char_length(btrim(answer)) > 0")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "open-answers")
 public class OpenAnswer {
 
   @Id
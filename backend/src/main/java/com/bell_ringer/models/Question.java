@@ -3,7 +3,10 @@ package com.bell_ringer.models;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.SQLRestriction;
 import org.hibernate.annotations.UpdateTimestamp;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
@@ -15,6 +18,8 @@ import java.util.List;
     @Index(name = "idx_questions_type", columnList = "type"),
     @Index(name = "idx_questions_difficulty", columnList = "difficulty")
 })
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "questions")
 public class Question {
 
   @Id
@@ -43,12 +48,23 @@ public class Question {
 
   @OneToMany(mappedBy = "question", fetch = FetchType.LAZY, cascade = { CascadeType.PERSIST,
       CascadeType.MERGE }, orphanRemoval = true)
+  @SQLRestriction("deleted_at IS NULL")
+  @Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "question-choices")
   private List<Choice> choices = new ArrayList<>();
 
   @OneToMany(mappedBy = "question", fetch = FetchType.LAZY, cascade = { CascadeType.PERSIST,
       CascadeType.MERGE }, orphanRemoval = true)
+  @Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "question-open-answers")
   private List<OpenAnswer> openAnswers = new ArrayList<>();
 
+  /** SHA-256 of the question content as imported from a seed document (see SeedCsvStager) */
+  @Column(name = "content_hash", length = 64)
+  private String contentHash;
+
+  /** Set when a delta import retires the question; retired questions are never drawn */
+  @Column(name = "deleted_at")
+  private OffsetDateTime deletedAt;
+
   @CreationTimestamp
   @Column(name = "created_at", nullable = false, updatable = false)
   private OffsetDateTime createdAt;
@@ -168,6 +184,26 @@ public class Question {
     }
   }
 
+  public String getContentHash() {
+    return contentHash;
+  }
+
+  public void setContentHash(String contentHash) {
+    this.contentHash = contentHash;
+  }
+
+  public OffsetDateTime getDeletedAt() {
+    return deletedAt;
+  }
+
+  public void setDeletedAt(OffsetDateTime deletedAt) {
+    this.deletedAt = deletedAt;
+  }
+
+  public boolean isDeleted() {
+    return deletedAt != null;
+  }
+
   public OffsetDateTime getCreatedAt() {
     return createdAt;
   }
@@ -14,6 +14,9 @@ import org.hibernate.annotations.CreationTimestamp;
 })
 public class Quiz {
 
+  /** Owner of shared quizzes (e.g. the daily quiz), which belong to no user */
+  public static final UUID SHARED_OWNER = new UUID(0L, 0L);
+
   @Id
   @GeneratedValue(strategy = GenerationType.IDENTITY)
   private Long id;
@@ -37,6 +40,10 @@ public class Quiz {
   @Column(name = "completed_at")
   private OffsetDateTime completedAt;
 
+  // Shared quizzes are attempted by many users and never marked completed
+  @Column(name = "shared", nullable = false)
+  private boolean shared = false;
+
   public Quiz() {}
 
   public Quiz(UUID userId, Category category) {
@@ -54,4 +61,6 @@ public class Quiz {
   public void setCreatedAt(OffsetDateTime createdAt) { this.createdAt = createdAt; }
   public OffsetDateTime getCompletedAt() { return completedAt; }
   public void setCompletedAt(OffsetDateTime completedAt) { this.completedAt = completedAt; }
+  public boolean isShared() { return shared; }
+  public void setShared(boolean shared) { this.shared = shared; }
 }
\ No newline at end of file
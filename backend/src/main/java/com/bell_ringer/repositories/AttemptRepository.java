@@ -6,6 +6,7 @@ import org.springframework.data.repository.query.Param;
 
 import com.bell_ringer.models.Attempt;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -19,15 +20,15 @@ public interface AttemptRepository extends JpaRepository<Attempt, Long> {
   List<Attempt> findByQuizId(@Param("quizId") Long quizId);
 
   /**
-   * Find all attempts for a specific user (via quiz)
+   * Find all attempts for a specific user
    */
-  @Query("SELECT a FROM Attempt a WHERE a.quiz.userId = :userId ORDER BY a.startedAt DESC")
+  @Query("SELECT a FROM Attempt a WHERE a.userId = :userId ORDER BY a.startedAt DESC")
   List<Attempt> findByUserId(@Param("userId") UUID userId);
 
   /**
    * Find all attempts for a user in a specific category
    */
-  @Query("SELECT a FROM Attempt a WHERE a.quiz.userId = :userId AND a.quiz.category.id = :categoryId ORDER BY a.startedAt DESC")
+  @Query("SELECT a FROM Attempt a WHERE a.userId = :userId AND a.quiz.category.id = :categoryId ORDER BY a.startedAt DESC")
   List<Attempt> findByUserIdAndCategoryId(@Param("userId") UUID userId, @Param("categoryId") Long categoryId);
 
   /**
@@ -39,24 +40,125 @@ public interface AttemptRepository extends JpaRepository<Attempt, Long> {
   /**
    * Find completed attempts for a user
    */
-  @Query("SELECT a FROM Attempt a WHERE a.quiz.userId = :userId AND a.completedAt IS NOT NULL ORDER BY a.completedAt DESC")
+  @Query("SELECT a FROM Attempt a WHERE a.userId = :userId AND a.completedAt IS NOT NULL ORDER BY a.completedAt DESC")
   List<Attempt> findCompletedByUserId(@Param("userId") UUID userId);
 
   /**
    * Find incomplete attempts for a user
    */
-  @Query("SELECT a FROM Attempt a WHERE a.quiz.userId = :userId AND a.completedAt IS NULL ORDER BY a.startedAt DESC")
+  @Query("SELECT a FROM Attempt a WHERE a.userId = :userId AND a.completedAt IS NULL ORDER BY a.startedAt DESC")
   List<Attempt> findIncompleteByUserId(@Param("userId") UUID userId);
 
   /**
    * Count total attempts for a user
    */
-  @Query("SELECT COUNT(a) FROM Attempt a WHERE a.quiz.userId = :userId")
+  @Query("SELECT COUNT(a) FROM Attempt a WHERE a.userId = :userId")
   long countByUserId(@Param("userId") UUID userId);
 
   /**
-   * Count completed attempts for a user
+   * Count completed attempts for a user, including those of archived months
+   * (user_attempt_rollups)
    */
-  @Query("SELECT COUNT(a) FROM Attempt a WHERE a.quiz.userId = :userId AND a.completedAt IS NOT NULL")
+  @Query(value = """
+      SELECT (SELECT COUNT(*) FROM attempts WHERE user_id = :userId AND completed_at IS NOT NULL)
+           + (SELECT CAST(COALESCE(SUM(completed_attempts), 0) AS bigint)
+                FROM user_attempt_rollups WHERE user_id = :userId)
+      """, nativeQuery = true)
   long countCompletedByUserId(@Param("userId") UUID userId);
+
+  /**
+   * Sum the stored per-attempt scores of a user's completed attempts,
+   * including those of archived months (user_attempt_rollups)
+   */
+  @Query(value = """
+      SELECT CAST(SUM(correct) AS bigint) AS correct, CAST(SUM(total) AS bigint) AS total
+        FROM (SELECT COALESCE(SUM(correct_count), 0) AS correct, COALESCE(SUM(total_count), 0) AS total
+                FROM attempts
+               WHERE user_id = :userId AND completed_at IS NOT NULL
+              UNION ALL
+              SELECT COALESCE(SUM(correct_count), 0), COALESCE(SUM(total_count), 0)
+                FROM user_attempt_rollups
+               WHERE user_id = :userId) s
+      """, nativeQuery = true)
+  ScoreTotalsRow sumStoredScoresByUserId(@Param("userId") UUID userId);
+
+  /**
+   * Find ids of completed attempts that have no stored score yet (for backfill)
+   */
+  @Query("SELECT a.id FROM Attempt a WHERE a.completedAt IS NOT NULL AND a.totalCount IS NULL ORDER BY a.id")
+  List<Long> findCompletedIdsWithoutStoredScore();
+
+  /**
+   * Share-lock an open attempt until the end of the transaction, for writing
+   * its answers. Returns the quiz id, or nothing when the attempt does not
+   * exist or is completed.
+   */
+  @Query(value = "SELECT quiz_id FROM attempts WHERE id = :attemptId AND completed_at IS NULL FOR SHARE",
+      nativeQuery = true)
+  Optional<Long> lockOpenForAnswers(@Param("attemptId") Long attemptId);
+
+  /**
+   * Lock the attempt row until the end of the transaction and tell whether the
+   * attempt is completed; empty when it does not exist
+   */
+  @Query(value = "SELECT completed_at IS NOT NULL FROM attempts WHERE id = :attemptId FOR UPDATE",
+      nativeQuery = true)
+  Optional<Boolean> lockAndCheckCompleted(@Param("attemptId") Long attemptId);
+
+  /**
+   * Complete an attempt and store its score in one statement; the owning quiz
+   * is marked completed too unless it is shared. Returns the attempt id, or
+   * nothing when the attempt does not exist or was already completed.
+   */
+  @Query(value = """
+        WITH done AS (
+          UPDATE attempts
+             SET completed_at = now(),
+                 correct_count = :correct,
+                 total_count = :total,
+                 success_rate = CASE WHEN :total > 0 THEN CAST(:correct AS double precision) / :total ELSE 0 END
+           WHERE id = :attemptId AND completed_at IS NULL
+          RETURNING id, quiz_id, completed_at
+        ), quiz AS (
+          UPDATE quizzes q
+             SET completed_at = done.completed_at
+            FROM done
+           WHERE q.id = done.quiz_id AND NOT q.shared
+        )
+        SELECT id FROM done
+      """, nativeQuery = true)
+  Optional<Long> completeIfOpen(@Param("attemptId") Long attemptId,
+      @Param("correct") int correct,
+      @Param("total") int total);
+
+  /**
+   * The user's most recent scored attempt in each category they completed one
+   * in
+   */
+  @Query(value = """
+      SELECT DISTINCT ON (q.category_id)
+             q.category_id AS categoryId, a.id AS attemptId, a.success_rate AS successRate,
+             a.completed_at AS completedAt
+        FROM attempts a
+        JOIN quizzes q ON q.id = a.quiz_id
+       WHERE a.user_id = :userId AND a.completed_at IS NOT NULL AND a.total_count > 0
+       ORDER BY q.category_id, a.completed_at DESC
+      """, nativeQuery = true)
+  List<LatestScoreRow> findLatestScorePerCategory(@Param("userId") UUID userId);
+
+  interface LatestScoreRow {
+    Long getCategoryId();
+
+    Long getAttemptId();
+
+    Double getSuccessRate();
+
+    OffsetDateTime getCompletedAt();
+  }
+
+  interface ScoreTotalsRow {
+    long getCorrect();
+
+    long getTotal();
+  }
 }
@@ -7,8 +7,8 @@ import org.springframework.data.repository.query.Param;
 import com.bell_ringer.models.AttemptSelectedChoice;
 import com.bell_ringer.models.id.AttemptSelectedChoiceId;
 
+import java.time.OffsetDateTime;
 import java.util.List;
-import java.util.UUID;
 
 public interface AttemptSelectedChoiceRepository extends JpaRepository<AttemptSelectedChoice, AttemptSelectedChoiceId> {
 
@@ -32,43 +32,51 @@ public interface AttemptSelectedChoiceRepository extends JpaRepository<AttemptSe
     long countByAttemptId(@Param("attemptId") Long attemptId);
 
     /**
-     * Delete all selected choices for an attempt (cleanup)
+     * Make choiceIds (comma separated, may be empty) the selection for a
+     * question of an open attempt, in one statement. Returns one 'A' row with
+     * the quiz id when the attempt is open, plus an 'R' row per removed choice
+     * and an 'I' row per newly selected one; nothing when the attempt is
+     * missing or completed. The attempt row is share-locked so the change
+     * cannot interleave with the attempt being completed.
      */
-    void deleteByAttemptId(Long attemptId);
+    @Query(value = """
+            WITH attempt AS (
+              SELECT id, quiz_id FROM attempts WHERE id = :attemptId AND completed_at IS NULL FOR SHARE
+            ), wanted AS (
+              SELECT DISTINCT unnest(CAST(string_to_array(:choiceIds, ',') AS bigint[])) AS choice_id
+            ), removed AS (
+              DELETE FROM attempt_selected_choices s
+               USING attempt a
+               WHERE s.attempt_id = a.id AND s.question_id = :questionId
+                 AND s.choice_id NOT IN (SELECT choice_id FROM wanted)
+              RETURNING s.choice_id
+            ), inserted AS (
+              INSERT INTO attempt_selected_choices (attempt_id, question_id, choice_id, quiz_id, selected_at)
+              SELECT a.id, :questionId, w.choice_id, a.quiz_id, :selectedAt FROM attempt a CROSS JOIN wanted w
+              ON CONFLICT (attempt_id, choice_id, question_id) DO NOTHING
+              RETURNING choice_id
+            )
+            SELECT 'A' AS change, a.quiz_id AS quizId, CAST(NULL AS bigint) AS choiceId FROM attempt a
+            UNION ALL
+            SELECT 'R', a.quiz_id, r.choice_id FROM removed r CROSS JOIN attempt a
+            UNION ALL
+            SELECT 'I', a.quiz_id, i.choice_id FROM inserted i CROSS JOIN attempt a
+            """, nativeQuery = true)
+    List<SelectionChangeRow> replaceSelections(@Param("attemptId") Long attemptId,
+            @Param("questionId") Long questionId,
+            @Param("choiceIds") String choiceIds,
+            @Param("selectedAt") OffsetDateTime selectedAt);
 
-    /**
-     * Count correct multiple choice answers for a specific user across all
-     * completed attempts
-     * Note: Counts distinct questions where at least one correct choice was
-     * selected
-     */
-    @Query("SELECT COUNT(DISTINCT asc.questionId) FROM AttemptSelectedChoice asc " +
-            "JOIN asc.choice c " +
-            "JOIN asc.attempt a " +
-            "WHERE asc.quiz.userId = :userId " +
-            "AND a.completedAt IS NOT NULL " +
-            "AND c.isCorrect = true")
-    long countCorrectChoicesByUserId(@Param("userId") UUID userId);
+    interface SelectionChangeRow {
+        String getChange(); // A = attempt open, R = removed, I = inserted
 
-    /**
-     * Count total multiple choice answers for a specific user across all completed
-     * attempts
-     * Note: Counts distinct questions answered
-     */
-    @Query("SELECT COUNT(DISTINCT asc.questionId) FROM AttemptSelectedChoice asc " +
-            "JOIN asc.attempt a " +
-            "WHERE asc.quiz.userId = :userId " +
-            "AND a.completedAt IS NOT NULL")
-    long countTotalChoicesByUserId(@Param("userId") UUID userId);
+        Long getQuizId();
+
+        Long getChoiceId();
+    }
 
     /**
-     * Count correct multiple choice answers for a specific attempt
-     * Note: Counts distinct questions where at least one correct choice was
-     * selected
+     * Delete all selected choices for an attempt (cleanup)
      */
-    @Query("SELECT COUNT(DISTINCT asc.questionId) FROM AttemptSelectedChoice asc " +
-            "JOIN asc.choice c " +
-            "WHERE asc.attemptId = :attemptId " +
-            "AND c.isCorrect = true")
-    long countCorrectChoicesByAttemptId(@Param("attemptId") Long attemptId);
+    void deleteByAttemptId(Long attemptId);
 }
@@ -7,9 +7,9 @@ import org.springframework.data.repository.query.Param;
 import com.bell_ringer.models.AttemptTextAnswer;
 import com.bell_ringer.models.id.AttemptTextAnswerId;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Optional;
-import java.util.UUID;
 
 public interface AttemptTextAnswerRepository extends JpaRepository<AttemptTextAnswer, AttemptTextAnswerId> {
 
@@ -45,34 +45,61 @@ public interface AttemptTextAnswerRepository extends JpaRepository<AttemptTextAn
   long countByAttemptId(@Param("attemptId") Long attemptId);
 
   /**
-   * Delete all text answers for an attempt (cleanup)
+   * Insert a scored text answer unless one exists for (attempt, question).
+   * The attempt must exist and be open and the question must be active, all
+   * checked by the statement itself. The attempt row is share-locked, so the
+   * write either commits before a completion locks the attempt or sees it
+   * completed. Returns the quiz id, or nothing when no row was written.
    */
-  void deleteByAttemptId(Long attemptId);
+  @Query(value = """
+        INSERT INTO attempt_text_answers
+               (attempt_id, question_id, quiz_id, answer_text, score, is_correct, feedback, answered_at)
+        SELECT a.id, q.id, a.quiz_id, :answerText, :score, :isCorrect, :feedback, :answeredAt
+          FROM attempts a
+          JOIN questions q ON q.id = :questionId AND q.deleted_at IS NULL
+         WHERE a.id = :attemptId AND a.completed_at IS NULL
+           FOR SHARE OF a
+        ON CONFLICT (attempt_id, question_id) DO NOTHING
+        RETURNING quiz_id
+      """, nativeQuery = true)
+  Optional<Long> insertIfAbsent(@Param("attemptId") Long attemptId,
+      @Param("questionId") Long questionId,
+      @Param("answerText") String answerText,
+      @Param("score") Integer score,
+      @Param("isCorrect") Boolean isCorrect,
+      @Param("feedback") String feedback,
+      @Param("answeredAt") OffsetDateTime answeredAt);
 
   /**
-   * Count correct text answers for a specific user across all completed attempts
+   * Same as {@link #insertIfAbsent} but an existing answer is overwritten
+   * (text, score and submission time).
    */
-  @Query("SELECT COUNT(ata) FROM AttemptTextAnswer ata " +
-      "JOIN ata.attempt a " +
-      "WHERE ata.quiz.userId = :userId " +
-      "AND a.completedAt IS NOT NULL " +
-      "AND ata.isCorrect = true")
-  long countCorrectTextAnswersByUserId(@Param("userId") UUID userId);
+  @Query(value = """
+        INSERT INTO attempt_text_answers
+               (attempt_id, question_id, quiz_id, answer_text, score, is_correct, feedback, answered_at)
+        SELECT a.id, q.id, a.quiz_id, :answerText, :score, :isCorrect, :feedback, :answeredAt
+          FROM attempts a
+          JOIN questions q ON q.id = :questionId AND q.deleted_at IS NULL
+         WHERE a.id = :attemptId AND a.completed_at IS NULL
+           FOR SHARE OF a
+        ON CONFLICT (attempt_id, question_id) DO UPDATE
+           SET answer_text = EXCLUDED.answer_text,
+               score = EXCLUDED.score,
+               is_correct = EXCLUDED.is_correct,
+               feedback = EXCLUDED.feedback,
+               answered_at = EXCLUDED.answered_at
+        RETURNING quiz_id
+      """, nativeQuery = true)
+  Optional<Long> upsert(@Param("attemptId") Long attemptId,
+      @Param("questionId") Long questionId,
+      @Param("answerText") String answerText,
+      @Param("score") Integer score,
+      @Param("isCorrect") Boolean isCorrect,
+      @Param("feedback") String feedback,
+      @Param("answeredAt") OffsetDateTime answeredAt);
 
   /**
-   * Count total text answers for a specific user across all completed attempts
-   */
-  @Query("SELECT COUNT(ata) FROM AttemptTextAnswer ata " +
-      "JOIN ata.attempt a " +
-      "WHERE ata.quiz.userId = :userId " +
-      "AND a.completedAt IS NOT NULL")
-  long countTotalTextAnswersByUserId(@Param("userId") UUID userId);
-
-  /**
-   * Count correct text answers for a specific attempt
+   * Delete all text answers for an attempt (cleanup)
    */
-  @Query("SELECT COUNT(ata) FROM AttemptTextAnswer ata " +
-      "WHERE ata.attemptId = :attemptId " +
-      "AND ata.isCorrect = true")
-  long countCorrectTextAnswersByAttemptId(@Param("attemptId") Long attemptId);
+  void deleteByAttemptId(Long attemptId);
 }
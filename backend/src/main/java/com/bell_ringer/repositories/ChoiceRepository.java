@@ -3,14 +3,34 @@ package com.bell_ringer.repositories;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.bell_ringer.models.Choice;
+import com.bell_ringer.models.Question;
 
 public interface ChoiceRepository extends JpaRepository<Choice, Long> {
-  List<Choice> findByQuestionId(Long questionId);
+  // Retired choices (deleted_at set by a delta import) are only reachable by id
+  @Query("SELECT c FROM Choice c WHERE c.question.id = :questionId AND c.deletedAt IS NULL")
+  List<Choice> findByQuestionId(@Param("questionId") Long questionId);
+
+  // Answer key of an active question: one row per active choice (choiceId is
+  // null when it has none); no rows when the question is missing or retired
+  @Query("SELECT q.type AS type, c.id AS choiceId, c.isCorrect AS correct FROM Question q " +
+      "LEFT JOIN Choice c ON c.question = q AND c.deletedAt IS NULL " +
+      "WHERE q.id = :questionId AND q.deletedAt IS NULL")
+  List<AnswerKeyRow> findAnswerKeyRows(@Param("questionId") Long questionId);
 
   boolean existsByIdAndIsCorrectTrue(Long choiceId);
 
-  List<Choice> findByQuestionIdAndIsCorrectTrue(Long questionId);
+  @Query("SELECT c FROM Choice c WHERE c.question.id = :questionId AND c.isCorrect = true AND c.deletedAt IS NULL")
+  List<Choice> findByQuestionIdAndIsCorrectTrue(@Param("questionId") Long questionId);
+
+  interface AnswerKeyRow {
+    Question.Type getType();
+
+    Long getChoiceId();
 
+    Boolean getCorrect();
+  }
 }
@@ -9,13 +9,14 @@ import java.util.List;
 
 public interface QuestionRepository extends JpaRepository<Question, Long> {
 
-  // Metrics & guards
-  long countByCategoryId(Long categoryId);
-  boolean existsByCategoryId(Long categoryId);
+  // Metrics & guards (active questions only; retired ones have deleted_at set)
+  long countByCategoryIdAndDeletedAtIsNull(Long categoryId);
+  boolean existsByCategoryIdAndDeletedAtIsNull(Long categoryId);
 
   // Random selection (Postgres)
   @Query(value = """
       SELECT * FROM questions
+      WHERE deleted_at IS NULL
       ORDER BY random()
       LIMIT :limit
       """,
@@ -24,7 +25,8 @@ public interface QuestionRepository extends JpaRepository<Question, Long> {
 
   @Query(value = """
       SELECT * FROM questions
-      WHERE (:categoryId IS NULL OR category_id = :categoryId)
+      WHERE deleted_at IS NULL
+        AND (:categoryId IS NULL OR category_id = :categoryId)
         AND (:typeName   IS NULL OR type = :typeName)
         AND (:diffName   IS NULL OR difficulty = :diffName)
       ORDER BY random()
@@ -37,7 +39,8 @@ public interface QuestionRepository extends JpaRepository<Question, Long> {
                                     @Param("limit") int limit);
   @Query(value = """
       SELECT * FROM questions
-      WHERE (:categoryIds IS NULL OR category_id IN (:categoryIds))
+      WHERE deleted_at IS NULL
+        AND (:categoryIds IS NULL OR category_id IN (:categoryIds))
         AND (:typeName   IS NULL OR type = :typeName)
         AND (:diffName   IS NULL OR difficulty = :diffName)
       ORDER BY random()
@@ -48,4 +51,22 @@ public interface QuestionRepository extends JpaRepository<Question, Long> {
                                         @Param("typeName") String typeName,
                                         @Param("diffName") String diffName,
                                         @Param("limit") int limit);
+
+  // Same as pickRandomFilteredMany, with the empirical difficulty from
+  // question_stats taking precedence over the hand-set label
+  @Query(value = """
+      SELECT q.* FROM questions q
+      LEFT JOIN question_stats s ON s.question_id = q.id
+      WHERE q.deleted_at IS NULL
+        AND (:categoryIds IS NULL OR q.category_id IN (:categoryIds))
+        AND (:typeName   IS NULL OR q.type = :typeName)
+        AND (:diffName   IS NULL OR COALESCE(s.empirical_difficulty, q.difficulty) = :diffName)
+      ORDER BY random()
+      LIMIT :limit
+      """,
+      nativeQuery = true)
+  List<Question> pickRandomCalibratedMany(@Param("categoryIds") java.util.List<Integer> categoryIds,
+                                          @Param("typeName") String typeName,
+                                          @Param("diffName") String diffName,
+                                          @Param("limit") int limit);
 }
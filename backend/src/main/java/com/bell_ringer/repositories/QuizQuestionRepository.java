@@ -22,6 +22,28 @@ public interface QuizQuestionRepository extends JpaRepository<QuizQuestion, Quiz
   @Query("SELECT qq.question.id FROM QuizQuestion qq WHERE qq.quiz.id = :quizId")
   List<Long> findQuestionIdsByQuizId(@Param("quizId") Long quizId);
 
+  // (quiz_id, question_id) pairs of the quizzes the user most recently
+  // attempted (own or shared), oldest quiz first
+  @Query(value = """
+      SELECT qq.quiz_id AS quizId, qq.question_id AS questionId
+      FROM (
+        SELECT quiz_id, max(started_at) AS last_started FROM attempts
+        WHERE user_id = :userId
+        GROUP BY quiz_id
+        ORDER BY last_started DESC
+        LIMIT :quizzes
+      ) q
+      JOIN quiz_questions qq ON qq.quiz_id = q.quiz_id
+      ORDER BY q.last_started, q.quiz_id
+      """, nativeQuery = true)
+  List<QuizQuestionIdsRow> findRecentByUserId(@Param("userId") java.util.UUID userId,
+                                              @Param("quizzes") int quizzes);
+
+  interface QuizQuestionIdsRow {
+    Long getQuizId();
+    Long getQuestionId();
+  }
+
   // Does this quiz already contain this question?
   boolean existsByQuizIdAndQuestionId(Long quizId, Long questionId);
 
@@ -1,66 +1,112 @@
 package com.bell_ringer.repositories;
 
 import com.bell_ringer.models.Quiz;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface QuizRepository extends JpaRepository<Quiz, Long> {
 
-  // 2.B — count completed quizzes by user & category
+  // 2.B — count quizzes of this category the user has completed (via their
+  // attempts, so shared quizzes count too), those of archived months included
+  // once, plus the counts rolled up before V15
   @Query(value = """
-        SELECT COUNT(*)
-          FROM quizzes q
-         WHERE q.user_id = :userId
-           AND q.category_id = :categoryId
-           AND q.completed_at IS NOT NULL
+        SELECT (SELECT COUNT(*)
+                  FROM (SELECT a.quiz_id
+                          FROM attempts a
+                          JOIN quizzes q ON q.id = a.quiz_id
+                         WHERE a.user_id = :userId
+                           AND q.category_id = :categoryId
+                           AND a.completed_at IS NOT NULL
+                        UNION
+                        SELECT quiz_id
+                          FROM user_completed_quiz_rollups
+                         WHERE user_id = :userId AND category_id = :categoryId) completed)
+             + (SELECT CAST(COALESCE(SUM(completed_quizzes), 0) AS bigint)
+                  FROM user_attempt_rollups
+                 WHERE user_id = :userId AND category_id = :categoryId)
       """, nativeQuery = true)
   long countCompletedByUserAndCategoryWithCompletedAt(@Param("userId") UUID userId,
       @Param("categoryId") Long categoryId);
 
-  // 2.C — accuracy per difficulty for this user/category
+  // 2.C — accuracy per difficulty for this user/category, plus the answers of
+  // archived months
   @Query(value = """
         WITH answer_results AS (
-          -- Multiple choice answers
+          -- Multiple choice answers, rows and packed sets
           SELECT qu.difficulty,
                  CASE WHEN ac.choice_id IN (
                    SELECT c.id FROM choices c WHERE c.question_id = qu.id AND c.is_correct = true
                  ) THEN 1 ELSE 0 END AS answered_correctly
-            FROM quizzes qz
-            JOIN attempts a ON a.quiz_id = qz.id
-            JOIN attempt_selected_choices ac ON ac.attempt_id = a.id
+            FROM attempts a
+            JOIN selected_choices ac ON ac.attempt_id = a.id
             JOIN questions qu ON qu.id = ac.question_id
-           WHERE qz.user_id = :userId
+           WHERE a.user_id = :userId
              AND qu.category_id = :categoryId
-             AND qz.completed_at IS NOT NULL
+             AND a.completed_at IS NOT NULL
 
           UNION ALL
 
           -- Text answers
           SELECT qu.difficulty,
                  CASE WHEN ata.is_correct = true THEN 1 ELSE 0 END AS answered_correctly
-            FROM quizzes qz
-            JOIN attempts a ON a.quiz_id = qz.id
+            FROM attempts a
             JOIN attempt_text_answers ata ON ata.attempt_id = a.id
             JOIN questions qu ON qu.id = ata.question_id
-           WHERE qz.user_id = :userId
+           WHERE a.user_id = :userId
              AND qu.category_id = :categoryId
-             AND qz.completed_at IS NOT NULL
+             AND a.completed_at IS NOT NULL
              AND ata.is_correct IS NOT NULL
         )
         SELECT difficulty,
-               SUM(answered_correctly) AS correct,
-               COUNT(*) AS total
-          FROM answer_results
-         WHERE difficulty IS NOT NULL
+               CAST(SUM(correct) AS bigint) AS correct,
+               CAST(SUM(total) AS bigint) AS total
+          FROM (SELECT difficulty, SUM(answered_correctly) AS correct, COUNT(*) AS total
+                  FROM answer_results
+                 WHERE difficulty IS NOT NULL
+                 GROUP BY difficulty
+                UNION ALL
+                SELECT difficulty, correct, total
+                  FROM user_difficulty_rollups
+                 WHERE user_id = :userId AND category_id = :categoryId) s
          GROUP BY difficulty
       """, nativeQuery = true)
   List<DifficultyStatsRow> findAccuracyByUserAndCategory(@Param("userId") UUID userId,
       @Param("categoryId") Long categoryId);
 
+  // Daily quiz lookup (see DailyQuizService)
+  @Query(value = """
+        SELECT quiz_id FROM daily_quizzes
+         WHERE category_id = :categoryId AND quiz_date = :quizDate AND size = :size
+      """, nativeQuery = true)
+  Optional<Long> findDailyQuizId(@Param("categoryId") Long categoryId,
+      @Param("quizDate") LocalDate quizDate,
+      @Param("size") int size);
+
+  // Returns 0 when another instance registered a quiz for the same day first.
+  // The query space keeps Hibernate from evicting every second-level cache
+  // region, which it does for native updates that don't declare their tables.
+  @Modifying
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "daily_quizzes"))
+  @Query(value = """
+        INSERT INTO daily_quizzes (category_id, quiz_date, size, quiz_id)
+        VALUES (:categoryId, :quizDate, :size, :quizId)
+        ON CONFLICT (category_id, quiz_date, size) DO NOTHING
+      """, nativeQuery = true)
+  int insertDailyQuiz(@Param("categoryId") Long categoryId,
+      @Param("quizDate") LocalDate quizDate,
+      @Param("size") int size,
+      @Param("quizId") Long quizId);
+
   interface DifficultyStatsRow {
     String getDifficulty(); // e.g. "EASY" | "MEDIUM" | "HARD"
 
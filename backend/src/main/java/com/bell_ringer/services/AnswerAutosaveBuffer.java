@@ -0,0 +1,310 @@
+package com.bell_ringer.services;
+
+import com.bell_ringer.repositories.AttemptRepository;
+import com.bell_ringer.repositories.AttemptSelectedChoiceRepository;
+import com.bell_ringer.repositories.AttemptTextAnswerRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Write-behind buffer for autosaved answers of in-progress attempts.
+ *
+ * The frontend autosaves on every click; staged answers are validated against
+ * cached answer keys and upserted into autosave_answers, keeping only the
+ * latest state per (attempt, question), then written to the answer tables in
+ * periodic batches. The staging table is shared by every node, so the node
+ * that completes an attempt drains what any node accepted, and staging for a
+ * completed attempt is rejected (409) instead of being silently dropped later.
+ * Attempt reads overlay what is still staged.
+ *
+ * Lock order: staging, flushing and completion all lock the attempt row before
+ * any staged row (staging and flushing share it, completion takes it FOR
+ * UPDATE), so they serialize without deadlocks.
+ *
+ * Metrics: bellringer.autosave.pending (staged answers),
+ * bellringer.autosave.flush (batch duration), bellringer.autosave.latency
+ * (stage to write), bellringer.autosave.flushed / .dropped (answers).
+ */
+@Service
+public class AnswerAutosaveBuffer {
+
+  private static final Logger log = LoggerFactory.getLogger(AnswerAutosaveBuffer.class);
+
+  /** A staged answer is given up after this many failed flushes */
+  private static final int MAX_FAILURES = 3;
+
+  private static final String STAGE = """
+      INSERT INTO autosave_answers (attempt_id, question_id, choice_ids, answer_text, staged_at)
+      SELECT a.id, ?, CAST(string_to_array(CAST(? AS text), ',') AS bigint[]), CAST(? AS text), ?
+        FROM attempts a
+       WHERE a.id = ? AND a.completed_at IS NULL
+         FOR SHARE
+      ON CONFLICT (attempt_id, question_id) DO UPDATE
+         SET choice_ids = EXCLUDED.choice_ids,
+             answer_text = EXCLUDED.answer_text,
+             staged_at = EXCLUDED.staged_at,
+             failures = 0
+      """;
+
+  private static final String DRAIN = """
+      DELETE FROM autosave_answers
+       WHERE attempt_id = ?
+      RETURNING question_id, choice_ids, answer_text, staged_at
+      """;
+
+  private final AttemptRepository attempts;
+  private final AttemptSelectedChoiceRepository selectedChoices;
+  private final AttemptTextAnswerRepository textAnswers;
+  private final AnswerKeyCache answerKeys;
+  private final RubricCache rubricCache;
+  private final TextAnswerScoringService scoringService;
+  private final LiveSessionService liveSessions;
+  private final JdbcTemplate jdbc;
+  private final TransactionTemplate tx;
+
+  // As of the last scheduled flush
+  private final AtomicInteger pendingAnswers = new AtomicInteger();
+  private final AtomicInteger pendingAttempts = new AtomicInteger();
+
+  private final Timer flushTimer;
+  private final Timer latencyTimer;
+  private final Counter flushedCounter;
+  private final Counter droppedCounter;
+
+  public AnswerAutosaveBuffer(AttemptRepository attempts,
+      AttemptSelectedChoiceRepository selectedChoices,
+      AttemptTextAnswerRepository textAnswers,
+      AnswerKeyCache answerKeys,
+      RubricCache rubricCache,
+      TextAnswerScoringService scoringService,
+      LiveSessionService liveSessions,
+      JdbcTemplate jdbc,
+      PlatformTransactionManager transactionManager,
+      MeterRegistry meterRegistry) {
+    this.attempts = attempts;
+    this.selectedChoices = selectedChoices;
+    this.textAnswers = textAnswers;
+    this.answerKeys = answerKeys;
+    this.rubricCache = rubricCache;
+    this.scoringService = scoringService;
+    this.liveSessions = liveSessions;
+    this.jdbc = jdbc;
+    this.tx = new TransactionTemplate(transactionManager);
+
+    Gauge.builder("bellringer.autosave.pending", pendingAnswers, AtomicInteger::get)
+        .description("Autosaved answers not yet written")
+        .register(meterRegistry);
+    Gauge.builder("bellringer.autosave.attempts", pendingAttempts, AtomicInteger::get)
+        .description("Attempts with autosaved answers not yet written")
+        .register(meterRegistry);
+    this.flushTimer = Timer.builder("bellringer.autosave.flush")
+        .description("Duration of an autosave flush batch")
+        .register(meterRegistry);
+    this.latencyTimer = Timer.builder("bellringer.autosave.latency")
+        .description("Time from staging an answer to writing it")
+        .register(meterRegistry);
+    this.flushedCounter = Counter.builder("bellringer.autosave.flushed").register(meterRegistry);
+    this.droppedCounter = Counter.builder("bellringer.autosave.dropped").register(meterRegistry);
+  }
+
+  // ----------------- Staging -----------------
+
+  /** Stage the full set of selected choices for a question (empty clears it) */
+  public void stageChoices(Long attemptId, Long questionId, Set<Long> choiceIds) {
+    Objects.requireNonNull(choiceIds, "choiceIds must not be null");
+    AnswerKeyCache.AnswerKey key = answerKeys.forQuestion(questionId)
+        .orElseThrow(() -> new IllegalArgumentException("Question not found: " + questionId));
+    if (key.isSingleSelect() && choiceIds.size() > 1)
+      throw new IllegalArgumentException("Question " + questionId + " accepts a single choice");
+    for (Long choiceId : choiceIds) {
+      if (!key.hasChoice(choiceId))
+        throw new IllegalArgumentException("Choice " + choiceId + " is not an active choice of question " + questionId);
+    }
+    String ids = choiceIds.stream().sorted().map(String::valueOf).collect(Collectors.joining(","));
+    stage(attemptId, questionId, ids, null);
+  }
+
+  /** Stage the text answer for a question */
+  public void stageText(Long attemptId, Long questionId, String answerText) {
+    Objects.requireNonNull(answerText, "answerText must not be null");
+    if (answerKeys.forQuestion(questionId).isEmpty())
+      throw new IllegalArgumentException("Question not found: " + questionId);
+    stage(attemptId, questionId, null, answerText);
+  }
+
+  /** Staged answers of an attempt, by question (empty when nothing is pending) */
+  public Map<Long, PendingAnswer> pendingFor(Long attemptId) {
+    Objects.requireNonNull(attemptId, "attemptId must not be null");
+    Map<Long, PendingAnswer> pending = new HashMap<>();
+    jdbc.query("SELECT question_id, choice_ids, answer_text, staged_at FROM autosave_answers WHERE attempt_id = ?",
+        rs -> {
+          pending.put(rs.getLong("question_id"), pendingAnswer(rs));
+        }, attemptId);
+    return pending;
+  }
+
+  private void stage(Long attemptId, Long questionId, String choiceIds, String answerText) {
+    Objects.requireNonNull(attemptId, "attemptId must not be null");
+    Objects.requireNonNull(questionId, "questionId must not be null");
+    OffsetDateTime now = OffsetDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    // The statement checks and share-locks the attempt row itself
+    if (jdbc.update(STAGE, questionId, choiceIds, answerText, now, attemptId) == 0) {
+      if (!attempts.existsById(attemptId))
+        throw new IllegalArgumentException("Attempt not found: " + attemptId);
+      throw new IllegalStateException("Cannot submit answers for completed attempt: " + attemptId);
+    }
+  }
+
+  // ----------------- Flushing -----------------
+
+  /** Write everything that is staged, one transaction per attempt */
+  @Scheduled(fixedDelayString = "${bellringer.autosave.flush-interval:2s}")
+  public void flushAll() {
+    Map<Long, Integer> staged = new LinkedHashMap<>();
+    jdbc.query("SELECT attempt_id, COUNT(*) FROM autosave_answers GROUP BY attempt_id ORDER BY attempt_id",
+        rs -> {
+          staged.put(rs.getLong(1), rs.getInt(2));
+        });
+    pendingAttempts.set(staged.size());
+    pendingAnswers.set(staged.values().stream().mapToInt(Integer::intValue).sum());
+    if (staged.isEmpty()) return;
+
+    flushTimer.record(() -> {
+      for (Long attemptId : staged.keySet()) {
+        try {
+          flush(attemptId);
+        } catch (RuntimeException e) {
+          log.warn("Autosave flush of attempt {} failed: {}", attemptId, e.getMessage());
+          recordFailure(attemptId);
+        }
+      }
+    });
+  }
+
+  /**
+   * Write the attempt's staged answers now, in the caller's transaction when
+   * there is one (completion, which already holds the attempt row FOR UPDATE).
+   * The staged rows are deleted in the same transaction, so they are back if
+   * it rolls back.
+   */
+  public void flush(Long attemptId) {
+    Objects.requireNonNull(attemptId, "attemptId must not be null");
+    tx.executeWithoutResult(status -> {
+      // Attempt row before staged rows, as staging and completion do
+      boolean open = attempts.lockOpenForAnswers(attemptId).isPresent();
+      Map<Long, PendingAnswer> answers = new LinkedHashMap<>();
+      jdbc.query(DRAIN, rs -> {
+        answers.put(rs.getLong("question_id"), pendingAnswer(rs));
+      }, attemptId);
+      if (answers.isEmpty()) return;
+      if (!open) {
+        // Only left behind by an attempt deleted or completed outside completeAttempt
+        droppedCounter.increment(answers.size());
+        log.warn("Dropped {} autosaved answers of attempt {}: not open", answers.size(), attemptId);
+        return;
+      }
+      answers.forEach((questionId, answer) -> write(attemptId, questionId, answer));
+    });
+  }
+
+  private void write(Long attemptId, Long questionId, PendingAnswer answer) {
+    OffsetDateTime now = OffsetDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    boolean written = switch (answer) {
+      case PendingAnswer.Choices choices -> writeChoices(attemptId, questionId, choices.choiceIds(), now);
+      case PendingAnswer.Text text -> writeText(attemptId, questionId, text.answerText(), now);
+    };
+    if (written) {
+      flushedCounter.increment();
+      latencyTimer.record(Duration.between(answer.stagedAt(), Instant.now()));
+    } else {
+      droppedCounter.increment();
+    }
+  }
+
+  private boolean writeChoices(Long attemptId, Long questionId, Set<Long> choiceIds, OffsetDateTime now) {
+    String ids = choiceIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+    var changes = selectedChoices.replaceSelections(attemptId, questionId, ids, now);
+    if (changes.isEmpty()) return false;
+    Long quizId = changes.get(0).getQuizId();
+    for (var change : changes) {
+      switch (change.getChange()) {
+        case "R" -> liveSessions.onChoiceRemoved(quizId, attemptId, questionId, change.getChoiceId());
+        case "I" -> liveSessions.onChoiceSelected(quizId, attemptId, questionId, change.getChoiceId());
+        default -> {
+        }
+      }
+    }
+    return true;
+  }
+
+  private boolean writeText(Long attemptId, Long questionId, String answerText, OffsetDateTime now) {
+    TextAnswerScoringService.ScoringResult result = scoringService.score(answerText,
+        rubricCache.forQuestion(questionId));
+    return textAnswers.upsert(attemptId, questionId, answerText,
+        result.score(), result.isCorrect(), result.feedback(), now).isPresent();
+  }
+
+  /** Count a failed flush against the attempt's staged answers and give up on those failing too often */
+  private void recordFailure(Long attemptId) {
+    try {
+      jdbc.update("UPDATE autosave_answers SET failures = failures + 1 WHERE attempt_id = ?", attemptId);
+      List<Long> given = jdbc.queryForList(
+          "DELETE FROM autosave_answers WHERE attempt_id = ? AND failures >= ? RETURNING question_id",
+          Long.class, attemptId, MAX_FAILURES);
+      for (Long questionId : given) {
+        droppedCounter.increment();
+        log.warn("Dropping autosaved answer for attempt {} question {} after {} failed flushes",
+            attemptId, questionId, MAX_FAILURES);
+      }
+    } catch (RuntimeException e) {
+      log.warn("Could not record failed autosave flush of attempt {}: {}", attemptId, e.getMessage());
+    }
+  }
+
+  private static PendingAnswer pendingAnswer(ResultSet rs) throws SQLException {
+    Instant stagedAt = rs.getObject("staged_at", OffsetDateTime.class).toInstant();
+    Array choiceIds = rs.getArray("choice_ids");
+    if (choiceIds == null) return new PendingAnswer.Text(rs.getString("answer_text"), stagedAt);
+    try {
+      return new PendingAnswer.Choices(Set.of((Long[]) choiceIds.getArray()), stagedAt);
+    } finally {
+      choiceIds.free();
+    }
+  }
+
+  /** Latest autosaved state of one question */
+  public sealed interface PendingAnswer {
+    Instant stagedAt();
+
+    record Choices(Set<Long> choiceIds, Instant stagedAt) implements PendingAnswer {
+    }
+
+    record Text(String answerText, Instant stagedAt) implements PendingAnswer {
+    }
+  }
+}
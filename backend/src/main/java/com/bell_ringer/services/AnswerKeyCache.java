@@ -0,0 +1,80 @@
+package com.bell_ringer.services;
+
+import com.bell_ringer.models.Question;
+import com.bell_ringer.repositories.ChoiceRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Answer keys (question type, active choices, correct choices) per question,
+ * so the hot answer-submission paths can validate a choice without touching
+ * the database. Entries are dropped when a seed import touches the question.
+ */
+@Component
+public class AnswerKeyCache {
+
+  private final ChoiceRepository choices;
+
+  private final Cache<Long, AnswerKey> keys = Caffeine.newBuilder()
+      .maximumSize(20_000)
+      .build();
+
+  public AnswerKeyCache(ChoiceRepository choices) {
+    this.choices = choices;
+  }
+
+  /** Answer key of an active question, empty when the question is missing or retired */
+  public Optional<AnswerKey> forQuestion(Long questionId) {
+    Objects.requireNonNull(questionId, "questionId must not be null");
+    return Optional.ofNullable(keys.get(questionId, this::load));
+  }
+
+  @EventListener
+  public void onQuestionBankChanged(QuestionBankChangedEvent event) {
+    if (event.all()) {
+      keys.invalidateAll();
+      return;
+    }
+    keys.invalidateAll(event.inserted());
+    keys.invalidateAll(event.updated());
+    keys.invalidateAll(event.retired());
+  }
+
+  private AnswerKey load(Long questionId) {
+    List<ChoiceRepository.AnswerKeyRow> rows = choices.findAnswerKeyRows(questionId);
+    if (rows.isEmpty()) return null; // not cached: a missing question may still be created
+
+    Set<Long> choiceIds = new HashSet<>();
+    Set<Long> correctIds = new HashSet<>();
+    for (var row : rows) {
+      if (row.getChoiceId() == null) continue;
+      choiceIds.add(row.getChoiceId());
+      if (Boolean.TRUE.equals(row.getCorrect())) correctIds.add(row.getChoiceId());
+    }
+    return new AnswerKey(rows.get(0).getType(), Set.copyOf(choiceIds), Set.copyOf(correctIds));
+  }
+
+  public record AnswerKey(Question.Type type, Set<Long> choiceIds, Set<Long> correctChoiceIds) {
+
+    /** True for question types where a new selection replaces the previous one */
+    public boolean isSingleSelect() {
+      return type == Question.Type.UNIQUE_CHOICE || type == Question.Type.TRUE_FALSE;
+    }
+
+    public boolean hasChoice(Long choiceId) {
+      return choiceIds.contains(choiceId);
+    }
+
+    public boolean isCorrect(Long choiceId) {
+      return correctChoiceIds.contains(choiceId);
+    }
+  }
+}
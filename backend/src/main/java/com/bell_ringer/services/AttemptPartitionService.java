@@ -0,0 +1,333 @@
+package com.bell_ringer.services;
+
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Maintenance of the monthly partitions of attempts and their answer tables
+ * (see V8__partition_attempts_by_month.sql and V9__packed_choice_sets.sql).
+ *
+ * Partitions are created a few months ahead. Months older than the retention
+ * horizon are archived:
+ * <ol>
+ * <li>their contribution to user statistics is added to user_attempt_rollups,
+ * user_completed_quiz_rollups and user_difficulty_rollups, their score bins to archived_score_bins, and
+ * the month's partitions are detached, in one transaction;</li>
+ * <li>the detached tables are exported to gzipped CSV files in the archive
+ * directory, then dropped.</li>
+ * </ol>
+ * archived_attempt_months records each step, so an interrupted run resumes
+ * where it stopped and a month is never rolled up twice. The horizon comes from
+ * the database clock, and a session advisory lock keeps maintenance to one
+ * run across all instances.
+ */
+@Service
+public class AttemptPartitionService {
+
+  private static final Logger log = LoggerFactory.getLogger(AttemptPartitionService.class);
+
+  private static final List<String> TABLES = List.of("attempt_selected_choices", "attempt_choice_sets", "attempt_text_answers",
+      "attempts");
+  private static final String LOCK_KEY = "bellringer.attempt_partitions";
+
+  private static final String ROLLUP_ATTEMPTS = """
+      INSERT INTO user_attempt_rollups AS r
+             (user_id, category_id, completed_attempts, correct_count, total_count)
+      SELECT a.user_id, q.category_id, COUNT(*),
+             COALESCE(SUM(a.correct_count), 0), COALESCE(SUM(a.total_count), 0)
+        FROM attempts_p%1$s a
+        JOIN quizzes q ON q.id = a.quiz_id
+       WHERE a.completed_at IS NOT NULL
+       GROUP BY a.user_id, q.category_id
+      ON CONFLICT (user_id, category_id) DO UPDATE SET
+        completed_attempts = r.completed_attempts + EXCLUDED.completed_attempts,
+        correct_count = r.correct_count + EXCLUDED.correct_count,
+        total_count = r.total_count + EXCLUDED.total_count
+      """;
+
+  // Distinct quiz counts do not add up across months: keep the quizzes themselves
+  private static final String ROLLUP_COMPLETED_QUIZZES = """
+      INSERT INTO user_completed_quiz_rollups (user_id, category_id, quiz_id)
+      SELECT DISTINCT a.user_id, q.category_id, a.quiz_id
+        FROM attempts_p%1$s a
+        JOIN quizzes q ON q.id = a.quiz_id
+       WHERE a.completed_at IS NOT NULL
+      ON CONFLICT DO NOTHING
+      """;
+
+  // Same answer accounting as QuizRepository.findAccuracyByUserAndCategory
+  private static final String ROLLUP_DIFFICULTY = """
+      INSERT INTO user_difficulty_rollups AS r (user_id, category_id, difficulty, correct, total)
+      SELECT user_id, category_id, difficulty, SUM(answered_correctly), COUNT(*)
+        FROM (SELECT a.user_id, qu.category_id, qu.difficulty,
+                     CASE WHEN c.is_correct AND c.question_id = qu.id THEN 1 ELSE 0 END AS answered_correctly
+                FROM attempts_p%1$s a
+                JOIN attempt_selected_choices_p%1$s ac ON ac.attempt_id = a.id
+                JOIN questions qu ON qu.id = ac.question_id
+                JOIN choices c ON c.id = ac.choice_id
+               WHERE a.completed_at IS NOT NULL
+              UNION ALL
+              SELECT a.user_id, qu.category_id, qu.difficulty,
+                     CASE WHEN c.is_correct AND c.question_id = qu.id THEN 1 ELSE 0 END
+                FROM attempts_p%1$s a
+                JOIN attempt_choice_sets_p%1$s s ON s.attempt_id = a.id
+                CROSS JOIN LATERAL unnest(s.question_ids, s.choice_ids) AS ac(question_id, choice_id)
+                JOIN questions qu ON qu.id = ac.question_id
+                JOIN choices c ON c.id = ac.choice_id
+               WHERE a.completed_at IS NOT NULL
+              UNION ALL
+              SELECT a.user_id, qu.category_id, qu.difficulty,
+                     CASE WHEN ata.is_correct THEN 1 ELSE 0 END
+                FROM attempts_p%1$s a
+                JOIN attempt_text_answers_p%1$s ata ON ata.attempt_id = a.id
+                JOIN questions qu ON qu.id = ata.question_id
+               WHERE a.completed_at IS NOT NULL
+                 AND ata.is_correct IS NOT NULL) answers
+       WHERE difficulty IS NOT NULL
+       GROUP BY user_id, category_id, difficulty
+      ON CONFLICT (user_id, category_id, difficulty) DO UPDATE SET
+        correct = r.correct + EXCLUDED.correct,
+        total = r.total + EXCLUDED.total
+      """;
+
+  // Same bins as ScoreDistributions, whose rebuild starts from these
+  private static final String ROLLUP_SCORE_BINS = """
+      INSERT INTO archived_score_bins AS r (category_id, bin, attempts)
+      SELECT q.category_id, LEAST(FLOOR(a.success_rate * %2$d), %2$d - 1), COUNT(*)
+        FROM attempts_p%1$s a
+        JOIN quizzes q ON q.id = a.quiz_id
+       WHERE a.completed_at IS NOT NULL AND a.total_count > 0
+       GROUP BY 1, 2
+      ON CONFLICT (category_id, bin) DO UPDATE SET
+        attempts = r.attempts + EXCLUDED.attempts
+      """;
+
+  private static final String ATTACHED_MONTHS = """
+      SELECT month
+        FROM (SELECT substring(c.relname FROM '^attempts_p([0-9]{6})$') AS month
+                FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+               WHERE i.inhparent = 'attempts'::regclass
+                 AND c.relname ~ '^attempts_p[0-9]{6}$') attached
+      """;
+
+  private final JdbcTemplate jdbc;
+  private final DataSource dataSource;
+  private final TransactionTemplate tx;
+  private final int monthsAhead;
+  private final int retentionMonths;
+  private final Path archiveDir;
+
+  public AttemptPartitionService(JdbcTemplate jdbc,
+      DataSource dataSource,
+      PlatformTransactionManager transactionManager,
+      @Value("${bellringer.partitions.months-ahead:3}") int monthsAhead,
+      @Value("${bellringer.partitions.retention-months:0}") int retentionMonths,
+      @Value("${bellringer.partitions.archive-dir:archive/attempts}") Path archiveDir) {
+    if (monthsAhead < 1)
+      throw new IllegalArgumentException("bellringer.partitions.months-ahead must be at least 1");
+    this.jdbc = jdbc;
+    this.dataSource = dataSource;
+    this.tx = new TransactionTemplate(transactionManager);
+    this.monthsAhead = monthsAhead;
+    this.retentionMonths = retentionMonths;
+    this.archiveDir = archiveDir;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void onStartup() {
+    try {
+      maintain();
+    } catch (RuntimeException e) {
+      log.error("Attempt partition maintenance failed at startup: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * Create upcoming partitions and archive months past the retention horizon
+   * (bellringer.partitions.retention-months; 0 keeps everything).
+   */
+  @Scheduled(cron = "${bellringer.partitions.maintenance-cron:0 5 0 * * *}")
+  public MaintenanceReport maintain() {
+    return exclusively(() -> {
+      Integer created = jdbc.queryForObject("SELECT ensure_attempt_partitions(?)", Integer.class, monthsAhead);
+      if (created != null && created > 0) log.info("Created {} attempt partitions", created);
+
+      List<String> archived = new ArrayList<>();
+      if (retentionMonths > 0) {
+        for (String month : monthsBeforeHorizon()) {
+          if (detach(month)) archived.add(month);
+        }
+      }
+      for (String month : pendingExports()) {
+        export(month);
+      }
+      return new MaintenanceReport(created == null ? 0 : created, archived);
+    });
+  }
+
+  /**
+   * Archive one month now, whatever the retention horizon. Returns false when
+   * the month has completed attempts without stored scores.
+   */
+  public boolean archive(String month) {
+    if (month == null || !month.matches("[0-9]{6}"))
+      throw new IllegalArgumentException("month must be formatted as YYYYMM: " + month);
+    return exclusively(() -> {
+      if (!isAttached(month))
+        throw new NoSuchElementException("No attached attempt partition for " + month);
+      if (!detach(month)) return false;
+      export(month);
+      return true;
+    });
+  }
+
+  /**
+   * Run maintenance holding a session advisory lock, so only one instance
+   * maintains partitions at a time. The lock lives on its own connection.
+   */
+  private <T> T exclusively(Supplier<T> work) {
+    try (Connection conn = dataSource.getConnection()) {
+      if (!advisoryLock(conn, "pg_try_advisory_lock"))
+        throw new IllegalStateException("Attempt partition maintenance is already running");
+      try {
+        return work.get();
+      } finally {
+        advisoryLock(conn, "pg_advisory_unlock");
+      }
+    } catch (SQLException e) {
+      throw new IllegalStateException("Could not lock attempt partition maintenance: " + e.getMessage(), e);
+    }
+  }
+
+  private static boolean advisoryLock(Connection conn, String function) throws SQLException {
+    try (PreparedStatement ps = conn.prepareStatement("SELECT " + function + "(hashtext(?))")) {
+      ps.setString(1, LOCK_KEY);
+      try (ResultSet rs = ps.executeQuery()) {
+        return rs.next() && rs.getBoolean(1);
+      }
+    }
+  }
+
+  // ----------------- Archival -----------------
+
+  /** Attached months older than the retention horizon, by the database clock */
+  private List<String> monthsBeforeHorizon() {
+    return jdbc.queryForList(ATTACHED_MONTHS
+        + " WHERE month < to_char(now() - make_interval(months => ?), 'YYYYMM') ORDER BY month",
+        String.class, retentionMonths);
+  }
+
+  private boolean isAttached(String month) {
+    return !jdbc.queryForList(ATTACHED_MONTHS + " WHERE month = ?", String.class, month).isEmpty();
+  }
+
+  private List<String> pendingExports() {
+    return jdbc.queryForList(
+        "SELECT month FROM archived_attempt_months WHERE archived_to IS NULL ORDER BY month", String.class);
+  }
+
+  /** Roll the month up into the user statistics and detach its partitions */
+  private boolean detach(String month) {
+    Boolean unscored = jdbc.queryForObject(String.format(
+        "SELECT EXISTS (SELECT 1 FROM attempts_p%s WHERE completed_at IS NOT NULL AND total_count IS NULL)", month),
+        Boolean.class);
+    if (Boolean.TRUE.equals(unscored)) {
+      // Their scores would be rolled up as zero: run /api/v1/admin/attempts/backfill-scores first
+      log.warn("Not archiving attempts of {}: completed attempts without stored scores", month);
+      return false;
+    }
+
+    tx.executeWithoutResult(status -> {
+      jdbc.update(String.format(ROLLUP_ATTEMPTS, month));
+      jdbc.update(String.format(ROLLUP_COMPLETED_QUIZZES, month));
+      jdbc.update(String.format(ROLLUP_DIFFICULTY, month));
+      jdbc.update(String.format(ROLLUP_SCORE_BINS, month, ScoreDistributions.BINS));
+      for (String table : TABLES) {
+        jdbc.execute(String.format("ALTER TABLE %s DETACH PARTITION %s_p%s", table, table, month));
+        if (!table.equals("attempts")) dropAttemptForeignKeys(table + "_p" + month);
+      }
+      jdbc.update("INSERT INTO archived_attempt_months (month) VALUES (?)", month);
+    });
+    log.info("Rolled up and detached attempts of {}", month);
+    return true;
+  }
+
+  /**
+   * A detached answer table keeps its foreign key to attempts, which would
+   * make detaching the month's attempts partition fail while its rows are
+   * referenced. The detached rows are only kept until they are exported.
+   */
+  private void dropAttemptForeignKeys(String table) {
+    List<String> constraints = jdbc.queryForList("""
+        SELECT conname FROM pg_constraint
+         WHERE conrelid = to_regclass(?) AND contype = 'f' AND confrelid = 'attempts'::regclass
+        """, String.class, table);
+    for (String constraint : constraints) {
+      jdbc.execute(String.format("ALTER TABLE %s DROP CONSTRAINT \"%s\"", table, constraint.replace("\"", "\"\"")));
+    }
+  }
+
+  /** Export the detached tables of the month to gzipped CSV, then drop them */
+  private void export(String month) {
+    try {
+      Files.createDirectories(archiveDir);
+      try (Connection conn = dataSource.getConnection()) {
+        PGConnection pg = conn.unwrap(PGConnection.class);
+        for (String table : TABLES) {
+          String name = table + "_p" + month;
+          if (!tableExists(name)) continue; // already exported and dropped by an interrupted run
+          Path target = archiveDir.resolve(name + ".csv.gz");
+          Path partial = archiveDir.resolve(name + ".csv.gz.part");
+          try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(partial))) {
+            pg.getCopyAPI().copyOut("COPY " + name + " TO STDOUT WITH (FORMAT csv, HEADER)", out);
+          }
+          Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+      }
+    } catch (IOException | SQLException e) {
+      throw new IllegalStateException("Could not export archived attempts of " + month + ": " + e.getMessage(), e);
+    }
+
+    tx.executeWithoutResult(status -> {
+      for (String table : TABLES) {
+        jdbc.execute(String.format("DROP TABLE IF EXISTS %s_p%s", table, month));
+      }
+      jdbc.update("UPDATE archived_attempt_months SET archived_to = ? WHERE month = ?",
+          archiveDir.toAbsolutePath().toString(), month);
+    });
+    log.info("Archived attempts of {} to {}", month, archiveDir.toAbsolutePath());
+  }
+
+  private boolean tableExists(String name) {
+    return Boolean.TRUE.equals(jdbc.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, name));
+  }
+
+  public record MaintenanceReport(int partitionsCreated, List<String> monthsArchived) {
+  }
+}
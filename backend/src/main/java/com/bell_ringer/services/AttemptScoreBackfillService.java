@@ -0,0 +1,75 @@
+package com.bell_ringer.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Fills the stored score columns of historical attempts that were completed
+ * before scores were persisted at completion time. Work is split into batches
+ * that are scored in parallel, each batch in its own transaction.
+ */
+@Service
+public class AttemptScoreBackfillService {
+
+  private static final Logger log = LoggerFactory.getLogger(AttemptScoreBackfillService.class);
+
+  private static final int MAX_PARALLELISM = 16;
+  private static final int MAX_BATCH_SIZE = 5_000;
+
+  private final AttemptService attemptService;
+  private final AtomicBoolean running = new AtomicBoolean(false);
+
+  public AttemptScoreBackfillService(AttemptService attemptService) {
+    this.attemptService = attemptService;
+  }
+
+  public BackfillReport backfill(int batchSize, int parallelism) {
+    if (batchSize <= 0 || batchSize > MAX_BATCH_SIZE)
+      throw new IllegalArgumentException("batchSize must be between 1 and " + MAX_BATCH_SIZE);
+    if (parallelism <= 0 || parallelism > MAX_PARALLELISM)
+      throw new IllegalArgumentException("parallelism must be between 1 and " + MAX_PARALLELISM);
+    if (!running.compareAndSet(false, true))
+      throw new IllegalStateException("A score backfill is already running");
+
+    long start = System.nanoTime();
+    ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+    try {
+      List<Long> ids = attemptService.findCompletedIdsWithoutStoredScore();
+
+      List<Future<Integer>> futures = new ArrayList<>();
+      for (int from = 0; from < ids.size(); from += batchSize) {
+        List<Long> batch = ids.subList(from, Math.min(from + batchSize, ids.size()));
+        futures.add(pool.submit(() -> attemptService.storeScores(batch)));
+      }
+
+      int stored = 0;
+      for (Future<Integer> future : futures) {
+        stored += future.get();
+      }
+
+      long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+      log.info("Attempt score backfill stored {} of {} candidate attempts in {} ms", stored, ids.size(), elapsedMs);
+      return new BackfillReport(ids.size(), stored, futures.size(), elapsedMs);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Score backfill interrupted", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Score backfill failed: " + e.getCause().getMessage(), e.getCause());
+    } finally {
+      pool.shutdownNow();
+      running.set(false);
+    }
+  }
+
+  public record BackfillReport(int candidates, int stored, int batches, long elapsedMs) {
+  }
+}
@@ -15,6 +15,8 @@ import com.bell_ringer.services.dto.AttemptSelectedChoiceRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -28,15 +30,27 @@ public class AttemptSelectedChoiceService {
   private final AttemptRepository attemptRepository;
   private final QuestionRepository questionRepository;
   private final ChoiceRepository choiceRepository;
+  private final LiveSessionService liveSessions;
+  private final AnswerKeyCache answerKeys;
+  private final SelectedChoiceStore choiceStore;
+  private final AttemptService attemptService;
 
   public AttemptSelectedChoiceService(AttemptSelectedChoiceRepository selectedChoices,
       AttemptRepository attemptRepository,
       QuestionRepository questionRepository,
-      ChoiceRepository choiceRepository) {
+      ChoiceRepository choiceRepository,
+      LiveSessionService liveSessions,
+      AnswerKeyCache answerKeys,
+      SelectedChoiceStore choiceStore,
+      AttemptService attemptService) {
     this.selectedChoices = selectedChoices;
     this.attemptRepository = attemptRepository;
     this.questionRepository = questionRepository;
     this.choiceRepository = choiceRepository;
+    this.liveSessions = liveSessions;
+    this.answerKeys = answerKeys;
+    this.choiceStore = choiceStore;
+    this.attemptService = attemptService;
   }
 
   // ===== DTO Conversion Methods =====
@@ -56,11 +70,11 @@ public class AttemptSelectedChoiceService {
   // ----------------- Basic reads -----------------
 
   public Optional<AttemptSelectedChoice> findById(AttemptSelectedChoiceId id) {
-    return selectedChoices.findById(id);
+    return choiceStore.findById(id);
   }
 
   public AttemptSelectedChoice getRequired(AttemptSelectedChoiceId id) {
-    return selectedChoices.findById(id)
+    return choiceStore.findById(id)
         .orElseThrow(() -> new IllegalArgumentException("Selected choice not found: " + id));
   }
 
@@ -72,19 +86,19 @@ public class AttemptSelectedChoiceService {
   // ----------------- Query methods -----------------
 
   public List<AttemptSelectedChoiceDto> findByAttemptId(Long attemptId) {
-    return selectedChoices.findByAttemptId(attemptId).stream()
+    return choiceStore.findByAttemptId(attemptId).stream()
         .map(this::convertToDto)
         .collect(Collectors.toList());
   }
 
   public List<AttemptSelectedChoiceDto> findByAttemptIdAndQuestionId(Long attemptId, Long questionId) {
-    return selectedChoices.findByAttemptIdAndQuestionId(attemptId, questionId).stream()
+    return choiceStore.findByAttemptIdAndQuestionId(attemptId, questionId).stream()
         .map(this::convertToDto)
         .collect(Collectors.toList());
   }
 
   public long countByAttemptId(Long attemptId) {
-    return selectedChoices.countByAttemptId(attemptId);
+    return choiceStore.countByAttemptId(attemptId);
   }
 
   // ----------------- Submit choices -----------------
@@ -99,12 +113,8 @@ public class AttemptSelectedChoiceService {
     Objects.requireNonNull(request.questionId(), "questionId must not be null");
     Objects.requireNonNull(request.choiceId(), "choiceId must not be null");
 
-    // Validate attempt exists and is not completed
-    Attempt attempt = attemptRepository.findById(request.attemptId())
-        .orElseThrow(() -> new IllegalArgumentException("Attempt not found: " + request.attemptId()));
-    if (attempt.isCompleted()) {
-      throw new IllegalStateException("Cannot submit choices for completed attempt: " + request.attemptId());
-    }
+    // Validate attempt exists and is open; the row stays share-locked until commit
+    Attempt attempt = attemptService.lockOpenForAnswers(request.attemptId(), "submit choices for");
 
     // Validate question and choice exist
     Question question = questionRepository.findById(request.questionId())
@@ -117,6 +127,9 @@ public class AttemptSelectedChoiceService {
       throw new IllegalArgumentException(
           "Choice " + request.choiceId() + " does not belong to question " + request.questionId());
     }
+    if (choice.isDeleted()) {
+      throw new IllegalArgumentException("Choice has been retired: " + request.choiceId());
+    }
 
     // Create selected choice
     AttemptSelectedChoice selectedChoice = new AttemptSelectedChoice();
@@ -129,6 +142,8 @@ public class AttemptSelectedChoiceService {
     selectedChoice.setChoice(choice);
 
     AttemptSelectedChoice savedChoice = selectedChoices.save(selectedChoice);
+    liveSessions.onChoiceSelected(attempt.getQuiz().getId(), request.attemptId(), request.questionId(),
+        request.choiceId());
     return convertToDto(savedChoice);
   }
 
@@ -140,12 +155,8 @@ public class AttemptSelectedChoiceService {
     Objects.requireNonNull(request, "request must not be null");
     Objects.requireNonNull(request.attemptId(), "attemptId must not be null");
 
-    // Validate attempt exists and is not completed
-    Attempt attempt = attemptRepository.findById(request.attemptId())
-        .orElseThrow(() -> new IllegalArgumentException("Attempt not found: " + request.attemptId()));
-    if (attempt.isCompleted()) {
-      throw new IllegalStateException("Cannot submit choices for completed attempt: " + request.attemptId());
-    }
+    // Validate attempt exists and is open; the row stays share-locked until commit
+    Attempt attempt = attemptService.lockOpenForAnswers(request.attemptId(), "submit choices for");
 
     List<AttemptSelectedChoiceDto> results = request.selectedChoices().stream()
         .map(choice -> {
@@ -160,7 +171,7 @@ public class AttemptSelectedChoiceService {
 
   /**
    * Update a choice selection (change from one choice to another for the same
-   * question)
+   * question). Single-select questions go through {@link #replaceSelection}.
    */
   @Transactional
   public AttemptSelectedChoiceDto updateChoice(Long attemptId, Long questionId, Long oldChoiceId,
@@ -170,16 +181,16 @@ public class AttemptSelectedChoiceService {
     Objects.requireNonNull(oldChoiceId, "oldChoiceId must not be null");
     Objects.requireNonNull(request, "request must not be null");
 
-    // Validate attempt is not completed
-    Attempt attempt = attemptRepository.findById(attemptId)
-        .orElseThrow(() -> new IllegalArgumentException("Attempt not found: " + attemptId));
-    if (attempt.isCompleted()) {
-      throw new IllegalStateException("Cannot update choices for completed attempt: " + attemptId);
+    if (answerKeys.forQuestion(questionId).map(AnswerKeyCache.AnswerKey::isSingleSelect).orElse(false)) {
+      return replaceSelection(attemptId, questionId, request.newChoiceId());
     }
 
+    // Validate attempt is open; the row stays share-locked until commit
+    Attempt attempt = attemptService.lockOpenForAnswers(attemptId, "update choices for");
+
     // Remove old choice selection
     AttemptSelectedChoiceId oldId = new AttemptSelectedChoiceId(attemptId, questionId, oldChoiceId);
-    selectedChoices.deleteById(oldId);
+    removeSelection(attempt, oldId);
 
     // Add new choice selection
     AttemptSelectedChoiceRequest.Submit submitRequest = new AttemptSelectedChoiceRequest.Submit(attemptId, questionId,
@@ -187,6 +198,50 @@ public class AttemptSelectedChoiceService {
     return submitChoice(submitRequest);
   }
 
+  /**
+   * Make choiceId the only selected choice for a UNIQUE_CHOICE or TRUE_FALSE
+   * question. The choice is validated against the cached answer key, and the
+   * attempt check, delete of the previous selection and insert run as one
+   * statement.
+   */
+  @Transactional
+  public AttemptSelectedChoiceDto replaceSelection(Long attemptId, Long questionId, Long choiceId) {
+    Objects.requireNonNull(attemptId, "attemptId must not be null");
+    Objects.requireNonNull(questionId, "questionId must not be null");
+    Objects.requireNonNull(choiceId, "choiceId must not be null");
+
+    AnswerKeyCache.AnswerKey key = answerKeys.forQuestion(questionId)
+        .orElseThrow(() -> new IllegalArgumentException("Question not found: " + questionId));
+    if (!key.isSingleSelect()) {
+      throw new IllegalArgumentException(
+          "Question " + questionId + " is " + key.type() + "; only single-select questions can replace a selection");
+    }
+    if (!key.hasChoice(choiceId)) {
+      throw new IllegalArgumentException(
+          "Choice " + choiceId + " is not an active choice of question " + questionId);
+    }
+
+    OffsetDateTime selectedAt = OffsetDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    List<AttemptSelectedChoiceRepository.SelectionChangeRow> changes = selectedChoices.replaceSelections(
+        attemptId, questionId, choiceId.toString(), selectedAt);
+    if (changes.isEmpty()) {
+      if (!attemptRepository.existsById(attemptId))
+        throw new IllegalArgumentException("Attempt not found: " + attemptId);
+      throw new IllegalStateException("Cannot update choices for completed attempt: " + attemptId);
+    }
+
+    Long quizId = changes.get(0).getQuizId();
+    for (var change : changes) {
+      switch (change.getChange()) {
+        case "R" -> liveSessions.onChoiceRemoved(quizId, attemptId, questionId, change.getChoiceId());
+        case "I" -> liveSessions.onChoiceSelected(quizId, attemptId, questionId, change.getChoiceId());
+        default -> {
+        }
+      }
+    }
+    return AttemptSelectedChoiceDto.forResponse(attemptId, questionId, choiceId, quizId, selectedAt);
+  }
+
   // ----------------- Delete operations -----------------
 
   /**
@@ -198,14 +253,19 @@ public class AttemptSelectedChoiceService {
     Objects.requireNonNull(questionId, "questionId must not be null");
     Objects.requireNonNull(choiceId, "choiceId must not be null");
 
-    // Validate attempt is not completed
-    Attempt attempt = attemptRepository.findById(attemptId)
-        .orElseThrow(() -> new IllegalArgumentException("Attempt not found: " + attemptId));
-    if (attempt.isCompleted()) {
-      throw new IllegalStateException("Cannot remove choices from completed attempt: " + attemptId);
-    }
+    // Validate attempt is open; the row stays share-locked until commit
+    Attempt attempt = attemptService.lockOpenForAnswers(attemptId, "remove choices from");
 
     AttemptSelectedChoiceId id = new AttemptSelectedChoiceId(attemptId, questionId, choiceId);
+    removeSelection(attempt, id);
+  }
+
+  private void removeSelection(Attempt attempt, AttemptSelectedChoiceId id) {
+    Long quizId = attempt.getQuiz().getId();
+    // Live counters only move for selections that actually existed
+    if (liveSessions.isLive(quizId) && selectedChoices.existsById(id)) {
+      liveSessions.onChoiceRemoved(quizId, id.getAttemptId(), id.getQuestionId(), id.getChoiceId());
+    }
     selectedChoices.deleteById(id);
   }
 
@@ -215,7 +275,13 @@ public class AttemptSelectedChoiceService {
   @Transactional
   public void removeAllChoicesForAttempt(Long attemptId) {
     Objects.requireNonNull(attemptId, "attemptId must not be null");
-    selectedChoices.deleteByAttemptId(attemptId);
+    if (liveSessions.anyLive()) {
+      for (AttemptSelectedChoice selected : choiceStore.findByAttemptId(attemptId)) {
+        liveSessions.onChoiceRemoved(selected.getQuiz().getId(), attemptId, selected.getQuestionId(),
+            selected.getChoiceId());
+      }
+    }
+    choiceStore.deleteByAttemptId(attemptId);
   }
 
   // ----------------- Analytics methods -----------------
@@ -224,14 +290,14 @@ public class AttemptSelectedChoiceService {
    * Check if a user has answered a specific question in an attempt
    */
   public boolean hasAnsweredQuestion(Long attemptId, Long questionId) {
-    return !selectedChoices.findByAttemptIdAndQuestionId(attemptId, questionId).isEmpty();
+    return !choiceStore.findByAttemptIdAndQuestionId(attemptId, questionId).isEmpty();
   }
 
   /**
    * Get the number of questions answered in an attempt
    */
   public long getAnsweredQuestionCount(Long attemptId) {
-    return selectedChoices.findByAttemptId(attemptId).stream()
+    return choiceStore.findByAttemptId(attemptId).stream()
         .map(AttemptSelectedChoice::getQuestionId)
         .distinct()
         .count();
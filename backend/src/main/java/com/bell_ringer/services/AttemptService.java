@@ -3,20 +3,29 @@ package com.bell_ringer.services;
 import com.bell_ringer.models.Attempt;
 import com.bell_ringer.models.AttemptSelectedChoice;
 import com.bell_ringer.models.AttemptTextAnswer;
+import com.bell_ringer.models.Choice;
 import com.bell_ringer.models.Quiz;
 import com.bell_ringer.repositories.AttemptRepository;
 import com.bell_ringer.repositories.AttemptSelectedChoiceRepository;
 import com.bell_ringer.repositories.AttemptTextAnswerRepository;
+import com.bell_ringer.repositories.ChoiceRepository;
 import com.bell_ringer.services.dto.AttemptDto;
 import com.bell_ringer.services.dto.AttemptRequest;
+import com.bell_ringer.services.jfr.AttemptCompletionEvent;
 
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -26,20 +35,44 @@ public class AttemptService {
 
   private final AttemptRepository attempts;
   private final AttemptSelectedChoiceRepository selectedChoices;
+  private final SelectedChoiceStore choiceStore;
   private final AttemptTextAnswerRepository textAnswers;
+  private final ChoiceRepository choiceRepository;
   private final QuizService quizService;
-  private final AttemptSelectedChoiceService selectedChoiceService;
+  private final LiveSessionService liveSessions;
+  private final AnswerAutosaveBuffer autosave;
+  private final AnswerKeyCache answerKeys;
+  private final RatingEngine ratings;
+  private final ScoreDistributions distributions;
+  private final Leaderboards leaderboards;
+  private final CacheInvalidationBus cacheBus;
 
   public AttemptService(AttemptRepository attempts,
       AttemptSelectedChoiceRepository selectedChoices,
+      SelectedChoiceStore choiceStore,
       AttemptTextAnswerRepository textAnswers,
+      ChoiceRepository choiceRepository,
       QuizService quizService,
-      AttemptSelectedChoiceService selectedChoiceService) {
+      LiveSessionService liveSessions,
+      AnswerAutosaveBuffer autosave,
+      AnswerKeyCache answerKeys,
+      RatingEngine ratings,
+      ScoreDistributions distributions,
+      Leaderboards leaderboards,
+      CacheInvalidationBus cacheBus) {
     this.attempts = attempts;
     this.selectedChoices = selectedChoices;
+    this.choiceStore = choiceStore;
     this.textAnswers = textAnswers;
+    this.choiceRepository = choiceRepository;
     this.quizService = quizService;
-    this.selectedChoiceService = selectedChoiceService;
+    this.liveSessions = liveSessions;
+    this.autosave = autosave;
+    this.answerKeys = answerKeys;
+    this.ratings = ratings;
+    this.distributions = distributions;
+    this.leaderboards = leaderboards;
+    this.cacheBus = cacheBus;
   }
 
   // ===== DTO Conversion Methods =====
@@ -60,7 +93,7 @@ public class AttemptService {
    */
   private AttemptDto convertToDtoWithAnswers(Attempt attempt) {
     // Load answer details
-    List<AttemptSelectedChoice> choices = selectedChoices.findByAttemptId(attempt.getId());
+    List<AttemptSelectedChoice> choices = choiceStore.findByAttemptId(attempt.getId());
     List<AttemptTextAnswer> texts = textAnswers.findByAttemptId(attempt.getId());
 
     // Convert to DTOs
@@ -83,6 +116,10 @@ public class AttemptService {
             text.getAnsweredAt()))
         .collect(Collectors.toList());
 
+    if (!attempt.isCompleted()) {
+      overlayAutosaved(attempt.getId(), choiceDtos, textDtos);
+    }
+
     return AttemptDto.forResponseWithAnswers(
         attempt.getId(),
         attempt.getQuiz().getId(),
@@ -92,6 +129,30 @@ public class AttemptService {
         textDtos);
   }
 
+  /**
+   * Replace the stored answers of questions that have a newer autosaved state
+   * still staged in the write-behind buffer.
+   */
+  private void overlayAutosaved(Long attemptId, List<AttemptDto.AttemptSelectedChoiceDto> choiceDtos,
+      List<AttemptDto.AttemptTextAnswerDto> textDtos) {
+    Map<Long, AnswerAutosaveBuffer.PendingAnswer> buffered = autosave.pendingFor(attemptId);
+    if (buffered.isEmpty()) return;
+
+    choiceDtos.removeIf(choice -> buffered.get(choice.questionId()) instanceof AnswerAutosaveBuffer.PendingAnswer.Choices);
+    textDtos.removeIf(text -> buffered.get(text.questionId()) instanceof AnswerAutosaveBuffer.PendingAnswer.Text);
+    buffered.forEach((questionId, answer) -> {
+      OffsetDateTime stagedAt = answer.stagedAt().atOffset(ZoneOffset.UTC);
+      switch (answer) {
+        case AnswerAutosaveBuffer.PendingAnswer.Choices choices -> choices.choiceIds().stream().sorted()
+            .forEach(choiceId -> choiceDtos.add(
+                AttemptDto.AttemptSelectedChoiceDto.from(attemptId, questionId, choiceId, stagedAt)));
+        // Not scored until it is written
+        case AnswerAutosaveBuffer.PendingAnswer.Text text -> textDtos.add(
+            AttemptDto.AttemptTextAnswerDto.from(attemptId, questionId, text.answerText(), null, null, null, stagedAt));
+      }
+    });
+  }
+
   // ----------------- Basic reads -----------------
 
   public Optional<Attempt> findById(Long id) {
@@ -103,6 +164,23 @@ public class AttemptService {
         .orElseThrow(() -> new IllegalArgumentException("Attempt not found: " + id));
   }
 
+  /**
+   * Load an open attempt to write its answers, share-locking its row for the
+   * rest of the transaction. Completion locks the row FOR UPDATE first, so an
+   * answer write either commits before the answers are scored or finds the
+   * attempt completed. operation completes the error message, e.g. "submit
+   * choices for".
+   */
+  public Attempt lockOpenForAnswers(Long attemptId, String operation) {
+    Objects.requireNonNull(attemptId, "attemptId must not be null");
+    if (attempts.lockOpenForAnswers(attemptId).isEmpty()) {
+      if (!attempts.existsById(attemptId))
+        throw new IllegalArgumentException("Attempt not found: " + attemptId);
+      throw new IllegalStateException("Cannot " + operation + " completed attempt: " + attemptId);
+    }
+    return getRequired(attemptId);
+  }
+
   public AttemptDto getRequiredDto(Long id) {
     Attempt attempt = getRequired(id);
     return convertToDto(attempt);
@@ -160,53 +238,152 @@ public class AttemptService {
 
   /**
    * Calculate overall success rate for a user (correct answers / total questions)
+   * from the scores stored on completed attempts.
    */
+  @Coalesced
   public double calculateSuccessRateByUserId(UUID userId) {
-    long correctChoices = selectedChoices.countCorrectChoicesByUserId(userId);
-    long totalChoices = selectedChoices.countTotalChoicesByUserId(userId);
-    long correctTextAnswers = textAnswers.countCorrectTextAnswersByUserId(userId);
-    long totalTextAnswers = textAnswers.countTotalTextAnswersByUserId(userId);
-
-    long totalCorrectAnswers = correctChoices + correctTextAnswers;
-    long totalQuestions = totalChoices + totalTextAnswers;
-
-    return totalQuestions > 0 ? (double) totalCorrectAnswers / totalQuestions : 0.0;
+    AttemptRepository.ScoreTotalsRow totals = attempts.sumStoredScoresByUserId(userId);
+    return totals.getTotal() > 0 ? (double) totals.getCorrect() / totals.getTotal() : 0.0;
   }
 
   /**
-   * Calculate score for a specific attempt
+   * Calculate score for a specific attempt. Completed attempts return the score
+   * stored at completion; in-progress attempts are scored on the fly.
    */
   public AttemptScoreDto calculateAttemptScore(Long attemptId) {
     Attempt attempt = getRequired(attemptId);
+    return toScoreDto(attempt);
+  }
 
-    long correctChoices = selectedChoices.countCorrectChoicesByAttemptId(attemptId);
-    long correctTextAnswers = textAnswers.countCorrectTextAnswersByAttemptId(attemptId);
+  /**
+   * Get detailed quiz results for all completed attempts by a user
+   */
+  @Coalesced
+  public List<AttemptScoreDto> getQuizResultsByUserId(UUID userId) {
+    List<Attempt> completedAttempts = attempts.findCompletedByUserId(userId);
+
+    // Unmodifiable: coalesced callers share the same list
+    return completedAttempts.stream()
+        .map(this::toScoreDto)
+        .toList();
+  }
 
-    // Count distinct questions answered, not individual choices
-    long totalChoiceQuestions = selectedChoiceService.getAnsweredQuestionCount(attemptId);
-    long totalTextQuestions = textAnswers.countByAttemptId(attemptId);
+  /**
+   * For each category the user completed a scored attempt in: the share of
+   * all attempts in the category that scored below the user's latest one.
+   */
+  public List<CategoryPercentileDto> getPercentilesByUserId(UUID userId) {
+    List<CategoryPercentileDto> out = new ArrayList<>();
+    for (AttemptRepository.LatestScoreRow row : attempts.findLatestScorePerCategory(userId)) {
+      distributions.percentile(row.getCategoryId(), row.getSuccessRate())
+          .ifPresent(p -> out.add(new CategoryPercentileDto(row.getCategoryId(), row.getAttemptId(),
+              row.getSuccessRate(), p.betterThan(), p.peers(), row.getCompletedAt())));
+    }
+    return out;
+  }
 
-    long totalCorrectAnswers = correctChoices + correctTextAnswers;
-    long totalQuestions = totalChoiceQuestions + totalTextQuestions;
+  private AttemptScoreDto toScoreDto(Attempt attempt) {
+    long correct;
+    long total;
+    double successRate;
+    if (attempt.hasStoredScore()) {
+      correct = attempt.getCorrectCount();
+      total = attempt.getTotalCount();
+      successRate = attempt.getSuccessRate();
+    } else {
+      AttemptScore score = scoreAnswers(attempt.getId());
+      correct = score.correct();
+      total = score.total();
+      successRate = score.successRate();
+    }
 
     return new AttemptScoreDto(
-        attemptId,
+        attempt.getId(),
         attempt.getQuiz().getId(),
-        totalCorrectAnswers,
-        totalQuestions,
-        totalQuestions > 0 ? (double) totalCorrectAnswers / totalQuestions : 0.0,
+        correct,
+        total,
+        successRate,
         attempt.getCompletedAt());
   }
 
   /**
-   * Get detailed quiz results for all completed attempts by a user
+   * Score an attempt in memory from its submitted answers. A choice question
+   * counts as correct when at least one correct choice was selected; a text
+   * answer counts as correct when it is marked correct. Choices are checked
+   * against the cached answer keys; only retired choices are loaded.
    */
-  public List<AttemptScoreDto> getQuizResultsByUserId(UUID userId) {
-    List<Attempt> completedAttempts = attempts.findCompletedByUserId(userId);
+  private AttemptScore scoreAnswers(Long attemptId) {
+    Set<Long> answeredChoiceQuestions = new HashSet<>();
+    Set<Long> correctChoiceQuestions = new HashSet<>();
+    List<AttemptSelectedChoice> unkeyed = new ArrayList<>();
+    for (AttemptSelectedChoice selected : choiceStore.findByAttemptId(attemptId)) {
+      Long questionId = selected.getQuestionId();
+      answeredChoiceQuestions.add(questionId);
+      Optional<AnswerKeyCache.AnswerKey> key = answerKeys.forQuestion(questionId);
+      if (key.isPresent() && key.get().hasChoice(selected.getChoiceId())) {
+        if (key.get().isCorrect(selected.getChoiceId())) correctChoiceQuestions.add(questionId);
+      } else {
+        unkeyed.add(selected);
+      }
+    }
+    if (!unkeyed.isEmpty()) {
+      Set<Long> correctRetired = new HashSet<>();
+      List<Long> choiceIds = unkeyed.stream().map(AttemptSelectedChoice::getChoiceId).toList();
+      for (Choice choice : choiceRepository.findAllById(choiceIds)) {
+        if (choice.isCorrect()) correctRetired.add(choice.getId());
+      }
+      for (AttemptSelectedChoice selected : unkeyed) {
+        if (correctRetired.contains(selected.getChoiceId())) correctChoiceQuestions.add(selected.getQuestionId());
+      }
+    }
 
-    return completedAttempts.stream()
-        .map(attempt -> calculateAttemptScore(attempt.getId()))
-        .collect(Collectors.toList());
+    // Per-question results of graded answers (ratings)
+    Map<Long, Boolean> results = new HashMap<>();
+    answeredChoiceQuestions.forEach(id -> results.put(id, correctChoiceQuestions.contains(id)));
+
+    int textTotal = 0;
+    int textCorrect = 0;
+    for (AttemptTextAnswer answer : textAnswers.findByAttemptId(attemptId)) {
+      textTotal++;
+      if (Boolean.TRUE.equals(answer.getIsCorrect())) {
+        textCorrect++;
+      }
+      if (answer.getIsCorrect() != null) results.put(answer.getQuestionId(), answer.getIsCorrect());
+    }
+
+    return new AttemptScore(
+        correctChoiceQuestions.size() + textCorrect,
+        answeredChoiceQuestions.size() + textTotal,
+        results);
+  }
+
+  /**
+   * Compute and store the score of completed attempts (used by the backfill of
+   * historical attempts). Attempts that already have a score are left alone.
+   */
+  @Transactional
+  public int storeScores(List<Long> attemptIds) {
+    int stored = 0;
+    for (Attempt attempt : attempts.findAllById(attemptIds)) {
+      if (!attempt.isCompleted() || attempt.hasStoredScore()) {
+        continue;
+      }
+      AttemptScore score = scoreAnswers(attempt.getId());
+      attempt.applyScore(score.correct(), score.total());
+      stored++;
+    }
+    return stored;
+  }
+
+  /** Ids of completed attempts that still need a stored score. */
+  public List<Long> findCompletedIdsWithoutStoredScore() {
+    return attempts.findCompletedIdsWithoutStoredScore();
+  }
+
+  private record AttemptScore(int correct, int total, Map<Long, Boolean> results) {
+    double successRate() {
+      return total > 0 ? (double) correct / total : 0.0;
+    }
   }
 
   // DTO for attempt scores
@@ -219,25 +396,67 @@ public class AttemptService {
       OffsetDateTime completedAt) {
   }
 
+  // DTO for the percentile rank of a user's latest score in a category
+  public record CategoryPercentileDto(
+      Long categoryId,
+      Long attemptId,
+      Double successRate,
+      Double betterThan,
+      Long peers,
+      OffsetDateTime completedAt) {
+  }
+
   // ----------------- Creation & management -----------------
 
   /**
-   * Start a new attempt for a quiz
+   * Start a new attempt for a quiz, on behalf of the quiz owner
    */
   @Transactional
   public AttemptDto startAttempt(Long quizId) {
+    return startAttempt(quizId, null);
+  }
+
+  /**
+   * Start a new attempt for a quiz. userId defaults to the quiz owner and is
+   * required for shared quizzes.
+   */
+  @Transactional
+  public AttemptDto startAttempt(Long quizId, UUID userId) {
     Objects.requireNonNull(quizId, "quizId must not be null");
 
     Quiz quiz = quizService.getRequired(quizId);
+    if (quiz.isShared() && userId == null)
+      throw new IllegalArgumentException("userId is required to attempt shared quiz " + quizId);
+    if (!quiz.isShared() && userId != null && !userId.equals(quiz.getUserId()))
+      throw new IllegalArgumentException("Quiz " + quizId + " belongs to another user");
 
     Attempt attempt = new Attempt();
     attempt.setQuiz(quiz);
+    attempt.setUserId(userId != null ? userId : quiz.getUserId());
     // startedAt is set automatically by @CreationTimestamp
 
     Attempt savedAttempt = attempts.save(attempt);
     return convertToDto(savedAttempt);
   }
 
+  /**
+   * Start an attempt on a shared quiz that the caller has already resolved
+   * (daily quiz): a single insert, without loading the quiz.
+   */
+  @Transactional
+  public AttemptDto startSharedAttempt(Long quizId, UUID userId) {
+    Objects.requireNonNull(quizId, "quizId must not be null");
+    Objects.requireNonNull(userId, "userId must not be null");
+
+    Attempt attempt = new Attempt();
+    attempt.setQuiz(quizService.getReference(quizId));
+    attempt.setUserId(userId);
+
+    Attempt savedAttempt = attempts.save(attempt);
+    return AttemptDto.forResponse(savedAttempt.getId(), quizId, savedAttempt.getStartedAt(),
+        savedAttempt.getCompletedAt());
+  }
+
   /**
    * Submit selected choices for an attempt
    */
@@ -246,11 +465,7 @@ public class AttemptService {
     Objects.requireNonNull(attemptId, "attemptId must not be null");
     Objects.requireNonNull(request, "request must not be null");
 
-    Attempt attempt = getRequired(attemptId);
-
-    if (attempt.isCompleted()) {
-      throw new IllegalStateException("Cannot submit choices for completed attempt: " + attemptId);
-    }
+    Attempt attempt = lockOpenForAnswers(attemptId, "submit choices for");
 
     // Save selected choices
     for (AttemptRequest.SubmitChoices.SelectedChoiceSubmission choice : request.selectedChoices()) {
@@ -263,6 +478,7 @@ public class AttemptService {
       // selectedAt is set automatically by @CreationTimestamp
 
       selectedChoices.save(selectedChoice);
+      liveSessions.onChoiceSelected(attempt.getQuiz().getId(), attemptId, choice.questionId(), choice.choiceId());
     }
 
     return convertToDto(attempt);
@@ -276,11 +492,7 @@ public class AttemptService {
     Objects.requireNonNull(attemptId, "attemptId must not be null");
     Objects.requireNonNull(request, "request must not be null");
 
-    Attempt attempt = getRequired(attemptId);
-
-    if (attempt.isCompleted()) {
-      throw new IllegalStateException("Cannot submit text answers for completed attempt: " + attemptId);
-    }
+    Attempt attempt = lockOpenForAnswers(attemptId, "submit text answers for");
 
     // Save text answers
     for (AttemptRequest.SubmitTextAnswers.TextAnswerSubmission textAnswer : request.textAnswers()) {
@@ -298,27 +510,72 @@ public class AttemptService {
     return convertToDto(attempt);
   }
 
+  /**
+   * Autosave the current answer to one question. It is staged and written in
+   * the background (see AnswerAutosaveBuffer); choiceIds is the full
+   * selection for the question. Rejected when the attempt is completed.
+   */
+  public void autosave(Long attemptId, AttemptRequest.Autosave request) {
+    Objects.requireNonNull(attemptId, "attemptId must not be null");
+    Objects.requireNonNull(request, "request must not be null");
+    if ((request.choiceIds() == null) == (request.answerText() == null)) {
+      throw new IllegalArgumentException("Exactly one of choiceIds or answerText must be provided");
+    }
+    if (request.choiceIds() != null) {
+      autosave.stageChoices(attemptId, request.questionId(), Set.copyOf(request.choiceIds()));
+    } else {
+      autosave.stageText(attemptId, request.questionId(), request.answerText());
+    }
+  }
+
   /**
    * Complete an attempt (mark as finished)
    */
   @Transactional
   public AttemptDto completeAttempt(Long attemptId) {
     Objects.requireNonNull(attemptId, "attemptId must not be null");
+    AttemptCompletionEvent event = new AttemptCompletionEvent();
+    event.begin();
+
+    // Lock the attempt: every answer write share-locks it (lockOpenForAnswers
+    // or the guards of the conditional writes), so in-flight ones finish
+    // before scoring and later ones see the attempt completed
+    if (attempts.lockAndCheckCompleted(attemptId)
+        .orElseThrow(() -> new IllegalArgumentException("Attempt not found: " + attemptId)))
+      throw new IllegalStateException("Attempt already completed: " + attemptId);
 
-    Attempt attempt = getRequired(attemptId);
+    // Autosaved answers staged on any node count towards the score
+    autosave.flush(attemptId);
+
+    // Answers are frozen from here on: score them once and store the result
+    AttemptScore score = scoreAnswers(attemptId);
 
-    if (attempt.isCompleted()) {
+    // Conditional update: of concurrent completions exactly one gets a row back
+    if (attempts.completeIfOpen(attemptId, score.correct(), score.total()).isEmpty()) {
+      if (!attempts.existsById(attemptId))
+        throw new IllegalArgumentException("Attempt not found: " + attemptId);
       throw new IllegalStateException("Attempt already completed: " + attemptId);
     }
+    if (choiceStore.packsOnCompletion()) {
+      event.packed = choiceStore.pack(attemptId);
+    }
 
-    // Mark the attempt as completed
-    attempt.setCompletedAt(OffsetDateTime.now());
-    Attempt savedAttempt = attempts.save(attempt);
-
-    // Also mark the associated quiz as completed
-    quizService.markCompleted(attempt.getQuiz().getId());
-
-    return convertToDto(savedAttempt);
+    Attempt attempt = getRequired(attemptId);
+    Long categoryId = attempt.getQuiz().getCategory().getId();
+    ratings.onAttemptCompleted(attempt.getUserId(), categoryId, score.results());
+    if (score.total() > 0) {
+      distributions.onAttemptCompleted(categoryId, score.successRate(), attempt.getCompletedAt());
+    }
+    leaderboards.onAttemptCompleted(attempt.getUserId(), categoryId, score.correct(), attempt.getCompletedAt());
+    // Other nodes add it to their leaderboards once this transaction commits
+    cacheBus.publish(CacheInvalidationBus.EntityType.ATTEMPT, List.of(attemptId));
+    AttemptDto dto = convertToDto(attempt);
+
+    event.attemptId = attemptId;
+    event.correct = score.correct();
+    event.total = score.total();
+    event.commit();
+    return dto;
   }
 
   /**
@@ -326,19 +583,10 @@ public class AttemptService {
    */
   @Transactional
   public AttemptDto.AttemptTextAnswerDto scoreTextAnswer(Long attemptId, AttemptRequest.ScoreTextAnswer request) {
-    Objects.requireNonNull(attemptId, "attemptId must not be null");
     Objects.requireNonNull(request, "request must not be null");
-    Objects.requireNonNull(request.questionId(), "questionId must not be null");
 
-    AttemptTextAnswer answer = textAnswers.findByAttemptIdAndQuestionId(attemptId, request.questionId())
-        .orElseThrow(() -> new IllegalArgumentException(
-            "Text answer not found for attempt " + attemptId + " and question " + request.questionId()));
-
-    answer.setScore(request.score());
-    answer.setIsCorrect(request.isCorrect());
-    answer.setFeedback(request.feedback());
-
-    AttemptTextAnswer savedAnswer = textAnswers.save(answer);
+    AttemptTextAnswer savedAnswer = gradeTextAnswer(attemptId, request.questionId(), request.score(),
+        request.isCorrect(), request.feedback());
 
     return AttemptDto.AttemptTextAnswerDto.from(
         savedAnswer.getAttemptId(),
@@ -350,6 +598,60 @@ public class AttemptService {
         savedAnswer.getAnsweredAt());
   }
 
+  /**
+   * Grade a text answer. The attempt row is locked first, so grading and
+   * completion of the same attempt do not interleave. When the attempt is
+   * already completed its stored score is recomputed and the change passed on
+   * to ratings, score distributions and leaderboards; open attempts are scored
+   * when they complete.
+   */
+  @Transactional
+  public AttemptTextAnswer gradeTextAnswer(Long attemptId, Long questionId, Integer score, Boolean isCorrect,
+      String feedback) {
+    Objects.requireNonNull(attemptId, "attemptId must not be null");
+    Objects.requireNonNull(questionId, "questionId must not be null");
+
+    boolean completed = attempts.lockAndCheckCompleted(attemptId)
+        .orElseThrow(() -> new IllegalArgumentException("Attempt not found: " + attemptId));
+    AttemptTextAnswer answer = textAnswers.findByAttemptIdAndQuestionId(attemptId, questionId)
+        .orElseThrow(() -> new IllegalArgumentException(
+            "Text answer not found for attempt " + attemptId + " and question " + questionId));
+
+    Boolean wasCorrect = answer.getIsCorrect();
+    answer.setScore(score);
+    answer.setIsCorrect(isCorrect);
+    answer.setFeedback(feedback);
+    AttemptTextAnswer saved = textAnswers.save(answer);
+
+    if (completed) {
+      rescore(attemptId, questionId, wasCorrect, isCorrect);
+    }
+    return saved;
+  }
+
+  private void rescore(Long attemptId, Long questionId, Boolean wasCorrect, Boolean isCorrect) {
+    Attempt attempt = getRequired(attemptId);
+    Integer previousCorrect = attempt.getCorrectCount();
+    Double previousRate = attempt.hasStoredScore() && attempt.getTotalCount() > 0 ? attempt.getSuccessRate() : null;
+
+    // Reads the graded answer back: the query flushes it first
+    AttemptScore score = scoreAnswers(attemptId);
+    attempt.applyScore(score.correct(), score.total());
+
+    Long categoryId = attempt.getQuiz().getCategory().getId();
+    if (isCorrect != null && !isCorrect.equals(wasCorrect)) {
+      ratings.onAnswerRegraded(attempt.getUserId(), categoryId, questionId, wasCorrect, isCorrect);
+    }
+    distributions.onAttemptRescored(categoryId, previousRate, score.total() > 0 ? score.successRate() : null,
+        attempt.getCompletedAt());
+    int delta = score.correct() - (previousCorrect != null ? previousCorrect : 0);
+    if (delta != 0) {
+      leaderboards.onAttemptRescored(attempt.getUserId(), categoryId, delta, attempt.getCompletedAt());
+      // Other nodes cannot apply a delta from an id: they rebuild their leaderboards
+      cacheBus.publish(CacheInvalidationBus.EntityType.ATTEMPT_SCORE, List.of(attemptId));
+    }
+  }
+
   // ----------------- Admin queries -----------------
 
   /**
@@ -2,8 +2,6 @@ package com.bell_ringer.services;
 
 import com.bell_ringer.models.AttemptTextAnswer;
 import com.bell_ringer.models.Attempt;
-import com.bell_ringer.models.OpenAnswer;
-import com.bell_ringer.models.Question;
 import com.bell_ringer.models.id.AttemptTextAnswerId;
 import com.bell_ringer.repositories.AttemptTextAnswerRepository;
 import com.bell_ringer.repositories.QuestionRepository;
@@ -13,6 +11,8 @@ import com.bell_ringer.services.dto.AttemptTextAnswerRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -26,18 +26,18 @@ public class AttemptTextAnswerService {
   private final AttemptService attemptService;
   private final QuestionRepository questionRepository;
   private final TextAnswerScoringService scoringService;
-  private final OpenAnswerService openAnswerService;
+  private final RubricCache rubricCache;
 
   public AttemptTextAnswerService(AttemptTextAnswerRepository textAnswers,
       AttemptService attemptService,
       QuestionRepository questionRepository,
       TextAnswerScoringService scoringService,
-      OpenAnswerService openAnswerService) {
+      RubricCache rubricCache) {
     this.textAnswers = textAnswers;
     this.attemptService = attemptService;
     this.questionRepository = questionRepository;
     this.scoringService = scoringService;
-    this.openAnswerService = openAnswerService;
+    this.rubricCache = rubricCache;
   }
 
   // ===== DTO Conversion Methods =====
@@ -105,88 +105,106 @@ public class AttemptTextAnswerService {
   // ----------------- Submit text answers -----------------
 
   /**
-   * Submit a single text answer for an attempt
+   * Submit a single text answer for an attempt; an existing answer for the
+   * same question is rejected
    */
   @Transactional
   public AttemptTextAnswerDto submitTextAnswer(AttemptTextAnswerRequest.Submit request) {
+    return submitTextAnswer(request, AttemptTextAnswerRequest.DuplicatePolicy.REJECT);
+  }
+
+  /**
+   * Submit a single text answer for an attempt. The answer is scored with the
+   * cached rubric and written with one INSERT ... ON CONFLICT that also checks
+   * the attempt is open and the question exists; the extra lookups only run
+   * to explain a rejected write.
+   */
+  @Transactional
+  public AttemptTextAnswerDto submitTextAnswer(AttemptTextAnswerRequest.Submit request,
+      AttemptTextAnswerRequest.DuplicatePolicy onDuplicate) {
     Objects.requireNonNull(request, "request must not be null");
     Objects.requireNonNull(request.attemptId(), "attemptId must not be null");
     Objects.requireNonNull(request.questionId(), "questionId must not be null");
     Objects.requireNonNull(request.answerText(), "answerText must not be null");
-
-    // Validate attempt exists and is not completed
-    Attempt attempt = attemptService.getRequired(request.attemptId());
-    if (attempt.isCompleted()) {
-      throw new IllegalStateException("Cannot submit text answers for completed attempt: " + request.attemptId());
+    Objects.requireNonNull(onDuplicate, "onDuplicate must not be null");
+
+    TextAnswerScoringService.ScoringResult result = scoreInline(request.questionId(), request.answerText());
+    OffsetDateTime answeredAt = OffsetDateTime.now().truncatedTo(ChronoUnit.MICROS);
+
+    Optional<Long> quizId = switch (onDuplicate) {
+      case REJECT -> textAnswers.insertIfAbsent(request.attemptId(), request.questionId(), request.answerText(),
+          result.score(), result.isCorrect(), result.feedback(), answeredAt);
+      case OVERWRITE -> textAnswers.upsert(request.attemptId(), request.questionId(), request.answerText(),
+          result.score(), result.isCorrect(), result.feedback(), answeredAt);
+    };
+    if (quizId.isEmpty()) {
+      throw rejectedSubmission(request.attemptId(), request.questionId());
     }
 
-    // Validate question exists
-    Question question = questionRepository.findById(request.questionId())
-        .orElseThrow(() -> new IllegalArgumentException("Question not found: " + request.questionId()));
+    return AttemptTextAnswerDto.forResponse(
+        request.attemptId(),
+        request.questionId(),
+        quizId.get(),
+        request.answerText(),
+        result.score(),
+        result.isCorrect(),
+        result.feedback(),
+        answeredAt);
+  }
 
-    // Check if answer already exists for this attempt/question
-    Optional<AttemptTextAnswer> existingAnswer = textAnswers.findByAttemptIdAndQuestionId(
-        request.attemptId(), request.questionId());
+  /**
+   * Submit multiple text answers in batch
+   */
+  @Transactional
+  public List<AttemptTextAnswerDto> submitTextAnswersBatch(AttemptTextAnswerRequest.SubmitBatch request) {
+    return submitTextAnswersBatch(request, AttemptTextAnswerRequest.DuplicatePolicy.REJECT);
+  }
 
-    if (existingAnswer.isPresent()) {
-      throw new IllegalStateException("Text answer already exists for attempt " +
-          request.attemptId() + " and question " + request.questionId() +
-          ". Use update method to modify existing answer.");
-    }
+  /**
+   * Submit multiple text answers in batch with the given duplicate policy
+   */
+  @Transactional
+  public List<AttemptTextAnswerDto> submitTextAnswersBatch(AttemptTextAnswerRequest.SubmitBatch request,
+      AttemptTextAnswerRequest.DuplicatePolicy onDuplicate) {
+    Objects.requireNonNull(request, "request must not be null");
+    Objects.requireNonNull(request.attemptId(), "attemptId must not be null");
 
-    // Create text answer
-    AttemptTextAnswer textAnswer = new AttemptTextAnswer();
-    textAnswer.setAttemptId(request.attemptId());
-    textAnswer.setQuestionId(request.questionId());
-    textAnswer.setAnswerText(request.answerText());
-    textAnswer.setAttempt(attempt);
-    textAnswer.setQuiz(attempt.getQuiz());
-    textAnswer.setQuestion(question);
+    return request.textAnswers().stream()
+        .map(textAnswer -> submitTextAnswer(new AttemptTextAnswerRequest.Submit(request.attemptId(),
+            textAnswer.questionId(), textAnswer.answerText()), onDuplicate))
+        .collect(Collectors.toList());
+  }
 
-    // Automatic scoring
+  /**
+   * Score with the cached compiled rubric; falls back to a default pass when
+   * automatic scoring fails
+   */
+  private TextAnswerScoringService.ScoringResult scoreInline(Long questionId, String answerText) {
     try {
-      List<OpenAnswer> openAnswers = openAnswerService.listByQuestion(request.questionId());
-      TextAnswerScoringService.ScoringResult result = scoringService.scoreTextAnswer(
-          request.answerText(), question, openAnswers);
-
-      textAnswer.setScore(result.score());
-      textAnswer.setIsCorrect(result.isCorrect());
-      textAnswer.setFeedback(result.feedback());
+      return scoringService.score(answerText, rubricCache.forQuestion(questionId));
     } catch (Exception e) {
-      // If automatic scoring fails, set default values and log the error
-      textAnswer.setScore(60); // Default passing score
-      textAnswer.setIsCorrect(true);
-      textAnswer.setFeedback("Answer submitted successfully. Automatic scoring unavailable.");
-      // In a real application, you might want to log this error
+      // Default passing score; manual grading can still correct it
+      return new TextAnswerScoringService.ScoringResult(60, true,
+          "Answer submitted successfully. Automatic scoring unavailable.");
     }
-
-    AttemptTextAnswer savedAnswer = textAnswers.save(textAnswer);
-    return convertToDto(savedAnswer);
   }
 
   /**
-   * Submit multiple text answers in batch
+   * Work out why the conditional insert wrote nothing
    */
-  @Transactional
-  public List<AttemptTextAnswerDto> submitTextAnswersBatch(AttemptTextAnswerRequest.SubmitBatch request) {
-    Objects.requireNonNull(request, "request must not be null");
-    Objects.requireNonNull(request.attemptId(), "attemptId must not be null");
-
-    // Validate attempt exists and is not completed
-    Attempt attempt = attemptService.getRequired(request.attemptId());
+  private RuntimeException rejectedSubmission(Long attemptId, Long questionId) {
+    Attempt attempt = attemptService.getRequired(attemptId);
     if (attempt.isCompleted()) {
-      throw new IllegalStateException("Cannot submit text answers for completed attempt: " + request.attemptId());
+      return new IllegalStateException("Cannot submit text answers for completed attempt: " + attemptId);
     }
-
-    List<AttemptTextAnswerDto> results = request.textAnswers().stream()
-        .map(textAnswer -> {
-          AttemptTextAnswerRequest.Submit submitRequest = new AttemptTextAnswerRequest.Submit(request.attemptId(),
-              textAnswer.questionId(), textAnswer.answerText());
-          return submitTextAnswer(submitRequest);
-        })
-        .collect(Collectors.toList());
-
-    return results;
+    boolean questionActive = questionRepository.findById(questionId)
+        .map(question -> !question.isDeleted())
+        .orElse(false);
+    if (!questionActive) {
+      return new IllegalArgumentException("Question not found: " + questionId);
+    }
+    return new IllegalStateException("Text answer already exists for attempt " + attemptId +
+        " and question " + questionId + ". Use update method to modify existing answer.");
   }
 
   /**
@@ -199,11 +217,8 @@ public class AttemptTextAnswerService {
     Objects.requireNonNull(questionId, "questionId must not be null");
     Objects.requireNonNull(request, "request must not be null");
 
-    // Validate attempt is not completed
-    Attempt attempt = attemptService.getRequired(attemptId);
-    if (attempt.isCompleted()) {
-      throw new IllegalStateException("Cannot update text answers for completed attempt: " + attemptId);
-    }
+    // Validate attempt is open; the row stays share-locked until commit
+    attemptService.lockOpenForAnswers(attemptId, "update text answers for");
 
     // Find existing answer
     AttemptTextAnswer existingAnswer = textAnswers.findByAttemptIdAndQuestionId(attemptId, questionId)
@@ -215,11 +230,8 @@ public class AttemptTextAnswerService {
 
     // Automatically score the updated answer
     try {
-      Question question = questionRepository.findById(questionId)
-          .orElseThrow(() -> new IllegalArgumentException("Question not found: " + questionId));
-      List<OpenAnswer> openAnswers = openAnswerService.listByQuestion(questionId);
-      TextAnswerScoringService.ScoringResult result = scoringService.scoreTextAnswer(
-          request.answerText(), question, openAnswers);
+      TextAnswerScoringService.ScoringResult result = scoringService.score(
+          request.answerText(), rubricCache.forQuestion(questionId));
 
       existingAnswer.setScore(result.score());
       existingAnswer.setIsCorrect(result.isCorrect());
@@ -249,17 +261,9 @@ public class AttemptTextAnswerService {
     Objects.requireNonNull(questionId, "questionId must not be null");
     Objects.requireNonNull(request, "request must not be null");
 
-    // Find existing answer
-    AttemptTextAnswer existingAnswer = textAnswers.findByAttemptIdAndQuestionId(attemptId, questionId)
-        .orElseThrow(() -> new IllegalArgumentException(
-            "Text answer not found for attempt " + attemptId + " and question " + questionId));
-
-    // Update grading information
-    existingAnswer.setScore(request.score());
-    existingAnswer.setIsCorrect(request.isCorrect());
-    existingAnswer.setFeedback(request.feedback());
-
-    AttemptTextAnswer savedAnswer = textAnswers.save(existingAnswer);
+    // Also rescores the attempt when it is already completed
+    AttemptTextAnswer savedAnswer = attemptService.gradeTextAnswer(attemptId, questionId, request.score(),
+        request.isCorrect(), request.feedback());
     return convertToDto(savedAnswer);
   }
 
@@ -273,11 +277,8 @@ public class AttemptTextAnswerService {
     Objects.requireNonNull(attemptId, "attemptId must not be null");
     Objects.requireNonNull(questionId, "questionId must not be null");
 
-    // Validate attempt is not completed
-    Attempt attempt = attemptService.getRequired(attemptId);
-    if (attempt.isCompleted()) {
-      throw new IllegalStateException("Cannot remove text answers from completed attempt: " + attemptId);
-    }
+    // Validate attempt is open; the row stays share-locked until commit
+    attemptService.lockOpenForAnswers(attemptId, "remove text answers from");
 
     AttemptTextAnswerId id = new AttemptTextAnswerId(attemptId, questionId);
     textAnswers.deleteById(id);
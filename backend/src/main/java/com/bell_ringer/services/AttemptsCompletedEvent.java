@@ -0,0 +1,21 @@
+package com.bell_ringer.services;
+
+import java.util.Set;
+
+/**
+ * Published when another node reports completed attempts over the
+ * cross-node invalidation bus, so in-memory views of attempt results can
+ * apply them. An empty set means the completed attempts are unknown (a
+ * resync after the bus lost its connection, or too many to list) and such
+ * views must be rebuilt from the database.
+ */
+public record AttemptsCompletedEvent(Set<Long> attemptIds) {
+
+  public AttemptsCompletedEvent {
+    attemptIds = Set.copyOf(attemptIds);
+  }
+
+  public boolean unknown() {
+    return attemptIds.isEmpty();
+  }
+}
@@ -0,0 +1,208 @@
+package com.bell_ringer.services;
+
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Cross-node invalidation of the in-process catalog caches (second-level
+ * cache, answer keys, rubrics, daily quiz payloads) over PostgreSQL
+ * LISTEN/NOTIFY, so no broker is needed. The same channel carries the ids of
+ * completed and regraded attempts, the change feed of the in-memory
+ * leaderboards.
+ *
+ * Write paths {@link #publish} the entity type and ids they changed; the
+ * notification is sent when the surrounding transaction commits. Every node
+ * keeps one dedicated listener connection (outside the pool) and turns
+ * notifications from other nodes into the same local evictions a local
+ * change would cause. Notifications sent while the listener was disconnected
+ * are lost, so every catalog cache is dropped whenever the listener
+ * (re)connects.
+ *
+ * Payload: {@code <node>:<TYPE>:<id,id,...>}, or {@code *} instead of the ids
+ * when they are unknown or would not fit in a notification.
+ */
+@Component
+public class CacheInvalidationBus {
+
+  private static final Logger log = LoggerFactory.getLogger(CacheInvalidationBus.class);
+
+  /** PostgreSQL rejects payloads of 8000 bytes or more */
+  private static final int MAX_PAYLOAD = 7900;
+  private static final String ALL = "*";
+
+  public enum EntityType {
+    CATEGORY,
+    QUESTION,
+    ATTEMPT,
+    ATTEMPT_SCORE
+  }
+
+  private final JdbcTemplate jdbc;
+  private final ApplicationEventPublisher events;
+  private final SecondLevelCacheEviction secondLevelCache;
+  private final DataSourceProperties dataSource;
+  private final boolean enabled;
+  private final String channel;
+  private final Duration heartbeat;
+  private final Duration reconnectDelay;
+
+  private final String nodeId = UUID.randomUUID().toString();
+  private volatile boolean running;
+  private Thread listener;
+
+  public CacheInvalidationBus(JdbcTemplate jdbc,
+      ApplicationEventPublisher events,
+      SecondLevelCacheEviction secondLevelCache,
+      DataSourceProperties dataSource,
+      @Value("${bellringer.cache-bus.enabled:true}") boolean enabled,
+      @Value("${bellringer.cache-bus.channel:bellringer_cache}") String channel,
+      @Value("${bellringer.cache-bus.heartbeat:10s}") Duration heartbeat,
+      @Value("${bellringer.cache-bus.reconnect-delay:5s}") Duration reconnectDelay) {
+    if (!channel.matches("[a-z_][a-z0-9_]*"))
+      throw new IllegalArgumentException("bellringer.cache-bus.channel must be a lowercase identifier: " + channel);
+    this.jdbc = jdbc;
+    this.events = events;
+    this.secondLevelCache = secondLevelCache;
+    this.dataSource = dataSource;
+    this.enabled = enabled;
+    this.channel = channel;
+    this.heartbeat = heartbeat;
+    this.reconnectDelay = reconnectDelay;
+  }
+
+  // ----------------- Publishing -----------------
+
+  /**
+   * Tell the other nodes that these entities changed. Inside a transaction
+   * the notification goes out on commit (and not at all on rollback). An
+   * empty id list means every entity of the type.
+   */
+  public void publish(EntityType type, Collection<Long> ids) {
+    Objects.requireNonNull(type, "type must not be null");
+    if (!enabled) return;
+
+    String idList = ids == null || ids.isEmpty() ? ALL
+        : ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+    String payload = nodeId + ":" + type + ":" + idList;
+    if (payload.getBytes(StandardCharsets.UTF_8).length > MAX_PAYLOAD) {
+      payload = nodeId + ":" + type + ":" + ALL;
+    }
+    jdbc.query("SELECT pg_notify(?, ?)", rs -> null, channel, payload);
+  }
+
+  // ----------------- Listening -----------------
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void start() {
+    if (!enabled) return;
+    running = true;
+    listener = Thread.ofPlatform().daemon().name("cache-invalidation-listener").start(this::listen);
+  }
+
+  @PreDestroy
+  public void stop() {
+    running = false;
+    if (listener != null) listener.interrupt();
+  }
+
+  private void listen() {
+    boolean reconnecting = false;
+    while (running) {
+      try (Connection conn = DriverManager.getConnection(dataSource.determineUrl(),
+          dataSource.determineUsername(), dataSource.determinePassword())) {
+        try (Statement st = conn.createStatement()) {
+          st.execute("LISTEN " + channel);
+        }
+        // Anything cached before this point may have missed a notification
+        resync();
+        if (reconnecting) log.info("Cache invalidation listener reconnected; dropped all catalog caches");
+        reconnecting = false;
+
+        PGConnection pg = conn.unwrap(PGConnection.class);
+        while (running) {
+          PGNotification[] notifications = pg.getNotifications((int) heartbeat.toMillis());
+          if (notifications == null || notifications.length == 0) {
+            // Nothing received: make sure the connection is still alive
+            try (Statement st = conn.createStatement()) {
+              st.execute("SELECT 1");
+            }
+            continue;
+          }
+          for (PGNotification notification : notifications) {
+            handle(notification.getParameter());
+          }
+        }
+      } catch (SQLException | RuntimeException e) {
+        if (!running) break;
+        log.warn("Cache invalidation listener disconnected: {}", e.getMessage());
+        reconnecting = true;
+        try {
+          Thread.sleep(reconnectDelay.toMillis());
+        } catch (InterruptedException ie) {
+          Thread.currentThread().interrupt();
+          break;
+        }
+      }
+    }
+  }
+
+  void handle(String payload) {
+    String[] parts = payload.split(":", 3);
+    if (parts.length != 3) {
+      log.warn("Ignoring malformed cache invalidation: {}", payload);
+      return;
+    }
+    if (parts[0].equals(nodeId)) return; // our own change, already applied locally
+
+    EntityType type;
+    Set<Long> ids;
+    try {
+      type = EntityType.valueOf(parts[1]);
+      ids = parts[2].equals(ALL) ? Set.of()
+          : Arrays.stream(parts[2].split(",")).map(Long::valueOf).collect(Collectors.toSet());
+    } catch (IllegalArgumentException e) {
+      log.warn("Ignoring malformed cache invalidation: {}", payload);
+      return;
+    }
+
+    switch (type) {
+      case CATEGORY -> secondLevelCache.evictCategories(ids);
+      case QUESTION -> events.publishEvent(ids.isEmpty()
+          ? QuestionBankChangedEvent.everything()
+          : new QuestionBankChangedEvent(Set.of(), ids, Set.of()));
+      case ATTEMPT -> events.publishEvent(new AttemptsCompletedEvent(ids));
+      // A regraded attempt changes scores by an amount the ids do not carry: rebuild
+      case ATTEMPT_SCORE -> events.publishEvent(new AttemptsCompletedEvent(Set.of()));
+    }
+  }
+
+  /** Changes may have been missed while disconnected: drop everything */
+  private void resync() {
+    secondLevelCache.evictCategories(Set.of());
+    events.publishEvent(QuestionBankChangedEvent.everything());
+    events.publishEvent(new AttemptsCompletedEvent(Set.of()));
+  }
+}
@@ -2,6 +2,7 @@ package com.bell_ringer.services;
 
 import com.bell_ringer.models.Category;
 import com.bell_ringer.repositories.CategoryRepository;
+import com.bell_ringer.services.CacheInvalidationBus.EntityType;
 import com.bell_ringer.services.dto.CategoryDto;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -16,9 +17,11 @@ import java.util.Optional;
 public class CategoryService {
 
     private final CategoryRepository categories;
+    private final CacheInvalidationBus invalidationBus;
 
-    public CategoryService(CategoryRepository categories) {
+    public CategoryService(CategoryRepository categories, CacheInvalidationBus invalidationBus) {
         this.categories = categories;
+        this.invalidationBus = invalidationBus;
     }
 
     // ===== DTO Conversion Methods =====
@@ -180,7 +183,9 @@ public class CategoryService {
         c.setParent(parent);
         // slug will be generated by entity lifecycle if blank
         c.setSlug(null);
-        return categories.save(c);
+        Category saved = categories.save(c);
+        invalidationBus.publish(EntityType.CATEGORY, List.of(saved.getId()));
+        return saved;
     }
 
     /** Create a new category and return as DTO. */
@@ -212,7 +217,9 @@ public class CategoryService {
         c.setParent(parent);
         // Clear slug so entity rebuilds it on update
         c.setSlug(null);
-        return categories.save(c);
+        Category saved = categories.save(c);
+        invalidationBus.publish(EntityType.CATEGORY, List.of(id));
+        return saved;
     }
 
     /**
@@ -224,5 +231,6 @@ public class CategoryService {
         if (id == null)
             return;
         categories.deleteById(id);
+        invalidationBus.publish(EntityType.CATEGORY, List.of(id));
     }
 }
@@ -0,0 +1,19 @@
+package com.bell_ringer.services;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Concurrent calls of the annotated method with equal arguments share one
+ * in-flight invocation and its result (see CoalescingAspect). Only for
+ * read-only methods whose result is safe to hand to several callers, such as
+ * DTOs and primitives.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Coalesced {
+}
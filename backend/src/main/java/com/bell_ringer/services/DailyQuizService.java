@@ -0,0 +1,132 @@
+package com.bell_ringer.services;
+
+import com.bell_ringer.models.Question;
+import com.bell_ringer.models.QuizQuestion;
+import com.bell_ringer.repositories.QuizQuestionRepository;
+import com.bell_ringer.services.dto.AttemptDto;
+import com.bell_ringer.services.dto.QuestionDto;
+import com.bell_ringer.services.dto.QuizGenerationResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * The daily "bell ringer": one canonical quiz per (category, day, size) that
+ * every student attempts.
+ *
+ * The question set is drawn once, stored as a shared quiz registered in
+ * daily_quizzes (so all instances agree on it), and kept in memory with its
+ * QuestionDto payload already built. Serving a student is then one attempt
+ * insert.
+ */
+@Service
+public class DailyQuizService {
+
+  private static final Logger log = LoggerFactory.getLogger(DailyQuizService.class);
+
+  private final QuestionService questionService;
+  private final QuizService quizService;
+  private final AttemptService attemptService;
+  private final QuizQuestionRepository quizQuestions;
+  private final RecentlySeenQuestions recentlySeen;
+  private final TransactionTemplate tx;
+  private final ZoneId zone;
+
+  private final Cache<DailyKey, DailyQuiz> dailyQuizzes = Caffeine.newBuilder()
+      .maximumSize(1_000)
+      .expireAfterWrite(Duration.ofHours(26))
+      .build();
+
+  public DailyQuizService(QuestionService questionService,
+      QuizService quizService,
+      AttemptService attemptService,
+      QuizQuestionRepository quizQuestions,
+      RecentlySeenQuestions recentlySeen,
+      PlatformTransactionManager transactionManager,
+      @Value("${bellringer.daily.zone:UTC}") ZoneId zone) {
+    this.questionService = questionService;
+    this.quizService = quizService;
+    this.attemptService = attemptService;
+    this.quizQuestions = quizQuestions;
+    this.recentlySeen = recentlySeen;
+    this.tx = new TransactionTemplate(transactionManager);
+    this.zone = zone;
+  }
+
+  /**
+   * Start an attempt on today's quiz for the category. Concurrent callers for
+   * the same quiz wait for a single draw.
+   */
+  public QuizGenerationResponse start(UUID userId, Long categoryId, int total) {
+    Objects.requireNonNull(userId, "userId must not be null");
+    Objects.requireNonNull(categoryId, "categoryId must not be null");
+
+    DailyQuiz daily = dailyQuizzes.get(new DailyKey(categoryId, LocalDate.now(zone), total), this::load);
+
+    AttemptDto attempt = attemptService.startSharedAttempt(daily.quizId(), userId);
+    recentlySeen.record(userId, daily.quizId(), daily.questionIds());
+    return new QuizGenerationResponse(daily.quizId(), attempt.id(), daily.questions());
+  }
+
+  /** Drop cached payloads that contain questions changed by a seed import */
+  @EventListener
+  public void onQuestionBankChanged(QuestionBankChangedEvent event) {
+    dailyQuizzes.asMap().values()
+        .removeIf(daily -> daily.questionIds().stream().anyMatch(event::affects));
+  }
+
+  // ----------------- Loading -----------------
+
+  private DailyQuiz load(DailyKey key) {
+    return tx.execute(status -> {
+      var existing = quizService.findDailyQuizId(key.categoryId(), key.day(), key.size());
+      if (existing.isPresent()) {
+        return fromQuiz(existing.get());
+      }
+
+      List<Question> drawn = questionService.drawShared(key.categoryId(), key.size());
+      List<Long> ids = drawn.stream().map(Question::getId).toList();
+      Long quizId = quizService.createShared(key.categoryId(), ids).getId();
+
+      if (!quizService.registerDailyQuiz(key.categoryId(), key.day(), key.size(), quizId)) {
+        // Another instance registered today's quiz first: use it and drop ours
+        status.setRollbackOnly();
+        Long winner = quizService.findDailyQuizId(key.categoryId(), key.day(), key.size())
+            .orElseThrow(() -> new IllegalStateException("Daily quiz vanished for " + key));
+        return fromQuiz(winner);
+      }
+
+      log.info("Drew daily quiz {} for category {} on {} ({} questions)", quizId, key.categoryId(), key.day(), ids.size());
+      return new DailyQuiz(quizId, ids, List.copyOf(questionService.convertToDtoListWithoutChoices(drawn)));
+    });
+  }
+
+  private DailyQuiz fromQuiz(Long quizId) {
+    List<Question> questions = quizQuestions.findAllByQuizIdWithQuestion(quizId).stream()
+        .map(QuizQuestion::getQuestion)
+        .sorted(Comparator.comparing(Question::getId))
+        .toList();
+    List<Long> ids = questions.stream().map(Question::getId).toList();
+    return new DailyQuiz(quizId, ids, List.copyOf(questionService.convertToDtoListWithoutChoices(questions)));
+  }
+
+  private record DailyKey(Long categoryId, LocalDate day, int size) {
+  }
+
+  private record DailyQuiz(Long quizId, List<Long> questionIds, List<QuestionDto> questions) {
+  }
+}
@@ -0,0 +1,123 @@
+package com.bell_ringer.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Responses recorded per Idempotency-Key, so a retried request is answered
+ * from the store instead of being executed again.
+ *
+ * Completed responses live in a bounded in-memory LRU and, when
+ * bellringer.idempotency.persistent=true, in the idempotency_keys table so
+ * they survive restarts and are shared between instances. Requests whose key
+ * is still being executed on this instance wait for that execution
+ * (single-flight) instead of running concurrently.
+ */
+@Service
+public class IdempotencyStore {
+
+  private static final Logger log = LoggerFactory.getLogger(IdempotencyStore.class);
+
+  private final JdbcTemplate jdbc;
+  private final boolean persistent;
+  private final Duration ttl;
+
+  private final Cache<String, StoredResponse> responses;
+  private final Map<String, CompletableFuture<Optional<StoredResponse>>> inFlight = new ConcurrentHashMap<>();
+
+  public IdempotencyStore(JdbcTemplate jdbc,
+      @Value("${bellringer.idempotency.persistent:false}") boolean persistent,
+      @Value("${bellringer.idempotency.ttl:24h}") Duration ttl,
+      @Value("${bellringer.idempotency.max-entries:10000}") long maxEntries) {
+    this.jdbc = jdbc;
+    this.persistent = persistent;
+    this.ttl = ttl;
+    this.responses = Caffeine.newBuilder()
+        .maximumSize(maxEntries)
+        .expireAfterWrite(ttl)
+        .build();
+  }
+
+  // ----------------- Lookup -----------------
+
+  /** Completed response recorded for the key, if any */
+  public Optional<StoredResponse> find(String key) {
+    Objects.requireNonNull(key, "key must not be null");
+    StoredResponse cached = responses.getIfPresent(key);
+    if (cached != null || !persistent) return Optional.ofNullable(cached);
+
+    List<StoredResponse> rows = jdbc.query("""
+        SELECT fingerprint, status, content_type, body FROM idempotency_keys
+         WHERE key_hash = ? AND created_at > ?
+        """,
+        (rs, i) -> new StoredResponse(rs.getString(1), rs.getInt(2), rs.getString(3), rs.getBytes(4)),
+        key, OffsetDateTime.now().minus(ttl));
+    rows.stream().findFirst().ifPresent(response -> responses.put(key, response));
+    return rows.stream().findFirst();
+  }
+
+  // ----------------- Single-flight -----------------
+
+  /**
+   * Claim the key for execution. Returns null when the caller is now the
+   * owner and must {@link #complete} it; otherwise the future of the
+   * execution already in flight.
+   */
+  public CompletableFuture<Optional<StoredResponse>> claim(String key) {
+    return inFlight.putIfAbsent(key, new CompletableFuture<>());
+  }
+
+  /**
+   * Release a claimed key. A response is recorded when given (callers pass
+   * null for failures that should not be replayed) and waiters receive it.
+   */
+  public void complete(String key, StoredResponse response) {
+    if (response != null) {
+      responses.put(key, response);
+      if (persistent) {
+        try {
+          jdbc.update("""
+              INSERT INTO idempotency_keys (key_hash, fingerprint, status, content_type, body)
+              VALUES (?, ?, ?, ?, ?)
+              ON CONFLICT (key_hash) DO NOTHING
+              """, key, response.fingerprint(), response.status(), response.contentType(), response.body());
+        } catch (RuntimeException e) {
+          // The in-memory entry still covers retries against this instance
+          log.warn("Could not persist idempotency key: {}", e.getMessage());
+        }
+      }
+    }
+    CompletableFuture<Optional<StoredResponse>> future = inFlight.remove(key);
+    if (future != null) future.complete(Optional.ofNullable(response));
+  }
+
+  /** Delete persisted responses older than the TTL */
+  @Scheduled(fixedDelayString = "${bellringer.idempotency.cleanup-interval:1h}")
+  public void purgeExpired() {
+    if (!persistent) return;
+    int purged = jdbc.update("DELETE FROM idempotency_keys WHERE created_at <= ?", OffsetDateTime.now().minus(ttl));
+    if (purged > 0) log.info("Purged {} expired idempotency keys", purged);
+  }
+
+  /**
+   * A recorded response. fingerprint identifies the request it answered, so
+   * a key reused with a different request can be refused.
+   */
+  public record StoredResponse(String fingerprint, int status, String contentType, byte[] body) {
+  }
+}
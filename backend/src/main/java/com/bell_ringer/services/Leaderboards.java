@@ -0,0 +1,392 @@
+package com.bell_ringer.services;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Per-category leaderboards for the current week, the current month and all
+ * time, held in memory. A user's score is the number of questions answered
+ * correctly in completed attempts of the category within the window.
+ *
+ * Each board keeps its entries in a skip list ordered by score, so top-N is a
+ * walk from the head, and a Fenwick tree of users per score, so the rank of a
+ * user is a prefix sum. Boards are rebuilt from the database at startup,
+ * updated when an attempt completes on this node and, for attempts completed
+ * on other nodes, from their ids sent over the {@link CacheInvalidationBus}.
+ * When notifications may have been missed every board is rebuilt. Weekly
+ * and monthly boards start empty when their period rolls over
+ * (bellringer.leaderboard.zone).
+ */
+@Component
+public class Leaderboards {
+
+  private static final Logger log = LoggerFactory.getLogger(Leaderboards.class);
+
+  public static final int MAX_LIMIT = 100;
+
+  public enum Window {
+    WEEK,
+    MONTH,
+    ALL
+  }
+
+  // Scores of the completed attempts in [from, to); archived months only count for all time
+  private static final String PERIOD_SCORES = """
+      SELECT q.category_id, a.user_id, SUM(a.correct_count)
+        FROM attempts a
+        JOIN quizzes q ON q.id = a.quiz_id
+       WHERE a.completed_at >= ? AND a.completed_at < ? AND a.correct_count IS NOT NULL
+       GROUP BY 1, 2
+      """;
+
+  private static final String ALL_TIME_SCORES = """
+      SELECT category_id, user_id, SUM(correct)
+        FROM (SELECT q.category_id, a.user_id, a.correct_count AS correct
+                FROM attempts a
+                JOIN quizzes q ON q.id = a.quiz_id
+               WHERE a.completed_at < ? AND a.correct_count IS NOT NULL
+              UNION ALL
+              SELECT category_id, user_id, correct_count FROM user_attempt_rollups) s
+       GROUP BY 1, 2
+      """;
+
+  private static final String COMPLETED_ATTEMPTS = """
+      SELECT q.category_id, a.user_id, a.correct_count, a.completed_at
+        FROM attempts a
+        JOIN quizzes q ON q.id = a.quiz_id
+       WHERE a.id = ANY (CAST(? AS bigint[])) AND a.completed_at IS NOT NULL AND a.correct_count IS NOT NULL
+      """;
+
+  private final JdbcTemplate jdbc;
+  private final ZoneId zone;
+
+  private volatile Map<BoardKey, Board> boards = new ConcurrentHashMap<>();
+  // Scores recorded while a rebuild runs, replayed onto its result
+  private List<Score> sinceRebuild;
+  private final Object rebuildLock = new Object();
+  private final AtomicBoolean rebuildRequested = new AtomicBoolean(false);
+  // Rebuilds and remote updates query the database: keep them off the bus listener thread, in order
+  private final ExecutorService feed = Executors.newSingleThreadExecutor(
+      Thread.ofPlatform().daemon().name("leaderboard-feed").factory());
+
+  public Leaderboards(JdbcTemplate jdbc,
+      @Value("${bellringer.leaderboard.zone:${bellringer.daily.zone:UTC}}") ZoneId zone) {
+    this.jdbc = jdbc;
+    this.zone = zone;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void onStartup() {
+    requestRebuild();
+  }
+
+  @PreDestroy
+  public void stop() {
+    feed.shutdownNow();
+  }
+
+  // ----------------- Updates -----------------
+
+  /** Add the attempt's correct answers to the user's scores once the transaction commits */
+  public void onAttemptCompleted(UUID userId, Long categoryId, int correct, OffsetDateTime completedAt) {
+    Objects.requireNonNull(userId, "userId must not be null");
+    Objects.requireNonNull(categoryId, "categoryId must not be null");
+    Score score = new Score(categoryId, userId, correct,
+        completedAt != null ? completedAt.toInstant() : Instant.now());
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          record(score);
+        }
+      });
+    } else {
+      record(score);
+    }
+  }
+
+  /**
+   * A completed attempt was regraded: add the change in its correct answers
+   * (possibly negative) to the user's scores once the transaction commits
+   */
+  public void onAttemptRescored(UUID userId, Long categoryId, int delta, OffsetDateTime completedAt) {
+    if (delta == 0) return;
+    onAttemptCompleted(userId, categoryId, delta, completedAt);
+  }
+
+  /** Attempts completed on other nodes; unknown ones mean notifications were missed */
+  @EventListener
+  public void onRemoteAttempts(AttemptsCompletedEvent event) {
+    if (event.unknown()) {
+      requestRebuild();
+      return;
+    }
+    String ids = event.attemptIds().stream().map(String::valueOf).collect(Collectors.joining(",", "{", "}"));
+    feed.execute(() -> {
+      try {
+        jdbc.query(COMPLETED_ATTEMPTS, rs -> {
+          record(new Score(rs.getLong(1), rs.getObject(2, UUID.class), rs.getInt(3),
+              rs.getTimestamp(4).toInstant()));
+        }, ids);
+      } catch (RuntimeException e) {
+        log.warn("Could not apply {} remote attempts to the leaderboards: {}", event.attemptIds().size(),
+            e.getMessage());
+        requestRebuild();
+      }
+    });
+  }
+
+  private void record(Score score) {
+    Map<BoardKey, Board> target;
+    synchronized (rebuildLock) {
+      if (sinceRebuild != null) sinceRebuild.add(score);
+      target = boards;
+    }
+    apply(target, score, Instant.now());
+  }
+
+  private void apply(Map<BoardKey, Board> target, Score score, Instant now) {
+    for (Window window : Window.values()) {
+      Instant start = periodStart(window, now);
+      if (score.completedAt().isBefore(start)) continue;
+      target.compute(new BoardKey(score.categoryId(), window),
+          (key, board) -> board == null || !board.periodStart.equals(start) ? new Board(start) : board)
+          .add(score.userId(), score.correct());
+    }
+  }
+
+  // ----------------- Queries -----------------
+
+  /** The best limit users of the category in the window */
+  public Standings top(Long categoryId, Window window, int limit) {
+    Objects.requireNonNull(categoryId, "categoryId must not be null");
+    Objects.requireNonNull(window, "window must not be null");
+    if (limit <= 0 || limit > MAX_LIMIT)
+      throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT);
+    Instant start = periodStart(window, Instant.now());
+    Board board = current(categoryId, window, start);
+    if (board == null) return new Standings(categoryId, window, start, 0, List.of());
+    return new Standings(categoryId, window, start, board.size(), board.top(limit));
+  }
+
+  /** Rank and score of the user in the category and window; empty when they have no score there */
+  public Optional<Standing> standing(Long categoryId, Window window, UUID userId) {
+    Objects.requireNonNull(categoryId, "categoryId must not be null");
+    Objects.requireNonNull(window, "window must not be null");
+    Objects.requireNonNull(userId, "userId must not be null");
+    Board board = current(categoryId, window, periodStart(window, Instant.now()));
+    return board == null ? Optional.empty() : board.standing(userId);
+  }
+
+  private Board current(Long categoryId, Window window, Instant start) {
+    Board board = boards.get(new BoardKey(categoryId, window));
+    return board != null && board.periodStart.equals(start) ? board : null;
+  }
+
+  /** Ties share a rank: one plus the number of users with a higher score */
+  public record Standing(long rank, UUID userId, long score) {
+  }
+
+  public record Standings(Long categoryId, Window window, Instant periodStart, int users, List<Standing> top) {
+  }
+
+  Instant periodStart(Window window, Instant now) {
+    LocalDate today = LocalDate.ofInstant(now, zone);
+    return switch (window) {
+      case WEEK -> today.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).atStartOfDay(zone).toInstant();
+      case MONTH -> today.withDayOfMonth(1).atStartOfDay(zone).toInstant();
+      case ALL -> Instant.EPOCH;
+    };
+  }
+
+  // ----------------- Rebuild -----------------
+
+  /**
+   * Rebuild every board from the database in the background. Requests made
+   * while a rebuild is pending are coalesced into it.
+   */
+  public void requestRebuild() {
+    if (!rebuildRequested.compareAndSet(false, true)) return;
+    feed.execute(() -> {
+      rebuildRequested.set(false);
+      try {
+        rebuild();
+      } catch (RuntimeException e) {
+        log.error("Could not rebuild the leaderboards: {}", e.getMessage());
+      }
+    });
+  }
+
+  private void rebuild() {
+    long begin = System.nanoTime();
+    synchronized (rebuildLock) {
+      sinceRebuild = new ArrayList<>();
+    }
+    try {
+      Instant cutoff = jdbc.queryForObject("SELECT now()", Timestamp.class).toInstant();
+      Map<BoardKey, Board> rebuilt = new ConcurrentHashMap<>();
+      for (Window window : Window.values()) {
+        Instant start = periodStart(window, cutoff);
+        if (window == Window.ALL) {
+          load(rebuilt, window, start, ALL_TIME_SCORES, Timestamp.from(cutoff));
+        } else {
+          load(rebuilt, window, start, PERIOD_SCORES, Timestamp.from(start), Timestamp.from(cutoff));
+        }
+      }
+
+      synchronized (rebuildLock) {
+        // Scores completed after the snapshot; earlier ones are part of it
+        Instant now = Instant.now();
+        for (Score score : sinceRebuild) {
+          if (!score.completedAt().isBefore(cutoff)) apply(rebuilt, score, now);
+        }
+        boards = rebuilt;
+      }
+      log.info("Rebuilt {} leaderboards in {} ms", rebuilt.size(), (System.nanoTime() - begin) / 1_000_000);
+    } finally {
+      synchronized (rebuildLock) {
+        sinceRebuild = null;
+      }
+    }
+  }
+
+  private void load(Map<BoardKey, Board> target, Window window, Instant start, String sql, Object... args) {
+    Map<Long, Board> byCategory = new HashMap<>();
+    jdbc.query(sql, rs -> {
+      byCategory.computeIfAbsent(rs.getLong(1), id -> new Board(start)).add(rs.getObject(2, UUID.class),
+          rs.getLong(3));
+    }, args);
+    byCategory.forEach((categoryId, board) -> target.put(new BoardKey(categoryId, window), board));
+  }
+
+  // ----------------- Boards -----------------
+
+  private record BoardKey(Long categoryId, Window window) {
+  }
+
+  private record Score(Long categoryId, UUID userId, long correct, Instant completedAt) {
+  }
+
+  private record Entry(long score, UUID userId) {
+  }
+
+  private static final Comparator<Entry> BY_SCORE_DESC = Comparator.comparingLong(Entry::score).reversed()
+      .thenComparing(Entry::userId);
+
+  /**
+   * One leaderboard. Writers synchronize on the board; top-N reads walk the
+   * skip list without locking and may miss an update in progress.
+   */
+  private static final class Board {
+    private final Instant periodStart;
+    private final Map<UUID, Long> scores = new HashMap<>();
+    private final ConcurrentSkipListSet<Entry> ranking = new ConcurrentSkipListSet<>(BY_SCORE_DESC);
+    private final ScoreCounts counts = new ScoreCounts();
+
+    Board(Instant periodStart) {
+      this.periodStart = periodStart;
+    }
+
+    /** Points may be negative (a regraded answer); scores do not go below zero */
+    synchronized void add(UUID userId, long points) {
+      Long previous = scores.get(userId);
+      if (previous == null && points < 0) return;
+      long score = Math.max(0, (previous == null ? 0 : previous) + points);
+      if (previous != null) {
+        if (score == previous) return;
+        ranking.remove(new Entry(previous, userId));
+        counts.add(previous, -1);
+      }
+      scores.put(userId, score);
+      ranking.add(new Entry(score, userId));
+      counts.add(score, 1);
+    }
+
+    synchronized int size() {
+      return scores.size();
+    }
+
+    List<Standing> top(int limit) {
+      List<Standing> top = new ArrayList<>(limit);
+      long rank = 0;
+      long previous = -1;
+      for (Entry entry : ranking) {
+        if (top.size() == limit) break;
+        if (entry.score() != previous) rank = top.size() + 1;
+        previous = entry.score();
+        top.add(new Standing(rank, entry.userId(), entry.score()));
+      }
+      return top;
+    }
+
+    synchronized Optional<Standing> standing(UUID userId) {
+      Long score = scores.get(userId);
+      if (score == null) return Optional.empty();
+      return Optional.of(new Standing(counts.above(score) + 1, userId, score));
+    }
+  }
+
+  /**
+   * Number of users per score in a Fenwick tree, so the users above a score
+   * are counted in O(log maxScore). Grows by doubling.
+   */
+  private static final class ScoreCounts {
+    private long[] tree = new long[1024 + 1];
+    private long total;
+
+    void add(long score, long delta) {
+      while (score >= tree.length - 1) grow();
+      total += delta;
+      for (int i = (int) score + 1; i < tree.length; i += i & -i) tree[i] += delta;
+    }
+
+    /** Users with a score strictly greater than score */
+    long above(long score) {
+      if (score >= tree.length - 1) return 0;
+      long atMost = 0;
+      for (int i = (int) score + 1; i > 0; i -= i & -i) atMost += tree[i];
+      return total - atMost;
+    }
+
+    private void grow() {
+      int size = tree.length - 1;
+      long[] counts = new long[size];
+      for (int i = 0; i < size; i++) counts[i] = above(i - 1L) - above(i);
+      tree = new long[2 * size + 1];
+      total = 0;
+      for (int i = 0; i < size; i++) {
+        if (counts[i] != 0) add(i, counts[i]);
+      }
+    }
+  }
+}
@@ -0,0 +1,273 @@
+package com.bell_ringer.services;
+
+import com.bell_ringer.models.Quiz;
+import com.bell_ringer.models.User;
+import com.bell_ringer.repositories.QuizRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live classroom sessions: while a teacher runs a quiz live, every choice
+ * submitted for that quiz also bumps in-memory counters (question → choice →
+ * count), and the teacher dashboard receives aggregate snapshots over
+ * Server-Sent Events at a fixed tick.
+ *
+ * The database write path is unchanged; counters are only updated after the
+ * submitting transaction commits. Sessions are process-local and all of their
+ * state is dropped when the session ends or expires.
+ *
+ * Only the quiz owner or staff (TEACHER / ADMIN) may open a session, since
+ * it exposes every participant's answers; snapshots and closing are limited
+ * to whoever opened it, and admins.
+ */
+@Service
+public class LiveSessionService {
+
+  private static final Logger log = LoggerFactory.getLogger(LiveSessionService.class);
+
+  /** Every this many idle ticks a snapshot is re-sent as a keep-alive */
+  private static final int HEARTBEAT_TICKS = 15;
+
+  private final QuizRepository quizRepository;
+  private final UserService userService;
+  private final Duration maxDuration;
+
+  private final Map<String, LiveSession> sessions = new ConcurrentHashMap<>();
+  private final Map<Long, LiveSession> sessionsByQuiz = new ConcurrentHashMap<>();
+
+  public LiveSessionService(QuizRepository quizRepository,
+      UserService userService,
+      @Value("${bellringer.live.max-duration:4h}") Duration maxDuration) {
+    this.quizRepository = quizRepository;
+    this.userService = userService;
+    this.maxDuration = maxDuration;
+  }
+
+  // ----------------- Session lifecycle -----------------
+
+  /**
+   * Open a live session on a quiz; only one session per quiz can be live.
+   * staff: the caller has the TEACHER or ADMIN role; anyone else must own the
+   * quiz.
+   */
+  public LiveSnapshot open(Long quizId, String ownerUid, boolean staff) {
+    Objects.requireNonNull(quizId, "quizId must not be null");
+    Objects.requireNonNull(ownerUid, "ownerUid must not be null");
+    Quiz quiz = quizRepository.findById(quizId)
+        .orElseThrow(() -> new NoSuchElementException("Quiz not found: " + quizId));
+    if (!staff && !ownsQuiz(quiz, ownerUid))
+      throw new AccessDeniedException("Only the owner of quiz " + quizId + " or a teacher can run it live");
+
+    LiveSession session = new LiveSession(UUID.randomUUID().toString(), quizId, ownerUid,
+        Instant.now().plus(maxDuration));
+    if (sessionsByQuiz.putIfAbsent(quizId, session) != null)
+      throw new IllegalArgumentException("Quiz " + quizId + " already has a live session");
+    sessions.put(session.id, session);
+    log.info("Live session {} opened on quiz {}", session.id, quizId);
+    return session.snapshot();
+  }
+
+  public LiveSnapshot snapshot(String sessionId, String uid, boolean admin) {
+    return getOwned(sessionId, uid, admin).snapshot();
+  }
+
+  /** Subscribe to snapshots; the current one is sent immediately */
+  public SseEmitter subscribe(String sessionId, String uid, boolean admin) {
+    LiveSession session = getOwned(sessionId, uid, admin);
+    long timeoutMs = Math.max(1, Duration.between(Instant.now(), session.expiresAt).toMillis());
+    SseEmitter emitter = new SseEmitter(timeoutMs);
+    emitter.onCompletion(() -> session.emitters.remove(emitter));
+    emitter.onTimeout(() -> session.emitters.remove(emitter));
+    emitter.onError(e -> session.emitters.remove(emitter));
+    session.emitters.add(emitter);
+    send(session, emitter, session.snapshot());
+    return emitter;
+  }
+
+  /** End a session: subscribers get a final snapshot and all state is evicted */
+  public LiveSnapshot end(String sessionId, String uid, boolean admin) {
+    LiveSession session = getOwned(sessionId, uid, admin);
+    return evict(session);
+  }
+
+  // ----------------- Submission hooks -----------------
+
+  /** True when the quiz has a live session (cheap; callers use it to skip extra work) */
+  public boolean isLive(Long quizId) {
+    return quizId != null && sessionsByQuiz.containsKey(quizId);
+  }
+
+  /** True when any session is live */
+  public boolean anyLive() {
+    return !sessionsByQuiz.isEmpty();
+  }
+
+  public void onChoiceSelected(Long quizId, Long attemptId, Long questionId, Long choiceId) {
+    LiveSession session = quizId == null ? null : sessionsByQuiz.get(quizId);
+    if (session == null) return;
+    afterCommit(() -> session.add(attemptId, questionId, choiceId, 1));
+  }
+
+  public void onChoiceRemoved(Long quizId, Long attemptId, Long questionId, Long choiceId) {
+    LiveSession session = quizId == null ? null : sessionsByQuiz.get(quizId);
+    if (session == null) return;
+    afterCommit(() -> session.add(attemptId, questionId, choiceId, -1));
+  }
+
+  private static void afterCommit(Runnable action) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          action.run();
+        }
+      });
+    } else {
+      action.run();
+    }
+  }
+
+  // ----------------- Tick -----------------
+
+  /** Push a snapshot to subscribers of sessions that changed since the last tick */
+  @Scheduled(fixedRateString = "${bellringer.live.tick:1s}")
+  public void tick() {
+    Instant now = Instant.now();
+    for (LiveSession session : sessions.values()) {
+      if (now.isAfter(session.expiresAt)) {
+        log.info("Live session {} expired", session.id);
+        evict(session);
+        continue;
+      }
+      if (session.emitters.isEmpty()) continue;
+
+      long version = session.version.get();
+      if (version == session.pushedVersion && ++session.idleTicks < HEARTBEAT_TICKS) continue;
+      session.pushedVersion = version;
+      session.idleTicks = 0;
+
+      LiveSnapshot snapshot = session.snapshot();
+      for (SseEmitter emitter : session.emitters) {
+        send(session, emitter, snapshot);
+      }
+    }
+  }
+
+  // ----------------- Internals -----------------
+
+  private boolean ownsQuiz(Quiz quiz, String uid) {
+    // Shared quizzes have no owner
+    if (quiz.getUserId() == null) return false;
+    return userService.getByAuth("firebase", uid)
+        .map(User::getId)
+        .filter(quiz.getUserId()::equals)
+        .isPresent();
+  }
+
+  private LiveSession getOwned(String sessionId, String uid, boolean admin) {
+    LiveSession session = sessions.get(sessionId);
+    if (session == null)
+      throw new NoSuchElementException("Live session not found: " + sessionId);
+    if (!admin && !session.ownerUid.equals(uid))
+      throw new AccessDeniedException("Live session " + sessionId + " belongs to another user");
+    return session;
+  }
+
+  private LiveSnapshot evict(LiveSession session) {
+    sessions.remove(session.id);
+    sessionsByQuiz.remove(session.quizId, session);
+    LiveSnapshot last = session.snapshot();
+    for (SseEmitter emitter : session.emitters) {
+      send(session, emitter, last);
+      emitter.complete();
+    }
+    session.emitters.clear();
+    log.info("Live session {} ended ({} participants)", session.id, last.participants());
+    return last;
+  }
+
+  private static void send(LiveSession session, SseEmitter emitter, LiveSnapshot snapshot) {
+    try {
+      emitter.send(SseEmitter.event().name("snapshot").id(Long.toString(snapshot.version())).data(snapshot));
+    } catch (IOException | IllegalStateException e) {
+      // Client went away; the emitter callbacks may not fire for a dead connection
+      session.emitters.remove(emitter);
+    }
+  }
+
+  private static final class LiveSession {
+    final String id;
+    final Long quizId;
+    final String ownerUid;
+    final Instant startedAt = Instant.now();
+    final Instant expiresAt;
+
+    final Map<Long, Map<Long, LongAdder>> counts = new ConcurrentHashMap<>();
+    final Set<Long> participants = ConcurrentHashMap.newKeySet();
+    final AtomicLong version = new AtomicLong();
+    final Collection<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+
+    // Only touched by the scheduler thread
+    long pushedVersion = -1;
+    int idleTicks;
+
+    LiveSession(String id, Long quizId, String ownerUid, Instant expiresAt) {
+      this.id = id;
+      this.quizId = quizId;
+      this.ownerUid = ownerUid;
+      this.expiresAt = expiresAt;
+    }
+
+    void add(Long attemptId, Long questionId, Long choiceId, int delta) {
+      if (attemptId != null) participants.add(attemptId);
+      counts.computeIfAbsent(questionId, q -> new ConcurrentHashMap<>())
+          .computeIfAbsent(choiceId, c -> new LongAdder())
+          .add(delta);
+      version.incrementAndGet();
+    }
+
+    LiveSnapshot snapshot() {
+      long v = version.get();
+      Map<Long, Map<Long, Long>> copy = new LinkedHashMap<>();
+      counts.forEach((questionId, choices) -> {
+        Map<Long, Long> perChoice = new LinkedHashMap<>();
+        choices.forEach((choiceId, adder) -> perChoice.put(choiceId, Math.max(0, adder.sum())));
+        copy.put(questionId, perChoice);
+      });
+      return new LiveSnapshot(id, quizId, startedAt, expiresAt, participants.size(), v, copy);
+    }
+  }
+
+  /** Aggregate view of a session: per question, the number of selections per choice */
+  public record LiveSnapshot(
+      String sessionId,
+      Long quizId,
+      Instant startedAt,
+      Instant expiresAt,
+      int participants,
+      long version,
+      Map<Long, Map<Long, Long>> counts) {
+  }
+}
@@ -0,0 +1,40 @@
+package com.bell_ringer.services;
+
+import java.util.Set;
+
+/**
+ * Published after a seed import commits, with the ids of the questions it
+ * inserted, updated (content, choices or rubric changed) and retired.
+ * In-process caches of questions and answer keys listen to it to refresh
+ * only the affected entries.
+ *
+ * When {@code all} is set the changed ids are unknown (a resync after the
+ * cross-node invalidation bus lost its connection, or a remote change too
+ * large to list) and every cached question must be dropped.
+ */
+public record QuestionBankChangedEvent(Set<Long> inserted, Set<Long> updated, Set<Long> retired, boolean all) {
+
+  public QuestionBankChangedEvent {
+    inserted = Set.copyOf(inserted);
+    updated = Set.copyOf(updated);
+    retired = Set.copyOf(retired);
+  }
+
+  public QuestionBankChangedEvent(Set<Long> inserted, Set<Long> updated, Set<Long> retired) {
+    this(inserted, updated, retired, false);
+  }
+
+  /** Every question may have changed */
+  public static QuestionBankChangedEvent everything() {
+    return new QuestionBankChangedEvent(Set.of(), Set.of(), Set.of(), true);
+  }
+
+  public boolean isEmpty() {
+    return !all && inserted.isEmpty() && updated.isEmpty() && retired.isEmpty();
+  }
+
+  /** True when the question's content may differ from what a cache holds */
+  public boolean affects(Long questionId) {
+    return all || updated.contains(questionId) || retired.contains(questionId);
+  }
+}
@@ -9,15 +9,21 @@ import com.bell_ringer.services.dto.GenerationRequest;
 import com.bell_ringer.services.dto.QuestionDto;
 import com.bell_ringer.services.dto.QuizGenerationResponse;
 import com.bell_ringer.services.dto.ChoiceDto;
+import com.bell_ringer.services.jfr.QuizGenerationEvent;
+import com.bell_ringer.services.jfr.QuotaBucketEvent;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.LongPredicate;
 
 @Service
 public class QuestionService {
@@ -26,6 +32,8 @@ public class QuestionService {
   private final GenerationProperties generationProperties;
   private final CategoryService categoryService;
   private final AttemptService attemptService;
+  private final RecentlySeenQuestions recentlySeen;
+  private final RatingEngine ratings;
 
   private static final int MAX_LIMIT = 100; // hard cap to protect DB
   private static final Set<Integer> ALLOWED_LIMITS = Set.of(5, 10, 15, 20);
@@ -34,12 +42,16 @@ public class QuestionService {
       QuizService quizService,
       GenerationProperties generationProperties,
       CategoryService categoryService,
-      AttemptService attemptService) {
+      AttemptService attemptService,
+      RecentlySeenQuestions recentlySeen,
+      RatingEngine ratings) {
     this.questionRepository = questionRepository;
     this.quizService = quizService;
     this.generationProperties = generationProperties;
     this.categoryService = categoryService;
     this.attemptService = attemptService;
+    this.recentlySeen = recentlySeen;
+    this.ratings = ratings;
   }
 
   // ===== DTO Conversion Methods =====
@@ -84,7 +96,7 @@ public class QuestionService {
   /**
    * Convert list of Question entities to list of QuestionDtos without choices.
    */
-  private List<QuestionDto> convertToDtoListWithoutChoices(List<Question> questions) {
+  List<QuestionDto> convertToDtoListWithoutChoices(List<Question> questions) {
     return questions.stream()
         .map(this::convertToDtoWithoutChoices)
         .toList();
@@ -124,14 +136,14 @@ public class QuestionService {
   public long countByCategoryId(Long categoryId) {
     if (categoryId == null)
       throw new IllegalArgumentException("categoryId must not be null");
-    return questionRepository.countByCategoryId(categoryId);
+    return questionRepository.countByCategoryIdAndDeletedAtIsNull(categoryId);
   }
 
   @Transactional(readOnly = true)
   public boolean existsByCategoryId(Long categoryId) {
     if (categoryId == null)
       throw new IllegalArgumentException("categoryId must not be null");
-    return questionRepository.existsByCategoryId(categoryId);
+    return questionRepository.existsByCategoryIdAndDeletedAtIsNull(categoryId);
   }
 
   // ===== Mode Decision & Quota =====
@@ -178,11 +190,17 @@ public class QuestionService {
 
   @Transactional(readOnly = true)
   public List<Question> drawWithQuota(List<Integer> categoryIds, Quota quota, int total) {
-    return drawWithQuota(categoryIds, quota, total, null);
+    return drawWithQuota(categoryIds, quota, total, null, null);
   }
 
+  /**
+   * Draw questions following the difficulty quota. Questions matching
+   * {@code skip} (e.g. recently seen by the user) are passed over while stock
+   * allows; the final top-up admits them again when it does not.
+   */
   @Transactional(readOnly = true)
-  public List<Question> drawWithQuota(List<Integer> categoryIds, Quota quota, int total, String difficultyFilter) {
+  public List<Question> drawWithQuota(List<Integer> categoryIds, Quota quota, int total, String difficultyFilter,
+      LongPredicate skip) {
     if (categoryIds == null || categoryIds.isEmpty())
       throw new IllegalArgumentException("categoryIds must not be empty");
     if (total <= 0)
@@ -194,42 +212,48 @@ public class QuestionService {
     List<Question> out = new ArrayList<>(total);
     Set<Long> seen = new HashSet<>(total * 2);
 
-    // Overdraw factor helps reduce overlap across batches
-    int over = 2;
+    // Overdraw factor helps reduce overlap across batches (and skipped items)
+    int over = skip == null ? 2 : 4;
 
     // If difficultyFilter is specified, only draw from that difficulty
     if (difficultyFilter != null) {
-      var batch = questionRepository.pickRandomFilteredMany(categoryIds, null, difficultyFilter, total * over);
-      addUntilUnique(out, batch, total, seen);
+      drawBucket(out, categoryIds, difficultyFilter, total, over, seen, skip);
     } else {
       // EASY
       if (quota.easy() > 0) {
-        var batch = questionRepository.pickRandomFilteredMany(categoryIds, null, Difficulty.EASY.name(),
-            quota.easy() * over);
-        addUntilUnique(out, batch, quota.easy(), seen);
+        drawBucket(out, categoryIds, Difficulty.EASY.name(), quota.easy(), over, seen, skip);
       }
 
       // MEDIUM
       if (quota.medium() > 0) {
-        var batch = questionRepository.pickRandomFilteredMany(categoryIds, null, Difficulty.MEDIUM.name(),
-            quota.medium() * over);
-        addUntilUnique(out, batch, quota.medium(), seen);
+        drawBucket(out, categoryIds, Difficulty.MEDIUM.name(), quota.medium(), over, seen, skip);
       }
 
       // HARD
       if (quota.hard() > 0) {
-        var batch = questionRepository.pickRandomFilteredMany(categoryIds, null, Difficulty.HARD.name(),
-            quota.hard() * over);
-        addUntilUnique(out, batch, quota.hard(), seen);
+        drawBucket(out, categoryIds, Difficulty.HARD.name(), quota.hard(), over, seen, skip);
       }
     }
 
     // Fallback: if any bucket was short, top up with any difficulty (respecting
-    // difficultyFilter)
+    // difficultyFilter), still skipping recently seen questions
     int missing = total - out.size();
     if (missing > 0) {
-      var topUp = questionRepository.pickRandomFilteredMany(categoryIds, null, difficultyFilter, missing * over);
-      addUntilUnique(out, topUp, missing, seen);
+      QuotaBucketEvent event = new QuotaBucketEvent();
+      event.begin();
+      int wanted = missing;
+      var topUp = pickMany(categoryIds, difficultyFilter, missing * over);
+      missing -= addUntilUnique(out, topUp, missing, seen, skip);
+
+      // Not enough unseen stock: admit recently seen questions
+      if (missing > 0 && skip != null) {
+        missing -= addUntilUnique(out, topUp, missing, seen, null);
+      }
+      event.difficulty = difficultyFilter != null ? difficultyFilter : "ANY";
+      event.wanted = wanted;
+      event.candidates = topUp.size();
+      event.added = wanted - missing;
+      event.commit();
     }
 
     // Final shuffle so order is random across difficulties
@@ -239,6 +263,64 @@ public class QuestionService {
     return out.size() > total ? out.subList(0, total) : out;
   }
 
+  /** Pick candidates of one difficulty and keep up to wanted unique ones */
+  private void drawBucket(List<Question> out, List<Integer> categoryIds, String difficulty, int wanted, int over,
+      Set<Long> seen, LongPredicate skip) {
+    QuotaBucketEvent event = new QuotaBucketEvent();
+    event.begin();
+    var batch = pickMany(categoryIds, difficulty, wanted * over);
+    int added = addUntilUnique(out, batch, wanted, seen, skip);
+    event.difficulty = difficulty;
+    event.wanted = wanted;
+    event.candidates = batch.size();
+    event.added = added;
+    event.commit();
+  }
+
+  /**
+   * Draw a user-independent question set for a shared quiz: base difficulty
+   * split without noise, nothing skipped.
+   */
+  @Transactional(readOnly = true)
+  List<Question> drawShared(Long categoryId, int total) {
+    Objects.requireNonNull(categoryId, "categoryId must not be null");
+    int size = normalizeLimit(total);
+    var base = generationProperties.getBase();
+    Quota quota = distributeByLargestRemainder(base.getEasy(), base.getMedium(), base.getHard(), size);
+    return drawWithQuota(effectiveCategoryIds(categoryId), quota, size, null, null);
+  }
+
+  /**
+   * Draw the questions whose rating is closest to the user's rating in the
+   * category. Null when rating selection does not apply (disabled, difficulty
+   * filter, random mode) or the rated stock is short; the quota draw is used
+   * then.
+   */
+  private List<Question> drawByRating(GenerationRequest req, LongPredicate skip) {
+    if (!generationProperties.isRatingSelection() || req.difficultyFilter() != null)
+      return null;
+    if (decideMode(req) != GenerationRequest.Mode.ADAPTIVE)
+      return null;
+
+    int total = normalizeLimit(req.total());
+    List<Long> categoryIds = categoryService.resolveSelectionIds(req.categoryId());
+    List<Long> ids = ratings.closestQuestions(req.userId(), req.categoryId(), categoryIds, total, skip);
+    if (ids.size() < total)
+      return null;
+
+    Map<Long, Question> byId = new HashMap<>();
+    questionRepository.findAllById(ids).forEach(q -> byId.put(q.getId(), q));
+    List<Question> out = new ArrayList<>(total);
+    for (Long id : ids) {
+      Question question = byId.get(id);
+      if (question == null || question.isDeleted())
+        return null; // retired since the index was built
+      out.add(question);
+    }
+    Collections.shuffle(out);
+    return out;
+  }
+
   // ===== Orchestrator =====
   @Transactional
   public QuizGenerationResponse generate(GenerationRequest req) {
@@ -249,11 +331,25 @@ public class QuestionService {
     if (req.total() <= 0)
       throw new IllegalArgumentException("total must be > 0");
 
-    // 1) Compute difficulty split (Step 3)
-    var quota = computeQuotaInternal(req);
-
-    // 2) Draw according to quota (Step 4) with optional difficulty filter
-    var selected = drawWithQuota(effectiveCategoryIds(req.categoryId()), quota, req.total(), req.difficultyFilter());
+    QuizGenerationEvent event = new QuizGenerationEvent();
+    event.begin();
+    long step = System.nanoTime();
+
+    // 1-2) Adaptive with rating selection: the questions rated closest to the user
+    LongPredicate seen = recentlySeen.seenBy(req.userId());
+    var selected = drawByRating(req, seen);
+    event.byRating = selected != null;
+    if (selected == null) {
+      // 1) Compute difficulty split (Step 3)
+      var quota = computeQuotaInternal(req);
+
+      // 2) Draw according to quota (Step 4) with optional difficulty filter,
+      // skipping questions from the user's recent quizzes while stock allows
+      selected = drawWithQuota(effectiveCategoryIds(req.categoryId()), quota, req.total(), req.difficultyFilter(),
+          seen);
+    }
+    event.drawNanos = System.nanoTime() - step;
+    step = System.nanoTime();
 
     // 3) Ensure we have a quiz to attach to (auto-create if needed)
     Long quizId = req.quizId();
@@ -265,12 +361,21 @@ public class QuestionService {
     // 4) Attach the generated questions to the quiz
     var questionIds = selected.stream().map(Question::getId).toList();
     quizService.addQuestions(quizId, questionIds);
+    recentlySeen.record(req.userId(), quizId, questionIds);
+    event.attachNanos = System.nanoTime() - step;
+    step = System.nanoTime();
 
     // 5) Create the initial attempt for this quiz
     var attempt = attemptService.startAttempt(quizId);
+    event.attemptNanos = System.nanoTime() - step;
+    step = System.nanoTime();
 
     // 6) Convert to DTOs (without choices for performance)
     var questionDtos = convertToDtoListWithoutChoices(selected);
+    event.convertNanos = System.nanoTime() - step;
+    event.categoryId = req.categoryId();
+    event.total = selected.size();
+    event.commit();
 
     // 7) Return complete response with quiz, attempt, and questions
     return new QuizGenerationResponse(quizId, attempt.id(), questionDtos);
@@ -351,14 +456,24 @@ public class QuestionService {
     return distributeByLargestRemainder(e, m, h, total);
   }
 
+  /** Random active questions of a difficulty (null: any), by label or by empirical difficulty */
+  private List<Question> pickMany(List<Integer> categoryIds, String difficulty, int limit) {
+    return generationProperties.isEmpiricalDifficulty()
+        ? questionRepository.pickRandomCalibratedMany(categoryIds, null, difficulty, limit)
+        : questionRepository.pickRandomFilteredMany(categoryIds, null, difficulty, limit);
+  }
+
   private int addUntilUnique(List<Question> target,
       List<Question> batch,
       int need,
-      Set<Long> seen) {
+      Set<Long> seen,
+      LongPredicate skip) {
     int added = 0;
     for (Question q : batch) {
       if (added >= need)
         break;
+      if (skip != null && skip.test(q.getId()))
+        continue;
       if (seen.add(q.getId())) {
         target.add(q);
         added++;
@@ -0,0 +1,290 @@
+package com.bell_ringer.services;
+
+import com.bell_ringer.models.Question;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Batch job computing item statistics per question from completed attempts
+ * (see V10__question_stats.sql):
+ * <ul>
+ * <li>attempts and p-value: how many attempts answered the question and the
+ * share that answered it correctly (same rule as attempt scoring);</li>
+ * <li>discrimination: point-biserial correlation between answering the
+ * question correctly and the attempt's score on its other questions;</li>
+ * <li>empirical difficulty: EASY / MEDIUM / HARD from the p-value, once at
+ * least min-attempts attempts answered the question.</li>
+ * </ul>
+ * Responses are streamed from a cursor (on the replica when there is one) in
+ * chunks that a fork-join pool aggregates into one accumulator per question.
+ * At most parallelism + 2 chunks are held at a time, so the heap needed does
+ * not grow with the number of answers.
+ */
+@Service
+public class QuestionStatsService {
+
+  private static final Logger log = LoggerFactory.getLogger(QuestionStatsService.class);
+
+  // One row per (completed attempt, answered question); only scored attempts carry a total to correlate with
+  private static final String RESPONSES = """
+      SELECT a.id AS attempt_id, s.question_id,
+             bool_or(c.is_correct AND c.question_id = s.question_id) AS correct,
+             a.correct_count, a.total_count
+        FROM attempts a
+        JOIN selected_choices s ON s.attempt_id = a.id
+        JOIN choices c ON c.id = s.choice_id
+       WHERE a.completed_at IS NOT NULL AND a.total_count IS NOT NULL
+       GROUP BY a.id, s.question_id
+      UNION ALL
+      SELECT a.id, t.question_id, t.is_correct, a.correct_count, a.total_count
+        FROM attempts a
+        JOIN attempt_text_answers t ON t.attempt_id = a.id
+       WHERE a.completed_at IS NOT NULL AND a.total_count IS NOT NULL
+         AND t.is_correct IS NOT NULL
+      """;
+
+  private static final String UPSERT = """
+      INSERT INTO question_stats (question_id, attempts, correct, p_value, discrimination, empirical_difficulty,
+                                  computed_at)
+      SELECT ?, ?, ?, ?, ?, ?, ?
+       WHERE EXISTS (SELECT 1 FROM questions WHERE id = ?)
+      ON CONFLICT (question_id) DO UPDATE SET
+        attempts = EXCLUDED.attempts,
+        correct = EXCLUDED.correct,
+        p_value = EXCLUDED.p_value,
+        discrimination = EXCLUDED.discrimination,
+        empirical_difficulty = EXCLUDED.empirical_difficulty,
+        computed_at = EXCLUDED.computed_at
+      """;
+
+  private final JdbcTemplate cursor;
+  private final JdbcTemplate jdbc;
+  private final TransactionTemplate readTx;
+  private final TransactionTemplate writeTx;
+  private final int chunkSize;
+  private final int parallelism;
+  private final int minAttempts;
+  private final double easyAbove;
+  private final double hardBelow;
+  private final AtomicBoolean running = new AtomicBoolean(false);
+
+  public QuestionStatsService(DataSource dataSource,
+      JdbcTemplate jdbc,
+      PlatformTransactionManager transactionManager,
+      @Value("${bellringer.question-stats.chunk-size:10000}") int chunkSize,
+      @Value("${bellringer.question-stats.parallelism:4}") int parallelism,
+      @Value("${bellringer.question-stats.min-attempts:30}") int minAttempts,
+      @Value("${bellringer.question-stats.easy-above:0.75}") double easyAbove,
+      @Value("${bellringer.question-stats.hard-below:0.45}") double hardBelow) {
+    if (chunkSize <= 0)
+      throw new IllegalArgumentException("bellringer.question-stats.chunk-size must be > 0");
+    if (parallelism <= 0)
+      throw new IllegalArgumentException("bellringer.question-stats.parallelism must be > 0");
+    if (hardBelow > easyAbove)
+      throw new IllegalArgumentException("bellringer.question-stats.hard-below must not exceed easy-above");
+    this.cursor = new JdbcTemplate(dataSource);
+    this.cursor.setFetchSize(chunkSize);
+    this.jdbc = jdbc;
+    this.readTx = new TransactionTemplate(transactionManager);
+    this.readTx.setReadOnly(true);
+    this.writeTx = new TransactionTemplate(transactionManager);
+    this.chunkSize = chunkSize;
+    this.parallelism = parallelism;
+    this.minAttempts = minAttempts;
+    this.easyAbove = easyAbove;
+    this.hardBelow = hardBelow;
+  }
+
+  /** Recompute the statistics of every answered question */
+  @Scheduled(cron = "${bellringer.question-stats.cron:0 30 1 * * *}")
+  public StatsReport recompute() {
+    if (!running.compareAndSet(false, true))
+      throw new IllegalStateException("Question statistics are already being computed");
+    long start = System.nanoTime();
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      Map<Long, ItemAccumulator> items = new ConcurrentHashMap<>();
+      long responses = readTx.execute(status -> aggregate(pool, items));
+      Instant computedAt = Instant.now();
+      writeTx.executeWithoutResult(status -> store(items, computedAt));
+
+      long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+      log.info("Computed statistics of {} questions from {} responses in {} ms", items.size(), responses, elapsedMs);
+      return new StatsReport(items.size(), responses, elapsedMs);
+    } finally {
+      pool.shutdownNow();
+      running.set(false);
+    }
+  }
+
+  // ----------------- Aggregation -----------------
+
+  private long aggregate(ForkJoinPool pool, Map<Long, ItemAccumulator> items) {
+    // Chunks read but not yet aggregated: bounds memory when the pool falls behind the cursor
+    int permits = parallelism + 1;
+    Semaphore inFlight = new Semaphore(permits);
+    AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    long[] count = new long[1];
+    Chunk[] chunk = { new Chunk(chunkSize) };
+
+    cursor.query(RESPONSES, rs -> {
+      chunk[0].add(rs.getLong(2), rs.getBoolean(3), rs.getInt(4), rs.getInt(5));
+      count[0]++;
+      if (chunk[0].isFull()) {
+        submit(pool, inFlight, failure, chunk[0], items);
+        chunk[0] = new Chunk(chunkSize);
+      }
+    });
+    if (chunk[0].size > 0) submit(pool, inFlight, failure, chunk[0], items);
+
+    inFlight.acquireUninterruptibly(permits); // all chunks aggregated
+    if (failure.get() != null) throw failure.get();
+    return count[0];
+  }
+
+  private static void submit(ForkJoinPool pool, Semaphore inFlight, AtomicReference<RuntimeException> failure,
+      Chunk chunk, Map<Long, ItemAccumulator> items) {
+    inFlight.acquireUninterruptibly();
+    pool.execute(() -> {
+      try {
+        chunk.aggregateInto(items);
+      } catch (RuntimeException e) {
+        failure.compareAndSet(null, e);
+      } finally {
+        inFlight.release();
+      }
+    });
+  }
+
+  /** A chunk of responses in primitive arrays */
+  private static final class Chunk {
+    private final long[] questionIds;
+    private final boolean[] correct;
+    private final int[] attemptCorrect;
+    private final int[] attemptTotal;
+    private int size;
+
+    Chunk(int capacity) {
+      questionIds = new long[capacity];
+      correct = new boolean[capacity];
+      attemptCorrect = new int[capacity];
+      attemptTotal = new int[capacity];
+    }
+
+    void add(long questionId, boolean isCorrect, int scoreCorrect, int scoreTotal) {
+      questionIds[size] = questionId;
+      correct[size] = isCorrect;
+      attemptCorrect[size] = scoreCorrect;
+      attemptTotal[size] = scoreTotal;
+      size++;
+    }
+
+    boolean isFull() {
+      return size == questionIds.length;
+    }
+
+    /** Aggregate locally, then merge one accumulator per question */
+    void aggregateInto(Map<Long, ItemAccumulator> items) {
+      Map<Long, ItemAccumulator> local = new HashMap<>();
+      for (int i = 0; i < size; i++) {
+        int item = correct[i] ? 1 : 0;
+        // Rest score: the attempt's result on its other questions
+        int others = attemptTotal[i] - 1;
+        double rest = others > 0 ? (double) (attemptCorrect[i] - item) / others : 0.0;
+        local.computeIfAbsent(questionIds[i], id -> new ItemAccumulator()).add(correct[i], rest);
+      }
+      local.forEach((id, acc) -> items.merge(id, acc, ItemAccumulator::combine));
+    }
+  }
+
+  /** Running sums for the p-value and the point-biserial correlation */
+  static final class ItemAccumulator {
+    private long n;
+    private long correct;
+    private double sumRest;
+    private double sumRestSquared;
+    private double sumRestCorrect;
+
+    void add(boolean isCorrect, double rest) {
+      n++;
+      sumRest += rest;
+      sumRestSquared += rest * rest;
+      if (isCorrect) {
+        correct++;
+        sumRestCorrect += rest;
+      }
+    }
+
+    /** Called under the map's per-key lock */
+    static ItemAccumulator combine(ItemAccumulator a, ItemAccumulator b) {
+      a.n += b.n;
+      a.correct += b.correct;
+      a.sumRest += b.sumRest;
+      a.sumRestSquared += b.sumRestSquared;
+      a.sumRestCorrect += b.sumRestCorrect;
+      return a;
+    }
+
+    double pValue() {
+      return n > 0 ? (double) correct / n : 0.0;
+    }
+
+    /** Null when undefined: everyone (or no one) correct, or no spread in rest scores */
+    Double discrimination() {
+      long wrong = n - correct;
+      if (correct == 0 || wrong == 0) return null;
+      double mean = sumRest / n;
+      double variance = sumRestSquared / n - mean * mean;
+      if (variance <= 1e-12) return null;
+      double meanCorrect = sumRestCorrect / correct;
+      double meanWrong = (sumRest - sumRestCorrect) / wrong;
+      double p = pValue();
+      return (meanCorrect - meanWrong) / Math.sqrt(variance) * Math.sqrt(p * (1 - p));
+    }
+  }
+
+  // ----------------- Storage -----------------
+
+  private void store(Map<Long, ItemAccumulator> items, Instant computedAt) {
+    Timestamp at = Timestamp.from(computedAt);
+    List<Object[]> rows = new ArrayList<>(items.size());
+    items.forEach((questionId, acc) -> rows.add(new Object[] {
+        questionId, acc.n, acc.correct, acc.pValue(), acc.discrimination(), empiricalDifficulty(acc), at,
+        questionId }));
+    jdbc.batchUpdate(UPSERT, rows);
+    // Questions no longer answered by any live attempt (e.g. archived months)
+    jdbc.update("DELETE FROM question_stats WHERE computed_at < ?", at);
+  }
+
+  private String empiricalDifficulty(ItemAccumulator acc) {
+    if (acc.n < minAttempts) return null;
+    double p = acc.pValue();
+    Question.Difficulty difficulty = p >= easyAbove ? Question.Difficulty.EASY
+        : p < hardBelow ? Question.Difficulty.HARD
+        : Question.Difficulty.MEDIUM;
+    return difficulty.name();
+  }
+
+  public record StatsReport(int questions, long responses, long elapsedMs) {
+  }
+}
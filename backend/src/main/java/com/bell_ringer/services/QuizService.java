@@ -11,7 +11,9 @@ import org.springframework.transaction.annotation.Transactional;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import org.hibernate.jpa.HibernateHints;
 
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Objects;
@@ -70,6 +72,11 @@ public class QuizService {
         return quizzes.findById(id);
     }
 
+    /** Reference to a quiz known to exist, without loading it */
+    public Quiz getReference(Long id) {
+        return quizzes.getReferenceById(id);
+    }
+
     public Quiz getRequired(Long id) {
         return quizzes.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Quiz not found: " + id));
@@ -100,6 +107,31 @@ public class QuizService {
         return quizzes.save(q);
     }
 
+    /**
+     * Create a shared quiz (owned by {@link Quiz#SHARED_OWNER}) that many users
+     * attempt, such as the daily quiz.
+     */
+    @Transactional
+    public Quiz createShared(Long categoryId, List<Long> questionIds) {
+        Quiz quiz = createWithQuestions(Quiz.SHARED_OWNER, categoryId, questionIds);
+        quiz.setShared(true);
+        return quiz;
+    }
+
+    /** Quiz registered as the daily quiz for (category, day, size), if any */
+    public Optional<Long> findDailyQuizId(Long categoryId, LocalDate day, int size) {
+        return quizzes.findDailyQuizId(categoryId, day, size);
+    }
+
+    /**
+     * Register a quiz as the daily quiz for (category, day, size). Returns false
+     * when one was registered concurrently (e.g. by another instance).
+     */
+    @Transactional
+    public boolean registerDailyQuiz(Long categoryId, LocalDate day, int size, Long quizId) {
+        return quizzes.insertDailyQuiz(categoryId, day, size, quizId) > 0;
+    }
+
     /**
      * Create a quiz and attach the given question ids into the link table
      * `quiz_questions`.
@@ -126,10 +158,12 @@ public class QuizService {
 
         // TODO : enforce same-category policy in service (cheap guard)
 
-        // Batch insert
+        // Batch insert. Declaring the table keeps Hibernate from evicting the
+        // whole second-level cache, as it does for undeclared native updates.
         for (Long qid : questionIds) {
             em.createNativeQuery(
                     "INSERT INTO quiz_questions(quiz_id, question_id) VALUES (:quizId, :qid) ON CONFLICT DO NOTHING")
+                    .setHint(HibernateHints.HINT_NATIVE_SPACES, "quiz_questions")
                     .setParameter("quizId", quizId)
                     .setParameter("qid", qid)
                     .executeUpdate();
@@ -142,6 +176,8 @@ public class QuizService {
     @Transactional
     public Quiz markCompleted(Long quizId) {
         Quiz quiz = getRequired(quizId);
+        if (quiz.isShared())
+            throw new IllegalStateException("Shared quiz " + quizId + " is completed per attempt, not per quiz");
         quiz.setCompletedAt(OffsetDateTime.now());
         return quizzes.save(quiz);
     }
@@ -230,6 +266,7 @@ public class QuizService {
     }
 
     /** Load accuracy per difficulty for a user in a category. */
+    @Coalesced
     public Accuracy loadAccuracy(UUID userId, Long categoryId) {
         Objects.requireNonNull(userId, "userId must not be null");
         Objects.requireNonNull(categoryId, "categoryId must not be null");
@@ -0,0 +1,521 @@
+package com.bell_ringer.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongPredicate;
+
+/**
+ * Elo-style ratings (see V11__ratings.sql): a skill rating per (user, quiz
+ * category) and a difficulty rating per question. Completing an attempt moves
+ * both for every answered question, in O(1) per answer: the user gains what
+ * the question loses, in proportion to how surprising the result was.
+ *
+ * Ratings live in memory and are written in batches
+ * (bellringer.rating.flush-interval), so a crash loses at most one interval of
+ * updates. A flush adds this node's changes since the previous flush to the
+ * stored values rather than overwriting them, so nodes do not lose each
+ * other's updates; question ratings are reloaded and cached user ratings
+ * expire every bellringer.rating.reload-interval to pick up those of other
+ * nodes (plus whatever is still unflushed here). Adaptive generation picks the
+ * questions rated closest to the user from a per-category index of question
+ * ratings sorted in primitive arrays, rebuilt in the background when ratings
+ * moved.
+ */
+@Component
+public class RatingEngine {
+
+  private static final Logger log = LoggerFactory.getLogger(RatingEngine.class);
+
+  private static final double SCALE = 400.0;
+
+  private static final String LOAD_QUESTIONS = """
+      SELECT q.id, q.category_id,
+             COALESCE(r.rating, CASE COALESCE(s.empirical_difficulty, q.difficulty)
+                                  WHEN 'EASY' THEN ? WHEN 'HARD' THEN ? ELSE ? END) AS rating,
+             COALESCE(r.answers, 0) AS answers
+        FROM questions q
+        LEFT JOIN question_ratings r ON r.question_id = q.id
+        LEFT JOIN question_stats s ON s.question_id = q.id
+       WHERE q.deleted_at IS NULL
+      """;
+
+  // A new row starts from this node's value; an existing one gets the change added
+  private static final String UPSERT_USER = """
+      INSERT INTO user_ratings AS r (user_id, category_id, rating, answers, updated_at)
+      VALUES (?, ?, ?, ?, ?)
+      ON CONFLICT (user_id, category_id) DO UPDATE SET
+        rating = r.rating + ?, answers = r.answers + ?, updated_at = EXCLUDED.updated_at
+      """;
+
+  // Skipped when the question has been deleted since
+  private static final String UPSERT_QUESTION = """
+      INSERT INTO question_ratings AS r (question_id, rating, answers, updated_at)
+      SELECT ?, ?, ?, ? WHERE EXISTS (SELECT 1 FROM questions WHERE id = ?)
+      ON CONFLICT (question_id) DO UPDATE SET
+        rating = r.rating + ?, answers = r.answers + ?, updated_at = EXCLUDED.updated_at
+      """;
+
+  private final JdbcTemplate jdbc;
+  private final TransactionTemplate tx;
+  private final double initialUser;
+  private final double initialEasy;
+  private final double initialMedium;
+  private final double initialHard;
+  private final double kUser;
+  private final double kQuestion;
+  private final int provisionalAnswers;
+  private final double spread;
+
+  // ----------------- State -----------------
+  private final Map<Long, Rating> questions = new ConcurrentHashMap<>();
+  private final Cache<UserCategory, Rating> users;
+  private final Map<UserCategory, Rating> dirtyUsers = new ConcurrentHashMap<>();
+  private final Map<Long, Rating> dirtyQuestions = new ConcurrentHashMap<>();
+  private volatile Map<Long, CategoryIndex> indexes = Map.of();
+  private volatile boolean indexStale = false;
+  // Flushes and reloads do not interleave, so a reload never misses a change
+  // that is being written
+  private final Object persistLock = new Object();
+
+  public RatingEngine(JdbcTemplate jdbc,
+      PlatformTransactionManager transactionManager,
+      @Value("${bellringer.rating.initial-user:1500}") double initialUser,
+      @Value("${bellringer.rating.initial.easy:1300}") double initialEasy,
+      @Value("${bellringer.rating.initial.medium:1500}") double initialMedium,
+      @Value("${bellringer.rating.initial.hard:1700}") double initialHard,
+      @Value("${bellringer.rating.k-user:32}") double kUser,
+      @Value("${bellringer.rating.k-question:16}") double kQuestion,
+      @Value("${bellringer.rating.provisional-answers:10}") int provisionalAnswers,
+      @Value("${bellringer.rating.spread:100}") double spread,
+      @Value("${bellringer.rating.max-users:100000}") long maxUsers,
+      @Value("${bellringer.rating.reload-interval:1m}") Duration reloadInterval) {
+    this.jdbc = jdbc;
+    this.tx = new TransactionTemplate(transactionManager);
+    this.initialUser = initialUser;
+    this.initialEasy = initialEasy;
+    this.initialMedium = initialMedium;
+    this.initialHard = initialHard;
+    this.kUser = kUser;
+    this.kQuestion = kQuestion;
+    this.provisionalAnswers = provisionalAnswers;
+    this.spread = spread;
+    this.users = Caffeine.newBuilder().maximumSize(maxUsers).expireAfterWrite(reloadInterval).build();
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void onStartup() {
+    loadQuestions();
+  }
+
+  @EventListener
+  public void onQuestionBankChanged(QuestionBankChangedEvent event) {
+    if (!event.isEmpty()) loadQuestions();
+  }
+
+  // ----------------- Updates -----------------
+
+  /**
+   * Apply the results of a completed attempt (question id to answered
+   * correctly) once the surrounding transaction commits.
+   */
+  public void onAttemptCompleted(UUID userId, Long categoryId, Map<Long, Boolean> results) {
+    Objects.requireNonNull(userId, "userId must not be null");
+    Objects.requireNonNull(categoryId, "categoryId must not be null");
+    if (results == null || results.isEmpty()) return;
+    Map<Long, Boolean> copy = Map.copyOf(results);
+    UserCategory key = new UserCategory(userId, categoryId);
+    Rating user = userRating(key); // loaded now: no queries after commit
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          apply(key, user, copy);
+        }
+      });
+    } else {
+      apply(key, user, copy);
+    }
+  }
+
+  /**
+   * A completed attempt's answer was graded again. An answer that had no
+   * result yet counts as a new one; otherwise both ratings move by the
+   * difference between the two updates (the expected score cancels out), and
+   * the answer counts stay as they are.
+   */
+  public void onAnswerRegraded(UUID userId, Long categoryId, Long questionId, Boolean wasCorrect,
+      boolean isCorrect) {
+    Objects.requireNonNull(questionId, "questionId must not be null");
+    if (wasCorrect == null) {
+      onAttemptCompleted(userId, categoryId, Map.of(questionId, isCorrect));
+      return;
+    }
+    if (wasCorrect == isCorrect) return;
+    Objects.requireNonNull(userId, "userId must not be null");
+    Objects.requireNonNull(categoryId, "categoryId must not be null");
+    UserCategory key = new UserCategory(userId, categoryId);
+    Rating user = userRating(key);
+    double change = isCorrect ? 1.0 : -1.0;
+    Runnable correct = () -> {
+      synchronized (user) {
+        Rating question = questions.get(questionId);
+        if (question != null) {
+          synchronized (question) {
+            question.move(-k(kQuestion, question.answers) * change, 0);
+          }
+          dirtyQuestions.put(questionId, question);
+        }
+        user.move(k(kUser, user.answers) * change, 0);
+      }
+      markDirty(key, user);
+      indexStale = true;
+    };
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          correct.run();
+        }
+      });
+    } else {
+      correct.run();
+    }
+  }
+
+  private void apply(UserCategory key, Rating user, Map<Long, Boolean> results) {
+    synchronized (user) {
+      results.forEach((questionId, correct) -> {
+        Rating question = questions.get(questionId);
+        if (question == null) return; // retired or not loaded yet
+        synchronized (question) {
+          double expected = 1.0 / (1.0 + Math.pow(10, (question.rating - user.rating) / SCALE));
+          double surprise = (correct ? 1.0 : 0.0) - expected;
+          user.move(k(kUser, user.answers) * surprise, 1);
+          question.move(-k(kQuestion, question.answers) * surprise, 1);
+        }
+        dirtyQuestions.put(questionId, question);
+      });
+    }
+    markDirty(key, user);
+    indexStale = true;
+  }
+
+  private void markDirty(UserCategory key, Rating user) {
+    Rating previous = dirtyUsers.put(key, user);
+    if (previous != null && previous != user) {
+      // The cached rating expired and was reloaded in between; carry the older
+      // copy's unflushed change over so it is still written
+      user.giveBack(previous.takeChange());
+    }
+  }
+
+  /** Larger steps while a rating is provisional, so new users and questions settle quickly */
+  private double k(double base, long answers) {
+    return answers < provisionalAnswers ? base * 2 : base;
+  }
+
+  // ----------------- Reads -----------------
+
+  public double userRating(UUID userId, Long categoryId) {
+    Rating rating = userRating(new UserCategory(userId, categoryId));
+    synchronized (rating) {
+      return rating.rating;
+    }
+  }
+
+  private Rating userRating(UserCategory key) {
+    // A rating expired or evicted before it was flushed is still in dirtyUsers
+    return users.get(key, k -> {
+      Rating dirty = dirtyUsers.get(k);
+      return dirty != null ? dirty : loadUser(k);
+    });
+  }
+
+  private Rating loadUser(UserCategory key) {
+    synchronized (persistLock) {
+      List<Rating> rows = jdbc.query(
+          "SELECT rating, answers FROM user_ratings WHERE user_id = ? AND category_id = ?",
+          (rs, i) -> new Rating(key.categoryId(), rs.getDouble(1), rs.getLong(2)),
+          key.userId(), key.categoryId());
+      return rows.isEmpty() ? new Rating(key.categoryId(), initialUser, 0) : rows.get(0);
+    }
+  }
+
+  /**
+   * Up to count ids of active questions of the given categories whose rating
+   * is closest to the user's rating in categoryId, closest first (within a
+   * random spread so repeated quizzes differ). Questions matching skip are
+   * passed over while there are enough others.
+   */
+  public List<Long> closestQuestions(UUID userId, Long categoryId, Collection<Long> categoryIds, int count,
+      LongPredicate skip) {
+    double target = userRating(userId, categoryId);
+    Map<Long, CategoryIndex> current = indexes;
+
+    List<Candidate> candidates = new ArrayList<>();
+    List<Candidate> skipped = new ArrayList<>();
+    for (Long id : categoryIds) {
+      CategoryIndex index = current.get(id);
+      if (index != null) index.nearest(target, count, skip, candidates, skipped);
+    }
+
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    Comparator<Candidate> byDistance = Comparator.comparingDouble(c -> c.distance);
+    for (List<Candidate> list : List.of(candidates, skipped)) {
+      list.forEach(c -> c.distance = Math.abs(c.rating - target) + random.nextDouble() * spread);
+      list.sort(byDistance);
+    }
+
+    List<Long> out = new ArrayList<>(count);
+    for (List<Candidate> list : List.of(candidates, skipped)) {
+      for (Candidate c : list) {
+        if (out.size() == count) return out;
+        out.add(c.questionId);
+      }
+    }
+    return out;
+  }
+
+  // ----------------- Question index -----------------
+
+  /** Pick up question ratings written by other nodes */
+  @Scheduled(fixedDelayString = "${bellringer.rating.reload-interval:1m}",
+      initialDelayString = "${bellringer.rating.reload-interval:1m}")
+  public void reloadQuestions() {
+    loadQuestions();
+  }
+
+  private void loadQuestions() {
+    Set<Long> active = new HashSet<>();
+    synchronized (persistLock) {
+      jdbc.query(LOAD_QUESTIONS, rs -> {
+        long id = rs.getLong(1);
+        active.add(id);
+        Rating loaded = new Rating(rs.getLong(2), rs.getDouble(3), rs.getLong(4));
+        Rating existing = questions.putIfAbsent(id, loaded);
+        if (existing != null) {
+          // Stored value (every node's flushed changes) plus this node's unflushed ones
+          synchronized (existing) {
+            existing.categoryId = loaded.categoryId;
+            existing.rating = loaded.rating + existing.pendingRating;
+            existing.answers = loaded.answers + existing.pendingAnswers;
+          }
+        }
+      }, initialEasy, initialHard, initialMedium);
+    }
+    questions.keySet().retainAll(active);
+    rebuildIndexes();
+    log.debug("Loaded ratings of {} questions", questions.size());
+  }
+
+  /** Rebuild the sorted per-category arrays when ratings moved since the last build */
+  @Scheduled(fixedDelayString = "${bellringer.rating.index-refresh:30s}")
+  public void refreshIndexes() {
+    if (indexStale) rebuildIndexes();
+  }
+
+  private synchronized void rebuildIndexes() {
+    indexStale = false;
+    Map<Long, List<Candidate>> byCategory = new HashMap<>();
+    questions.forEach((id, rating) -> {
+      double value;
+      long category;
+      synchronized (rating) {
+        value = rating.rating;
+        category = rating.categoryId;
+      }
+      byCategory.computeIfAbsent(category, c -> new ArrayList<>()).add(new Candidate(id, value));
+    });
+    Map<Long, CategoryIndex> built = new HashMap<>();
+    byCategory.forEach((category, list) -> built.put(category, CategoryIndex.of(list)));
+    indexes = Map.copyOf(built);
+  }
+
+  /** Question ratings of one category, sorted ascending in parallel arrays */
+  private record CategoryIndex(double[] ratings, long[] questionIds) {
+
+    static CategoryIndex of(List<Candidate> list) {
+      list.sort(Comparator.comparingDouble(c -> c.rating));
+      double[] ratings = new double[list.size()];
+      long[] ids = new long[list.size()];
+      for (int i = 0; i < ratings.length; i++) {
+        ratings[i] = list.get(i).rating;
+        ids[i] = list.get(i).questionId;
+      }
+      return new CategoryIndex(ratings, ids);
+    }
+
+    /** Walk outwards from the target until count unskipped questions were found */
+    void nearest(double target, int count, LongPredicate skip, List<Candidate> out, List<Candidate> skipped) {
+      int found = 0;
+      int hi = Arrays.binarySearch(ratings, target);
+      if (hi < 0) hi = -hi - 1;
+      int lo = hi - 1;
+      while (found < count && (lo >= 0 || hi < ratings.length)) {
+        int i;
+        if (lo < 0) i = hi++;
+        else if (hi >= ratings.length) i = lo--;
+        else i = (target - ratings[lo] <= ratings[hi] - target) ? lo-- : hi++;
+
+        Candidate candidate = new Candidate(questionIds[i], ratings[i]);
+        if (skip != null && skip.test(questionIds[i])) {
+          if (skipped.size() < count) skipped.add(candidate);
+        } else {
+          out.add(candidate);
+          found++;
+        }
+      }
+    }
+  }
+
+  // ----------------- Persistence -----------------
+
+  /** Add the rating changes made here since the last flush to the stored ratings */
+  @Scheduled(fixedDelayString = "${bellringer.rating.flush-interval:10s}")
+  public void flush() {
+    synchronized (persistLock) {
+      Timestamp now = Timestamp.from(Instant.now());
+
+      Map<UserCategory, Rating> usersToWrite = drain(dirtyUsers);
+      Map<Long, Rating> questionsToWrite = drain(dirtyQuestions);
+      if (usersToWrite.isEmpty() && questionsToWrite.isEmpty()) return;
+
+      Map<Rating, Change> taken = new HashMap<>();
+      List<Object[]> userRows = new ArrayList<>(usersToWrite.size());
+      usersToWrite.forEach((key, rating) -> {
+        Change change = rating.takeChange();
+        taken.put(rating, change);
+        userRows.add(new Object[] { key.userId(), key.categoryId(), change.value(), change.answers(), now,
+            change.rating(), change.answers() });
+      });
+      List<Object[]> questionRows = new ArrayList<>(questionsToWrite.size());
+      questionsToWrite.forEach((id, rating) -> {
+        Change change = rating.takeChange();
+        taken.put(rating, change);
+        questionRows.add(new Object[] { id, change.value(), change.answers(), now, id,
+            change.rating(), change.answers() });
+      });
+
+      try {
+        // All or nothing: changes given back after a partial write would be added twice
+        tx.executeWithoutResult(status -> {
+          jdbc.batchUpdate(UPSERT_USER, userRows);
+          jdbc.batchUpdate(UPSERT_QUESTION, questionRows);
+        });
+      } catch (RuntimeException e) {
+        // Keep the changes for the next flush
+        taken.forEach(Rating::giveBack);
+        usersToWrite.forEach(dirtyUsers::putIfAbsent);
+        questionsToWrite.forEach(dirtyQuestions::putIfAbsent);
+        throw e;
+      }
+      log.debug("Flushed {} user and {} question ratings", userRows.size(), questionRows.size());
+    }
+  }
+
+  private static <K> Map<K, Rating> drain(Map<K, Rating> dirty) {
+    Map<K, Rating> drained = new HashMap<>();
+    for (K key : dirty.keySet()) {
+      Rating rating = dirty.remove(key);
+      if (rating != null) drained.put(key, rating);
+    }
+    return drained;
+  }
+
+  @PreDestroy
+  public void flushOnShutdown() {
+    try {
+      flush();
+    } catch (RuntimeException e) {
+      log.warn("Could not write ratings on shutdown: {}", e.getMessage());
+    }
+  }
+
+  // ----------------- Types -----------------
+
+  private record UserCategory(UUID userId, Long categoryId) {
+  }
+
+  /**
+   * Mutable rating; guarded by its own monitor. pendingRating and
+   * pendingAnswers are the changes made here that are not flushed yet.
+   */
+  private static final class Rating {
+    private long categoryId;
+    private double rating;
+    private long answers;
+    private double pendingRating;
+    private long pendingAnswers;
+
+    Rating(long categoryId, double rating, long answers) {
+      this.categoryId = categoryId;
+      this.rating = rating;
+      this.answers = answers;
+    }
+
+    /** Caller holds the monitor */
+    void move(double change, long answered) {
+      rating += change;
+      answers += answered;
+      pendingRating += change;
+      pendingAnswers += answered;
+    }
+
+    synchronized Change takeChange() {
+      Change change = new Change(rating, pendingRating, pendingAnswers);
+      pendingRating = 0;
+      pendingAnswers = 0;
+      return change;
+    }
+
+    synchronized void giveBack(Change change) {
+      pendingRating += change.rating();
+      pendingAnswers += change.answers();
+    }
+  }
+
+  /** Unflushed change of a rating; value is the whole rating, used for a first row */
+  private record Change(double value, double rating, long answers) {
+  }
+
+  private static final class Candidate {
+    private final long questionId;
+    private final double rating;
+    private double distance;
+
+    Candidate(long questionId, double rating) {
+      this.questionId = questionId;
+      this.rating = rating;
+    }
+  }
+}
@@ -0,0 +1,162 @@
+package com.bell_ringer.services;
+
+import com.bell_ringer.config.GenerationProperties;
+import com.bell_ringer.repositories.QuizQuestionRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongPredicate;
+
+/**
+ * Per-user memory of the questions served in the user's last N quizzes, used
+ * by generation to avoid repeating them.
+ *
+ * Question ids are mapped to dense indexes shared by all users, so each
+ * user's window is a small ring of per-quiz bitsets plus their union. Windows
+ * live in a bounded cache and are rebuilt lazily from quiz_questions on a
+ * miss, so losing one (eviction, restart) only costs a query.
+ */
+@Component
+public class RecentlySeenQuestions {
+
+  private static final LongPredicate NONE = id -> false;
+
+  private final QuizQuestionRepository quizQuestions;
+  private final int quizzes;
+  private final Cache<UUID, Window> windows;
+
+  // ----------------- Dense question indexes -----------------
+  private final Map<Long, Integer> indexes = new ConcurrentHashMap<>();
+  private final AtomicInteger nextIndex = new AtomicInteger();
+
+  public RecentlySeenQuestions(QuizQuestionRepository quizQuestions, GenerationProperties properties) {
+    this.quizQuestions = quizQuestions;
+    this.quizzes = Math.max(0, properties.getRecent().getQuizzes());
+    this.windows = Caffeine.newBuilder()
+        .maximumSize(properties.getRecent().getMaxUsers())
+        .expireAfterAccess(properties.getRecent().getExpireAfterAccess())
+        .build();
+  }
+
+  /**
+   * Predicate that is true for question ids the user saw in their last N
+   * quizzes. It works on a snapshot, so later quizzes do not affect it.
+   */
+  public LongPredicate seenBy(UUID userId) {
+    Objects.requireNonNull(userId, "userId must not be null");
+    if (quizzes == 0) return NONE;
+
+    BitSet seen = windows.get(userId, this::load).snapshot();
+    if (seen.isEmpty()) return NONE;
+    return questionId -> {
+      Integer index = indexes.get(questionId);
+      return index != null && seen.get(index);
+    };
+  }
+
+  /**
+   * Record the questions attached to a quiz once the surrounding transaction
+   * commits, so a rolled back quiz is never remembered. Users without a
+   * cached window are skipped: their window is rebuilt from the database on
+   * next use anyway.
+   */
+  public void record(UUID userId, Long quizId, Collection<Long> questionIds) {
+    Objects.requireNonNull(userId, "userId must not be null");
+    Objects.requireNonNull(quizId, "quizId must not be null");
+    if (quizzes == 0 || questionIds == null || questionIds.isEmpty()) return;
+
+    BitSet bits = toBits(questionIds);
+    Runnable add = () -> {
+      Window window = windows.getIfPresent(userId);
+      if (window != null) window.add(quizId, bits);
+    };
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          add.run();
+        }
+      });
+    } else {
+      add.run();
+    }
+  }
+
+  /** Drop a user's window, e.g. after their quizzes were deleted */
+  public void evict(UUID userId) {
+    windows.invalidate(userId);
+  }
+
+  private Window load(UUID userId) {
+    Window window = new Window(quizzes);
+    Long currentQuiz = null;
+    BitSet bits = null;
+    for (var row : quizQuestions.findRecentByUserId(userId, quizzes)) {
+      if (!row.getQuizId().equals(currentQuiz)) {
+        if (bits != null) window.add(currentQuiz, bits);
+        currentQuiz = row.getQuizId();
+        bits = new BitSet();
+      }
+      bits.set(indexOf(row.getQuestionId()));
+    }
+    if (bits != null) window.add(currentQuiz, bits);
+    return window;
+  }
+
+  private BitSet toBits(Collection<Long> questionIds) {
+    BitSet bits = new BitSet();
+    for (Long id : questionIds) bits.set(indexOf(id));
+    return bits;
+  }
+
+  private int indexOf(Long questionId) {
+    return indexes.computeIfAbsent(questionId, id -> nextIndex.getAndIncrement());
+  }
+
+  /** Ring of the last N quizzes' question bitsets, with their union kept up to date */
+  private static final class Window {
+    private final int capacity;
+    private final Deque<Map.Entry<Long, BitSet>> quizzes;
+    private BitSet union = new BitSet();
+
+    Window(int capacity) {
+      this.capacity = capacity;
+      this.quizzes = new ArrayDeque<>(capacity);
+    }
+
+    synchronized void add(Long quizId, BitSet bits) {
+      var newest = quizzes.peekLast();
+      if (newest != null && newest.getKey().equals(quizId)) {
+        // Questions added to a quiz that is already in the window
+        newest.getValue().or(bits);
+        union.or(bits);
+        return;
+      }
+      quizzes.addLast(Map.entry(quizId, bits));
+      if (quizzes.size() > capacity) {
+        quizzes.removeFirst();
+        BitSet rebuilt = new BitSet();
+        for (var quiz : quizzes) rebuilt.or(quiz.getValue());
+        union = rebuilt;
+      } else {
+        union.or(bits);
+      }
+    }
+
+    synchronized BitSet snapshot() {
+      return (BitSet) union.clone();
+    }
+  }
+}
@@ -0,0 +1,48 @@
+package com.bell_ringer.services;
+
+import com.bell_ringer.repositories.OpenAnswerRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Compiled open answer rubrics per question, so scoring a submitted text
+ * answer needs neither a rubric query nor keyword normalization. Entries are
+ * dropped when a seed import touches the question.
+ */
+@Component
+public class RubricCache {
+
+  private final OpenAnswerRepository openAnswers;
+  private final TextAnswerScoringService scoringService;
+
+  private final Cache<Long, List<TextAnswerScoringService.CompiledRubric>> rubrics = Caffeine.newBuilder()
+      .maximumSize(10_000)
+      .build();
+
+  public RubricCache(OpenAnswerRepository openAnswers, TextAnswerScoringService scoringService) {
+    this.openAnswers = openAnswers;
+    this.scoringService = scoringService;
+  }
+
+  /** Compiled rubrics of a question (empty when it has none) */
+  public List<TextAnswerScoringService.CompiledRubric> forQuestion(Long questionId) {
+    Objects.requireNonNull(questionId, "questionId must not be null");
+    return rubrics.get(questionId, id -> scoringService.compile(openAnswers.findByQuestionId(id)));
+  }
+
+  @EventListener
+  public void onQuestionBankChanged(QuestionBankChangedEvent event) {
+    if (event.all()) {
+      rubrics.invalidateAll();
+      return;
+    }
+    rubrics.invalidateAll(event.inserted());
+    rubrics.invalidateAll(event.updated());
+    rubrics.invalidateAll(event.retired());
+  }
+}
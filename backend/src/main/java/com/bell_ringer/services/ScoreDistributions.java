@@ -0,0 +1,424 @@
+package com.bell_ringer.services;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Array;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Distribution of attempt scores (success rates) per category, for "better
+ * than X% of peers" answers without scanning attempts.
+ *
+ * Scores are bounded to [0, 1], so each category keeps a fixed-resolution
+ * histogram of 1000 bins instead of an adaptive sketch: updates are one
+ * atomic increment, a rank query sums at most 1000 counters, two histograms
+ * merge by adding counts, and the error is below 0.1 percentage point of
+ * score. Histograms are updated when attempts complete here; every
+ * flush-interval the changes since the previous flush are added to
+ * score_sketches bin by bin, and every reload-interval the stored counts
+ * (which hold every node's flushed changes) are read back, plus the changes
+ * not flushed yet. {@link #rebuild} recomputes them from the attempt
+ * history, one attempts partition per task, starting from the bins of
+ * archived months (archived_score_bins).
+ */
+@Component
+public class ScoreDistributions {
+
+  private static final Logger log = LoggerFactory.getLogger(ScoreDistributions.class);
+
+  static final int BINS = 1000;
+  private static final int MAX_PARALLELISM = 16;
+
+  private static final String INSERT_EMPTY = """
+      INSERT INTO score_sketches (category_id, counts, updated_at)
+      SELECT ?, array_fill(0::bigint, ARRAY[%d]), ? WHERE EXISTS (SELECT 1 FROM categories WHERE id = ?)
+      ON CONFLICT (category_id) DO NOTHING
+      """.formatted(BINS);
+
+  // Adds this node's changes bin by bin, so nodes do not overwrite each other's counts
+  private static final String ADD_COUNTS = """
+      UPDATE score_sketches s SET
+        counts = (SELECT array_agg(GREATEST(COALESCE(c, 0) + COALESCE(d, 0), 0) ORDER BY i)
+                    FROM unnest(s.counts, CAST(? AS bigint[])) WITH ORDINALITY AS t(c, d, i)),
+        updated_at = ?
+      WHERE category_id = ?
+      """;
+
+  // Rebuilt counts replace the stored ones
+  private static final String REPLACE = """
+      INSERT INTO score_sketches (category_id, counts, updated_at)
+      SELECT ?, CAST(? AS bigint[]), ? WHERE EXISTS (SELECT 1 FROM categories WHERE id = ?)
+      ON CONFLICT (category_id) DO UPDATE SET counts = EXCLUDED.counts, updated_at = EXCLUDED.updated_at
+      """;
+
+  // Histogram bins of one attempts partition
+  private static final String PARTITION_BINS = """
+      SELECT q.category_id, LEAST(FLOOR(a.success_rate * %2$d), %2$d - 1) AS bin, COUNT(*)
+        FROM %1$s a
+        JOIN quizzes q ON q.id = a.quiz_id
+       WHERE a.completed_at < ? AND a.total_count > 0
+       GROUP BY 1, 2
+      """;
+
+  private final JdbcTemplate jdbc;
+  private final TransactionTemplate tx;
+  private final Map<Long, Histogram> histograms = new ConcurrentHashMap<>();
+  private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+  // Guards pending and sinceRebuild, and swaps of whole histograms
+  private final Object viewLock = new Object();
+  // Flushes, reloads and the end of a rebuild do not interleave
+  private final Object persistLock = new Object();
+  // Changes made here since the last flush, per category (counts may be negative)
+  private final Map<Long, Histogram> pending = new HashMap<>();
+  // Score changes recorded while a rebuild runs, replayed onto its result
+  private List<ScoreChange> sinceRebuild;
+
+  public ScoreDistributions(JdbcTemplate jdbc, PlatformTransactionManager transactionManager) {
+    this.jdbc = jdbc;
+    this.tx = new TransactionTemplate(transactionManager);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void onStartup() {
+    try {
+      reload();
+      log.info("Loaded score distributions of {} categories", histograms.size());
+    } catch (RuntimeException e) {
+      log.error("Could not load score distributions: {}", e.getMessage());
+    }
+  }
+
+  // ----------------- Updates and queries -----------------
+
+  /** Count the score of an attempt of the category once the transaction commits */
+  public void onAttemptCompleted(Long categoryId, double successRate, OffsetDateTime completedAt) {
+    Objects.requireNonNull(categoryId, "categoryId must not be null");
+    afterCommit(new ScoreChange(categoryId, null, successRate, instant(completedAt)));
+  }
+
+  /**
+   * A completed attempt was regraded: move it from its previous score to the
+   * new one once the transaction commits. Null means not counted (nothing
+   * answered).
+   */
+  public void onAttemptRescored(Long categoryId, Double previousRate, Double successRate,
+      OffsetDateTime completedAt) {
+    Objects.requireNonNull(categoryId, "categoryId must not be null");
+    if (Objects.equals(previousRate, successRate)) return;
+    afterCommit(new ScoreChange(categoryId, previousRate, successRate, instant(completedAt)));
+  }
+
+  private static Instant instant(OffsetDateTime completedAt) {
+    return completedAt != null ? completedAt.toInstant() : Instant.now();
+  }
+
+  private void afterCommit(ScoreChange change) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          record(change);
+        }
+      });
+    } else {
+      record(change);
+    }
+  }
+
+  private void record(ScoreChange change) {
+    synchronized (viewLock) {
+      Histogram histogram = histograms.computeIfAbsent(change.categoryId(), id -> new Histogram());
+      Histogram unflushed = pending.computeIfAbsent(change.categoryId(), id -> new Histogram());
+      if (change.previousRate() != null && histogram.remove(change.previousRate())) {
+        unflushed.addToBin(Histogram.bin(change.previousRate()), -1);
+      }
+      if (change.successRate() != null) {
+        histogram.add(change.successRate());
+        unflushed.add(change.successRate());
+      }
+      if (sinceRebuild != null) sinceRebuild.add(change);
+    }
+  }
+
+  /**
+   * Share of the category's attempts that scored strictly below successRate,
+   * with the number of attempts it was measured against; empty when the
+   * category has none.
+   */
+  public Optional<Percentile> percentile(Long categoryId, double successRate) {
+    Histogram histogram = histograms.get(categoryId);
+    if (histogram == null) return Optional.empty();
+    return histogram.percentile(successRate);
+  }
+
+  public record Percentile(double betterThan, long peers) {
+  }
+
+  /** A score counted (successRate), moved or taken out (successRate null) */
+  private record ScoreChange(Long categoryId, Double previousRate, Double successRate, Instant completedAt) {
+  }
+
+  // ----------------- Persistence -----------------
+
+  /** Add the changes made here since the last flush to the stored counts */
+  @Scheduled(fixedDelayString = "${bellringer.score-distributions.flush-interval:60s}")
+  public void flush() {
+    synchronized (persistLock) {
+      Map<Long, Histogram> changes;
+      synchronized (viewLock) {
+        if (pending.isEmpty()) return;
+        changes = new HashMap<>(pending);
+        pending.clear();
+      }
+      Timestamp now = Timestamp.from(Instant.now());
+      List<Object[]> rows = new ArrayList<>(changes.size());
+      List<Object[]> counts = new ArrayList<>(changes.size());
+      changes.forEach((id, histogram) -> {
+        rows.add(new Object[] { id, now, id });
+        counts.add(new Object[] { histogram.toArrayLiteral(), now, id });
+      });
+      try {
+        tx.executeWithoutResult(status -> {
+          jdbc.batchUpdate(INSERT_EMPTY, rows);
+          jdbc.batchUpdate(ADD_COUNTS, counts);
+        });
+      } catch (RuntimeException e) {
+        // Keep them for the next flush
+        synchronized (viewLock) {
+          changes.forEach((id, histogram) -> pending.merge(id, histogram, Histogram::merge));
+        }
+        throw e;
+      }
+    }
+  }
+
+  /** Pick up the counts flushed by other nodes, keeping the changes not flushed here yet */
+  @Scheduled(fixedDelayString = "${bellringer.score-distributions.reload-interval:60s}",
+      initialDelayString = "${bellringer.score-distributions.reload-interval:60s}")
+  public void reload() {
+    synchronized (persistLock) {
+      Map<Long, Histogram> stored = new HashMap<>();
+      jdbc.query("SELECT category_id, counts FROM score_sketches", rs -> {
+        stored.put(rs.getLong(1), Histogram.of(longs(rs.getArray(2))));
+      });
+      synchronized (viewLock) {
+        stored.forEach((id, histogram) -> {
+          Histogram unflushed = pending.get(id);
+          histograms.put(id, unflushed != null ? histogram.merge(unflushed) : histogram);
+        });
+      }
+    }
+  }
+
+  @PreDestroy
+  public void flushOnShutdown() {
+    try {
+      flush();
+    } catch (RuntimeException e) {
+      log.warn("Could not write score distributions on shutdown: {}", e.getMessage());
+    }
+  }
+
+  // ----------------- Rebuild -----------------
+
+  /**
+   * Recompute every distribution from the bins of archived months and the
+   * completed attempts, in parallel over the attempts partitions. Queries use
+   * the current histograms until it is done; attempts completed meanwhile are
+   * replayed onto the result. Changes other nodes have not flushed yet are
+   * added on top when they flush, so those may count twice.
+   */
+  public RebuildReport rebuild(int parallelism) {
+    if (parallelism <= 0 || parallelism > MAX_PARALLELISM)
+      throw new IllegalArgumentException("parallelism must be between 1 and " + MAX_PARALLELISM);
+    if (!rebuilding.compareAndSet(false, true))
+      throw new IllegalStateException("Score distributions are already being rebuilt");
+
+    long start = System.nanoTime();
+    ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+    try {
+      List<String> partitions = jdbc.queryForList("""
+          SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+           WHERE i.inhparent = 'attempts'::regclass
+          """, String.class);
+
+      // Changes from here on are recorded; those of attempts completed before
+      // the cutoff are in the scans already and are not replayed
+      synchronized (viewLock) {
+        sinceRebuild = new ArrayList<>();
+      }
+      Timestamp cutoff = jdbc.queryForObject("SELECT now()", Timestamp.class);
+
+      List<Future<Map<Long, Histogram>>> futures = new ArrayList<>();
+      for (String partition : partitions) {
+        futures.add(pool.submit(() -> scanPartition(partition, cutoff)));
+      }
+      Map<Long, Histogram> rebuilt = archivedBins();
+      for (Future<Map<Long, Histogram>> future : futures) {
+        future.get().forEach((id, h) -> rebuilt.merge(id, h, Histogram::merge));
+      }
+      long attempts = rebuilt.values().stream().mapToLong(Histogram::total).sum();
+      int categories = rebuilt.size();
+
+      synchronized (persistLock) {
+        synchronized (viewLock) {
+          for (ScoreChange change : sinceRebuild) {
+            if (change.completedAt().isBefore(cutoff.toInstant())) continue;
+            Histogram histogram = rebuilt.computeIfAbsent(change.categoryId(), id -> new Histogram());
+            if (change.previousRate() != null) histogram.remove(change.previousRate());
+            if (change.successRate() != null) histogram.add(change.successRate());
+          }
+          sinceRebuild = null;
+
+          Timestamp now = Timestamp.from(Instant.now());
+          List<Object[]> rows = new ArrayList<>(rebuilt.size());
+          rebuilt.forEach((id, histogram) -> rows.add(new Object[] { id, histogram.toArrayLiteral(), now, id }));
+          tx.executeWithoutResult(status -> jdbc.batchUpdate(REPLACE, rows));
+          // Unflushed changes of the rebuilt categories are part of the result;
+          // categories missing from the history keep their distribution
+          pending.keySet().removeAll(rebuilt.keySet());
+          histograms.putAll(rebuilt);
+        }
+      }
+
+      long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+      log.info("Rebuilt score distributions of {} categories from {} attempts in {} ms",
+          categories, attempts, elapsedMs);
+      return new RebuildReport(categories, attempts, partitions.size(), elapsedMs);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Score distribution rebuild interrupted", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Score distribution rebuild failed: " + e.getCause().getMessage(), e.getCause());
+    } finally {
+      synchronized (viewLock) {
+        sinceRebuild = null;
+      }
+      pool.shutdownNow();
+      rebuilding.set(false);
+    }
+  }
+
+  private Map<Long, Histogram> archivedBins() {
+    Map<Long, Histogram> bins = new HashMap<>();
+    jdbc.query("SELECT category_id, bin, attempts FROM archived_score_bins", rs -> {
+      bins.computeIfAbsent(rs.getLong(1), id -> new Histogram()).addToBin(rs.getInt(2), rs.getLong(3));
+    });
+    return bins;
+  }
+
+  private Map<Long, Histogram> scanPartition(String partition, Timestamp cutoff) {
+    Map<Long, Histogram> local = new HashMap<>();
+    jdbc.query(String.format(PARTITION_BINS, partition, BINS), rs -> {
+      local.computeIfAbsent(rs.getLong(1), id -> new Histogram()).addToBin(rs.getInt(2), rs.getLong(3));
+    }, cutoff);
+    return local;
+  }
+
+  public record RebuildReport(int categories, long attempts, int partitions, long elapsedMs) {
+  }
+
+  // ----------------- Histogram -----------------
+
+  private static long[] longs(Array array) throws SQLException {
+    try {
+      Long[] boxed = (Long[]) array.getArray();
+      long[] out = new long[boxed.length];
+      for (int i = 0; i < boxed.length; i++) out[i] = boxed[i];
+      return out;
+    } finally {
+      array.free();
+    }
+  }
+
+  /** Counts of scores in BINS equal bins over [0, 1]; lock-free updates */
+  static final class Histogram {
+    private final AtomicLongArray counts = new AtomicLongArray(BINS);
+
+    static Histogram of(long[] counts) {
+      Histogram histogram = new Histogram();
+      for (int i = 0; i < Math.min(counts.length, BINS); i++) histogram.counts.set(i, counts[i]);
+      return histogram;
+    }
+
+    static int bin(double score) {
+      if (Double.isNaN(score) || score <= 0) return 0;
+      return Math.min((int) (score * BINS), BINS - 1);
+    }
+
+    void add(double score) {
+      counts.incrementAndGet(bin(score));
+    }
+
+    /** Takes one score out; never below zero. False when its bin was empty */
+    boolean remove(double score) {
+      return counts.getAndUpdate(bin(score), c -> c > 0 ? c - 1 : 0) > 0;
+    }
+
+    void addToBin(int bin, long count) {
+      counts.addAndGet(Math.max(0, Math.min(bin, BINS - 1)), count);
+    }
+
+    /** Adds other's counts to this histogram */
+    Histogram merge(Histogram other) {
+      for (int i = 0; i < BINS; i++) {
+        long c = other.counts.get(i);
+        if (c != 0) counts.addAndGet(i, c);
+      }
+      return this;
+    }
+
+    long total() {
+      long total = 0;
+      for (int i = 0; i < BINS; i++) total += counts.get(i);
+      return total;
+    }
+
+    Optional<Percentile> percentile(double score) {
+      int bin = bin(score);
+      long below = 0;
+      long total = 0;
+      for (int i = 0; i < BINS; i++) {
+        long c = Math.max(0, counts.get(i));
+        if (i < bin) below += c;
+        total += c;
+      }
+      if (total == 0) return Optional.empty();
+      return Optional.of(new Percentile((double) below / total, total));
+    }
+
+    String toArrayLiteral() {
+      StringJoiner joiner = new StringJoiner(",", "{", "}");
+      for (int i = 0; i < BINS; i++) joiner.add(Long.toString(counts.get(i)));
+      return joiner.toString();
+    }
+  }
+}
@@ -0,0 +1,49 @@
+package com.bell_ringer.services;
+
+import com.bell_ringer.models.Category;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+/**
+ * Seed imports write the catalog over plain JDBC, behind Hibernate's back, so
+ * the second-level cache of categories, questions, choices and open answers
+ * is dropped once the import has committed. Edits made through JPA keep the
+ * local cache up to date by themselves; other nodes hear about them through
+ * {@link CacheInvalidationBus}.
+ */
+@Component
+public class SecondLevelCacheEviction {
+
+  private static final Logger log = LoggerFactory.getLogger(SecondLevelCacheEviction.class);
+
+  private final SessionFactory sessionFactory;
+
+  public SecondLevelCacheEviction(EntityManagerFactory entityManagerFactory) {
+    this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+  }
+
+  @EventListener
+  public void onQuestionBankChanged(QuestionBankChangedEvent event) {
+    sessionFactory.getCache().evictAllRegions();
+    log.info("Evicted second-level cache after a question bank change");
+  }
+
+  /** Drop cached categories (all of them when ids is empty) and every cached children set */
+  public void evictCategories(Collection<Long> ids) {
+    Cache cache = sessionFactory.getCache();
+    if (ids.isEmpty()) {
+      cache.evictEntityData(Category.class);
+    } else {
+      ids.forEach(id -> cache.evictEntityData(Category.class, id));
+    }
+    // A move changes the children of both the old and the new parent
+    cache.evictCollectionData(Category.class.getName() + ".children");
+  }
+}
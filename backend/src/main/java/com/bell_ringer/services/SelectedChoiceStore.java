@@ -0,0 +1,211 @@
+package com.bell_ringer.services;
+
+import com.bell_ringer.models.AttemptSelectedChoice;
+import com.bell_ringer.models.Quiz;
+import com.bell_ringer.models.id.AttemptSelectedChoiceId;
+import com.bell_ringer.repositories.AttemptSelectedChoiceRepository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Array;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Reads the selected choices of an attempt whichever way they are stored
+ * (see V9__packed_choice_sets.sql):
+ * <ul>
+ * <li>ROWS: one attempt_selected_choices row per selected choice. Open
+ * attempts always use it, since answers are changed one choice at a time.</li>
+ * <li>PACKED: one attempt_choice_sets row per attempt with parallel
+ * question_ids / choice_ids arrays. With
+ * bellringer.answers.choice-storage=PACKED an attempt's rows are packed when it
+ * is completed; {@link #packCompleted} converts existing attempts.</li>
+ * </ul>
+ * Packed selections come back as detached AttemptSelectedChoice objects that
+ * all carry the time of the attempt's last selection.
+ */
+@Component
+@Transactional(readOnly = true)
+public class SelectedChoiceStore {
+
+  public enum Storage {
+    ROWS,
+    PACKED
+  }
+
+  private static final int MAX_BATCH_SIZE = 10_000;
+
+  // Moves the rows of the batch's attempts into their packed set, in one statement
+  private static final String PACK = """
+      WITH batch AS (%s
+      ), moved AS (
+        DELETE FROM attempt_selected_choices s
+         USING batch b
+         WHERE s.attempt_id = b.attempt_id
+        RETURNING s.attempt_id, s.question_id, s.choice_id, s.quiz_id, s.selected_at
+      ), packed AS (
+        INSERT INTO attempt_choice_sets AS p (attempt_id, quiz_id, question_ids, choice_ids, selected_at)
+        SELECT attempt_id, MIN(quiz_id),
+               array_agg(question_id ORDER BY question_id, choice_id),
+               array_agg(choice_id ORDER BY question_id, choice_id),
+               MAX(selected_at)
+          FROM moved
+         GROUP BY attempt_id
+        ON CONFLICT (attempt_id) DO UPDATE SET
+          question_ids = p.question_ids || EXCLUDED.question_ids,
+          choice_ids = p.choice_ids || EXCLUDED.choice_ids,
+          selected_at = GREATEST(p.selected_at, EXCLUDED.selected_at)
+        RETURNING p.attempt_id
+      )
+      SELECT COUNT(*) FROM packed
+      """;
+
+  private static final String PACK_ONE = String.format(PACK, "SELECT CAST(? AS bigint) AS attempt_id");
+
+  private static final String PACK_COMPLETED = String.format(PACK, """
+      SELECT DISTINCT s.attempt_id
+          FROM attempt_selected_choices s
+          JOIN attempts a ON a.id = s.attempt_id
+         WHERE a.completed_at IS NOT NULL
+         LIMIT ?""");
+
+  private final AttemptSelectedChoiceRepository rows;
+  private final JdbcTemplate jdbc;
+  private final Storage storage;
+
+  @PersistenceContext
+  private EntityManager em;
+
+  public SelectedChoiceStore(AttemptSelectedChoiceRepository rows,
+      JdbcTemplate jdbc,
+      @Value("${bellringer.answers.choice-storage:ROWS}") Storage storage) {
+    this.rows = rows;
+    this.jdbc = jdbc;
+    this.storage = storage;
+  }
+
+  // ----------------- Reads -----------------
+
+  /** All selected choices of an attempt, ordered by question and choice */
+  public List<AttemptSelectedChoice> findByAttemptId(Long attemptId) {
+    Objects.requireNonNull(attemptId, "attemptId must not be null");
+    List<AttemptSelectedChoice> packed = unpack(attemptId);
+    if (packed.isEmpty()) return rows.findByAttemptId(attemptId);
+
+    List<AttemptSelectedChoice> all = new ArrayList<>(rows.findByAttemptId(attemptId));
+    all.addAll(packed);
+    all.sort(Comparator.comparing(AttemptSelectedChoice::getQuestionId)
+        .thenComparing(AttemptSelectedChoice::getChoiceId));
+    return all;
+  }
+
+  public List<AttemptSelectedChoice> findByAttemptIdAndQuestionId(Long attemptId, Long questionId) {
+    Objects.requireNonNull(questionId, "questionId must not be null");
+    return findByAttemptId(attemptId).stream()
+        .filter(selected -> questionId.equals(selected.getQuestionId()))
+        .toList();
+  }
+
+  /** One selected choice, whether stored as a row or in the packed set */
+  public Optional<AttemptSelectedChoice> findById(AttemptSelectedChoiceId id) {
+    Objects.requireNonNull(id, "id must not be null");
+    return findByAttemptIdAndQuestionId(id.getAttemptId(), id.getQuestionId()).stream()
+        .filter(selected -> id.getChoiceId().equals(selected.getChoiceId()))
+        .findFirst();
+  }
+
+  public long countByAttemptId(Long attemptId) {
+    Objects.requireNonNull(attemptId, "attemptId must not be null");
+    Long packed = jdbc.queryForObject(
+        "SELECT COALESCE(SUM(cardinality(choice_ids)), 0) FROM attempt_choice_sets WHERE attempt_id = ?",
+        Long.class, attemptId);
+    return rows.countByAttemptId(attemptId) + (packed == null ? 0 : packed);
+  }
+
+  private List<AttemptSelectedChoice> unpack(Long attemptId) {
+    List<AttemptSelectedChoice> selected = new ArrayList<>();
+    jdbc.query("""
+        SELECT quiz_id, question_ids, choice_ids, selected_at
+          FROM attempt_choice_sets
+         WHERE attempt_id = ?
+        """, rs -> {
+      Quiz quiz = em.getReference(Quiz.class, rs.getLong("quiz_id"));
+      Long[] questionIds = longs(rs.getArray("question_ids"));
+      Long[] choiceIds = longs(rs.getArray("choice_ids"));
+      OffsetDateTime selectedAt = rs.getObject("selected_at", OffsetDateTime.class);
+      for (int i = 0; i < choiceIds.length; i++) {
+        AttemptSelectedChoice choice = new AttemptSelectedChoice(attemptId, questionIds[i], choiceIds[i]);
+        choice.setQuiz(quiz);
+        choice.setSelectedAt(selectedAt);
+        selected.add(choice);
+      }
+    }, attemptId);
+    return selected;
+  }
+
+  private static Long[] longs(Array array) throws SQLException {
+    try {
+      return (Long[]) array.getArray();
+    } finally {
+      array.free();
+    }
+  }
+
+  // ----------------- Writes -----------------
+
+  /** Delete every selected choice of an attempt, rows and packed set */
+  @Transactional
+  public void deleteByAttemptId(Long attemptId) {
+    Objects.requireNonNull(attemptId, "attemptId must not be null");
+    rows.deleteByAttemptId(attemptId);
+    jdbc.update("DELETE FROM attempt_choice_sets WHERE attempt_id = ?", attemptId);
+  }
+
+  // ----------------- Packing -----------------
+
+  /** True when completed attempts are packed (bellringer.answers.choice-storage=PACKED) */
+  public boolean packsOnCompletion() {
+    return storage == Storage.PACKED;
+  }
+
+  /**
+   * Move the selection rows of an attempt into its packed set. Answers must
+   * no longer change, i.e. the attempt is completed. Returns false when the
+   * attempt had no rows.
+   */
+  @Transactional
+  public boolean pack(Long attemptId) {
+    Objects.requireNonNull(attemptId, "attemptId must not be null");
+    em.flush(); // pending selection rows must be in the table the statement reads
+    Integer packed = jdbc.queryForObject(PACK_ONE, Integer.class, attemptId);
+    return packed != null && packed > 0;
+  }
+
+  /**
+   * Migration of existing data: pack the selection rows of up to batchSize
+   * completed attempts, in one statement. Call again until no attempt is
+   * packed.
+   */
+  @Transactional
+  public PackReport packCompleted(int batchSize) {
+    if (batchSize <= 0 || batchSize > MAX_BATCH_SIZE)
+      throw new IllegalArgumentException("batchSize must be between 1 and " + MAX_BATCH_SIZE);
+    Integer packed = jdbc.queryForObject(PACK_COMPLETED, Integer.class, batchSize);
+    return new PackReport(packed == null ? 0 : packed);
+  }
+
+  public record PackReport(int packedAttempts) {
+  }
+}
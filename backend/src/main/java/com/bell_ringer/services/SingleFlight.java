@@ -0,0 +1,49 @@
+package com.bell_ringer.services;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls for the same key: the first caller computes the
+ * value, callers arriving while it runs wait for and share its result (or
+ * exception). Nothing is cached once the computation finishes.
+ */
+public final class SingleFlight<K, V> {
+
+  private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+  /** Result of a call, and whether it was shared with an in-flight computation */
+  public record Result<V>(V value, boolean shared) {
+  }
+
+  public Result<V> execute(K key, Supplier<V> computation) throws Throwable {
+    CompletableFuture<V> mine = new CompletableFuture<>();
+    CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+    if (running != null) {
+      try {
+        return new Result<>(running.join(), true);
+      } catch (CompletionException e) {
+        throw e.getCause() != null ? e.getCause() : e;
+      }
+    }
+
+    try {
+      V value = computation.get();
+      mine.complete(value);
+      return new Result<>(value, false);
+    } catch (Throwable t) {
+      mine.completeExceptionally(t);
+      throw t;
+    } finally {
+      inFlight.remove(key, mine);
+    }
+  }
+
+  /** Number of computations currently running */
+  public int inFlight() {
+    return inFlight.size();
+  }
+}
@@ -2,9 +2,11 @@ package com.bell_ringer.services;
 
 import com.bell_ringer.models.OpenAnswer;
 import com.bell_ringer.models.Question;
+import com.bell_ringer.services.jfr.TextScoringEvent;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.regex.Pattern;
 
 /**
  * Service for automatically scoring text answers based on rubric keywords
@@ -12,24 +14,49 @@ import java.util.List;
 @Service
 public class TextAnswerScoringService {
 
+  private static final Pattern PUNCTUATION = Pattern.compile("[^a-z0-9\\s]");
+  private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
   /**
    * Automatically score a text answer against the question's open answer rubrics
    */
   public ScoringResult scoreTextAnswer(String userAnswer, Question question, List<OpenAnswer> openAnswers) {
+    return score(userAnswer, compile(openAnswers));
+  }
+
+  /**
+   * Score a text answer against rubrics compiled with {@link #compile}
+   */
+  public ScoringResult score(String userAnswer, List<CompiledRubric> rubrics) {
+    TextScoringEvent event = new TextScoringEvent();
+    event.begin();
+    ScoringResult result = scoreCompiled(userAnswer, rubrics);
+    event.rubrics = rubrics == null ? 0 : rubrics.size();
+    event.answerLength = userAnswer == null ? 0 : userAnswer.length();
+    event.score = result.score();
+    event.correct = result.isCorrect();
+    event.commit();
+    return result;
+  }
+
+  private ScoringResult scoreCompiled(String userAnswer, List<CompiledRubric> rubrics) {
     if (userAnswer == null || userAnswer.trim().isEmpty()) {
       return new ScoringResult(0, false, "Empty answer provided");
     }
 
-    if (openAnswers == null || openAnswers.isEmpty()) {
+    if (rubrics == null || rubrics.isEmpty()) {
       return new ScoringResult(60, true, "No rubric available - default pass"); // Default passing score
     }
 
+    // Normalize the user answer once for all rubrics
+    String normalizedAnswer = normalizeText(userAnswer);
+
     // Find the best matching rubric
     ScoringResult bestResult = null;
     int highestScore = 0;
 
-    for (OpenAnswer openAnswer : openAnswers) {
-      ScoringResult result = scoreAgainstRubric(userAnswer, openAnswer);
+    for (CompiledRubric rubric : rubrics) {
+      ScoringResult result = scoreAgainstRubric(normalizedAnswer, rubric);
       if (result.score() > highestScore) {
         highestScore = result.score();
         bestResult = result;
@@ -40,34 +67,47 @@ public class TextAnswerScoringService {
   }
 
   /**
-   * Score a text answer against a specific rubric
+   * Normalize rubric keywords and build their matchers once, so scoring an
+   * answer does no per-keyword regex compilation
    */
-  private ScoringResult scoreAgainstRubric(String userAnswer, OpenAnswer openAnswer) {
-    List<String> mustKeywords = openAnswer.getMustKeywords();
-    List<String> shouldKeywords = openAnswer.getShouldKeywords();
-    int minScore = openAnswer.getMinScore() != null ? openAnswer.getMinScore() : 70;
+  public List<CompiledRubric> compile(List<OpenAnswer> openAnswers) {
+    if (openAnswers == null) {
+      return List.of();
+    }
+    return openAnswers.stream()
+        .map(openAnswer -> new CompiledRubric(
+            openAnswer.getMustKeywords().stream().map(TextAnswerScoringService::compileKeyword).toList(),
+            openAnswer.getShouldKeywords().stream().map(TextAnswerScoringService::compileKeyword).toList(),
+            openAnswer.getMinScore() != null ? openAnswer.getMinScore() : 70))
+        .toList();
+  }
 
-    // Normalize the user answer for matching
-    String normalizedAnswer = normalizeText(userAnswer);
+  /**
+   * Score a normalized text answer against a specific rubric
+   */
+  private ScoringResult scoreAgainstRubric(String normalizedAnswer, CompiledRubric rubric) {
+    List<Keyword> mustKeywords = rubric.must();
+    List<Keyword> shouldKeywords = rubric.should();
+    int minScore = rubric.minScore();
 
     // Check MUST keywords (required for passing)
     int mustMatches = 0;
     StringBuilder feedback = new StringBuilder();
 
-    for (String keyword : mustKeywords) {
-      if (containsKeyword(normalizedAnswer, keyword)) {
+    for (Keyword keyword : mustKeywords) {
+      if (keyword.matches(normalizedAnswer)) {
         mustMatches++;
       } else {
         if (feedback.length() > 0)
           feedback.append("; ");
-        feedback.append("Missing required concept: ").append(keyword);
+        feedback.append("Missing required concept: ").append(keyword.text());
       }
     }
 
     // Check SHOULD keywords (bonus points)
     int shouldMatches = 0;
-    for (String keyword : shouldKeywords) {
-      if (containsKeyword(normalizedAnswer, keyword)) {
+    for (Keyword keyword : shouldKeywords) {
+      if (keyword.matches(normalizedAnswer)) {
         shouldMatches++;
       }
     }
@@ -150,32 +190,41 @@ public class TextAnswerScoringService {
   /**
    * Normalize text for keyword matching
    */
-  private String normalizeText(String text) {
-    return text.toLowerCase()
-        .replaceAll("[^a-z0-9\\s]", " ") // Remove punctuation
-        .replaceAll("\\s+", " ") // Normalize whitespace
-        .trim();
+  private static String normalizeText(String text) {
+    String lower = text.toLowerCase();
+    String noPunctuation = PUNCTUATION.matcher(lower).replaceAll(" "); // Remove punctuation
+    return WHITESPACE.matcher(noPunctuation).replaceAll(" ").trim(); // Normalize whitespace
   }
 
-  /**
-   * Check if the text contains a keyword (flexible matching)
-   */
-  private boolean containsKeyword(String text, String keyword) {
+  private static Keyword compileKeyword(String keyword) {
     String normalizedKeyword = normalizeText(keyword);
+    String[] keywordParts = WHITESPACE.split(normalizedKeyword);
+    // Normalized keywords only contain [a-z0-9 ], so they are safe inside a pattern
+    Pattern wholeWord = keywordParts.length == 1 ? Pattern.compile("\\b" + keywordParts[0] + "\\b") : null;
+    return new Keyword(keyword, normalizedKeyword, keywordParts, wholeWord);
+  }
 
-    // Direct substring match
-    if (text.contains(normalizedKeyword)) {
-      return true;
-    }
+  /**
+   * A rubric keyword, normalized once
+   */
+  record Keyword(String text, String normalized, String[] parts, Pattern wholeWord) {
+
+    /**
+     * Check if the normalized text contains the keyword (flexible matching)
+     */
+    boolean matches(String text) {
+      // Direct substring match
+      if (text.contains(normalized)) {
+        return true;
+      }
 
-    // Word boundary match for exact terms
-    String[] keywordParts = normalizedKeyword.split("\\s+");
-    if (keywordParts.length == 1) {
-      // Single word - check as whole word
-      return text.matches(".*\\b" + keywordParts[0] + "\\b.*");
-    } else {
+      // Word boundary match for exact terms
+      if (wholeWord != null) {
+        // Single word - check as whole word
+        return wholeWord.matcher(text).find();
+      }
       // Multi-word phrase - check if all words are present
-      for (String part : keywordParts) {
+      for (String part : parts) {
         if (!text.contains(part)) {
           return false;
         }
@@ -184,6 +233,15 @@ public class TextAnswerScoringService {
     }
   }
 
+  /**
+   * Open answer rubric with its keywords prepared for matching
+   */
+  public record CompiledRubric(
+      List<Keyword> must,
+      List<Keyword> should,
+      int minScore) {
+  }
+
   /**
    * Result of text answer scoring
    */
@@ -6,6 +6,7 @@ import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 
 import java.util.List;
+import java.util.UUID;
 
 /**
  * DTOs for Attempt operations
@@ -16,9 +17,12 @@ public class AttemptRequest {
    * Request DTO for retrying a quiz (creating a new attempt for an existing
    * quiz).
    * Note: Initial attempts are created automatically via question generation.
+   * userId is required for shared quizzes and defaults to the quiz owner
+   * otherwise.
    */
   public record Create(
-      @NotNull(message = "Quiz ID is required") Long quizId) {
+      @NotNull(message = "Quiz ID is required") Long quizId,
+      UUID userId) {
   }
 
   /**
@@ -45,6 +49,16 @@ public class AttemptRequest {
     }
   }
 
+  /**
+   * Request DTO for autosaving the current answer to one question: either the
+   * full set of selected choices (may be empty) or the answer text
+   */
+  public record Autosave(
+      @NotNull(message = "Question ID is required") Long questionId,
+      List<@NotNull Long> choiceIds,
+      @Size(min = 1, max = 5000, message = "Answer text must be between 1 and 5000 characters") String answerText) {
+  }
+
   /**
    * Request DTO for scoring a text answer (admin/teacher use)
    */
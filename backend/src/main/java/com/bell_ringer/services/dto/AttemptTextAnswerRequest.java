@@ -49,4 +49,12 @@ public class AttemptTextAnswerRequest {
       Boolean isCorrect,
       @Size(max = 2000, message = "Feedback must not exceed 2000 characters") String feedback) {
   }
+
+  /**
+   * What to do when the question already has an answer in the attempt
+   */
+  public enum DuplicatePolicy {
+    REJECT,
+    OVERWRITE
+  }
 }
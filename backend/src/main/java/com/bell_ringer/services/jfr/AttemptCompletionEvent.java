@@ -0,0 +1,28 @@
+package com.bell_ringer.services.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One AttemptService.completeAttempt call, up to (not including) the commit.
+ */
+@Name("com.bell_ringer.AttemptCompletion")
+@Label("Attempt Completion")
+@Category({ "Bell Ringer", "Scoring" })
+@StackTrace(false)
+public class AttemptCompletionEvent extends jdk.jfr.Event {
+
+  @Label("Attempt")
+  public long attemptId;
+
+  @Label("Correct")
+  public int correct;
+
+  @Label("Answered")
+  public int total;
+
+  @Label("Packed")
+  public boolean packed;
+}
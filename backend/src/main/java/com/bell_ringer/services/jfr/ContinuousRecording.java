@@ -0,0 +1,132 @@
+package com.bell_ringer.services.jfr;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Rolling Java Flight Recorder recording, running while
+ * bellringer.jfr.enabled is set (the prod profile sets it). It keeps the last
+ * max-age of JVM events plus the application events of this package, bounded
+ * by max-size on disk; {@link #dump} writes the last minutes of it to a file
+ * that can be opened in JDK Mission Control.
+ */
+@Component
+public class ContinuousRecording {
+
+  private static final Logger log = LoggerFactory.getLogger(ContinuousRecording.class);
+
+  private static final String DUMP_PREFIX = "bellringer-";
+
+  private final boolean enabled;
+  private final String settings;
+  private final Duration maxAge;
+  private final DataSize maxSize;
+  private final Path dumpDir;
+
+  private volatile Recording recording;
+
+  public ContinuousRecording(
+      @Value("${bellringer.jfr.enabled:false}") boolean enabled,
+      @Value("${bellringer.jfr.settings:default}") String settings,
+      @Value("${bellringer.jfr.max-age:30m}") Duration maxAge,
+      @Value("${bellringer.jfr.max-size:200MB}") DataSize maxSize,
+      @Value("${bellringer.jfr.dump-dir:${java.io.tmpdir}/bellringer-jfr}") Path dumpDir) {
+    if (maxAge.isNegative() || maxAge.isZero())
+      throw new IllegalArgumentException("bellringer.jfr.max-age must be > 0");
+    this.enabled = enabled;
+    this.settings = settings;
+    this.maxAge = maxAge;
+    this.maxSize = maxSize;
+    this.dumpDir = dumpDir;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void start() {
+    if (!enabled) return;
+    if (!FlightRecorder.isAvailable()) {
+      log.warn("Flight recorder is not available in this JVM; no continuous recording");
+      return;
+    }
+    try {
+      Recording r = new Recording(Configuration.getConfiguration(settings));
+      r.setName("bellringer-continuous");
+      r.setToDisk(true);
+      r.setMaxAge(maxAge);
+      r.setMaxSize(maxSize.toBytes());
+      r.start();
+      recording = r;
+      log.info("Continuous flight recording started (settings={}, max-age={}, max-size={})", settings, maxAge,
+          maxSize);
+    } catch (IOException | ParseException e) {
+      log.error("Could not start the continuous flight recording: {}", e.getMessage());
+    }
+  }
+
+  @PreDestroy
+  public void stop() {
+    Recording r = recording;
+    recording = null;
+    if (r != null) r.close();
+  }
+
+  public boolean isRunning() {
+    return recording != null;
+  }
+
+  public Duration maxAge() {
+    return maxAge;
+  }
+
+  /**
+   * Write the events of the last {@code last} (at most max-age) to a new file
+   * in the dump directory and return it. Earlier dumps are deleted, so at
+   * most one is kept on disk.
+   */
+  public Path dump(Duration last) {
+    if (last == null || last.isNegative() || last.isZero())
+      throw new IllegalArgumentException("duration must be > 0");
+    if (!isRunning())
+      throw new IllegalStateException("No continuous flight recording is running (bellringer.jfr.enabled)");
+    Duration window = last.compareTo(maxAge) > 0 ? maxAge : last;
+
+    try {
+      Files.createDirectories(dumpDir);
+      deletePreviousDumps();
+      Path file = dumpDir.resolve(DUMP_PREFIX + Instant.now().toEpochMilli() + ".jfr");
+      try (Recording snapshot = FlightRecorder.getFlightRecorder().takeSnapshot()) {
+        snapshot.setMaxAge(window);
+        snapshot.dump(file);
+      }
+      log.info("Dumped the last {} of the flight recording to {}", window, file);
+      return file;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not dump the flight recording", e);
+    }
+  }
+
+  private void deletePreviousDumps() throws IOException {
+    try (DirectoryStream<Path> dumps = Files.newDirectoryStream(dumpDir, DUMP_PREFIX + "*.jfr")) {
+      for (Path dump : dumps) {
+        Files.deleteIfExists(dump);
+      }
+    }
+  }
+}
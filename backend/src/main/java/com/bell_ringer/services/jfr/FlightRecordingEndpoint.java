@@ -0,0 +1,39 @@
+package com.bell_ringer.services.jfr;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * {@code GET /actuator/flightrecording?minutes=N}: the last N minutes
+ * (default 5, at most bellringer.jfr.max-age) of the continuous recording as
+ * a .jfr file. Restricted to admins in SecurityConfig.
+ */
+@Component
+@Endpoint(id = "flightrecording")
+public class FlightRecordingEndpoint {
+
+  private static final int DEFAULT_MINUTES = 5;
+
+  private final ContinuousRecording recording;
+
+  public FlightRecordingEndpoint(ContinuousRecording recording) {
+    this.recording = recording;
+  }
+
+  @ReadOperation(produces = "application/octet-stream")
+  public WebEndpointResponse<Resource> dump(@Nullable Integer minutes) {
+    if (!recording.isRunning())
+      return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+    int last = minutes == null ? DEFAULT_MINUTES : minutes;
+    if (last <= 0)
+      return new WebEndpointResponse<>(WebEndpointResponse.STATUS_BAD_REQUEST);
+    return new WebEndpointResponse<>(new FileSystemResource(recording.dump(Duration.ofMinutes(last))));
+  }
+}
@@ -0,0 +1,45 @@
+package com.bell_ringer.services.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * One QuestionService.generate call, with the time spent in each step.
+ */
+@Name("com.bell_ringer.QuizGeneration")
+@Label("Quiz Generation")
+@Category({ "Bell Ringer", "Generation" })
+@StackTrace(false)
+public class QuizGenerationEvent extends jdk.jfr.Event {
+
+  @Label("Category")
+  public long categoryId;
+
+  @Label("Questions")
+  public int total;
+
+  @Label("Rating Selection")
+  @Description("Questions were drawn by rating instead of by difficulty quota")
+  public boolean byRating;
+
+  @Label("Draw")
+  @Timespan
+  public long drawNanos;
+
+  @Label("Attach")
+  @Description("Quiz creation, question attachment and recently-seen bookkeeping")
+  @Timespan
+  public long attachNanos;
+
+  @Label("Start Attempt")
+  @Timespan
+  public long attemptNanos;
+
+  @Label("Convert")
+  @Timespan
+  public long convertNanos;
+}
@@ -0,0 +1,31 @@
+package com.bell_ringer.services.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One difficulty bucket of QuestionService.drawWithQuota: the random pick of
+ * candidates and the unique questions kept from it.
+ */
+@Name("com.bell_ringer.QuotaBucket")
+@Label("Quota Bucket Draw")
+@Category({ "Bell Ringer", "Generation" })
+@StackTrace(false)
+public class QuotaBucketEvent extends jdk.jfr.Event {
+
+  @Label("Difficulty")
+  @Description("EASY, MEDIUM, HARD, or ANY for the top-up")
+  public String difficulty;
+
+  @Label("Wanted")
+  public int wanted;
+
+  @Label("Candidates")
+  public int candidates;
+
+  @Label("Added")
+  public int added;
+}
@@ -0,0 +1,28 @@
+package com.bell_ringer.services.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Scoring of one text answer against its compiled rubrics.
+ */
+@Name("com.bell_ringer.TextScoring")
+@Label("Text Answer Scoring")
+@Category({ "Bell Ringer", "Scoring" })
+@StackTrace(false)
+public class TextScoringEvent extends jdk.jfr.Event {
+
+  @Label("Rubrics")
+  public int rubrics;
+
+  @Label("Answer Length")
+  public int answerLength;
+
+  @Label("Score")
+  public int score;
+
+  @Label("Correct")
+  public boolean correct;
+}
@@ -0,0 +1,20 @@
+package com.bell_ringer.services.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Verification of a Firebase ID token (including the revocation check) by
+ * FirebaseAuthenticationFilter.
+ */
+@Name("com.bell_ringer.TokenVerification")
+@Label("Firebase Token Verification")
+@Category({ "Bell Ringer", "Security" })
+@StackTrace(false)
+public class TokenVerificationEvent extends jdk.jfr.Event {
+
+  @Label("Valid")
+  public boolean valid;
+}
@@ -0,0 +1,209 @@
+package com.bell_ringer.services.seed;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Streams a seed JSON document into CSV rows for the seed staging table.
+ * Only one question is held in memory at a time, so the size of the seed
+ * file does not matter.
+ *
+ * Each row is: kind, ord, category_slug, category_name, question, type,
+ * difficulty, choice_text, is_correct, answer, rubric_keywords, min_score,
+ * content_hash. Kinds are C (category), Q (question), A (choice) and O (open
+ * answer); ord numbers the questions so rows of one question share it.
+ *
+ * The content hash of a question is a SHA-256 over its type, difficulty,
+ * text, choices (sorted, so their order does not matter) and short-answer
+ * rubric. Delta imports compare it with questions.content_hash.
+ */
+class SeedCsvStager {
+
+  static final String COLUMNS =
+      "kind, ord, category_slug, category_name, question, type, difficulty, "
+          + "choice_text, is_correct, answer, rubric_keywords, min_score, content_hash";
+
+  private final ObjectMapper mapper;
+  private final Writer out;
+
+  private String version;
+  private long rows;
+  private long ord;
+
+  SeedCsvStager(ObjectMapper mapper, Writer out) {
+    this.mapper = mapper;
+    this.out = out;
+  }
+
+  /** Version of the seed document, or null when it has none */
+  String version() {
+    return version;
+  }
+
+  /** Number of CSV rows written */
+  long rows() {
+    return rows;
+  }
+
+  void stage(InputStream json) throws IOException {
+    try (JsonParser p = mapper.getFactory().createParser(json)) {
+      expect(p.nextToken(), JsonToken.START_OBJECT, "seed document");
+      while (p.nextToken() == JsonToken.FIELD_NAME) {
+        String field = p.currentName();
+        p.nextToken();
+        switch (field) {
+          case "version" -> version = p.getValueAsString();
+          case "categories" -> stageCategories(p);
+          default -> p.skipChildren();
+        }
+      }
+    }
+  }
+
+  // ----------------- Categories -----------------
+
+  private void stageCategories(JsonParser p) throws IOException {
+    expect(p.currentToken(), JsonToken.START_ARRAY, "categories");
+    while (p.nextToken() == JsonToken.START_OBJECT) {
+      String name = null;
+      String slug = null;
+      boolean written = false;
+
+      while (p.nextToken() == JsonToken.FIELD_NAME) {
+        String field = p.currentName();
+        p.nextToken();
+        switch (field) {
+          case "name" -> name = p.getValueAsString();
+          case "slug" -> slug = p.getValueAsString();
+          case "questions" -> {
+            written = writeCategory(slug, name, written);
+            stageQuestions(p, slug);
+          }
+          default -> p.skipChildren();
+        }
+      }
+      writeCategory(slug, name, written);
+    }
+  }
+
+  private boolean writeCategory(String slug, String name, boolean written) throws IOException {
+    if (written) return true;
+    if (slug == null || slug.isBlank())
+      throw new IllegalArgumentException("Seed category without slug (slug must precede questions)");
+    row("C", slug, name == null ? slug : name, null, null, null, null, null, null, null, null, null);
+    return true;
+  }
+
+  // ----------------- Questions -----------------
+
+  private void stageQuestions(JsonParser p, String slug) throws IOException {
+    expect(p.currentToken(), JsonToken.START_ARRAY, "questions of " + slug);
+    while (p.nextToken() == JsonToken.START_OBJECT) {
+      JsonNode q = mapper.readTree(p);
+      String text = text(q, "question");
+      if (text == null || text.isBlank())
+        throw new IllegalArgumentException("Seed question without text in category " + slug);
+      String type = text(q, "type");
+      String difficulty = text(q, "difficulty");
+      ord++;
+
+      JsonNode shortAnswer = q.path("shortAnswer");
+      String answer = text(shortAnswer, "answer");
+      boolean hasOpenAnswer = "SHORT_ANSWER".equals(type) && answer != null && !answer.isBlank();
+      String rubric = null;
+      String minScore = null;
+      if (hasOpenAnswer) {
+        JsonNode rubricNode = shortAnswer.get("rubric_keywords");
+        JsonNode minScoreNode = shortAnswer.get("min_score");
+        rubric = rubricNode == null || rubricNode.isNull() ? null : mapper.writeValueAsString(rubricNode);
+        minScore = minScoreNode == null || minScoreNode.isNull() ? null : String.valueOf(minScoreNode.asInt());
+      }
+
+      List<String> choiceKeys = new ArrayList<>();
+      for (JsonNode choice : q.path("choices")) {
+        choiceKeys.add(choice.path("isCorrect").asBoolean(false) + ":" + text(choice, "text"));
+      }
+      String hash = hash(type, difficulty, text, choiceKeys, hasOpenAnswer ? answer : null, rubric, minScore);
+
+      row("Q", slug, null, text, type, difficulty, null, null, null, null, null, hash);
+
+      for (JsonNode choice : q.path("choices")) {
+        row("A", slug, null, text, null, null,
+            text(choice, "text"), String.valueOf(choice.path("isCorrect").asBoolean(false)),
+            null, null, null, null);
+      }
+
+      if (hasOpenAnswer) {
+        row("O", slug, null, text, null, null, null, null, answer, rubric, minScore, null);
+      }
+    }
+  }
+
+  private static String hash(String type, String difficulty, String text, List<String> choiceKeys,
+                             String answer, String rubric, String minScore) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+    choiceKeys.sort(null);
+    List<String> parts = new ArrayList<>(List.of(
+        String.valueOf(type), String.valueOf(difficulty), text,
+        String.valueOf(answer), String.valueOf(rubric), String.valueOf(minScore)));
+    parts.addAll(choiceKeys);
+    for (String part : parts) {
+      // Length-prefixed so that field boundaries cannot be shifted
+      digest.update((part.length() + ":").getBytes(StandardCharsets.UTF_8));
+      digest.update(part.getBytes(StandardCharsets.UTF_8));
+    }
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  // ----------------- CSV -----------------
+
+  private void row(String kind, String... values) throws IOException {
+    out.write(kind);
+    out.write(',');
+    out.write(Long.toString(ord));
+    for (String value : values) {
+      out.write(',');
+      if (value != null) quote(value);
+    }
+    out.write('\n');
+    rows++;
+  }
+
+  /** Quoted values are never NULL in CSV COPY; an unquoted empty field is */
+  private void quote(String value) throws IOException {
+    out.write('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"') out.write('"');
+      out.write(c);
+    }
+    out.write('"');
+  }
+
+  private static String text(JsonNode node, String field) {
+    JsonNode value = node.get(field);
+    return value == null || value.isNull() ? null : value.asText();
+  }
+
+  private static void expect(JsonToken actual, JsonToken expected, String what) {
+    if (actual != expected)
+      throw new IllegalArgumentException("Malformed seed JSON: expected " + expected + " for " + what + " but got " + actual);
+  }
+}
@@ -0,0 +1,61 @@
+package com.bell_ringer.services.seed;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Imports the configured seed document once the application has started,
+ * when bellringer.seed.import-on-startup=true. The flag is read at runtime
+ * rather than used as a bean condition so it also works in the AOT image.
+ */
+@Component
+public class SeedImportRunner implements ApplicationRunner {
+
+  private static final Logger log = LoggerFactory.getLogger(SeedImportRunner.class);
+
+  private final SeedImportService seedImportService;
+  private final ResourceLoader resourceLoader;
+  private final boolean importOnStartup;
+  private final String location;
+  private final SeedImportService.Mode mode;
+
+  public SeedImportRunner(SeedImportService seedImportService,
+                          ResourceLoader resourceLoader,
+                          @Value("${bellringer.seed.import-on-startup:false}") boolean importOnStartup,
+                          @Value("${bellringer.seed.location:classpath:seed/seed.json}") String location,
+                          @Value("${bellringer.seed.mode:MERGE}") SeedImportService.Mode mode) {
+    this.seedImportService = seedImportService;
+    this.resourceLoader = resourceLoader;
+    this.importOnStartup = importOnStartup;
+    this.location = location;
+    this.mode = mode;
+  }
+
+  @Override
+  public void run(ApplicationArguments args) {
+    if (!importOnStartup) return;
+    importConfiguredSeed(mode);
+  }
+
+  /** Import the document at bellringer.seed.location */
+  public SeedImportService.SeedImportReport importConfiguredSeed(SeedImportService.Mode mode) {
+    Resource resource = resourceLoader.getResource(location);
+    if (!resource.exists())
+      throw new IllegalArgumentException("Seed document not found: " + location);
+    log.info("Importing seed document {} ({})", location, mode);
+    try (InputStream in = resource.getInputStream()) {
+      return seedImportService.importSeed(in, mode);
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Seed document could not be read: " + location, e);
+    }
+  }
+}
@@ -0,0 +1,434 @@
+package com.bell_ringer.services.seed;
+
+import com.bell_ringer.services.CacheInvalidationBus;
+import com.bell_ringer.services.CacheInvalidationBus.EntityType;
+import com.bell_ringer.services.QuestionBankChangedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Imports a seed document (see resources/seed/seed.json) into categories,
+ * questions, choices and open_answers.
+ *
+ * The document is streamed with the Jackson parser into a temporary staging
+ * table through a single CSV COPY, then merged with a handful of set-based
+ * statements. The whole import is one transaction and is idempotent:
+ * categories are matched on slug, questions on (category, question text),
+ * choices and open answers on their unique keys.
+ *
+ * In {@link Mode#MERGE} existing questions are left alone and only new ones
+ * are added. In {@link Mode#DELTA} the document is authoritative for the
+ * categories it lists: questions whose content hash differs are updated in
+ * place, questions missing from the document are retired (soft-deleted), and
+ * everything else is not written at all. Either way the ids of the changed
+ * questions are published as a {@link QuestionBankChangedEvent} after commit.
+ */
+@Service
+public class SeedImportService {
+
+  private static final Logger log = LoggerFactory.getLogger(SeedImportService.class);
+
+  public enum Mode {
+    MERGE,
+    DELTA
+  }
+
+  private static final String CREATE_STAGING = """
+      CREATE TEMP TABLE seed_staging (
+        kind char(1) NOT NULL,
+        ord bigint NOT NULL,
+        category_slug text NOT NULL,
+        category_name text,
+        question text,
+        type text,
+        difficulty text,
+        choice_text text,
+        is_correct boolean,
+        answer text,
+        rubric_keywords jsonb,
+        min_score integer,
+        content_hash text
+      ) ON COMMIT DROP
+      """;
+
+  /** Questions touched by this import: I(nserted), U(pdated) or D(eleted, i.e. retired) */
+  private static final String CREATE_CHANGES = """
+      CREATE TEMP TABLE seed_changes (
+        question_id bigint PRIMARY KEY,
+        change char(1) NOT NULL
+      ) ON COMMIT DROP
+      """;
+
+  // ----------------- Categories -----------------
+
+  /** Parent categories are derived from the slug prefix, as in import_seed.sql */
+  private static final String MERGE_PARENT_CATEGORIES = """
+      INSERT INTO categories (name, slug, created_at, updated_at)
+      SELECT DISTINCT
+        CASE split_part(s.category_slug, '-', 1)
+          WHEN 'frontend' THEN 'Frontend'
+          WHEN 'backend' THEN 'Backend'
+          WHEN 'data' THEN 'Data'
+          WHEN 'devops' THEN 'DevOps'
+        END,
+        split_part(s.category_slug, '-', 1),
+        now(), now()
+      FROM seed_staging s
+      WHERE s.kind = 'C'
+        AND s.category_slug ~ '^(frontend|backend|data|devops)-'
+      ON CONFLICT (slug) DO NOTHING
+      """;
+
+  private static final String MERGE_CATEGORIES = """
+      INSERT INTO categories (name, slug, parent_id, created_at, updated_at)
+      SELECT DISTINCT ON (s.category_slug)
+        s.category_name, s.category_slug, p.id, now(), now()
+      FROM seed_staging s
+      LEFT JOIN categories p
+        ON s.category_slug ~ '^(frontend|backend|data|devops)-'
+       AND p.slug = split_part(s.category_slug, '-', 1)
+      WHERE s.kind = 'C'
+      ORDER BY s.category_slug, s.ord
+      ON CONFLICT (slug) DO UPDATE SET
+        name = EXCLUDED.name,
+        parent_id = COALESCE(EXCLUDED.parent_id, categories.parent_id),
+        updated_at = now()
+      WHERE categories.name IS DISTINCT FROM EXCLUDED.name
+         OR categories.parent_id IS DISTINCT FROM COALESCE(EXCLUDED.parent_id, categories.parent_id)
+      """;
+
+  // ----------------- Questions -----------------
+
+  private static final String INSERT_NEW_QUESTIONS = """
+      WITH ins AS (
+        INSERT INTO questions (category_id, type, difficulty, question, content_hash, created_at, updated_at)
+        SELECT DISTINCT ON (c.id, s.question)
+          c.id, s.type, s.difficulty, s.question, s.content_hash, now(), now()
+        FROM seed_staging s
+        JOIN categories c ON c.slug = s.category_slug
+        WHERE s.kind = 'Q'
+          AND NOT EXISTS (
+            SELECT 1 FROM questions q
+            WHERE q.category_id = c.id AND q.question = s.question
+          )
+        ORDER BY c.id, s.question, s.ord
+        RETURNING id
+      )
+      INSERT INTO seed_changes (question_id, change)
+      SELECT id, 'I' FROM ins
+      """;
+
+  /** Delta: rewrite questions whose content hash changed, and revive retired ones that are back */
+  private static final String UPDATE_CHANGED_QUESTIONS = """
+      WITH src AS (
+        SELECT DISTINCT ON (c.id, s.question)
+          c.id AS category_id, s.question, s.type, s.difficulty, s.content_hash
+        FROM seed_staging s
+        JOIN categories c ON c.slug = s.category_slug
+        WHERE s.kind = 'Q'
+        ORDER BY c.id, s.question, s.ord
+      ),
+      upd AS (
+        UPDATE questions q SET
+          type = src.type,
+          difficulty = src.difficulty,
+          content_hash = src.content_hash,
+          deleted_at = NULL,
+          updated_at = now()
+        FROM src
+        WHERE q.category_id = src.category_id
+          AND q.question = src.question
+          AND (q.content_hash IS DISTINCT FROM src.content_hash OR q.deleted_at IS NOT NULL)
+        RETURNING q.id
+      )
+      INSERT INTO seed_changes (question_id, change)
+      SELECT id, 'U' FROM upd
+      """;
+
+  /** Delta: retire active questions of the imported categories that the document no longer contains */
+  private static final String RETIRE_MISSING_QUESTIONS = """
+      WITH del AS (
+        UPDATE questions q SET
+          deleted_at = now(),
+          updated_at = now()
+        FROM categories c
+        WHERE q.category_id = c.id
+          AND q.deleted_at IS NULL
+          AND c.slug IN (SELECT category_slug FROM seed_staging WHERE kind = 'C')
+          AND NOT EXISTS (
+            SELECT 1 FROM seed_staging s
+            WHERE s.kind = 'Q' AND s.category_slug = c.slug AND s.question = q.question
+          )
+        RETURNING q.id
+      )
+      INSERT INTO seed_changes (question_id, change)
+      SELECT id, 'D' FROM del
+      """;
+
+  // ----------------- Choices & open answers -----------------
+
+  /**
+   * Choices that disappeared from updated questions are deleted, unless past
+   * answers reference them, in which case they are retired instead.
+   */
+  private static final String REMOVE_STALE_CHOICES = """
+      WITH removed AS (
+        SELECT ch.id
+        FROM choices ch
+        JOIN seed_changes x ON x.question_id = ch.question_id AND x.change = 'U'
+        JOIN questions q ON q.id = ch.question_id
+        JOIN categories c ON c.id = q.category_id
+        WHERE NOT EXISTS (
+          SELECT 1 FROM seed_staging s
+          WHERE s.kind = 'A' AND s.category_slug = c.slug
+            AND s.question = q.question AND s.choice_text = ch.choice_text
+        )
+      ),
+      dropped AS (
+        DELETE FROM choices ch
+        USING removed r
+        WHERE ch.id = r.id
+          AND NOT EXISTS (SELECT 1 FROM attempt_selected_choices a WHERE a.choice_id = ch.id)
+          AND NOT EXISTS (SELECT 1 FROM attempt_choice_sets p WHERE p.choice_ids @> ARRAY[ch.id])
+        RETURNING ch.id
+      )
+      UPDATE choices ch SET deleted_at = now()
+      FROM removed r
+      WHERE ch.id = r.id
+        AND ch.deleted_at IS NULL
+        AND NOT EXISTS (SELECT 1 FROM dropped d WHERE d.id = r.id)
+      """;
+
+  /** Choices of inserted and updated questions; other questions are not touched */
+  private static final String MERGE_CHOICES = """
+      INSERT INTO choices (question_id, choice_text, is_correct)
+      SELECT DISTINCT ON (q.id, s.choice_text) q.id, s.choice_text, s.is_correct
+      FROM seed_staging s
+      JOIN categories c ON c.slug = s.category_slug
+      JOIN questions q ON q.category_id = c.id AND q.question = s.question
+      JOIN seed_changes x ON x.question_id = q.id
+      WHERE s.kind = 'A'
+        AND s.choice_text IS NOT NULL
+        AND q.type <> 'SHORT_ANSWER'
+        AND x.change IN ('I', 'U')
+      ORDER BY q.id, s.choice_text, s.ord
+      ON CONFLICT (question_id, choice_text) DO UPDATE SET
+        is_correct = EXCLUDED.is_correct,
+        deleted_at = NULL
+      WHERE choices.is_correct <> EXCLUDED.is_correct
+         OR choices.deleted_at IS NOT NULL
+      """;
+
+  /** Open answers are not referenced by answers, so those of updated questions are simply replaced */
+  private static final String REMOVE_STALE_OPEN_ANSWERS = """
+      DELETE FROM open_answers oa
+      USING seed_changes x
+      WHERE x.question_id = oa.question_id
+        AND x.change = 'U'
+      """;
+
+  private static final String MERGE_OPEN_ANSWERS = """
+      INSERT INTO open_answers (question_id, answer, rubric_keywords, min_score)
+      SELECT DISTINCT ON (q.id, s.answer) q.id, s.answer, s.rubric_keywords, COALESCE(s.min_score, 70)
+      FROM seed_staging s
+      JOIN categories c ON c.slug = s.category_slug
+      JOIN questions q ON q.category_id = c.id AND q.question = s.question
+      JOIN seed_changes x ON x.question_id = q.id
+      WHERE s.kind = 'O'
+        AND q.type = 'SHORT_ANSWER'
+        AND x.change IN ('I', 'U')
+      ORDER BY q.id, s.answer, s.ord
+      ON CONFLICT (question_id, answer) DO NOTHING
+      """;
+
+  private static final String RECORD_VERSION = """
+      INSERT INTO seed_migrations (seed_version) VALUES (?)
+      ON CONFLICT (seed_version) DO NOTHING
+      """;
+
+  private final DataSource dataSource;
+  private final ObjectMapper objectMapper;
+  private final ApplicationEventPublisher events;
+  private final CacheInvalidationBus invalidationBus;
+  private final AtomicBoolean running = new AtomicBoolean(false);
+
+  public SeedImportService(DataSource dataSource, ObjectMapper objectMapper, ApplicationEventPublisher events,
+      CacheInvalidationBus invalidationBus) {
+    this.dataSource = dataSource;
+    this.objectMapper = objectMapper;
+    this.events = events;
+    this.invalidationBus = invalidationBus;
+  }
+
+  /**
+   * Import the seed document read from the given stream. The stream is
+   * consumed but not closed.
+   */
+  public SeedImportReport importSeed(InputStream json, Mode mode) {
+    if (json == null) throw new IllegalArgumentException("seed input must not be null");
+    if (mode == null) throw new IllegalArgumentException("mode must not be null");
+    if (!running.compareAndSet(false, true))
+      throw new IllegalStateException("A seed import is already running");
+
+    long start = System.nanoTime();
+    try (Connection conn = dataSource.getConnection()) {
+      boolean autoCommit = conn.getAutoCommit();
+      conn.setAutoCommit(false);
+      SeedImportReport report;
+      QuestionBankChangedEvent changes;
+      try {
+        Changes tracked = new Changes();
+        report = importSeed(conn, json, mode, tracked, start);
+        conn.commit();
+        changes = new QuestionBankChangedEvent(tracked.inserted, tracked.updated, tracked.retired);
+      } catch (SQLException | IOException | RuntimeException e) {
+        conn.rollback();
+        throw e;
+      } finally {
+        conn.setAutoCommit(autoCommit);
+      }
+
+      log.info("Seed import {} ({}): staged {} rows in {} ms ({} rows/s); {} categories, "
+              + "questions +{} ~{} -{}, {} choices, {} open answers",
+          report.version(), mode, report.stagedRows(), report.elapsedMs(), Math.round(report.rowsPerSecond()),
+          report.categories(), report.questionsInserted(), report.questionsUpdated(), report.questionsRetired(),
+          report.choices(), report.openAnswers());
+      // Category renames carry no question ids but still invalidate cached catalog entities
+      if (!changes.isEmpty() || report.categories() > 0) events.publishEvent(changes);
+      notifyOtherNodes(changes, report);
+      return report;
+    } catch (SQLException e) {
+      throw new IllegalStateException("Seed import failed: " + e.getMessage(), e);
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Seed import could not read the seed document: " + e.getMessage(), e);
+    } finally {
+      running.set(false);
+    }
+  }
+
+  private SeedImportReport importSeed(Connection conn, InputStream json, Mode mode, Changes changes, long start)
+      throws SQLException, IOException {
+    try (Statement st = conn.createStatement()) {
+      st.execute(CREATE_STAGING);
+      st.execute(CREATE_CHANGES);
+    }
+
+    // ----------------- Stage (COPY) -----------------
+    PGConnection pg = conn.unwrap(PGConnection.class);
+    String copySql = "COPY seed_staging (" + SeedCsvStager.COLUMNS + ") FROM STDIN WITH (FORMAT csv)";
+    SeedCsvStager stager;
+    try (Writer out = new BufferedWriter(new OutputStreamWriter(
+        new PGCopyOutputStream(pg, copySql, 1 << 16), StandardCharsets.UTF_8), 1 << 16)) {
+      stager = new SeedCsvStager(objectMapper, out);
+      stager.stage(json);
+    }
+    long stagedAt = System.nanoTime();
+
+    // ----------------- Merge -----------------
+    int categories;
+    int choices = 0;
+    int openAnswers;
+    try (Statement st = conn.createStatement()) {
+      st.execute("ANALYZE seed_staging");
+      categories = st.executeUpdate(MERGE_PARENT_CATEGORIES);
+      categories += st.executeUpdate(MERGE_CATEGORIES);
+      if (mode == Mode.DELTA) {
+        st.executeUpdate(UPDATE_CHANGED_QUESTIONS);
+        st.executeUpdate(RETIRE_MISSING_QUESTIONS);
+        choices += st.executeUpdate(REMOVE_STALE_CHOICES);
+        st.executeUpdate(REMOVE_STALE_OPEN_ANSWERS);
+      }
+      st.executeUpdate(INSERT_NEW_QUESTIONS);
+      st.execute("ANALYZE seed_changes");
+      choices += st.executeUpdate(MERGE_CHOICES);
+      openAnswers = st.executeUpdate(MERGE_OPEN_ANSWERS);
+    }
+
+    try (Statement st = conn.createStatement();
+         ResultSet rs = st.executeQuery("SELECT question_id, change FROM seed_changes")) {
+      while (rs.next()) {
+        switch (rs.getString(2)) {
+          case "I" -> changes.inserted.add(rs.getLong(1));
+          case "U" -> changes.updated.add(rs.getLong(1));
+          default -> changes.retired.add(rs.getLong(1));
+        }
+      }
+    }
+
+    if (stager.version() != null) {
+      try (PreparedStatement ps = conn.prepareStatement(RECORD_VERSION)) {
+        ps.setString(1, stager.version());
+        ps.executeUpdate();
+      }
+    }
+
+    long end = System.nanoTime();
+    long stageMs = (stagedAt - start) / 1_000_000;
+    long elapsedMs = (end - start) / 1_000_000;
+    double rowsPerSecond = stager.rows() * 1_000_000_000.0 / Math.max(1, end - start);
+    return new SeedImportReport(stager.version(), mode, stager.rows(), categories,
+        changes.inserted.size(), changes.updated.size(), changes.retired.size(), choices, openAnswers,
+        stageMs, elapsedMs, rowsPerSecond);
+  }
+
+  private void notifyOtherNodes(QuestionBankChangedEvent changes, SeedImportReport report) {
+    try {
+      if (report.categories() > 0) invalidationBus.publish(EntityType.CATEGORY, Set.of());
+      if (!changes.isEmpty()) {
+        Set<Long> ids = new HashSet<>(changes.inserted());
+        ids.addAll(changes.updated());
+        ids.addAll(changes.retired());
+        invalidationBus.publish(EntityType.QUESTION, ids);
+      }
+    } catch (RuntimeException e) {
+      // The import is committed; other nodes catch up when their caches expire or resync
+      log.warn("Could not notify other nodes of the seed import: {}", e.getMessage());
+    }
+  }
+
+  private static final class Changes {
+    final Set<Long> inserted = new HashSet<>();
+    final Set<Long> updated = new HashSet<>();
+    final Set<Long> retired = new HashSet<>();
+  }
+
+  /**
+   * Outcome of an import. Counts are rows inserted or changed by this run, so
+   * a repeated import of the same document reports zeros.
+   */
+  public record SeedImportReport(
+      String version,
+      Mode mode,
+      long stagedRows,
+      int categories,
+      int questionsInserted,
+      int questionsUpdated,
+      int questionsRetired,
+      int choices,
+      int openAnswers,
+      long stageMs,
+      long elapsedMs,
+      double rowsPerSecond) {
+  }
+}
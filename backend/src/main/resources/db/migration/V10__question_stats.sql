@@ -0,0 +1,16 @@
+-- V10: per-question item statistics (QuestionStatsService).
+-- attempts counts the completed attempts that answered the question and
+-- p_value the share of them that answered it correctly; discrimination the
+-- point-biserial correlation between answering the item correctly and the
+-- rest of the attempt's score. empirical_difficulty is derived from p_value
+-- once enough attempts answered the question; quiz generation can use it instead
+-- of the hand-set label (bellringer.generation.empirical-difficulty).
+CREATE TABLE question_stats (
+    question_id bigint PRIMARY KEY REFERENCES questions ON DELETE CASCADE,
+    attempts bigint NOT NULL,
+    correct bigint NOT NULL,
+    p_value float(53) NOT NULL,
+    discrimination float(53),
+    empirical_difficulty varchar(50),
+    computed_at timestamp(6) with time zone NOT NULL
+);
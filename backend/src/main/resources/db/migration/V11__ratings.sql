@@ -0,0 +1,19 @@
+-- V11: Elo-style ratings (RatingEngine). A user has a skill rating per quiz
+-- category and a question a difficulty rating; both move after every
+-- completed attempt and are written here in batches. Questions without a row
+-- start from their difficulty (empirical when known, else the label).
+CREATE TABLE user_ratings (
+    user_id uuid NOT NULL,
+    category_id bigint NOT NULL REFERENCES categories ON DELETE CASCADE,
+    rating float(53) NOT NULL,
+    answers bigint NOT NULL,
+    updated_at timestamp(6) with time zone NOT NULL,
+    PRIMARY KEY (user_id, category_id)
+);
+
+CREATE TABLE question_ratings (
+    question_id bigint PRIMARY KEY REFERENCES questions ON DELETE CASCADE,
+    rating float(53) NOT NULL,
+    answers bigint NOT NULL,
+    updated_at timestamp(6) with time zone NOT NULL
+);
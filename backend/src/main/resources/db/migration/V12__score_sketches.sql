@@ -0,0 +1,8 @@
+-- V12: distribution of attempt scores per category (ScoreDistributions).
+-- counts[i + 1] is the number of completed attempts whose success rate falls
+-- in bin i of 1000 equal bins over [0, 1] (the last bin holds exactly 1).
+CREATE TABLE score_sketches (
+    category_id bigint PRIMARY KEY REFERENCES categories ON DELETE CASCADE,
+    counts bigint[] NOT NULL,
+    updated_at timestamp(6) with time zone NOT NULL
+);
@@ -0,0 +1,14 @@
+-- V13: autosaved answers waiting to be written to the answer tables
+-- (AnswerAutosaveBuffer). Staging them here instead of in one node's memory
+-- lets whichever node completes the attempt drain them. choice_ids is set for
+-- a choice question (empty clears the selection), answer_text for a text one.
+CREATE TABLE autosave_answers (
+    attempt_id bigint NOT NULL,
+    question_id bigint NOT NULL,
+    choice_ids bigint[],
+    answer_text text,
+    staged_at timestamp(6) with time zone NOT NULL,
+    failures integer NOT NULL DEFAULT 0,
+    PRIMARY KEY (attempt_id, question_id),
+    CONSTRAINT ck_autosave_answers_one_kind CHECK ((choice_ids IS NULL) <> (answer_text IS NULL))
+);
@@ -0,0 +1,10 @@
+-- V14: score histogram bins of archived attempt months (ScoreDistributions).
+-- AttemptPartitionService adds a month's bins here when it rolls the month up,
+-- so rebuilding the distributions from history still counts archived
+-- attempts. Months archived before this migration are not included.
+CREATE TABLE archived_score_bins (
+    category_id bigint NOT NULL,
+    bin integer NOT NULL,
+    attempts bigint NOT NULL DEFAULT 0,
+    PRIMARY KEY (category_id, bin)
+);
@@ -0,0 +1,12 @@
+-- V15: quizzes a user completed in archived months, one row per quiz. Counts
+-- of distinct quizzes do not add up across months (a quiz attempted in two
+-- months, or in an archived and a live one, would count twice), so the
+-- completed quizzes of a user are counted over these rows and the live
+-- attempts together. user_attempt_rollups.completed_quizzes keeps the counts
+-- of the months archived before this migration and is no longer added to.
+CREATE TABLE user_completed_quiz_rollups (
+    user_id uuid NOT NULL,
+    category_id bigint NOT NULL,
+    quiz_id bigint NOT NULL,
+    PRIMARY KEY (user_id, category_id, quiz_id)
+);
@@ -0,0 +1,154 @@
+-- V1: baseline schema, as previously created by Hibernate (ddl-auto=update).
+-- Existing databases are baselined at this version (spring.flyway.baseline-on-migrate),
+-- so this script only runs against empty databases.
+
+CREATE TABLE users (
+    id uuid NOT NULL,
+    auth_provider varchar(32) NOT NULL,
+    auth_uid varchar(128) NOT NULL,
+    email varchar(255),
+    email_verified boolean,
+    display_name varchar(255),
+    photo_url varchar(255),
+    created_at timestamp(6) with time zone NOT NULL,
+    updated_at timestamp(6) with time zone NOT NULL,
+    PRIMARY KEY (id),
+    UNIQUE (auth_provider, auth_uid)
+);
+
+CREATE TABLE categories (
+    id bigint GENERATED BY DEFAULT AS IDENTITY,
+    name varchar(150) NOT NULL,
+    slug varchar(200) NOT NULL,
+    parent_id bigint,
+    created_at timestamp(6) with time zone NOT NULL,
+    updated_at timestamp(6) with time zone NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_categories_slug UNIQUE (slug),
+    CONSTRAINT uk_parent_name UNIQUE (parent_id, name)
+);
+
+CREATE TABLE questions (
+    id bigint GENERATED BY DEFAULT AS IDENTITY,
+    type varchar(50) NOT NULL CHECK (type IN ('UNIQUE_CHOICE','MULTIPLE_CHOICE','TRUE_FALSE','SHORT_ANSWER')),
+    category_id bigint NOT NULL,
+    difficulty varchar(50) NOT NULL CHECK (difficulty IN ('EASY','MEDIUM','HARD')),
+    question text NOT NULL,
+    created_at timestamp(6) with time zone NOT NULL,
+    updated_at timestamp(6) with time zone NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE choices (
+    id bigint GENERATED BY DEFAULT AS IDENTITY,
+    question_id bigint NOT NULL,
+    choice_text text NOT NULL,
+    is_correct boolean NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uq_choice UNIQUE (question_id, choice_text)
+);
+
+CREATE TABLE open_answers (
+    id bigint GENERATED BY DEFAULT AS IDENTITY,
+    question_id bigint NOT NULL,
+    answer text NOT NULL,
+    rubric_keywords jsonb,
+    min_score integer NOT NULL CHECK ((min_score <= 100) AND (min_score >= 0)),
+    PRIMARY KEY (id),
+    CONSTRAINT uq_open_answer UNIQUE (question_id, answer),
+    CHECK (min_score BETWEEN 0 AND 100 AND char_length(btrim(answer)) > 0)
+);
+
+CREATE TABLE quizzes (
+    id bigint GENERATED BY DEFAULT AS IDENTITY,
+    user_id uuid NOT NULL,
+    category_id bigint NOT NULL,
+    created_at timestamp(6) with time zone NOT NULL,
+    completed_at timestamp(6) with time zone,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE quiz_questions (
+    quiz_id bigint NOT NULL,
+    question_id bigint NOT NULL,
+    PRIMARY KEY (question_id, quiz_id)
+);
+
+CREATE TABLE attempts (
+    id bigint GENERATED BY DEFAULT AS IDENTITY,
+    quiz_id bigint NOT NULL,
+    started_at timestamp(6) with time zone NOT NULL,
+    completed_at timestamp(6) with time zone,
+    correct_count integer,
+    total_count integer,
+    success_rate float(53),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE attempt_selected_choices (
+    attempt_id bigint NOT NULL,
+    question_id bigint NOT NULL,
+    choice_id bigint NOT NULL,
+    quiz_id bigint NOT NULL,
+    selected_at timestamp(6) with time zone NOT NULL,
+    PRIMARY KEY (attempt_id, choice_id, question_id)
+);
+
+CREATE TABLE attempt_text_answers (
+    attempt_id bigint NOT NULL,
+    question_id bigint NOT NULL,
+    quiz_id bigint NOT NULL,
+    answer_text text NOT NULL,
+    score integer,
+    is_correct boolean,
+    feedback text,
+    answered_at timestamp(6) with time zone NOT NULL,
+    PRIMARY KEY (attempt_id, question_id)
+);
+
+-- Indexes declared on the entities
+CREATE INDEX idx_categories_slug ON categories (slug);
+CREATE INDEX idx_categories_parent ON categories (parent_id);
+CREATE INDEX idx_questions_category ON questions (category_id);
+CREATE INDEX idx_questions_type ON questions (type);
+CREATE INDEX idx_questions_difficulty ON questions (difficulty);
+CREATE INDEX idx_choices_question ON choices (question_id);
+CREATE INDEX idx_open_answers_question_id ON open_answers (question_id);
+CREATE INDEX idx_quizzes_user ON quizzes (user_id);
+CREATE INDEX idx_quizzes_category ON quizzes (category_id);
+CREATE INDEX idx_quizzes_user_cat_completed ON quizzes (user_id, category_id, completed_at);
+CREATE INDEX idx_attempts_quiz ON attempts (quiz_id);
+CREATE INDEX idx_attempts_started ON attempts (started_at);
+CREATE INDEX idx_attempts_completed ON attempts (completed_at);
+
+-- Foreign keys (names match the ones Hibernate generated)
+ALTER TABLE categories ADD CONSTRAINT FKsaok720gsu4u2wrgbk10b5n8d
+    FOREIGN KEY (parent_id) REFERENCES categories;
+ALTER TABLE questions ADD CONSTRAINT FKctl6tuf74n8cufkb3ulj6b3fc
+    FOREIGN KEY (category_id) REFERENCES categories;
+ALTER TABLE choices ADD CONSTRAINT FK4vhssp102sjhbey1y4rhiiyos
+    FOREIGN KEY (question_id) REFERENCES questions;
+ALTER TABLE open_answers ADD CONSTRAINT FKlttsvngwpnshnutklc03bfrs
+    FOREIGN KEY (question_id) REFERENCES questions ON DELETE CASCADE;
+ALTER TABLE quizzes ADD CONSTRAINT FKpo9fnqd9hnnmg8qxiyue40cot
+    FOREIGN KEY (category_id) REFERENCES categories;
+ALTER TABLE quiz_questions ADD CONSTRAINT FKev41c723fx659v28pjycox15o
+    FOREIGN KEY (question_id) REFERENCES questions;
+ALTER TABLE quiz_questions ADD CONSTRAINT FKanfmgf6ksbdnv7ojb0pfve54q
+    FOREIGN KEY (quiz_id) REFERENCES quizzes;
+ALTER TABLE attempts ADD CONSTRAINT FKo6h1pu3ag91imtsowbsrqbf0a
+    FOREIGN KEY (quiz_id) REFERENCES quizzes;
+ALTER TABLE attempt_selected_choices ADD CONSTRAINT FKkb0ai0awi73k9566kqnwsd80y
+    FOREIGN KEY (attempt_id) REFERENCES attempts;
+ALTER TABLE attempt_selected_choices ADD CONSTRAINT FKmqpiya0980tybelbgx12a4mb2
+    FOREIGN KEY (choice_id) REFERENCES choices;
+ALTER TABLE attempt_selected_choices ADD CONSTRAINT FKtje5nv7xms4bv9x1vsld3h7o7
+    FOREIGN KEY (question_id) REFERENCES questions;
+ALTER TABLE attempt_selected_choices ADD CONSTRAINT FK539b1w1qtgkdhsa3jydue287u
+    FOREIGN KEY (quiz_id) REFERENCES quizzes;
+ALTER TABLE attempt_text_answers ADD CONSTRAINT FK1eunaf646hb4wckgowxrlpoes
+    FOREIGN KEY (attempt_id) REFERENCES attempts;
+ALTER TABLE attempt_text_answers ADD CONSTRAINT FK7ymtdii0s181w5mruhan7pls2
+    FOREIGN KEY (question_id) REFERENCES questions;
+ALTER TABLE attempt_text_answers ADD CONSTRAINT FKnc5e57m8mjaq3r8bfbu2norot
+    FOREIGN KEY (quiz_id) REFERENCES quizzes;
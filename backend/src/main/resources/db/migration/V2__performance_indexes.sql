@@ -0,0 +1,28 @@
+-- V2: indexes for the queries the services actually run.
+
+-- Score columns were added by Hibernate after the first deployments; databases
+-- baselined from an older schema may not have them yet.
+ALTER TABLE attempts ADD COLUMN IF NOT EXISTS correct_count integer;
+ALTER TABLE attempts ADD COLUMN IF NOT EXISTS total_count integer;
+ALTER TABLE attempts ADD COLUMN IF NOT EXISTS success_rate float(53);
+
+-- Accuracy per difficulty and per-question answer lookups join selections by quiz and question
+CREATE INDEX IF NOT EXISTS idx_attempt_selected_choices_quiz_question
+    ON attempt_selected_choices (quiz_id, question_id);
+
+-- Random draws filter by category, difficulty and (optionally) type
+CREATE INDEX IF NOT EXISTS idx_questions_category_difficulty_type
+    ON questions (category_id, difficulty, type);
+
+-- Grading queue: unscored text answers ordered by answer time
+CREATE INDEX IF NOT EXISTS idx_attempt_text_answers_unscored
+    ON attempt_text_answers (answered_at)
+    WHERE score IS NULL;
+
+-- The quiz_questions primary key leads with question_id; quiz lookups need their own index
+CREATE INDEX IF NOT EXISTS idx_quiz_questions_quiz
+    ON quiz_questions (quiz_id);
+
+-- Completed attempts per user are read through their quiz, newest first
+CREATE INDEX IF NOT EXISTS idx_attempts_quiz_completed
+    ON attempts (quiz_id, completed_at);
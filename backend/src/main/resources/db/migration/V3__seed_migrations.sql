@@ -0,0 +1,5 @@
+-- V3: record of applied seed versions, previously created on the fly by the seed SQL scripts.
+CREATE TABLE IF NOT EXISTS seed_migrations (
+    seed_version varchar(255) PRIMARY KEY,
+    applied_at timestamp DEFAULT now()
+);
@@ -0,0 +1,11 @@
+-- V4: content hashes for delta seed imports, and soft deletion of retired questions/choices.
+-- Rows stay referenced by historical quizzes and answers, so retired content is never removed.
+ALTER TABLE questions ADD COLUMN content_hash varchar(64);
+ALTER TABLE questions ADD COLUMN deleted_at timestamp(6) with time zone;
+ALTER TABLE choices ADD COLUMN deleted_at timestamp(6) with time zone;
+
+-- Random draws only consider active questions
+DROP INDEX IF EXISTS idx_questions_category_difficulty_type;
+CREATE INDEX idx_questions_active_category_difficulty_type
+    ON questions (category_id, difficulty, type)
+    WHERE deleted_at IS NULL;
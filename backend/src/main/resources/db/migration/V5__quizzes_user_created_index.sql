@@ -0,0 +1,3 @@
+-- V5: the recently-seen filter rebuilds a user's window from their latest quizzes
+CREATE INDEX IF NOT EXISTS idx_quizzes_user_created
+    ON quizzes (user_id, created_at DESC);
@@ -0,0 +1,19 @@
+-- V6: shared daily quizzes.
+-- A shared quiz is a template many users attempt, so the attempt (not the quiz)
+-- now records who answered it.
+ALTER TABLE attempts ADD COLUMN user_id uuid;
+UPDATE attempts a SET user_id = q.user_id FROM quizzes q WHERE q.id = a.quiz_id;
+ALTER TABLE attempts ALTER COLUMN user_id SET NOT NULL;
+CREATE INDEX idx_attempts_user_completed ON attempts (user_id, completed_at);
+
+ALTER TABLE quizzes ADD COLUMN shared boolean NOT NULL DEFAULT false;
+
+-- One canonical quiz per category, day and size
+CREATE TABLE daily_quizzes (
+    category_id bigint NOT NULL REFERENCES categories,
+    quiz_date date NOT NULL,
+    size integer NOT NULL,
+    quiz_id bigint NOT NULL UNIQUE REFERENCES quizzes,
+    created_at timestamp(6) with time zone NOT NULL DEFAULT now(),
+    PRIMARY KEY (category_id, quiz_date, size)
+);
@@ -0,0 +1,12 @@
+-- V7: responses recorded per Idempotency-Key (IdempotencyStore), used when
+-- bellringer.idempotency.persistent=true. key_hash is a SHA-256 of the
+-- caller, method, path and key.
+CREATE TABLE idempotency_keys (
+    key_hash varchar(64) PRIMARY KEY,
+    fingerprint varchar(64) NOT NULL,
+    status integer NOT NULL,
+    content_type varchar(255),
+    body bytea NOT NULL,
+    created_at timestamp(6) with time zone NOT NULL DEFAULT now()
+);
+CREATE INDEX idx_idempotency_keys_created_at ON idempotency_keys (created_at);
@@ -0,0 +1,188 @@
+-- V8: attempts and their answers are range-partitioned by month.
+--
+-- An attempt id carries the month it was started in: ids of month YYYYMM
+-- are YYYYMM * 10^9 + n (ensure_attempt_partitions moves attempts_id_seq to
+-- the current month's range). attempts is partitioned on id and both answer
+-- tables on attempt_id with the same bounds, so an attempt and its answers
+-- always share a month, existing primary keys, ON CONFLICT targets and
+-- foreign keys keep working unchanged, and a whole month can be detached at
+-- once (AttemptPartitionService).
+--
+-- Rows that existed before this migration keep their ids and go to one
+-- partition covering everything below the current month.
+
+CREATE FUNCTION attempt_partition_base(month_start date) RETURNS bigint
+    LANGUAGE sql IMMUTABLE
+AS $$
+    SELECT to_char(month_start, 'YYYYMM')::bigint * 1000000000
+$$;
+
+-- Create the partitions of the current month and the next months_ahead
+-- months (when missing) and move the id sequence into the current month.
+-- Returns the number of partitions created.
+CREATE FUNCTION ensure_attempt_partitions(months_ahead integer) RETURNS integer
+    LANGUAGE plpgsql
+AS $$
+DECLARE
+    current_month date := date_trunc('month', now())::date;
+    month_start date;
+    lower_bound bigint;
+    upper_bound bigint;
+    parent text;
+    partition_name text;
+    created integer := 0;
+BEGIN
+    FOR i IN 0..months_ahead LOOP
+        month_start := (current_month + make_interval(months => i))::date;
+        lower_bound := attempt_partition_base(month_start);
+        upper_bound := attempt_partition_base((month_start + interval '1 month')::date);
+        FOREACH parent IN ARRAY ARRAY['attempts', 'attempt_selected_choices', 'attempt_text_answers'] LOOP
+            partition_name := parent || '_p' || to_char(month_start, 'YYYYMM');
+            IF to_regclass(partition_name) IS NULL THEN
+                EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%s) TO (%s)',
+                               partition_name, parent, lower_bound, upper_bound);
+                created := created + 1;
+            END IF;
+        END LOOP;
+    END LOOP;
+
+    IF (SELECT last_value FROM attempts_id_seq) < attempt_partition_base(current_month) THEN
+        PERFORM setval('attempts_id_seq', attempt_partition_base(current_month), false);
+    END IF;
+    RETURN created;
+END
+$$;
+
+-- ----------------- Move the existing tables aside -----------------
+
+ALTER TABLE attempts ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE attempts RENAME TO attempts_unpartitioned;
+ALTER TABLE attempt_selected_choices RENAME TO attempt_selected_choices_unpartitioned;
+ALTER TABLE attempt_text_answers RENAME TO attempt_text_answers_unpartitioned;
+
+-- ----------------- Partitioned tables -----------------
+
+CREATE SEQUENCE attempts_id_seq;
+
+CREATE TABLE attempts (
+    id bigint NOT NULL DEFAULT nextval('attempts_id_seq'),
+    quiz_id bigint NOT NULL,
+    started_at timestamp(6) with time zone NOT NULL,
+    completed_at timestamp(6) with time zone,
+    correct_count integer,
+    total_count integer,
+    success_rate float(53),
+    user_id uuid NOT NULL
+) PARTITION BY RANGE (id);
+ALTER SEQUENCE attempts_id_seq OWNED BY attempts.id;
+
+CREATE TABLE attempt_selected_choices (
+    attempt_id bigint NOT NULL,
+    question_id bigint NOT NULL,
+    choice_id bigint NOT NULL,
+    quiz_id bigint NOT NULL,
+    selected_at timestamp(6) with time zone NOT NULL
+) PARTITION BY RANGE (attempt_id);
+
+CREATE TABLE attempt_text_answers (
+    attempt_id bigint NOT NULL,
+    question_id bigint NOT NULL,
+    quiz_id bigint NOT NULL,
+    answer_text text NOT NULL,
+    score integer,
+    is_correct boolean,
+    feedback text,
+    answered_at timestamp(6) with time zone NOT NULL
+) PARTITION BY RANGE (attempt_id);
+
+-- Everything that exists today, named after the month before this migration
+DO $$
+DECLARE
+    previous_month text := to_char(date_trunc('month', now()) - interval '1 month', 'YYYYMM');
+    upper_bound bigint := attempt_partition_base(date_trunc('month', now())::date);
+    parent text;
+BEGIN
+    FOREACH parent IN ARRAY ARRAY['attempts', 'attempt_selected_choices', 'attempt_text_answers'] LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (MINVALUE) TO (%s)',
+                       parent || '_p' || previous_month, parent, upper_bound);
+    END LOOP;
+END
+$$;
+
+SELECT ensure_attempt_partitions(3);
+
+INSERT INTO attempts (id, quiz_id, started_at, completed_at, correct_count, total_count, success_rate, user_id)
+SELECT id, quiz_id, started_at, completed_at, correct_count, total_count, success_rate, user_id
+  FROM attempts_unpartitioned;
+INSERT INTO attempt_selected_choices (attempt_id, question_id, choice_id, quiz_id, selected_at)
+SELECT attempt_id, question_id, choice_id, quiz_id, selected_at
+  FROM attempt_selected_choices_unpartitioned;
+INSERT INTO attempt_text_answers (attempt_id, question_id, quiz_id, answer_text, score, is_correct, feedback,
+                                  answered_at)
+SELECT attempt_id, question_id, quiz_id, answer_text, score, is_correct, feedback, answered_at
+  FROM attempt_text_answers_unpartitioned;
+
+DROP TABLE attempt_selected_choices_unpartitioned;
+DROP TABLE attempt_text_answers_unpartitioned;
+DROP TABLE attempts_unpartitioned;
+
+-- ----------------- Keys and indexes (created on every partition) -----------------
+
+ALTER TABLE attempts ADD PRIMARY KEY (id);
+ALTER TABLE attempt_selected_choices ADD PRIMARY KEY (attempt_id, choice_id, question_id);
+ALTER TABLE attempt_text_answers ADD PRIMARY KEY (attempt_id, question_id);
+
+CREATE INDEX idx_attempts_quiz ON attempts (quiz_id);
+CREATE INDEX idx_attempts_started ON attempts (started_at);
+CREATE INDEX idx_attempts_completed ON attempts (completed_at);
+CREATE INDEX idx_attempts_quiz_completed ON attempts (quiz_id, completed_at);
+CREATE INDEX idx_attempts_user_completed ON attempts (user_id, completed_at);
+CREATE INDEX idx_attempt_selected_choices_quiz_question ON attempt_selected_choices (quiz_id, question_id);
+CREATE INDEX idx_attempt_text_answers_unscored ON attempt_text_answers (answered_at) WHERE score IS NULL;
+
+ALTER TABLE attempts ADD CONSTRAINT FKo6h1pu3ag91imtsowbsrqbf0a
+    FOREIGN KEY (quiz_id) REFERENCES quizzes;
+ALTER TABLE attempt_selected_choices ADD CONSTRAINT FKkb0ai0awi73k9566kqnwsd80y
+    FOREIGN KEY (attempt_id) REFERENCES attempts;
+ALTER TABLE attempt_selected_choices ADD CONSTRAINT FKmqpiya0980tybelbgx12a4mb2
+    FOREIGN KEY (choice_id) REFERENCES choices;
+ALTER TABLE attempt_selected_choices ADD CONSTRAINT FKtje5nv7xms4bv9x1vsld3h7o7
+    FOREIGN KEY (question_id) REFERENCES questions;
+ALTER TABLE attempt_selected_choices ADD CONSTRAINT FK539b1w1qtgkdhsa3jydue287u
+    FOREIGN KEY (quiz_id) REFERENCES quizzes;
+ALTER TABLE attempt_text_answers ADD CONSTRAINT FK1eunaf646hb4wckgowxrlpoes
+    FOREIGN KEY (attempt_id) REFERENCES attempts;
+ALTER TABLE attempt_text_answers ADD CONSTRAINT FK7ymtdii0s181w5mruhan7pls2
+    FOREIGN KEY (question_id) REFERENCES questions;
+ALTER TABLE attempt_text_answers ADD CONSTRAINT FKnc5e57m8mjaq3r8bfbu2norot
+    FOREIGN KEY (quiz_id) REFERENCES quizzes;
+
+-- ----------------- Roll-ups of archived months -----------------
+
+-- What archived attempts contributed to a user's statistics, per category
+CREATE TABLE user_attempt_rollups (
+    user_id uuid NOT NULL,
+    category_id bigint NOT NULL,
+    completed_attempts bigint NOT NULL DEFAULT 0,
+    completed_quizzes bigint NOT NULL DEFAULT 0,
+    correct_count bigint NOT NULL DEFAULT 0,
+    total_count bigint NOT NULL DEFAULT 0,
+    PRIMARY KEY (user_id, category_id)
+);
+
+-- Answer accuracy of archived attempts per category and difficulty (adaptive quotas)
+CREATE TABLE user_difficulty_rollups (
+    user_id uuid NOT NULL,
+    category_id bigint NOT NULL,
+    difficulty varchar(50) NOT NULL,
+    correct bigint NOT NULL DEFAULT 0,
+    total bigint NOT NULL DEFAULT 0,
+    PRIMARY KEY (user_id, category_id, difficulty)
+);
+
+-- Months that were rolled up, detached and (once archived_to is set) exported and dropped
+CREATE TABLE archived_attempt_months (
+    month varchar(6) PRIMARY KEY,
+    detached_at timestamp(6) with time zone NOT NULL DEFAULT now(),
+    archived_to text
+);
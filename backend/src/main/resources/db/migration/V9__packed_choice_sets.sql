@@ -0,0 +1,81 @@
+-- V9: packed storage of selected choices (SelectedChoiceStore).
+-- One row per attempt with parallel arrays: selection i is
+-- (question_ids[i], choice_ids[i]). Partitioned by month like attempts (V8).
+
+CREATE TABLE attempt_choice_sets (
+    attempt_id bigint NOT NULL,
+    quiz_id bigint NOT NULL,
+    question_ids bigint[] NOT NULL,
+    choice_ids bigint[] NOT NULL,
+    selected_at timestamp(6) with time zone NOT NULL,
+    CONSTRAINT ck_attempt_choice_sets_parallel
+        CHECK (cardinality(question_ids) = cardinality(choice_ids))
+) PARTITION BY RANGE (attempt_id);
+
+-- One partition per existing attempts partition, with the same bounds
+DO $$
+DECLARE
+    p record;
+BEGIN
+    FOR p IN
+        SELECT c.relname, pg_get_expr(c.relpartbound, c.oid) AS bound
+          FROM pg_inherits i
+          JOIN pg_class c ON c.oid = i.inhrelid
+         WHERE i.inhparent = 'attempts'::regclass
+    LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF attempt_choice_sets %s',
+                       replace(p.relname, 'attempts_', 'attempt_choice_sets_'), p.bound);
+    END LOOP;
+END
+$$;
+
+ALTER TABLE attempt_choice_sets ADD PRIMARY KEY (attempt_id);
+ALTER TABLE attempt_choice_sets ADD CONSTRAINT fk_attempt_choice_sets_attempt
+    FOREIGN KEY (attempt_id) REFERENCES attempts;
+ALTER TABLE attempt_choice_sets ADD CONSTRAINT fk_attempt_choice_sets_quiz
+    FOREIGN KEY (quiz_id) REFERENCES quizzes;
+-- Lets a seed import find choices still referenced by packed selections
+CREATE INDEX idx_attempt_choice_sets_choices ON attempt_choice_sets USING gin (choice_ids);
+
+-- Every selection, whichever way it is stored (SQL readers use this)
+CREATE VIEW selected_choices AS
+SELECT attempt_id, question_id, choice_id, quiz_id, selected_at
+  FROM attempt_selected_choices
+UNION ALL
+SELECT s.attempt_id, u.question_id, u.choice_id, s.quiz_id, s.selected_at
+  FROM attempt_choice_sets s
+ CROSS JOIN LATERAL unnest(s.question_ids, s.choice_ids) AS u(question_id, choice_id);
+
+CREATE OR REPLACE FUNCTION ensure_attempt_partitions(months_ahead integer) RETURNS integer
+    LANGUAGE plpgsql
+AS $$
+DECLARE
+    current_month date := date_trunc('month', now())::date;
+    month_start date;
+    lower_bound bigint;
+    upper_bound bigint;
+    parent text;
+    partition_name text;
+    created integer := 0;
+BEGIN
+    FOR i IN 0..months_ahead LOOP
+        month_start := (current_month + make_interval(months => i))::date;
+        lower_bound := attempt_partition_base(month_start);
+        upper_bound := attempt_partition_base((month_start + interval '1 month')::date);
+        FOREACH parent IN ARRAY ARRAY['attempts', 'attempt_selected_choices', 'attempt_text_answers',
+                                      'attempt_choice_sets'] LOOP
+            partition_name := parent || '_p' || to_char(month_start, 'YYYYMM');
+            IF to_regclass(partition_name) IS NULL THEN
+                EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%s) TO (%s)',
+                               partition_name, parent, lower_bound, upper_bound);
+                created := created + 1;
+            END IF;
+        END LOOP;
+    END LOOP;
+
+    IF (SELECT last_value FROM attempts_id_seq) < attempt_partition_base(current_month) THEN
+        PERFORM setval('attempts_id_seq', attempt_partition_base(current_month), false);
+    END IF;
+    RETURN created;
+END
+$$;
@@ -0,0 +1,106 @@
+package com.bell_ringer.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Read-only transactions go to the replica unless the user just wrote or the
+ * replica lags behind or is down; everything else goes to the primary.
+ */
+class ReplicaRoutingDataSourceTests {
+
+  private final DataSource replica = mock(DataSource.class);
+  private final ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(
+      mock(DataSource.class), replica, Duration.ofMinutes(1), Duration.ofSeconds(2));
+
+  @BeforeEach
+  void setUp() {
+    TransactionSynchronizationManager.initSynchronization();
+  }
+
+  @AfterEach
+  void cleanUp() {
+    TransactionSynchronizationManager.clearSynchronization();
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    SecurityContextHolder.clearContext();
+  }
+
+  @Test
+  void readOnlyTransactionsUseTheReplica() {
+    signIn("reader");
+    assertEquals(ReplicaRoutingDataSource.Target.REPLICA, route(true));
+    assertEquals(ReplicaRoutingDataSource.Target.PRIMARY, route(false));
+  }
+
+  @Test
+  void userReadsTheirOwnWritesFromThePrimary() {
+    signIn("writer");
+    assertEquals(ReplicaRoutingDataSource.Target.PRIMARY, route(false));
+    // Not sticky until the write commits
+    assertEquals(ReplicaRoutingDataSource.Target.REPLICA, route(true));
+
+    TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+    assertEquals(ReplicaRoutingDataSource.Target.PRIMARY, route(true));
+
+    signIn("someone-else");
+    assertEquals(ReplicaRoutingDataSource.Target.REPLICA, route(true));
+  }
+
+  @Test
+  void laggingOrUnreachableReplicaIsSkipped() throws SQLException {
+    signIn("reader");
+    replicaLag(5.0);
+    routing.checkLag();
+    assertFalse(routing.isReplicaUsable());
+    assertEquals(ReplicaRoutingDataSource.Target.PRIMARY, route(true));
+
+    replicaLag(0.5);
+    routing.checkLag();
+    assertTrue(routing.isReplicaUsable());
+    assertEquals(ReplicaRoutingDataSource.Target.REPLICA, route(true));
+
+    when(replica.getConnection()).thenThrow(new SQLException("connection refused"));
+    routing.checkLag();
+    assertFalse(routing.isReplicaUsable());
+    assertEquals(ReplicaRoutingDataSource.Target.PRIMARY, route(true));
+  }
+
+  private Object route(boolean readOnly) {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(readOnly);
+    return routing.determineCurrentLookupKey();
+  }
+
+  private static void signIn(String uid) {
+    SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(uid, null, "ROLE_USER"));
+  }
+
+  private void replicaLag(double seconds) throws SQLException {
+    Connection conn = mock(Connection.class);
+    Statement statement = mock(Statement.class);
+    ResultSet rs = mock(ResultSet.class);
+    when(replica.getConnection()).thenReturn(conn);
+    when(conn.createStatement()).thenReturn(statement);
+    when(statement.executeQuery(anyString())).thenReturn(rs);
+    when(rs.next()).thenReturn(true);
+    when(rs.getDouble(1)).thenReturn(seconds);
+  }
+}
@@ -0,0 +1,127 @@
+package com.bell_ringer.services;
+
+import com.bell_ringer.models.Category;
+import com.bell_ringer.models.Choice;
+import com.bell_ringer.models.Question;
+import com.bell_ringer.models.Quiz;
+import com.bell_ringer.repositories.QuestionRepository;
+import com.bell_ringer.services.dto.AttemptRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Autosaved answers are staged in the database: completion drains them
+ * wherever they were staged, the scheduled flush writes them, and staging
+ * for a completed attempt is rejected.
+ */
+@SpringBootTest
+class AnswerAutosaveBufferTests {
+
+  @Autowired
+  private AnswerAutosaveBuffer autosave;
+  @Autowired
+  private AttemptService attemptService;
+  @Autowired
+  private SelectedChoiceStore choiceStore;
+  @Autowired
+  private QuizService quizService;
+  @Autowired
+  private CategoryService categoryService;
+  @Autowired
+  private QuestionRepository questionRepository;
+  @Autowired
+  private JdbcTemplate jdbc;
+
+  private Long categoryId;
+  private Long questionId;
+  private Long rightChoiceId;
+  private Long attemptId;
+
+  @BeforeEach
+  void setUp() {
+    Category category = categoryService.create("Autosave " + UUID.randomUUID(), null);
+    categoryId = category.getId();
+    Question question = new Question(Question.Type.UNIQUE_CHOICE, Question.Difficulty.EASY,
+        "Pick the right choice", category);
+    for (int c = 0; c < 2; c++) {
+      Choice choice = new Choice();
+      choice.setQuestion(question);
+      choice.setChoiceText("Choice " + c);
+      choice.setCorrect(c == 0);
+      question.getChoices().add(choice);
+    }
+    question = questionRepository.save(question);
+    questionId = question.getId();
+    rightChoiceId = question.getChoices().get(0).getId();
+    Quiz quiz = quizService.createWithQuestions(UUID.randomUUID(), categoryId, List.of(questionId));
+    attemptId = attemptService.startAttempt(quiz.getId()).id();
+  }
+
+  @AfterEach
+  void cleanUp() {
+    String quizzes = "SELECT id FROM quizzes WHERE category_id = ?";
+    jdbc.update("DELETE FROM autosave_answers WHERE attempt_id = ?", attemptId);
+    jdbc.update("DELETE FROM attempt_selected_choices WHERE quiz_id IN (" + quizzes + ")", categoryId);
+    jdbc.update("DELETE FROM attempt_choice_sets WHERE quiz_id IN (" + quizzes + ")", categoryId);
+    jdbc.update("DELETE FROM attempts WHERE quiz_id IN (" + quizzes + ")", categoryId);
+    jdbc.update("DELETE FROM quiz_questions WHERE quiz_id IN (" + quizzes + ")", categoryId);
+    jdbc.update("DELETE FROM quizzes WHERE category_id = ?", categoryId);
+    jdbc.update("DELETE FROM choices WHERE question_id IN (SELECT id FROM questions WHERE category_id = ?)",
+        categoryId);
+    jdbc.update("DELETE FROM questions WHERE category_id = ?", categoryId);
+    jdbc.update("DELETE FROM categories WHERE id = ?", categoryId);
+  }
+
+  @Test
+  void completionCountsStagedAnswers() {
+    attemptService.autosave(attemptId, new AttemptRequest.Autosave(questionId, List.of(rightChoiceId), null));
+    assertInstanceOf(AnswerAutosaveBuffer.PendingAnswer.Choices.class, autosave.pendingFor(attemptId).get(questionId));
+
+    attemptService.completeAttempt(attemptId);
+
+    assertEquals(1, attemptService.getRequired(attemptId).getCorrectCount());
+    assertEquals(1, choiceStore.countByAttemptId(attemptId));
+    assertTrue(autosave.pendingFor(attemptId).isEmpty());
+  }
+
+  @Test
+  void latestStagedStateWins() {
+    attemptService.autosave(attemptId, new AttemptRequest.Autosave(questionId, List.of(rightChoiceId), null));
+    attemptService.autosave(attemptId, new AttemptRequest.Autosave(questionId, List.of(), null));
+
+    var pending = autosave.pendingFor(attemptId).get(questionId);
+    assertEquals(Set.of(), ((AnswerAutosaveBuffer.PendingAnswer.Choices) pending).choiceIds());
+  }
+
+  @Test
+  void flushWritesStagedAnswers() {
+    attemptService.autosave(attemptId, new AttemptRequest.Autosave(questionId, List.of(rightChoiceId), null));
+
+    autosave.flushAll();
+
+    assertTrue(autosave.pendingFor(attemptId).isEmpty());
+    assertEquals(1, choiceStore.countByAttemptId(attemptId));
+  }
+
+  @Test
+  void stagingForACompletedAttemptIsRejected() {
+    attemptService.completeAttempt(attemptId);
+
+    assertThrows(IllegalStateException.class, () -> attemptService.autosave(attemptId,
+        new AttemptRequest.Autosave(questionId, List.of(rightChoiceId), null)));
+    assertTrue(autosave.pendingFor(attemptId).isEmpty());
+  }
+}
@@ -0,0 +1,115 @@
+package com.bell_ringer.services;
+
+import com.bell_ringer.models.Attempt;
+import com.bell_ringer.models.Category;
+import com.bell_ringer.models.Choice;
+import com.bell_ringer.models.Question;
+import com.bell_ringer.models.Quiz;
+import com.bell_ringer.repositories.QuestionRepository;
+import com.bell_ringer.services.dto.AttemptSelectedChoiceRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * An answer submitted while the attempt completes either counts towards the
+ * stored score or is rejected: it never lands after the score was computed.
+ */
+@SpringBootTest
+class AnswerCompletionRaceTests {
+
+  private static final int ROUNDS = 20;
+
+  @Autowired
+  private AttemptService attemptService;
+  @Autowired
+  private AttemptSelectedChoiceService selectedChoiceService;
+  @Autowired
+  private SelectedChoiceStore choiceStore;
+  @Autowired
+  private QuizService quizService;
+  @Autowired
+  private CategoryService categoryService;
+  @Autowired
+  private QuestionRepository questionRepository;
+  @Autowired
+  private JdbcTemplate jdbc;
+
+  private Long categoryId;
+
+  @AfterEach
+  void cleanUp() {
+    if (categoryId == null) return;
+    String quizzes = "SELECT id FROM quizzes WHERE category_id = ?";
+    jdbc.update("DELETE FROM attempt_selected_choices WHERE quiz_id IN (" + quizzes + ")", categoryId);
+    jdbc.update("DELETE FROM attempt_choice_sets WHERE quiz_id IN (" + quizzes + ")", categoryId);
+    jdbc.update("DELETE FROM attempts WHERE quiz_id IN (" + quizzes + ")", categoryId);
+    jdbc.update("DELETE FROM quiz_questions WHERE quiz_id IN (" + quizzes + ")", categoryId);
+    jdbc.update("DELETE FROM quizzes WHERE category_id = ?", categoryId);
+    jdbc.update("DELETE FROM choices WHERE question_id IN (SELECT id FROM questions WHERE category_id = ?)",
+        categoryId);
+    jdbc.update("DELETE FROM questions WHERE category_id = ?", categoryId);
+    jdbc.update("DELETE FROM categories WHERE id = ?", categoryId);
+  }
+
+  @Test
+  void choiceSubmittedDuringCompletionIsScoredOrRejected() throws Exception {
+    Category category = categoryService.create("Answer race " + UUID.randomUUID(), null);
+    categoryId = category.getId();
+    Question question = new Question(Question.Type.UNIQUE_CHOICE, Question.Difficulty.EASY,
+        "Pick the right choice", category);
+    Choice right = new Choice();
+    right.setQuestion(question);
+    right.setChoiceText("Right");
+    right.setCorrect(true);
+    question.getChoices().add(right);
+    question = questionRepository.save(question);
+    Long questionId = question.getId();
+    Long choiceId = question.getChoices().get(0).getId();
+    Quiz quiz = quizService.createWithQuestions(UUID.randomUUID(), categoryId, List.of(questionId));
+
+    ExecutorService pool = Executors.newFixedThreadPool(2);
+    try {
+      for (int round = 0; round < ROUNDS; round++) {
+        Long attemptId = attemptService.startAttempt(quiz.getId()).id();
+        CountDownLatch start = new CountDownLatch(1);
+        Future<Boolean> submit = pool.submit(() -> {
+          start.await();
+          try {
+            selectedChoiceService.submitChoice(
+                new AttemptSelectedChoiceRequest.Submit(attemptId, questionId, choiceId));
+            return true;
+          } catch (IllegalStateException e) {
+            return false;
+          }
+        });
+        Future<?> complete = pool.submit(() -> {
+          start.await();
+          return attemptService.completeAttempt(attemptId);
+        });
+        start.countDown();
+        boolean submitted = submit.get(30, TimeUnit.SECONDS);
+        complete.get(30, TimeUnit.SECONDS);
+
+        int expected = submitted ? 1 : 0;
+        Attempt attempt = attemptService.getRequired(attemptId);
+        assertEquals(expected, choiceStore.countByAttemptId(attemptId), "round " + round);
+        assertEquals(expected, attempt.getCorrectCount(), "round " + round);
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+}
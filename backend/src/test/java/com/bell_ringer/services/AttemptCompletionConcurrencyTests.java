@@ -0,0 +1,97 @@
+package com.bell_ringer.services;
+
+import com.bell_ringer.models.Category;
+import com.bell_ringer.models.Quiz;
+import com.bell_ringer.repositories.AttemptRepository;
+import com.bell_ringer.repositories.QuizRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Concurrent completions of the same attempt: exactly one wins, every other
+ * caller sees the attempt as already completed.
+ */
+@SpringBootTest
+class AttemptCompletionConcurrencyTests {
+
+  private static final int THREADS = 16;
+
+  @Autowired
+  private AttemptService attemptService;
+  @Autowired
+  private QuizService quizService;
+  @Autowired
+  private CategoryService categoryService;
+  @Autowired
+  private AttemptRepository attemptRepository;
+  @Autowired
+  private QuizRepository quizRepository;
+
+  private Long categoryId;
+  private Long quizId;
+
+  @AfterEach
+  void cleanUp() {
+    if (quizId != null) {
+      attemptRepository.deleteAll(attemptRepository.findByQuizId(quizId));
+      quizRepository.deleteById(quizId);
+    }
+    if (categoryId != null) {
+      categoryService.delete(categoryId);
+    }
+  }
+
+  @Test
+  void exactlyOneConcurrentCompletionWins() throws Exception {
+    Category category = categoryService.create("Completion race " + UUID.randomUUID(), null);
+    categoryId = category.getId();
+    Quiz quiz = quizService.create(UUID.randomUUID(), categoryId);
+    quizId = quiz.getId();
+    Long attemptId = attemptService.startAttempt(quizId).id();
+
+    ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<Boolean>> results = new ArrayList<>();
+    try {
+      for (int i = 0; i < THREADS; i++) {
+        results.add(pool.submit(() -> {
+          start.await();
+          try {
+            attemptService.completeAttempt(attemptId);
+            return true;
+          } catch (IllegalStateException e) {
+            return false;
+          }
+        }));
+      }
+      start.countDown();
+
+      int wins = 0;
+      for (Future<Boolean> result : results) {
+        if (result.get(30, TimeUnit.SECONDS)) wins++;
+      }
+      assertEquals(1, wins);
+    } finally {
+      pool.shutdownNow();
+    }
+
+    assertNotNull(attemptService.getRequired(attemptId).getCompletedAt());
+    assertNotNull(quizService.getRequired(quizId).getCompletedAt());
+    assertThrows(IllegalStateException.class, () -> attemptService.completeAttempt(attemptId));
+  }
+}
@@ -0,0 +1,128 @@
+package com.bell_ringer.services;
+
+import com.bell_ringer.models.Category;
+import com.bell_ringer.models.Question;
+import com.bell_ringer.models.Quiz;
+import com.bell_ringer.repositories.QuestionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Archiving a month rolls its attempts up, detaches its partitions (answer
+ * tables included, although they reference the attempts), exports and drops
+ * them.
+ */
+@SpringBootTest(properties = "bellringer.partitions.archive-dir=target/test-archive/attempts")
+class AttemptPartitionArchiveTests {
+
+  // Far enough ahead that ensure_attempt_partitions never creates it
+  private static final String MONTH = "299901";
+  private static final long BASE = 299901L * 1_000_000_000L;
+  private static final long NEXT_BASE = 299902L * 1_000_000_000L;
+  private static final List<String> TABLES = List.of("attempts", "attempt_selected_choices",
+      "attempt_choice_sets", "attempt_text_answers");
+  private static final Path ARCHIVE = Path.of("target/test-archive/attempts");
+
+  @Autowired
+  private AttemptPartitionService partitions;
+  @Autowired
+  private QuizService quizService;
+  @Autowired
+  private AttemptService attemptService;
+  @Autowired
+  private CategoryService categoryService;
+  @Autowired
+  private QuestionRepository questionRepository;
+  @Autowired
+  private JdbcTemplate jdbc;
+
+  private Long categoryId;
+  private final UUID userId = UUID.randomUUID();
+
+  @BeforeEach
+  void setUp() {
+    for (String table : TABLES) {
+      jdbc.execute(String.format("CREATE TABLE %s_p%s PARTITION OF %s FOR VALUES FROM (%d) TO (%d)",
+          table, MONTH, table, BASE, NEXT_BASE));
+    }
+  }
+
+  @AfterEach
+  void cleanUp() throws IOException {
+    for (String table : TABLES.reversed()) {
+      jdbc.execute(String.format("DROP TABLE IF EXISTS %s_p%s", table, MONTH));
+      Files.deleteIfExists(ARCHIVE.resolve(table + "_p" + MONTH + ".csv.gz"));
+    }
+    jdbc.update("DELETE FROM archived_attempt_months WHERE month = ?", MONTH);
+    jdbc.update("DELETE FROM user_attempt_rollups WHERE user_id = ?", userId);
+    jdbc.update("DELETE FROM user_completed_quiz_rollups WHERE user_id = ?", userId);
+    jdbc.update("DELETE FROM user_difficulty_rollups WHERE user_id = ?", userId);
+    if (categoryId == null) return;
+    jdbc.update("DELETE FROM archived_score_bins WHERE category_id = ?", categoryId);
+    String quizzes = "SELECT id FROM quizzes WHERE category_id = ?";
+    jdbc.update("DELETE FROM attempts WHERE quiz_id IN (" + quizzes + ")", categoryId);
+    jdbc.update("DELETE FROM quiz_questions WHERE quiz_id IN (" + quizzes + ")", categoryId);
+    jdbc.update("DELETE FROM quizzes WHERE category_id = ?", categoryId);
+    jdbc.update("DELETE FROM questions WHERE category_id = ?", categoryId);
+    jdbc.update("DELETE FROM categories WHERE id = ?", categoryId);
+  }
+
+  @Test
+  void archivingAMonthRollsItUpAndDropsItsPartitions() {
+    Category category = categoryService.create("Archive " + UUID.randomUUID(), null);
+    categoryId = category.getId();
+    Question question = questionRepository.save(new Question(Question.Type.SHORT_ANSWER,
+        Question.Difficulty.MEDIUM, "Name the capital of France", category));
+    Quiz quiz = quizService.createWithQuestions(userId, categoryId, List.of(question.getId()));
+    long attemptId = BASE + 1;
+    jdbc.update("""
+        INSERT INTO attempts (id, quiz_id, started_at, completed_at, correct_count, total_count, success_rate, user_id)
+        VALUES (?, ?, now(), now(), 1, 1, 1.0, ?)
+        """, attemptId, quiz.getId(), userId);
+    jdbc.update("""
+        INSERT INTO attempt_text_answers (attempt_id, question_id, quiz_id, answer_text, score, is_correct, answered_at)
+        VALUES (?, ?, ?, 'Paris', 100, true, now())
+        """, attemptId, question.getId(), quiz.getId());
+
+    assertTrue(partitions.archive(MONTH));
+
+    for (String table : TABLES) {
+      String name = table + "_p" + MONTH;
+      assertFalse(jdbc.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, name), name);
+      assertTrue(Files.exists(ARCHIVE.resolve(name + ".csv.gz")), name);
+    }
+    Map<String, Object> rollup = jdbc.queryForMap(
+        "SELECT completed_attempts, correct_count, total_count FROM user_attempt_rollups WHERE user_id = ?", userId);
+    assertEquals(1L, ((Number) rollup.get("completed_attempts")).longValue());
+    assertEquals(1L, ((Number) rollup.get("correct_count")).longValue());
+    assertEquals(1L, ((Number) rollup.get("total_count")).longValue());
+    assertEquals(1L, jdbc.queryForObject(
+        "SELECT SUM(correct) FROM user_difficulty_rollups WHERE user_id = ?", Long.class, userId));
+    assertEquals(1L, jdbc.queryForObject(
+        "SELECT attempts FROM archived_score_bins WHERE category_id = ? AND bin = ?", Long.class,
+        categoryId, ScoreDistributions.BINS - 1));
+    assertNotNull(jdbc.queryForObject(
+        "SELECT archived_to FROM archived_attempt_months WHERE month = ?", String.class, MONTH));
+
+    // Attempted again this month: still one completed quiz
+    assertEquals(1L, quizService.countCompletedByUserAndCategory(userId, categoryId));
+    attemptService.completeAttempt(attemptService.startAttempt(quiz.getId()).id());
+    assertEquals(1L, quizService.countCompletedByUserAndCategory(userId, categoryId));
+  }
+}
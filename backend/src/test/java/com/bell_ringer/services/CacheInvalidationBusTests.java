@@ -0,0 +1,81 @@
+package com.bell_ringer.services;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * What goes out on the invalidation channel, and which local evictions and
+ * events a notification from another node turns into.
+ */
+class CacheInvalidationBusTests {
+
+  private static final String CHANNEL = "bellringer_cache";
+
+  private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+  private final ApplicationEventPublisher events = mock(ApplicationEventPublisher.class);
+  private final SecondLevelCacheEviction secondLevelCache = mock(SecondLevelCacheEviction.class);
+  private final CacheInvalidationBus bus = new CacheInvalidationBus(jdbc, events, secondLevelCache,
+      new DataSourceProperties(), true, CHANNEL, Duration.ofSeconds(10), Duration.ofSeconds(5));
+
+  @Test
+  void remoteNotificationsBecomeLocalEvictions() {
+    bus.handle("other-node:CATEGORY:1,2");
+    verify(secondLevelCache).evictCategories(Set.of(1L, 2L));
+
+    bus.handle("other-node:QUESTION:7");
+    verify(events).publishEvent((Object) new QuestionBankChangedEvent(Set.of(), Set.of(7L), Set.of()));
+
+    bus.handle("other-node:QUESTION:*");
+    verify(events).publishEvent((Object) QuestionBankChangedEvent.everything());
+
+    bus.handle("other-node:ATTEMPT:5,6");
+    verify(events).publishEvent((Object) new AttemptsCompletedEvent(Set.of(5L, 6L)));
+
+    // A regrade cannot be applied from ids: listeners rebuild
+    bus.handle("other-node:ATTEMPT_SCORE:9");
+    verify(events).publishEvent((Object) new AttemptsCompletedEvent(Set.of()));
+  }
+
+  @Test
+  void ownAndMalformedNotificationsAreIgnored() {
+    bus.publish(CacheInvalidationBus.EntityType.CATEGORY, List.of(3L));
+    bus.handle(sentPayload());
+
+    bus.handle("no separators");
+    bus.handle("other-node:UNKNOWN:1");
+    bus.handle("other-node:QUESTION:1,x");
+
+    verifyNoInteractions(events, secondLevelCache);
+  }
+
+  @Test
+  void idsThatDoNotFitAreSentAsEverything() {
+    bus.publish(CacheInvalidationBus.EntityType.QUESTION, LongStream.range(1_000_000, 1_002_000).boxed().toList());
+    String payload = sentPayload();
+    assertTrue(payload.endsWith(":QUESTION:*"), payload);
+    assertEquals(3, payload.split(":").length);
+  }
+
+  private String sentPayload() {
+    ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+    verify(jdbc).query(eq("SELECT pg_notify(?, ?)"), any(ResultSetExtractor.class), eq(CHANNEL), payload.capture());
+    return (String) payload.getValue();
+  }
+}
@@ -0,0 +1,93 @@
+package com.bell_ringer.services;
+
+import com.bell_ringer.models.Category;
+import com.bell_ringer.models.Question;
+import com.bell_ringer.models.Quiz;
+import com.bell_ringer.repositories.QuestionRepository;
+import com.bell_ringer.services.dto.AttemptTextAnswerRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Grading a text answer of a completed attempt updates the score stored on
+ * the attempt, so results and stats reflect the grade.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@WithMockUser
+class GradingRescoreTests {
+
+  @Autowired
+  private MockMvc mvc;
+  @Autowired
+  private AttemptService attemptService;
+  @Autowired
+  private AttemptTextAnswerService textAnswerService;
+  @Autowired
+  private QuizService quizService;
+  @Autowired
+  private CategoryService categoryService;
+  @Autowired
+  private QuestionRepository questionRepository;
+  @Autowired
+  private JdbcTemplate jdbc;
+
+  private Long categoryId;
+
+  @AfterEach
+  void cleanUp() {
+    if (categoryId == null) return;
+    String quizzes = "SELECT id FROM quizzes WHERE category_id = ?";
+    jdbc.update("DELETE FROM attempt_text_answers WHERE quiz_id IN (" + quizzes + ")", categoryId);
+    jdbc.update("DELETE FROM attempts WHERE quiz_id IN (" + quizzes + ")", categoryId);
+    jdbc.update("DELETE FROM quiz_questions WHERE quiz_id IN (" + quizzes + ")", categoryId);
+    jdbc.update("DELETE FROM quizzes WHERE category_id = ?", categoryId);
+    jdbc.update("DELETE FROM questions WHERE category_id = ?", categoryId);
+    jdbc.update("DELETE FROM categories WHERE id = ?", categoryId);
+  }
+
+  @Test
+  void gradingACompletedAttemptUpdatesResultsAndStats() throws Exception {
+    Category category = categoryService.create("Regrade " + UUID.randomUUID(), null);
+    categoryId = category.getId();
+    Question question = questionRepository.save(new Question(Question.Type.SHORT_ANSWER,
+        Question.Difficulty.MEDIUM, "Name the capital of France", category));
+    UUID userId = UUID.randomUUID();
+    Quiz quiz = quizService.createWithQuestions(userId, categoryId, List.of(question.getId()));
+    Long attemptId = attemptService.startAttempt(quiz.getId()).id();
+
+    // No rubric: the automatic score passes the answer
+    textAnswerService.submitTextAnswer(new AttemptTextAnswerRequest.Submit(attemptId, question.getId(), "Lyon"));
+    attemptService.completeAttempt(attemptId);
+    mvc.perform(get("/api/v1/attempts/user/{userId}/results", userId))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$[0].correctAnswers").value(1));
+
+    textAnswerService.gradeTextAnswer(attemptId, question.getId(),
+        new AttemptTextAnswerRequest.Grade(0, false, "The capital is Paris"));
+
+    mvc.perform(get("/api/v1/attempts/user/{userId}/results", userId))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$[0].attemptId").value(attemptId))
+        .andExpect(jsonPath("$[0].correctAnswers").value(0))
+        .andExpect(jsonPath("$[0].totalQuestions").value(1))
+        .andExpect(jsonPath("$[0].successRate").value(0.0));
+    mvc.perform(get("/api/v1/attempts/user/{userId}/stats", userId))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.completedAttempts").value(1))
+        .andExpect(jsonPath("$.successRate").value(0.0));
+  }
+}
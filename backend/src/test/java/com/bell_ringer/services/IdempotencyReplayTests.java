@@ -0,0 +1,128 @@
+package com.bell_ringer.services;
+
+import com.bell_ringer.config.IdempotencyFilter;
+import com.bell_ringer.models.Category;
+import com.bell_ringer.models.Choice;
+import com.bell_ringer.models.Question;
+import com.bell_ringer.models.Quiz;
+import com.bell_ringer.repositories.QuestionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * A retried request with the same Idempotency-Key gets the recorded response
+ * without running again; the key cannot be reused for a different body.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class IdempotencyReplayTests {
+
+  private static final String CHOICES = "/api/v1/attempt-choices";
+
+  @Autowired
+  private MockMvc mvc;
+  @Autowired
+  private AttemptService attemptService;
+  @Autowired
+  private QuizService quizService;
+  @Autowired
+  private CategoryService categoryService;
+  @Autowired
+  private QuestionRepository questionRepository;
+  @Autowired
+  private JdbcTemplate jdbc;
+
+  private Long categoryId;
+  private Long questionId;
+  private List<Long> choiceIds;
+  private Long attemptId;
+  private final String key = UUID.randomUUID().toString();
+
+  @BeforeEach
+  void setUp() {
+    Category category = categoryService.create("Idempotency " + UUID.randomUUID(), null);
+    categoryId = category.getId();
+    Question question = new Question(Question.Type.MULTIPLE_CHOICE, Question.Difficulty.EASY,
+        "Pick any choices", category);
+    for (int c = 0; c < 2; c++) {
+      Choice choice = new Choice();
+      choice.setQuestion(question);
+      choice.setChoiceText("Choice " + c);
+      choice.setCorrect(true);
+      question.getChoices().add(choice);
+    }
+    question = questionRepository.save(question);
+    questionId = question.getId();
+    choiceIds = question.getChoices().stream().map(Choice::getId).toList();
+    Quiz quiz = quizService.createWithQuestions(UUID.randomUUID(), categoryId, List.of(questionId));
+    attemptId = attemptService.startAttempt(quiz.getId()).id();
+  }
+
+  @AfterEach
+  void cleanUp() {
+    String quizzes = "SELECT id FROM quizzes WHERE category_id = ?";
+    jdbc.update("DELETE FROM attempt_selected_choices WHERE quiz_id IN (" + quizzes + ")", categoryId);
+    jdbc.update("DELETE FROM attempts WHERE quiz_id IN (" + quizzes + ")", categoryId);
+    jdbc.update("DELETE FROM quiz_questions WHERE quiz_id IN (" + quizzes + ")", categoryId);
+    jdbc.update("DELETE FROM quizzes WHERE category_id = ?", categoryId);
+    jdbc.update("DELETE FROM choices WHERE question_id IN (SELECT id FROM questions WHERE category_id = ?)",
+        categoryId);
+    jdbc.update("DELETE FROM questions WHERE category_id = ?", categoryId);
+    jdbc.update("DELETE FROM categories WHERE id = ?", categoryId);
+  }
+
+  @Test
+  @WithMockUser(username = "student")
+  void retryIsReplayedWithoutRunningAgain() throws Exception {
+    String first = submit(choiceIds.get(0))
+        .andExpect(status().isCreated())
+        .andExpect(header().doesNotExist(IdempotencyFilter.REPLAYED_HEADER))
+        .andReturn().getResponse().getContentAsString();
+
+    String retried = submit(choiceIds.get(0))
+        .andExpect(status().isCreated())
+        .andExpect(header().string(IdempotencyFilter.REPLAYED_HEADER, "true"))
+        .andReturn().getResponse().getContentAsString();
+
+    assertEquals(first, retried);
+    assertEquals(1, selections());
+  }
+
+  @Test
+  @WithMockUser(username = "student")
+  void reusingAKeyForAnotherRequestIsRefused() throws Exception {
+    submit(choiceIds.get(0)).andExpect(status().isCreated());
+
+    submit(choiceIds.get(1)).andExpect(status().isUnprocessableEntity());
+    assertEquals(1, selections());
+  }
+
+  private ResultActions submit(Long choiceId) throws Exception {
+    return mvc.perform(post(CHOICES)
+        .header(IdempotencyFilter.HEADER, key)
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("{\"attemptId\":" + attemptId + ",\"questionId\":" + questionId + ",\"choiceId\":" + choiceId + "}"));
+  }
+
+  private int selections() {
+    return jdbc.queryForObject("SELECT COUNT(*) FROM attempt_selected_choices WHERE attempt_id = ?",
+        Integer.class, attemptId);
+  }
+}
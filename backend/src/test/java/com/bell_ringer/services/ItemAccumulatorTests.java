@@ -0,0 +1,75 @@
+package com.bell_ringer.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * The discrimination of QuestionStatsService is the point-biserial
+ * correlation, i.e. Pearson's r between answering correctly (0/1) and the
+ * rest score, whether the responses are added in one accumulator or
+ * combined from several chunks.
+ */
+class ItemAccumulatorTests {
+
+  private static final double DELTA = 1e-12;
+
+  private static final boolean[] CORRECT = { true, true, false, true, false, false, true, false };
+  private static final double[] REST = { 8, 6, 4, 7, 3, 5, 2, 6 };
+
+  @Test
+  void discriminationIsThePearsonCorrelation() {
+    QuestionStatsService.ItemAccumulator acc = new QuestionStatsService.ItemAccumulator();
+    for (int i = 0; i < CORRECT.length; i++) acc.add(CORRECT[i], REST[i]);
+
+    assertEquals(0.5, acc.pValue(), DELTA);
+    assertEquals(pearson(CORRECT, REST), acc.discrimination(), DELTA);
+  }
+
+  @Test
+  void combinedChunksGiveTheSameResult() {
+    QuestionStatsService.ItemAccumulator first = new QuestionStatsService.ItemAccumulator();
+    QuestionStatsService.ItemAccumulator second = new QuestionStatsService.ItemAccumulator();
+    for (int i = 0; i < CORRECT.length; i++) (i < 3 ? first : second).add(CORRECT[i], REST[i]);
+
+    QuestionStatsService.ItemAccumulator combined = QuestionStatsService.ItemAccumulator.combine(first, second);
+    assertEquals(pearson(CORRECT, REST), combined.discrimination(), DELTA);
+  }
+
+  @Test
+  void undefinedWithoutBothOutcomesOrSpread() {
+    QuestionStatsService.ItemAccumulator allCorrect = new QuestionStatsService.ItemAccumulator();
+    allCorrect.add(true, 3);
+    allCorrect.add(true, 5);
+    assertNull(allCorrect.discrimination());
+
+    QuestionStatsService.ItemAccumulator sameRest = new QuestionStatsService.ItemAccumulator();
+    sameRest.add(true, 4);
+    sameRest.add(false, 4);
+    assertNull(sameRest.discrimination());
+  }
+
+  private static double pearson(boolean[] correct, double[] rest) {
+    int n = rest.length;
+    double meanX = 0;
+    double meanY = 0;
+    for (int i = 0; i < n; i++) {
+      meanX += correct[i] ? 1 : 0;
+      meanY += rest[i];
+    }
+    meanX /= n;
+    meanY /= n;
+    double cov = 0;
+    double varX = 0;
+    double varY = 0;
+    for (int i = 0; i < n; i++) {
+      double dx = (correct[i] ? 1 : 0) - meanX;
+      double dy = rest[i] - meanY;
+      cov += dx * dy;
+      varX += dx * dx;
+      varY += dy * dy;
+    }
+    return cov / Math.sqrt(varX * varY);
+  }
+}
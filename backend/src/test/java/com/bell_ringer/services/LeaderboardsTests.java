@@ -0,0 +1,99 @@
+package com.bell_ringer.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Top-N and rank with ties, scores past the initial Fenwick tree size, and
+ * which completions count towards the weekly and monthly boards. Completions
+ * outside a transaction are applied at once, so no database is needed.
+ */
+class LeaderboardsTests {
+
+  private static final Long CATEGORY = 1L;
+
+  private final Leaderboards leaderboards = new Leaderboards(null, ZoneId.of("Europe/Paris"));
+
+  @AfterEach
+  void stop() {
+    leaderboards.stop();
+  }
+
+  @Test
+  void tiesShareARank() {
+    UUID first = new UUID(0, 1);
+    UUID tiedA = new UUID(0, 2);
+    UUID tiedB = new UUID(0, 3);
+    UUID last = new UUID(0, 4);
+    complete(tiedA, 5);
+    complete(last, 3);
+    complete(first, 7);
+    complete(tiedB, 5);
+
+    Leaderboards.Standings standings = leaderboards.top(CATEGORY, Leaderboards.Window.ALL, 10);
+    assertEquals(4, standings.users());
+    assertEquals(List.of(
+        new Leaderboards.Standing(1, first, 7),
+        new Leaderboards.Standing(2, tiedA, 5),
+        new Leaderboards.Standing(2, tiedB, 5),
+        new Leaderboards.Standing(4, last, 3)), standings.top());
+    assertEquals(2, leaderboards.top(CATEGORY, Leaderboards.Window.ALL, 2).top().size());
+
+    assertEquals(2, rank(tiedB));
+    assertEquals(4, rank(last));
+  }
+
+  @Test
+  void ranksHoldPastTheInitialScoreRange() {
+    UUID low = UUID.randomUUID();
+    UUID high = UUID.randomUUID();
+    complete(low, 10);
+    complete(high, 5000);
+    assertEquals(1, rank(high));
+    assertEquals(2, rank(low));
+
+    // A regrade takes points back; scores stop at zero
+    leaderboards.onAttemptRescored(high, CATEGORY, -6000, OffsetDateTime.now());
+    assertEquals(0, leaderboards.standing(CATEGORY, Leaderboards.Window.ALL, high).orElseThrow().score());
+    assertEquals(1, rank(low));
+  }
+
+  @Test
+  void olderCompletionsOnlyCountForAllTime() {
+    UUID user = UUID.randomUUID();
+    leaderboards.onAttemptCompleted(user, CATEGORY, 4, OffsetDateTime.now().minusMonths(2));
+
+    assertEquals(4, leaderboards.standing(CATEGORY, Leaderboards.Window.ALL, user).orElseThrow().score());
+    assertTrue(leaderboards.standing(CATEGORY, Leaderboards.Window.MONTH, user).isEmpty());
+    assertTrue(leaderboards.top(CATEGORY, Leaderboards.Window.WEEK, 10).top().isEmpty());
+  }
+
+  @Test
+  void periodsStartAtTheZonesWeekAndMonthBoundaries() {
+    // Sunday 2026-03-01 23:30 in Paris is still in the week that began Monday 2026-02-23
+    Instant sundayNight = OffsetDateTime.of(2026, 3, 1, 22, 30, 0, 0, ZoneOffset.UTC).toInstant();
+    assertEquals(OffsetDateTime.of(2026, 2, 22, 23, 0, 0, 0, ZoneOffset.UTC).toInstant(),
+        leaderboards.periodStart(Leaderboards.Window.WEEK, sundayNight));
+    assertEquals(OffsetDateTime.of(2026, 2, 28, 23, 0, 0, 0, ZoneOffset.UTC).toInstant(),
+        leaderboards.periodStart(Leaderboards.Window.MONTH, sundayNight));
+    assertEquals(Instant.EPOCH, leaderboards.periodStart(Leaderboards.Window.ALL, sundayNight));
+  }
+
+  private void complete(UUID userId, int correct) {
+    leaderboards.onAttemptCompleted(userId, CATEGORY, correct, OffsetDateTime.now());
+  }
+
+  private long rank(UUID userId) {
+    return leaderboards.standing(CATEGORY, Leaderboards.Window.ALL, userId).orElseThrow().rank();
+  }
+}
@@ -0,0 +1,81 @@
+package com.bell_ringer.services;
+
+import com.bell_ringer.models.Category;
+import com.bell_ringer.models.Quiz;
+import com.bell_ringer.repositories.QuizRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Live sessions expose every participant's answers, so only the quiz owner
+ * or a teacher may open one.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class LiveSessionAuthorizationTests {
+
+  private static final String SESSIONS = "/api/v1/live-sessions";
+
+  @Autowired
+  private MockMvc mvc;
+  @Autowired
+  private QuizService quizService;
+  @Autowired
+  private CategoryService categoryService;
+  @Autowired
+  private QuizRepository quizRepository;
+
+  private Long categoryId;
+  private Long quizId;
+
+  @BeforeEach
+  void setUp() {
+    Category category = categoryService.create("Live auth " + UUID.randomUUID(), null);
+    categoryId = category.getId();
+    // Owned by a user the mock principal can never resolve to
+    Quiz quiz = quizService.create(UUID.randomUUID(), categoryId);
+    quizId = quiz.getId();
+  }
+
+  @AfterEach
+  void cleanUp() {
+    if (quizId != null) {
+      quizRepository.deleteById(quizId);
+    }
+    if (categoryId != null) {
+      categoryService.delete(categoryId);
+    }
+  }
+
+  @Test
+  @WithMockUser(username = "student")
+  void openingAnotherUsersQuizIsForbidden() throws Exception {
+    mvc.perform(post(SESSIONS).param("quizId", quizId.toString()))
+        .andExpect(status().isForbidden());
+  }
+
+  @Test
+  @WithMockUser(username = "teacher", roles = "TEACHER")
+  void teacherCanOpenAndCloseAnySession() throws Exception {
+    String body = mvc.perform(post(SESSIONS).param("quizId", quizId.toString()))
+        .andExpect(status().isCreated())
+        .andExpect(jsonPath("$.quizId").value(quizId))
+        .andReturn().getResponse().getContentAsString();
+    String sessionId = body.replaceAll(".*\"sessionId\"\\s*:\\s*\"([^\"]+)\".*", "$1");
+    mvc.perform(delete(SESSIONS + "/{id}", sessionId))
+        .andExpect(status().is2xxSuccessful());
+  }
+}
@@ -0,0 +1,100 @@
+package com.bell_ringer.services;
+
+import com.bell_ringer.models.Category;
+import com.bell_ringer.models.Choice;
+import com.bell_ringer.models.Question;
+import com.bell_ringer.models.Quiz;
+import com.bell_ringer.models.id.AttemptSelectedChoiceId;
+import com.bell_ringer.repositories.QuestionRepository;
+import com.bell_ringer.services.dto.AttemptSelectedChoiceDto;
+import com.bell_ringer.services.dto.AttemptSelectedChoiceRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Single selected choices are still found once the attempt's selections have
+ * been packed into attempt_choice_sets.
+ */
+@SpringBootTest
+class PackedSelectedChoiceTests {
+
+  @Autowired
+  private AttemptSelectedChoiceService selectedChoiceService;
+  @Autowired
+  private SelectedChoiceStore choiceStore;
+  @Autowired
+  private AttemptService attemptService;
+  @Autowired
+  private QuizService quizService;
+  @Autowired
+  private CategoryService categoryService;
+  @Autowired
+  private QuestionRepository questionRepository;
+  @Autowired
+  private JdbcTemplate jdbc;
+
+  private Long categoryId;
+
+  @AfterEach
+  void cleanUp() {
+    if (categoryId == null) return;
+    String quizzes = "SELECT id FROM quizzes WHERE category_id = ?";
+    jdbc.update("DELETE FROM attempt_selected_choices WHERE quiz_id IN (" + quizzes + ")", categoryId);
+    jdbc.update("DELETE FROM attempt_choice_sets WHERE quiz_id IN (" + quizzes + ")", categoryId);
+    jdbc.update("DELETE FROM attempts WHERE quiz_id IN (" + quizzes + ")", categoryId);
+    jdbc.update("DELETE FROM quiz_questions WHERE quiz_id IN (" + quizzes + ")", categoryId);
+    jdbc.update("DELETE FROM quizzes WHERE category_id = ?", categoryId);
+    jdbc.update("DELETE FROM choices WHERE question_id IN (SELECT id FROM questions WHERE category_id = ?)",
+        categoryId);
+    jdbc.update("DELETE FROM questions WHERE category_id = ?", categoryId);
+    jdbc.update("DELETE FROM categories WHERE id = ?", categoryId);
+  }
+
+  @Test
+  void selectedChoiceOfAPackedAttemptIsFoundById() {
+    Category category = categoryService.create("Packed " + UUID.randomUUID(), null);
+    categoryId = category.getId();
+    Question question = new Question(Question.Type.UNIQUE_CHOICE, Question.Difficulty.EASY,
+        "Pick the first choice", category);
+    for (int c = 0; c < 2; c++) {
+      Choice choice = new Choice();
+      choice.setQuestion(question);
+      choice.setChoiceText("Choice " + c);
+      choice.setCorrect(c == 0);
+      question.getChoices().add(choice);
+    }
+    question = questionRepository.save(question);
+    Long selectedId = question.getChoices().get(0).getId();
+    Long otherId = question.getChoices().get(1).getId();
+
+    Quiz quiz = quizService.createWithQuestions(UUID.randomUUID(), categoryId, List.of(question.getId()));
+    Long attemptId = attemptService.startAttempt(quiz.getId()).id();
+    selectedChoiceService.submitChoice(
+        new AttemptSelectedChoiceRequest.Submit(attemptId, question.getId(), selectedId));
+    attemptService.completeAttempt(attemptId);
+    // Packed already when completed attempts are packed by configuration
+    choiceStore.pack(attemptId);
+    assertEquals(0, jdbc.queryForObject(
+        "SELECT COUNT(*) FROM attempt_selected_choices WHERE attempt_id = ?", Integer.class, attemptId));
+
+    AttemptSelectedChoiceId id = new AttemptSelectedChoiceId(attemptId, question.getId(), selectedId);
+    assertTrue(selectedChoiceService.findById(id).isPresent());
+    AttemptSelectedChoiceDto dto = selectedChoiceService.getRequiredDto(id);
+    assertEquals(selectedId, dto.choiceId());
+    assertEquals(quiz.getId(), dto.quizId());
+
+    AttemptSelectedChoiceId unselected = new AttemptSelectedChoiceId(attemptId, question.getId(), otherId);
+    assertTrue(selectedChoiceService.findById(unselected).isEmpty());
+    assertThrows(IllegalArgumentException.class, () -> selectedChoiceService.getRequired(unselected));
+  }
+}
@@ -0,0 +1,54 @@
+package com.bell_ringer.services;
+
+import com.bell_ringer.config.SqlProfiler;
+import org.junit.jupiter.api.function.Executable;
+import org.junit.jupiter.api.function.ThrowingSupplier;
+
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Test assertion on the number of JDBC statements a call may issue, counted
+ * by the {@link SqlProfiler} on the calling thread (MockMvc requests included):
+ *
+ * <pre>
+ * budget.atMost(2, () -> mvc.perform(get("/api/v1/...")).andExpect(status().isOk()));
+ * </pre>
+ *
+ * A call over budget fails with the statements it executed, so an N+1 shows
+ * up in the build rather than in production.
+ */
+final class QueryBudget {
+
+  private final SqlProfiler profiler;
+
+  QueryBudget(SqlProfiler profiler) {
+    this.profiler = profiler;
+  }
+
+  void atMost(int maxStatements, Executable call) {
+    atMost(maxStatements, () -> {
+      call.execute();
+      return null;
+    });
+  }
+
+  <T> T atMost(int maxStatements, ThrowingSupplier<T> call) {
+    T result;
+    SqlProfiler.Scope scope = profiler.open();
+    try {
+      result = call.get();
+    } catch (Throwable t) {
+      throw new AssertionError("Call under query budget failed", t);
+    } finally {
+      scope.close();
+    }
+    if (scope.statements() > maxStatements) {
+      fail(scope.statements() + " statements, budget " + maxStatements + ":\n" + scope.executed().stream()
+          .map(SqlProfiler.ExecutedStatement::sql)
+          .collect(Collectors.joining("\n")));
+    }
+    return result;
+  }
+}
@@ -0,0 +1,106 @@
+package com.bell_ringer.services;
+
+import com.bell_ringer.config.SqlProfiler;
+import com.bell_ringer.models.Category;
+import com.bell_ringer.models.Quiz;
+import com.bell_ringer.repositories.AttemptRepository;
+import com.bell_ringer.repositories.QuizRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Controller calls stay within their query budgets whatever the amount of
+ * data, and the per-endpoint SQL profile counts their statements.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@WithMockUser
+class QueryBudgetTests {
+
+  private static final int ATTEMPTS = 5;
+  private static final String RESULTS = "/api/v1/attempts/user/{userId}/results";
+
+  @Autowired
+  private MockMvc mvc;
+  @Autowired
+  private SqlProfiler profiler;
+  @Autowired
+  private AttemptService attemptService;
+  @Autowired
+  private QuizService quizService;
+  @Autowired
+  private CategoryService categoryService;
+  @Autowired
+  private AttemptRepository attemptRepository;
+  @Autowired
+  private QuizRepository quizRepository;
+
+  private QueryBudget budget;
+  private Long categoryId;
+  private final UUID userId = UUID.randomUUID();
+  private final List<Long> quizIds = new ArrayList<>();
+
+  @BeforeEach
+  void setUp() {
+    budget = new QueryBudget(profiler);
+    Category category = categoryService.create("Query budget " + UUID.randomUUID(), null);
+    categoryId = category.getId();
+    for (int i = 0; i < ATTEMPTS; i++) {
+      Quiz quiz = quizService.create(userId, categoryId);
+      quizIds.add(quiz.getId());
+      attemptService.completeAttempt(attemptService.startAttempt(quiz.getId()).id());
+    }
+  }
+
+  @AfterEach
+  void cleanUp() {
+    for (Long quizId : quizIds) {
+      attemptRepository.deleteAll(attemptRepository.findByQuizId(quizId));
+      quizRepository.deleteById(quizId);
+    }
+    if (categoryId != null) {
+      categoryService.delete(categoryId);
+    }
+  }
+
+  @Test
+  void quizResultsDoNotQueryPerAttempt() {
+    budget.atMost(2, () -> mvc.perform(get(RESULTS, userId))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(ATTEMPTS)));
+  }
+
+  @Test
+  void callOverBudgetFails() {
+    assertThrows(AssertionError.class, () -> budget.atMost(0, () -> mvc.perform(get(RESULTS, userId))
+        .andExpect(status().isOk())));
+  }
+
+  @Test
+  void requestsAreProfiledPerEndpoint() throws Exception {
+    profiler.reset();
+    mvc.perform(get(RESULTS, userId)).andExpect(status().isOk());
+
+    SqlProfiler.EndpointReport report = profiler.report().get("GET " + RESULTS);
+    assertEquals(1, report.requests());
+    assertTrue(report.statements() > 0, "no statements recorded for " + RESULTS);
+    assertTrue(report.slowest().size() <= report.statements());
+  }
+}
@@ -0,0 +1,118 @@
+package com.bell_ringer.services;
+
+import com.bell_ringer.models.Category;
+import com.bell_ringer.models.Question;
+import com.bell_ringer.repositories.QuestionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Elo updates and regrade corrections of RatingEngine, flushes that add to
+ * what other nodes wrote, and the closest-rated question selection.
+ */
+@SpringBootTest
+class RatingEngineTests {
+
+  private static final double DELTA = 1e-9;
+
+  @Autowired
+  private RatingEngine ratings;
+  @Autowired
+  private CategoryService categoryService;
+  @Autowired
+  private QuestionRepository questionRepository;
+  @Autowired
+  private JdbcTemplate jdbc;
+
+  private Long categoryId;
+  private Long easyId;
+  private Long mediumId;
+  private Long hardId;
+  private UUID userId;
+
+  @BeforeEach
+  void setUp() {
+    Category category = categoryService.create("Ratings " + UUID.randomUUID(), null);
+    categoryId = category.getId();
+    easyId = save(Question.Difficulty.EASY, category);
+    mediumId = save(Question.Difficulty.MEDIUM, category);
+    hardId = save(Question.Difficulty.HARD, category);
+    userId = UUID.randomUUID();
+    ratings.reloadQuestions();
+  }
+
+  private Long save(Question.Difficulty difficulty, Category category) {
+    return questionRepository.save(new Question(Question.Type.TRUE_FALSE, difficulty,
+        "Rated " + difficulty, category)).getId();
+  }
+
+  @AfterEach
+  void cleanUp() {
+    ratings.flush();
+    // Ratings go with their category and questions (ON DELETE CASCADE)
+    jdbc.update("DELETE FROM questions WHERE category_id = ?", categoryId);
+    jdbc.update("DELETE FROM categories WHERE id = ?", categoryId);
+  }
+
+  @Test
+  void correctAnswerAndRegradeMoveTheRatings() {
+    // Equal ratings: expected score 0.5, provisional k doubled to 64
+    ratings.onAttemptCompleted(userId, categoryId, Map.of(mediumId, true));
+    assertEquals(1532, ratings.userRating(userId, categoryId), DELTA);
+
+    // Regraded to wrong: the whole k comes off, as if answered wrongly in the first place
+    ratings.onAnswerRegraded(userId, categoryId, mediumId, true, false);
+    assertEquals(1468, ratings.userRating(userId, categoryId), DELTA);
+  }
+
+  @Test
+  void flushAddsLocalChangesToStoredRatings() {
+    ratings.onAttemptCompleted(userId, categoryId, Map.of(mediumId, true));
+    ratings.flush();
+    assertEquals(1532, storedRating(), DELTA);
+    assertEquals(1L, storedAnswers());
+
+    // Another node flushes its own change in between
+    jdbc.update("UPDATE user_ratings SET rating = rating + 10, answers = answers + 5 "
+        + "WHERE user_id = ? AND category_id = ?", userId, categoryId);
+
+    double before = ratings.userRating(userId, categoryId);
+    ratings.onAttemptCompleted(userId, categoryId, Map.of(hardId, true));
+    double change = ratings.userRating(userId, categoryId) - before;
+    ratings.flush();
+
+    assertEquals(1532 + 10 + change, storedRating(), DELTA);
+    assertEquals(7L, storedAnswers());
+  }
+
+  @Test
+  void closestQuestionsStartFromTheUsersRating() {
+    List<Long> all = List.of(categoryId);
+    assertEquals(List.of(mediumId), ratings.closestQuestions(userId, categoryId, all, 1, null));
+
+    // Skipped questions only fill up what is left
+    List<Long> picked = ratings.closestQuestions(userId, categoryId, all, 3, id -> id == mediumId);
+    assertEquals(3, picked.size());
+    assertEquals(mediumId, picked.get(2));
+  }
+
+  private double storedRating() {
+    return jdbc.queryForObject("SELECT rating FROM user_ratings WHERE user_id = ? AND category_id = ?",
+        Double.class, userId, categoryId);
+  }
+
+  private long storedAnswers() {
+    return jdbc.queryForObject("SELECT answers FROM user_ratings WHERE user_id = ? AND category_id = ?",
+        Long.class, userId, categoryId);
+  }
+}
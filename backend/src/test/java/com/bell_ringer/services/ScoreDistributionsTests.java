@@ -0,0 +1,128 @@
+package com.bell_ringer.services;
+
+import com.bell_ringer.models.Category;
+import com.bell_ringer.models.Choice;
+import com.bell_ringer.models.Question;
+import com.bell_ringer.models.Quiz;
+import com.bell_ringer.repositories.QuestionRepository;
+import com.bell_ringer.services.dto.AttemptSelectedChoiceRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Flushes add this node's score changes to the stored histograms instead of
+ * overwriting them, and a rebuild counts archived months and every attempt
+ * once.
+ */
+@SpringBootTest
+class ScoreDistributionsTests {
+
+  private static final double DELTA = 1e-9;
+
+  @Autowired
+  private ScoreDistributions distributions;
+  @Autowired
+  private AttemptService attemptService;
+  @Autowired
+  private AttemptSelectedChoiceService selectedChoiceService;
+  @Autowired
+  private QuizService quizService;
+  @Autowired
+  private CategoryService categoryService;
+  @Autowired
+  private QuestionRepository questionRepository;
+  @Autowired
+  private JdbcTemplate jdbc;
+
+  private Long categoryId;
+  private Category category;
+
+  @BeforeEach
+  void setUp() {
+    category = categoryService.create("Scores " + UUID.randomUUID(), null);
+    categoryId = category.getId();
+  }
+
+  @AfterEach
+  void cleanUp() {
+    String quizzes = "SELECT id FROM quizzes WHERE category_id = ?";
+    jdbc.update("DELETE FROM archived_score_bins WHERE category_id = ?", categoryId);
+    jdbc.update("DELETE FROM attempt_selected_choices WHERE quiz_id IN (" + quizzes + ")", categoryId);
+    jdbc.update("DELETE FROM attempt_choice_sets WHERE quiz_id IN (" + quizzes + ")", categoryId);
+    jdbc.update("DELETE FROM attempts WHERE quiz_id IN (" + quizzes + ")", categoryId);
+    jdbc.update("DELETE FROM quiz_questions WHERE quiz_id IN (" + quizzes + ")", categoryId);
+    jdbc.update("DELETE FROM quizzes WHERE category_id = ?", categoryId);
+    jdbc.update("DELETE FROM choices WHERE question_id IN (SELECT id FROM questions WHERE category_id = ?)",
+        categoryId);
+    jdbc.update("DELETE FROM questions WHERE category_id = ?", categoryId);
+    jdbc.update("DELETE FROM categories WHERE id = ?", categoryId);
+  }
+
+  @Test
+  void flushAddsToCountsWrittenByOtherNodes() {
+    distributions.onAttemptCompleted(categoryId, 0.5, OffsetDateTime.now());
+    distributions.flush();
+    assertEquals(1L, storedCount(500));
+
+    // Another node flushes two scores of the same bin in between
+    jdbc.update("UPDATE score_sketches SET counts[501] = counts[501] + 2 WHERE category_id = ?", categoryId);
+
+    distributions.onAttemptCompleted(categoryId, 0.25, OffsetDateTime.now());
+    distributions.flush();
+    assertEquals(3L, storedCount(500));
+    assertEquals(1L, storedCount(250));
+
+    distributions.reload();
+    ScoreDistributions.Percentile percentile = distributions.percentile(categoryId, 0.5).orElseThrow();
+    assertEquals(4, percentile.peers());
+    assertEquals(0.25, percentile.betterThan(), DELTA);
+  }
+
+  @Test
+  void rebuildCountsArchivedMonthsAndEachAttemptOnce() {
+    jdbc.update("INSERT INTO archived_score_bins (category_id, bin, attempts) VALUES (?, 100, 3)", categoryId);
+    completeAttemptAnsweringRight();
+
+    distributions.rebuild(2);
+
+    ScoreDistributions.Percentile percentile = distributions.percentile(categoryId, 1.0).orElseThrow();
+    assertEquals(4, percentile.peers());
+    assertEquals(0.75, percentile.betterThan(), DELTA);
+    assertEquals(3L, storedCount(100));
+    assertEquals(1L, storedCount(ScoreDistributions.BINS - 1));
+  }
+
+  private void completeAttemptAnsweringRight() {
+    Question question = new Question(Question.Type.UNIQUE_CHOICE, Question.Difficulty.EASY,
+        "Pick the right choice", category);
+    for (int c = 0; c < 2; c++) {
+      Choice choice = new Choice();
+      choice.setQuestion(question);
+      choice.setChoiceText("Choice " + c);
+      choice.setCorrect(c == 0);
+      question.getChoices().add(choice);
+    }
+    question = questionRepository.save(question);
+    Quiz quiz = quizService.createWithQuestions(UUID.randomUUID(), categoryId, List.of(question.getId()));
+    Long attemptId = attemptService.startAttempt(quiz.getId()).id();
+    selectedChoiceService.submitChoice(new AttemptSelectedChoiceRequest.Submit(attemptId, question.getId(),
+        question.getChoices().get(0).getId()));
+    attemptService.completeAttempt(attemptId);
+  }
+
+  /** Stored count of a bin (arrays are 1-based) */
+  private long storedCount(int bin) {
+    return jdbc.queryForObject("SELECT counts[?] FROM score_sketches WHERE category_id = ?", Long.class,
+        bin + 1, categoryId);
+  }
+}
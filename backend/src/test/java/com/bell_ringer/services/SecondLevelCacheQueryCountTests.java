@@ -0,0 +1,130 @@
+package com.bell_ringer.services;
+
+import com.bell_ringer.models.Category;
+import com.bell_ringer.models.Choice;
+import com.bell_ringer.models.Question;
+import com.bell_ringer.repositories.QuestionRepository;
+import com.bell_ringer.services.dto.AttemptSelectedChoiceRequest;
+import com.bell_ringer.services.dto.GenerationRequest;
+import com.bell_ringer.services.dto.QuizGenerationResponse;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The catalog entities come from the second-level cache once loaded: the same
+ * submit and generate issue fewer statements on a warm cache than on a cold one.
+ */
+@SpringBootTest
+class SecondLevelCacheQueryCountTests {
+
+  private static final int QUESTIONS = 5;
+
+  @Autowired
+  private QuestionService questionService;
+  @Autowired
+  private AttemptSelectedChoiceService selectedChoiceService;
+  @Autowired
+  private CategoryService categoryService;
+  @Autowired
+  private QuestionRepository questionRepository;
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+  @Autowired
+  private JdbcTemplate jdbc;
+
+  private SessionFactory sessionFactory;
+  private Statistics statistics;
+  private Long categoryId;
+  private final List<Question> questions = new ArrayList<>();
+
+  @BeforeEach
+  void setUp() {
+    sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+    statistics = sessionFactory.getStatistics();
+
+    Category category = categoryService.create("L2 cache " + UUID.randomUUID(), null);
+    categoryId = category.getId();
+    for (int i = 0; i < QUESTIONS; i++) {
+      Question question = new Question(Question.Type.MULTIPLE_CHOICE, Question.Difficulty.EASY,
+          "Cached question " + i, category);
+      for (int c = 0; c < 2; c++) {
+        Choice choice = new Choice();
+        choice.setQuestion(question);
+        choice.setChoiceText("Choice " + c);
+        choice.setCorrect(c == 0);
+        question.getChoices().add(choice);
+      }
+      questions.add(questionRepository.save(question));
+    }
+  }
+
+  @AfterEach
+  void cleanUp() {
+    if (categoryId == null) return;
+    String quizzes = "SELECT id FROM quizzes WHERE category_id = ?";
+    jdbc.update("DELETE FROM attempt_selected_choices WHERE quiz_id IN (" + quizzes + ")", categoryId);
+    jdbc.update("DELETE FROM attempts WHERE quiz_id IN (" + quizzes + ")", categoryId);
+    jdbc.update("DELETE FROM quiz_questions WHERE quiz_id IN (" + quizzes + ")", categoryId);
+    jdbc.update("DELETE FROM quizzes WHERE category_id = ?", categoryId);
+    jdbc.update("DELETE FROM choices WHERE question_id IN (SELECT id FROM questions WHERE category_id = ?)",
+        categoryId);
+    jdbc.update("DELETE FROM questions WHERE category_id = ?", categoryId);
+    jdbc.update("DELETE FROM categories WHERE id = ?", categoryId);
+    sessionFactory.getCache().evictAllRegions();
+  }
+
+  @Test
+  void warmCacheReducesStatementsOnGenerateAndSubmit() {
+    // Generate: a fresh user each time so nothing is skipped as recently seen
+    sessionFactory.getCache().evictAllRegions();
+    statistics.clear();
+    QuizGenerationResponse first = generate();
+    long coldGenerate = statistics.getPrepareStatementCount();
+
+    statistics.clear();
+    QuizGenerationResponse second = generate();
+    long warmGenerate = statistics.getPrepareStatementCount();
+    long generateHits = statistics.getSecondLevelCacheHitCount();
+
+    assertTrue(warmGenerate < coldGenerate,
+        "generate: " + warmGenerate + " statements warm vs " + coldGenerate + " cold");
+    assertTrue(generateHits > 0, "generate: no second-level cache hits");
+
+    // Submit: same question and choice, one attempt per run
+    Question question = questions.get(0);
+    Long choiceId = question.getChoices().get(0).getId();
+
+    sessionFactory.getCache().evictAllRegions();
+    statistics.clear();
+    selectedChoiceService.submitChoice(
+        new AttemptSelectedChoiceRequest.Submit(first.attemptId(), question.getId(), choiceId));
+    long coldSubmit = statistics.getPrepareStatementCount();
+
+    statistics.clear();
+    selectedChoiceService.submitChoice(
+        new AttemptSelectedChoiceRequest.Submit(second.attemptId(), question.getId(), choiceId));
+    long warmSubmit = statistics.getPrepareStatementCount();
+    long submitHits = statistics.getSecondLevelCacheHitCount();
+
+    assertTrue(warmSubmit < coldSubmit, "submit: " + warmSubmit + " statements warm vs " + coldSubmit + " cold");
+    assertTrue(submitHits > 0, "submit: no second-level cache hits");
+  }
+
+  private QuizGenerationResponse generate() {
+    return questionService.generate(new GenerationRequest(UUID.randomUUID(), null, categoryId, QUESTIONS,
+        GenerationRequest.Mode.RANDOM, Question.Difficulty.EASY.name()));
+  }
+}
@@ -0,0 +1,75 @@
+package com.bell_ringer.services.jfr;
+
+import com.bell_ringer.services.TextAnswerScoringService;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The continuous recording captures the application events, and a dump of
+ * it can be read back; only the latest dump is kept.
+ */
+class ContinuousRecordingTests {
+
+  @TempDir
+  private Path dumpDir;
+
+  private ContinuousRecording recording;
+
+  @AfterEach
+  void stop() {
+    if (recording != null) recording.stop();
+  }
+
+  @Test
+  void dumpContainsApplicationEvents() throws IOException {
+    recording = start(true);
+    assertTrue(recording.isRunning());
+
+    new TextAnswerScoringService().score("Paris", List.of());
+    Path dump = recording.dump(Duration.ofMinutes(1));
+
+    List<RecordedEvent> scorings = RecordingFile.readAllEvents(dump).stream()
+        .filter(e -> e.getEventType().getName().equals("com.bell_ringer.TextScoring"))
+        .toList();
+    assertFalse(scorings.isEmpty());
+    RecordedEvent scoring = scorings.get(scorings.size() - 1);
+    assertEquals(0, scoring.getInt("rubrics"));
+    assertEquals(5, scoring.getInt("answerLength"));
+
+    Path next = recording.dump(Duration.ofMinutes(1));
+    try (Stream<Path> files = Files.list(dumpDir)) {
+      assertEquals(List.of(next), files.toList());
+    }
+  }
+
+  @Test
+  void dumpNeedsARunningRecordingAndAPositiveWindow() {
+    recording = start(false);
+    assertFalse(recording.isRunning());
+    assertThrows(IllegalStateException.class, () -> recording.dump(Duration.ofMinutes(1)));
+    assertThrows(IllegalArgumentException.class, () -> recording.dump(Duration.ZERO));
+  }
+
+  private ContinuousRecording start(boolean enabled) {
+    ContinuousRecording r = new ContinuousRecording(enabled, "default", Duration.ofMinutes(5),
+        DataSize.ofMegabytes(20), dumpDir);
+    r.start();
+    return r;
+  }
+}